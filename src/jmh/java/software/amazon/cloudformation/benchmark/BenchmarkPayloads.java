@@ -0,0 +1,107 @@
+/*
+* Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License").
+* You may not use this file except in compliance with the License.
+* A copy of the License is located at
+*
+*  http://aws.amazon.com/apache2.0
+*
+* or in the "license" file accompanying this file. This file is distributed
+* on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied. See the License for the specific language governing
+* permissions and limitations under the License.
+*/
+package software.amazon.cloudformation.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import software.amazon.cloudformation.resource.Serializer;
+
+/**
+ * Builds request payloads of realistic sizes from the request templates in the
+ * unit test data. The resource model is grown with tags until its serialized
+ * form reaches the requested size.
+ */
+public final class BenchmarkPayloads {
+
+    public enum PayloadSize {
+        SMALL(0),
+        KB_100(100 * 1024),
+        MB_1(1024 * 1024);
+
+        private final int modelBytes;
+
+        PayloadSize(final int modelBytes) {
+            this.modelBytes = modelBytes;
+        }
+    }
+
+    private static final String TEST_DATA_BASE_PATH = "src/test/java/software/amazon/cloudformation/data/%s";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final Serializer SERIALIZER = new Serializer();
+
+    private BenchmarkPayloads() {
+    }
+
+    /**
+     * @return a CREATE request for the resource model, continuing from a callback
+     *         context when requested
+     */
+    static byte[] resourceRequest(final PayloadSize size, final boolean callbackContext, final boolean compressed)
+        throws IOException {
+        final ObjectNode request = template("create.request.json");
+        ((ObjectNode) request.get("requestData")).set("resourceProperties", model(size));
+        if (callbackContext) {
+            request.putObject("callbackContext").put("contextPropertyA", "Value");
+        }
+        return encode(request, compressed);
+    }
+
+    /**
+     * @return a CREATE_PRE_PROVISION hook request targeting the resource model,
+     *         with unencrypted credentials so no KMS cipher is needed
+     */
+    static byte[] hookRequest(final PayloadSize size, final boolean callbackContext, final boolean compressed)
+        throws IOException {
+        final ObjectNode request = template("hook/preCreate.request-with-unencrypted-credentials.json");
+        ((ObjectNode) request.get("requestData").get("targetModel")).set("resourceProperties", model(size));
+        if (callbackContext) {
+            ((ObjectNode) request.get("requestContext")).put("invocation", 2).putObject("callbackContext").put("contextPropertyA", "Value");
+        }
+        return encode(request, compressed);
+    }
+
+    private static ObjectNode model(final PayloadSize size) {
+        final ObjectNode model = MAPPER.createObjectNode();
+        model.put("property1", "abc");
+        model.put("property2", 123);
+        final ObjectNode tags = model.putObject("tags");
+        final String value = String.format("%0100d", 0);
+        int bytes = 0;
+        for (int i = 0; bytes < size.modelBytes; i++) {
+            final String key = String.format("tag-%07d", i);
+            tags.put(key, value);
+            // "key":"value",
+            bytes += key.length() + value.length() + 6;
+        }
+        return model;
+    }
+
+    private static ObjectNode template(final String fileName) throws IOException {
+        return (ObjectNode) MAPPER.readTree(Paths.get(String.format(TEST_DATA_BASE_PATH, fileName)).toFile());
+    }
+
+    private static byte[] encode(final ObjectNode request, final boolean compressed) throws IOException {
+        String payload = MAPPER.writeValueAsString(request);
+        if (compressed) {
+            payload = SERIALIZER.compress(payload);
+        }
+        return payload.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+* Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License").
+* You may not use this file except in compliance with the License.
+* A copy of the License is located at
+*
+*  http://aws.amazon.com/apache2.0
+*
+* or in the "license" file accompanying this file. This file is distributed
+* on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied. See the License for the specific language governing
+* permissions and limitations under the License.
+*/
+package software.amazon.cloudformation.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.cloudwatchlogs.model.DescribeLogStreamsRequest;
+import software.amazon.awssdk.services.cloudwatchlogs.model.DescribeLogStreamsResponse;
+import software.amazon.awssdk.services.cloudwatchlogs.model.LogStream;
+import software.amazon.cloudformation.proxy.StdCallbackContext;
+import software.amazon.cloudformation.resource.Serializer;
+
+/**
+ * Serializes and deserializes a {@link StdCallbackContext} holding memoized SDK
+ * requests and responses for a number of call graphs, as carried between the
+ * invocations of a long running handler, in the JSON and the
+ * {@link StdCallbackContext.CompactEncoding compact} encoding. The serialized
+ * size of each context is printed during setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CallbackContextSerdeBenchmark {
+
+    private static final TypeReference<StdCallbackContext> TYPE_REFERENCE = new TypeReference<StdCallbackContext>() {
+    };
+
+    private static final TypeReference<CompactCallbackContext> COMPACT_TYPE_REFERENCE = new TypeReference<
+        CompactCallbackContext>() {
+    };
+
+    @Param({ "1", "10", "100" })
+    private int callGraphs;
+
+    @Param({ "false", "true" })
+    private boolean compact;
+
+    private final Serializer serializer = new Serializer();
+
+    private StdCallbackContext context;
+
+    private String serialized;
+
+    @Setup
+    public void setup() throws IOException {
+        context = compact ? new CompactCallbackContext() : new StdCallbackContext();
+        for (int i = 0; i < callGraphs; i++) {
+            final String callGraph = "logs:DescribeLogStreams-" + i;
+            final DescribeLogStreamsRequest request = DescribeLogStreamsRequest.builder().logGroupName("log-group-" + i)
+                .logStreamNamePrefix("stream").build();
+            final DescribeLogStreamsResponse response = DescribeLogStreamsResponse.builder()
+                .logStreams(LogStream.builder().logStreamName("stream-" + i).arn("arn:aws:logs:us-east-1:123456789012:stream")
+                    .creationTime(1559670600000L).build())
+                .nextToken("token-" + i).build();
+            context.request(callGraph, (DescribeLogStreamsRequest r) -> r).apply(request);
+            context.response(callGraph, (DescribeLogStreamsRequest r, Object c) -> response).apply(request, null);
+        }
+        serialized = serializer.serialize(context);
+        System.out.printf("%nSerialized callback context with %d call graphs (compact=%s): %d bytes%n", callGraphs, compact,
+            serialized.length());
+    }
+
+    @Benchmark
+    public String serialize() throws IOException {
+        return serializer.serialize(context);
+    }
+
+    @Benchmark
+    public StdCallbackContext deserialize() throws IOException {
+        return compact ? serializer.deserialize(serialized, COMPACT_TYPE_REFERENCE) : serializer.deserialize(serialized, TYPE_REFERENCE);
+    }
+
+    @StdCallbackContext.CompactEncoding
+    public static class CompactCallbackContext extends StdCallbackContext {
+    }
+}
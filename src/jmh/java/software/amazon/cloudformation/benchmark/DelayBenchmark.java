@@ -0,0 +1,70 @@
+/*
+* Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License").
+* You may not use this file except in compliance with the License.
+* A copy of the License is located at
+*
+*  http://aws.amazon.com/apache2.0
+*
+* or in the "license" file accompanying this file. This file is distributed
+* on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied. See the License for the specific language governing
+* permissions and limitations under the License.
+*/
+package software.amazon.cloudformation.benchmark;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.cloudformation.proxy.Delay;
+import software.amazon.cloudformation.proxy.delay.CappedExponential;
+import software.amazon.cloudformation.proxy.delay.Exponential;
+import software.amazon.cloudformation.proxy.delay.MultipleOf;
+
+/**
+ * Measures a single delay computation late into a long stabilization, the way
+ * a re-invoked handler asks a fresh {@link Delay} for the attempt recorded in
+ * its callback context. Before the accrued time was computed in closed form,
+ * {@link CappedExponential} took time exponential in the attempt.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DelayBenchmark {
+
+    private static final Duration TIMEOUT = Duration.ofDays(30);
+
+    @Param({ "10", "100", "1000", "10000" })
+    private int attempt;
+
+    @Benchmark
+    public Duration cappedExponential() {
+        final Delay delay = CappedExponential.of().powerBy(1.3).maxDelay(Duration.ofSeconds(60)).timeout(TIMEOUT).build();
+        return delay.nextDelay(attempt);
+    }
+
+    @Benchmark
+    public Duration exponential() {
+        final Delay delay = Exponential.of().timeout(TIMEOUT).build();
+        return delay.nextDelay(attempt);
+    }
+
+    @Benchmark
+    public Duration multipleOf() {
+        final Delay delay = MultipleOf.multipleOf().delay(Duration.ofSeconds(5)).timeout(TIMEOUT).build();
+        return delay.nextDelay(attempt);
+    }
+}
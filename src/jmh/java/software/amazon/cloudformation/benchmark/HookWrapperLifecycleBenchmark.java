@@ -0,0 +1,184 @@
+/*
+* Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License").
+* You may not use this file except in compliance with the License.
+* A copy of the License is located at
+*
+*  http://aws.amazon.com/apache2.0
+*
+* or in the "license" file accompanying this file. This file is distributed
+* on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied. See the License for the specific language governing
+* permissions and limitations under the License.
+*/
+package software.amazon.cloudformation.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.cloudformation.HookAbstractWrapper;
+import software.amazon.cloudformation.HookInvocationPoint;
+import software.amazon.cloudformation.TestConfigurationModel;
+import software.amazon.cloudformation.TestContext;
+import software.amazon.cloudformation.TestModel;
+import software.amazon.cloudformation.injection.CloudWatchLogsProvider;
+import software.amazon.cloudformation.injection.SessionCredentialsProvider;
+import software.amazon.cloudformation.loggers.BatchingCloudWatchLogPublisher;
+import software.amazon.cloudformation.loggers.LogPublisher;
+import software.amazon.cloudformation.metrics.MetricsPublisher;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.LoggerProxy;
+import software.amazon.cloudformation.proxy.OperationStatus;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+import software.amazon.cloudformation.proxy.hook.HookContext;
+import software.amazon.cloudformation.proxy.hook.HookHandlerRequest;
+import software.amazon.cloudformation.proxy.hook.HookInvocationRequest;
+import software.amazon.cloudformation.proxy.hook.targetmodel.HookTargetModel;
+import software.amazon.cloudformation.resource.Serializer;
+import software.amazon.cloudformation.resource.Validator;
+
+/**
+ * Runs a hook request through {@link HookAbstractWrapper#processRequest} end to
+ * end, with the resource model of the target growing with the payload size.
+ * Run with -prof gc to report the allocation rate alongside throughput and
+ * latency percentiles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Daws.region=us-east-1")
+public class HookWrapperLifecycleBenchmark {
+
+    private static final String HOOK_SCHEMA = "{\"properties\": {\"property1\": {\"type\": \"string\"},"
+        + " \"property2\": {\"type\": \"integer\"}}}";
+
+    @Param({ "SMALL", "KB_100", "MB_1" })
+    private BenchmarkPayloads.PayloadSize payloadSize;
+
+    @Param({ "false", "true" })
+    private boolean compressed;
+
+    @Param({ "false", "true" })
+    private boolean callbackContext;
+
+    private byte[] request;
+
+    private BatchingCloudWatchLogPublisher providerEventsLogger;
+
+    private HookWrapper wrapper;
+
+    @Setup
+    public void setup() throws IOException {
+        request = BenchmarkPayloads.hookRequest(payloadSize, callbackContext, compressed);
+
+        final SdkHttpClient httpClient = new StubSdkHttpClient();
+        final SessionCredentialsProvider credentialsProvider = new SessionCredentialsProvider();
+        providerEventsLogger = new BatchingCloudWatchLogPublisher(new CloudWatchLogsProvider(credentialsProvider, httpClient),
+                                                                  "providerLoggingGroupName",
+                                                                  CompletableFuture.completedFuture("log-stream"),
+                                                                  new LoggerProxy(), null, null);
+        wrapper = new HookWrapper(credentialsProvider, providerEventsLogger, httpClient);
+
+        final String response = processRequest();
+        if (!response.contains("SUCCESS")) {
+            throw new IllegalStateException("Benchmark request failed: " + response);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        providerEventsLogger.close(Duration.ofSeconds(5));
+    }
+
+    @Benchmark
+    public void processRequest(final Blackhole blackhole) throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        wrapper.processRequest(new ByteArrayInputStream(request), outputStream);
+        blackhole.consume(outputStream);
+    }
+
+    private String processRequest() throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        wrapper.processRequest(new ByteArrayInputStream(request), outputStream);
+        return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static final class HookWrapper extends HookAbstractWrapper<TestModel, TestContext, TestConfigurationModel> {
+
+        private HookWrapper(final SessionCredentialsProvider credentialsProvider,
+                            final BatchingCloudWatchLogPublisher providerEventsLogger,
+                            final SdkHttpClient httpClient) {
+            super(credentialsProvider, providerEventsLogger, new LogPublisher() {
+                @Override
+                protected void publishMessage(final String message) {
+                }
+            }, new MetricsPublisher("AWS::Test::TestModel") {
+            }, new Validator(), new Serializer(), httpClient, null);
+        }
+
+        @Override
+        protected HookHandlerRequest transform(final HookInvocationRequest<TestConfigurationModel, TestContext> request) {
+            return HookHandlerRequest.builder().clientRequestToken(request.getClientRequestToken())
+                .hookContext(HookContext.builder().awsAccountId(request.getAwsAccountId()).stackId(request.getStackId())
+                    .changeSetId(request.getChangeSetId()).hookTypeName(request.getHookTypeName())
+                    .hookTypeVersion(request.getHookTypeVersion()).invocationPoint(request.getActionInvocationPoint())
+                    .targetName(request.getRequestData().getTargetName()).targetType(request.getRequestData().getTargetType())
+                    .targetLogicalId(request.getRequestData().getTargetLogicalId())
+                    .targetModel(HookTargetModel.of(request.getRequestData().getTargetModel())).build())
+                .build();
+        }
+
+        @Override
+        protected JSONObject provideHookSchemaJSONObject() {
+            return new JSONObject(HOOK_SCHEMA);
+        }
+
+        @Override
+        public ProgressEvent<TestModel, TestContext> invokeHandler(final AmazonWebServicesClientProxy proxy,
+                                                                   final HookHandlerRequest request,
+                                                                   final HookInvocationPoint invocationPoint,
+                                                                   final TestContext callbackContext,
+                                                                   final TestConfigurationModel typeConfiguration) {
+            return ProgressEvent.<TestModel, TestContext>builder().status(OperationStatus.SUCCESS).build();
+        }
+
+        @Override
+        protected TypeReference<HookInvocationRequest<TestConfigurationModel, TestContext>> getTypeReference() {
+            return new TypeReference<HookInvocationRequest<TestConfigurationModel, TestContext>>() {
+            };
+        }
+
+        @Override
+        protected TypeReference<TestConfigurationModel> getModelTypeReference() {
+            return new TypeReference<TestConfigurationModel>() {
+            };
+        }
+
+        @Override
+        protected void scrubFiles() {
+        }
+    }
+}
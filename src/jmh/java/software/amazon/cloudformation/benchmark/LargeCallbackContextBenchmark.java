@@ -0,0 +1,116 @@
+/*
+* Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License").
+* You may not use this file except in compliance with the License.
+* A copy of the License is located at
+*
+*  http://aws.amazon.com/apache2.0
+*
+* or in the "license" file accompanying this file. This file is distributed
+* on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied. See the License for the specific language governing
+* permissions and limitations under the License.
+*/
+package software.amazon.cloudformation.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.cloudwatchlogs.model.DescribeLogStreamsRequest;
+import software.amazon.awssdk.services.cloudwatchlogs.model.DescribeLogStreamsResponse;
+import software.amazon.awssdk.services.cloudwatchlogs.model.LogStream;
+import software.amazon.cloudformation.proxy.StdCallbackContext;
+import software.amazon.cloudformation.resource.Serializer;
+
+/**
+ * Deserializes a {@link StdCallbackContext} of a handler that has gone through
+ * hundreds of call graphs, each memoizing an SDK request and response alongside
+ * plain Java lists and maps, which exercises the class, constructor and
+ * deserializer lookups done for every encoded value. {@link #resume()} goes
+ * through a re-invocation that only touches the latest call graph, with and
+ * without {@link StdCallbackContext.DeferredDecoding deferred decoding}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LargeCallbackContextBenchmark {
+
+    private static final TypeReference<StdCallbackContext> TYPE_REFERENCE = new TypeReference<StdCallbackContext>() {
+    };
+
+    private static final TypeReference<DeferredCallbackContext> DEFERRED_TYPE_REFERENCE = new TypeReference<
+        DeferredCallbackContext>() {
+    };
+
+    @Param({ "500", "2000" })
+    private int callGraphs;
+
+    @Param({ "false", "true" })
+    private boolean deferred;
+
+    private final Serializer serializer = new Serializer();
+
+    private String serialized;
+
+    @Setup
+    public void setup() throws IOException {
+        final StdCallbackContext context = new StdCallbackContext();
+        for (int i = 0; i < callGraphs; i++) {
+            final String callGraph = "logs:DescribeLogStreams-" + i;
+            final DescribeLogStreamsRequest request = DescribeLogStreamsRequest.builder().logGroupName("log-group-" + i)
+                .logStreamNamePrefix("stream").build();
+            final DescribeLogStreamsResponse response = DescribeLogStreamsResponse.builder()
+                .logStreams(LogStream.builder().logStreamName("stream-" + i).arn("arn:aws:logs:us-east-1:123456789012:stream")
+                    .creationTime(1559670600000L).build())
+                .nextToken("token-" + i).build();
+            context.request(callGraph, (DescribeLogStreamsRequest r) -> r).apply(request);
+            context.response(callGraph, (DescribeLogStreamsRequest r, Object c) -> response).apply(request, null);
+
+            final List<Map<String, Object>> tags = new ArrayList<>();
+            for (int j = 0; j < 3; j++) {
+                final Map<String, Object> tag = new LinkedHashMap<>();
+                tag.put("Key", "key-" + j);
+                tag.put("Value", "value-" + i);
+                tags.add(tag);
+            }
+            context.response("tagging:GetResources-" + i, (Object r, Object c) -> tags).apply(null, null);
+        }
+        serialized = serializer.serialize(context);
+        System.out.printf("%nSerialized callback context with %d call graphs: %d bytes%n", callGraphs, serialized.length());
+    }
+
+    @Benchmark
+    public StdCallbackContext deserialize() throws IOException {
+        return deferred ? serializer.deserialize(serialized, DEFERRED_TYPE_REFERENCE) : serializer.deserialize(serialized, TYPE_REFERENCE);
+    }
+
+    @Benchmark
+    public String resume() throws IOException {
+        final StdCallbackContext context = deserialize();
+        context.response("logs:DescribeLogStreams-" + (callGraphs - 1));
+        return serializer.serialize(context);
+    }
+
+    @StdCallbackContext.DeferredDecoding
+    public static class DeferredCallbackContext extends StdCallbackContext {
+    }
+}
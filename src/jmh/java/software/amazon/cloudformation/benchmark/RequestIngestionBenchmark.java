@@ -0,0 +1,106 @@
+/*
+* Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License").
+* You may not use this file except in compliance with the License.
+* A copy of the License is located at
+*
+*  http://aws.amazon.com/apache2.0
+*
+* or in the "license" file accompanying this file. This file is distributed
+* on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied. See the License for the specific language governing
+* permissions and limitations under the License.
+*/
+package software.amazon.cloudformation.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.IOUtils;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import software.amazon.cloudformation.TestConfigurationModel;
+import software.amazon.cloudformation.TestContext;
+import software.amazon.cloudformation.TestModel;
+import software.amazon.cloudformation.proxy.HandlerRequest;
+import software.amazon.cloudformation.resource.Serializer;
+
+/**
+ * Compares the request ingestion performed by
+ * {@link software.amazon.cloudformation.AbstractWrapper#processRequest} before
+ * and after the payload was read in a single streaming pass, using the request
+ * payloads from the unit test data.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestIngestionBenchmark {
+
+    private static final String TEST_DATA_BASE_PATH = "src/test/java/software/amazon/cloudformation/data/%s";
+
+    private static final TypeReference<HandlerRequest<TestModel, TestContext, TestConfigurationModel>> TYPE_REFERENCE = new TypeReference<
+        HandlerRequest<TestModel, TestContext, TestConfigurationModel>>() {
+    };
+
+    @Param({ "create.request.json", "create.with-request-context.request.json", "update.request.json" })
+    private String payload;
+
+    @Param({ "false", "true" })
+    private boolean compressed;
+
+    private final Serializer serializer = new Serializer();
+
+    private byte[] bytes;
+
+    @Setup
+    public void setup() throws IOException {
+        String input = new String(Files.readAllBytes(Paths.get(String.format(TEST_DATA_BASE_PATH, payload))), StandardCharsets.UTF_8);
+        if (compressed) {
+            input = serializer.compress(input);
+        }
+        bytes = input.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * String copy, decompression map, org.json tree and typed binding as separate
+     * passes over the payload
+     */
+    @Benchmark
+    public void legacy(final Blackhole blackhole) throws IOException {
+        final InputStream inputStream = new ByteArrayInputStream(bytes);
+        final String input = serializer.decompress(IOUtils.toString(inputStream, StandardCharsets.UTF_8));
+        final JSONObject rawInput = new JSONObject(new JSONTokener(input));
+        blackhole.consume(rawInput);
+        blackhole.consume(serializer.deserialize(input, TYPE_REFERENCE));
+    }
+
+    @Benchmark
+    public void streaming(final Blackhole blackhole) throws IOException {
+        final InputStream inputStream = new ByteArrayInputStream(bytes);
+        final JsonNode rawInput = serializer.readTree(inputStream);
+        blackhole.consume(rawInput);
+        blackhole.consume(serializer.deserialize(rawInput, TYPE_REFERENCE));
+    }
+}
@@ -0,0 +1,72 @@
+/*
+* Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License").
+* You may not use this file except in compliance with the License.
+* A copy of the License is located at
+*
+*  http://aws.amazon.com/apache2.0
+*
+* or in the "license" file accompanying this file. This file is distributed
+* on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied. See the License for the specific language governing
+* permissions and limitations under the License.
+*/
+package software.amazon.cloudformation.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.http.ContentStreamProvider;
+import software.amazon.awssdk.http.ExecutableHttpRequest;
+import software.amazon.awssdk.http.HttpExecuteRequest;
+import software.amazon.awssdk.http.HttpExecuteResponse;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.SdkHttpResponse;
+
+/**
+ * Answers every request with an empty JSON document after reading the request
+ * body, so SDK marshalling, signing and unmarshalling are measured without a
+ * network round trip
+ */
+final class StubSdkHttpClient implements SdkHttpClient {
+
+    private static final byte[] EMPTY_DOCUMENT = "{}".getBytes(StandardCharsets.UTF_8);
+
+    @Override
+    public ExecutableHttpRequest prepareRequest(final HttpExecuteRequest request) {
+        return new ExecutableHttpRequest() {
+            @Override
+            public HttpExecuteResponse call() {
+                final Optional<ContentStreamProvider> content = request.contentStreamProvider();
+                content.ifPresent(StubSdkHttpClient::drain);
+                return HttpExecuteResponse.builder()
+                    .response(SdkHttpResponse.builder().statusCode(200).putHeader("Content-Length", "2").build())
+                    .responseBody(AbortableInputStream.create(new ByteArrayInputStream(EMPTY_DOCUMENT))).build();
+            }
+
+            @Override
+            public void abort() {
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private static void drain(final ContentStreamProvider content) {
+        final byte[] buffer = new byte[8192];
+        try (InputStream stream = content.newStream()) {
+            while (stream.read(buffer) != -1) {
+                // discard
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+* Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License").
+* You may not use this file except in compliance with the License.
+* A copy of the License is located at
+*
+*  http://aws.amazon.com/apache2.0
+*
+* or in the "license" file accompanying this file. This file is distributed
+* on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied. See the License for the specific language governing
+* permissions and limitations under the License.
+*/
+package software.amazon.cloudformation.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.cloudformation.AbstractWrapper;
+import software.amazon.cloudformation.Action;
+import software.amazon.cloudformation.TestConfigurationModel;
+import software.amazon.cloudformation.TestContext;
+import software.amazon.cloudformation.TestModel;
+import software.amazon.cloudformation.injection.CloudWatchLogsProvider;
+import software.amazon.cloudformation.injection.SessionCredentialsProvider;
+import software.amazon.cloudformation.loggers.BatchingCloudWatchLogPublisher;
+import software.amazon.cloudformation.loggers.LogPublisher;
+import software.amazon.cloudformation.metrics.MetricsPublisher;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.HandlerRequest;
+import software.amazon.cloudformation.proxy.LoggerProxy;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+import software.amazon.cloudformation.resource.Serializer;
+import software.amazon.cloudformation.resource.Validator;
+
+/**
+ * Runs a resource request through {@link AbstractWrapper#processRequest} end to
+ * end: ingestion, schema validation, handler invocation, provider logging to a
+ * stubbed CloudWatch Logs endpoint and response serialization. Run with -prof gc
+ * to report the allocation rate alongside throughput and latency percentiles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Daws.region=us-east-1")
+public class WrapperLifecycleBenchmark {
+
+    private static final String RESOURCE_SCHEMA = "{\"typeName\": \"AWS::Test::TestModel\", \"description\": \"Test\","
+        + " \"properties\": {\"property1\": {\"type\": \"string\"}, \"property2\": {\"type\": \"integer\"},"
+        + " \"tags\": {\"type\": \"object\", \"patternProperties\": {\"^tag-[0-9]+$\": {\"type\": \"string\"}},"
+        + " \"additionalProperties\": false}},"
+        + " \"additionalProperties\": false, \"primaryIdentifier\": [\"/properties/property1\"]}";
+
+    @Param({ "SMALL", "KB_100", "MB_1" })
+    private BenchmarkPayloads.PayloadSize payloadSize;
+
+    @Param({ "false", "true" })
+    private boolean compressed;
+
+    @Param({ "false", "true" })
+    private boolean callbackContext;
+
+    private byte[] request;
+
+    private BatchingCloudWatchLogPublisher providerEventsLogger;
+
+    private ResourceWrapper wrapper;
+
+    @Setup
+    public void setup() throws IOException {
+        request = BenchmarkPayloads.resourceRequest(payloadSize, callbackContext, compressed);
+
+        final SdkHttpClient httpClient = new StubSdkHttpClient();
+        final SessionCredentialsProvider credentialsProvider = new SessionCredentialsProvider();
+        providerEventsLogger = new BatchingCloudWatchLogPublisher(new CloudWatchLogsProvider(credentialsProvider, httpClient),
+                                                                  "providerLoggingGroupName",
+                                                                  CompletableFuture.completedFuture("log-stream"),
+                                                                  new LoggerProxy(), null, null);
+        wrapper = new ResourceWrapper(credentialsProvider, providerEventsLogger, httpClient);
+
+        final String response = processRequest();
+        if (!response.contains("SUCCESS")) {
+            throw new IllegalStateException("Benchmark request failed: " + response);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        providerEventsLogger.close(Duration.ofSeconds(5));
+    }
+
+    @Benchmark
+    public void processRequest(final Blackhole blackhole) throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        wrapper.processRequest(new ByteArrayInputStream(request), outputStream);
+        blackhole.consume(outputStream);
+    }
+
+    private String processRequest() throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        wrapper.processRequest(new ByteArrayInputStream(request), outputStream);
+        return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static final class ResourceWrapper extends AbstractWrapper<TestModel, TestContext, TestConfigurationModel> {
+
+        private ResourceWrapper(final SessionCredentialsProvider credentialsProvider,
+                                final BatchingCloudWatchLogPublisher providerEventsLogger,
+                                final SdkHttpClient httpClient) {
+            super(credentialsProvider, new LogPublisher() {
+                @Override
+                protected void publishMessage(final String message) {
+                }
+            }, providerEventsLogger, new MetricsPublisher("AWS::Test::TestModel") {
+            }, new Validator(), new Serializer(), httpClient);
+        }
+
+        @Override
+        protected ResourceHandlerRequest<TestModel>
+            transform(final HandlerRequest<TestModel, TestContext, TestConfigurationModel> request) {
+            return ResourceHandlerRequest.<TestModel>builder().clientRequestToken(request.getBearerToken())
+                .desiredResourceState(request.getRequestData().getResourceProperties())
+                .previousResourceState(request.getRequestData().getPreviousResourceProperties())
+                .desiredResourceTags(request.getRequestData().getStackTags())
+                .systemTags(request.getRequestData().getSystemTags()).awsAccountId(request.getAwsAccountId())
+                .logicalResourceIdentifier(request.getRequestData().getLogicalResourceId()).region(request.getRegion())
+                .build();
+        }
+
+        @Override
+        protected JSONObject provideResourceSchemaJSONObject() {
+            return new JSONObject(RESOURCE_SCHEMA);
+        }
+
+        @Override
+        protected Map<String, String> provideResourceDefinedTags(final TestModel resourceModel) {
+            return resourceModel.getTags();
+        }
+
+        @Override
+        public ProgressEvent<TestModel, TestContext> invokeHandler(final AmazonWebServicesClientProxy proxy,
+                                                                   final ResourceHandlerRequest<TestModel> request,
+                                                                   final Action action,
+                                                                   final TestContext callbackContext,
+                                                                   final TestConfigurationModel typeConfiguration) {
+            return ProgressEvent.defaultSuccessHandler(request.getDesiredResourceState());
+        }
+
+        @Override
+        protected TypeReference<HandlerRequest<TestModel, TestContext, TestConfigurationModel>> getTypeReference() {
+            return new TypeReference<HandlerRequest<TestModel, TestContext, TestConfigurationModel>>() {
+            };
+        }
+
+        @Override
+        protected TypeReference<TestModel> getModelTypeReference() {
+            return new TypeReference<TestModel>() {
+            };
+        }
+
+        @Override
+        protected void scrubFiles() {
+        }
+    }
+}
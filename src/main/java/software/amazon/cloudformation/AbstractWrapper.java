@@ -17,6 +17,7 @@ package software.amazon.cloudformation;
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.retry.RetryUtils;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.exc.MismatchedInputException;
 import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
 import com.google.common.annotations.VisibleForTesting;
@@ -25,18 +26,20 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.json.JSONArray;
 import org.json.JSONObject;
-import org.json.JSONTokener;
 import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.http.SdkHttpClient;
 import software.amazon.awssdk.http.apache.ApacheHttpClient;
@@ -49,9 +52,13 @@ import software.amazon.cloudformation.injection.CloudWatchLogsProvider;
 import software.amazon.cloudformation.injection.CloudWatchProvider;
 import software.amazon.cloudformation.injection.CredentialsProvider;
 import software.amazon.cloudformation.injection.SessionCredentialsProvider;
+import software.amazon.cloudformation.loggers.BatchingCloudWatchLogPublisher;
 import software.amazon.cloudformation.loggers.CloudWatchLogHelper;
 import software.amazon.cloudformation.loggers.CloudWatchLogPublisher;
 import software.amazon.cloudformation.loggers.LogPublisher;
+import software.amazon.cloudformation.loggers.LogStreamCache;
+import software.amazon.cloudformation.metrics.CloudWatchMetricsPublisher;
+import software.amazon.cloudformation.metrics.MetricsDeliveryMode;
 import software.amazon.cloudformation.metrics.MetricsPublisher;
 import software.amazon.cloudformation.metrics.MetricsPublisherImpl;
 import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
@@ -63,12 +70,14 @@ import software.amazon.cloudformation.proxy.LoggerProxy;
 import software.amazon.cloudformation.proxy.MetricsPublisherProxy;
 import software.amazon.cloudformation.proxy.OperationStatus;
 import software.amazon.cloudformation.proxy.ProgressEvent;
+import software.amazon.cloudformation.proxy.RequestRateLimiter;
 import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
 import software.amazon.cloudformation.proxy.WaitStrategy;
-import software.amazon.cloudformation.resource.ResourceTypeSchema;
+import software.amazon.cloudformation.resource.CachingValidator;
+import software.amazon.cloudformation.resource.ResourceTypeSchemaCache;
 import software.amazon.cloudformation.resource.SchemaValidator;
 import software.amazon.cloudformation.resource.Serializer;
-import software.amazon.cloudformation.resource.Validator;
+import software.amazon.cloudformation.resource.WriteOnlyPropertyStripper;
 import software.amazon.cloudformation.resource.exceptions.ValidationException;
 
 public abstract class AbstractWrapper<ResourceT, CallbackT, ConfigurationT> {
@@ -77,11 +86,16 @@ public abstract class AbstractWrapper<ResourceT, CallbackT, ConfigurationT> {
 
     private static final Set<Action> MUTATING_ACTIONS = ImmutableSet.of(Action.CREATE, Action.DELETE, Action.UPDATE);
     private static final Set<Action> VALIDATING_ACTIONS = ImmutableSet.of(Action.CREATE, Action.UPDATE);
+    private static final Duration PROVIDER_LOG_FLUSH_TIMEOUT = Duration.ofSeconds(2);
+    private static final Duration PROVIDER_METRICS_FLUSH_TIMEOUT = Duration.ofSeconds(1);
 
     protected final Serializer serializer;
     protected LoggerProxy loggerProxy;
     protected MetricsPublisherProxy metricsPublisherProxy;
 
+    // time left in the invocation in milliseconds, set when invoked through Lambda
+    protected Supplier<Long> remainingTimeToExecute;
+
     protected LoggerProxy platformLoggerProxy;
     protected LogPublisher platformLogPublisher;
 
@@ -91,19 +105,28 @@ public abstract class AbstractWrapper<ResourceT, CallbackT, ConfigurationT> {
     protected final CloudWatchProvider providerCloudWatchProvider;
     protected final CloudWatchLogsProvider cloudWatchLogsProvider;
     protected final SchemaValidator validator;
+    protected final ResourceTypeSchemaCache schemaCache;
     protected final TypeReference<HandlerRequest<ResourceT, CallbackT, ConfigurationT>> typeReference;
 
     protected MetricsPublisher providerMetricsPublisher;
 
-    protected CloudWatchLogHelper cloudWatchLogHelper;
+    // assigned by the log stream preparer, which runs in the background
+    protected volatile CloudWatchLogHelper cloudWatchLogHelper;
     protected CloudWatchLogPublisher providerEventsLogger;
 
+    private final LogStreamCache logStreamCache = new LogStreamCache();
+    private CompletableFuture<String> providerLogStream;
+    private CloudWatchLogPublisher embeddedMetricsLogger;
+    // kept across invocations so a warm container keeps to the limits
+    private RequestRateLimiter requestRateLimiter;
+
     protected AbstractWrapper() {
         this.providerCredentialsProvider = new SessionCredentialsProvider();
         this.providerCloudWatchProvider = new CloudWatchProvider(this.providerCredentialsProvider, HTTP_CLIENT);
         this.cloudWatchLogsProvider = new CloudWatchLogsProvider(this.providerCredentialsProvider, HTTP_CLIENT);
         this.serializer = new Serializer();
-        this.validator = new Validator();
+        this.validator = new CachingValidator();
+        this.schemaCache = new ResourceTypeSchemaCache(this::provideResourceSchemaJSONObject);
         this.typeReference = getTypeReference();
         this.platformLoggerProxy = new LoggerProxy();
     }
@@ -127,6 +150,7 @@ public abstract class AbstractWrapper<ResourceT, CallbackT, ConfigurationT> {
         this.providerMetricsPublisher = providerMetricsPublisher;
         this.serializer = serializer;
         this.validator = validator;
+        this.schemaCache = new ResourceTypeSchemaCache(this::provideResourceSchemaJSONObject);
         this.typeReference = getTypeReference();
         this.platformLoggerProxy = new LoggerProxy();
 
@@ -136,8 +160,10 @@ public abstract class AbstractWrapper<ResourceT, CallbackT, ConfigurationT> {
      * This function initialises dependencies which are depending on credentials
      * passed at function invoke and not available during construction
      */
-    private void
-        initialiseRuntime(final String resourceType, final Credentials providerCredentials, final String providerLogGroupName) {
+    private void initialiseRuntime(final String resourceType,
+                                   final Credentials providerCredentials,
+                                   final String providerLogGroupName,
+                                   final String awsAccountId) {
 
         this.metricsPublisherProxy = new MetricsPublisherProxy();
         this.loggerProxy = new LoggerProxy();
@@ -155,25 +181,69 @@ public abstract class AbstractWrapper<ResourceT, CallbackT, ConfigurationT> {
                 this.providerCredentialsProvider.setCredentials(providerCredentials);
             }
 
-            if (this.providerMetricsPublisher == null) {
-                this.providerMetricsPublisher = new MetricsPublisherImpl(this.providerCloudWatchProvider, this.loggerProxy,
-                                                                         resourceType);
+            // a publisher injected in unit tests is used as is
+            if (this.providerEventsLogger == null || this.providerLogStream != null) {
+                initialiseProviderEventsLogger(providerLogGroupName, awsAccountId);
+            }
+            this.loggerProxy.addLogPublisher(this.providerEventsLogger);
+            this.providerEventsLogger.refreshClient();
+
+            // embedded metrics follow the provider log stream when it is replaced
+            if (this.providerMetricsPublisher == null
+                || this.embeddedMetricsLogger != null && this.embeddedMetricsLogger != this.providerEventsLogger) {
+                if (getMetricsDeliveryMode() == MetricsDeliveryMode.EMBEDDED_METRIC_FORMAT) {
+                    this.providerMetricsPublisher = new MetricsPublisherImpl(this.loggerProxy, resourceType,
+                                                                             this.providerEventsLogger);
+                    this.embeddedMetricsLogger = this.providerEventsLogger;
+                } else {
+                    this.providerMetricsPublisher = new MetricsPublisherImpl(this.providerCloudWatchProvider, this.loggerProxy,
+                                                                             resourceType, true);
+                }
             }
             this.metricsPublisherProxy.addMetricsPublisher(this.providerMetricsPublisher);
             this.providerMetricsPublisher.refreshClient();
+        }
+    }
 
-            if (this.providerEventsLogger == null) {
-                this.cloudWatchLogHelper = new CloudWatchLogHelper(this.cloudWatchLogsProvider, providerLogGroupName,
-                                                                   this.platformLoggerProxy, this.metricsPublisherProxy);
-                this.cloudWatchLogHelper.refreshClient();
-
-                this.providerEventsLogger = new CloudWatchLogPublisher(this.cloudWatchLogsProvider, providerLogGroupName,
-                                                                       this.cloudWatchLogHelper.prepareLogStream(),
-                                                                       this.platformLoggerProxy, this.metricsPublisherProxy);
-            }
-            this.loggerProxy.addLogPublisher(this.providerEventsLogger);
-            this.providerEventsLogger.refreshClient();
+    /**
+     * Reuses the log stream prepared for the log group and account by a previous
+     * invocation of this container. Otherwise the stream is prepared in the
+     * background while the handler runs, events logged in the meantime are buffered
+     * by the publisher.
+     */
+    private void initialiseProviderEventsLogger(final String providerLogGroupName, final String awsAccountId) {
+        final LoggerProxy platformLogger = this.platformLoggerProxy;
+        final MetricsPublisherProxy metricsPublisher = this.metricsPublisherProxy;
+        final Supplier<String> preparer = () -> {
+            final CloudWatchLogHelper helper = new CloudWatchLogHelper(this.cloudWatchLogsProvider, providerLogGroupName,
+                                                                       platformLogger, metricsPublisher);
+            helper.refreshClient();
+            this.cloudWatchLogHelper = helper;
+            return helper.prepareLogStream();
+        };
+
+        final CompletableFuture<String> logStream = logStreamCache.getLogStream(providerLogGroupName, awsAccountId, preparer);
+        if (logStream == this.providerLogStream) {
+            return;
+        }
+        if (this.providerEventsLogger instanceof BatchingCloudWatchLogPublisher) {
+            ((BatchingCloudWatchLogPublisher) this.providerEventsLogger).close(PROVIDER_LOG_FLUSH_TIMEOUT);
         }
+        this.providerLogStream = logStream;
+        this.providerEventsLogger = new BatchingCloudWatchLogPublisher(this.cloudWatchLogsProvider, providerLogGroupName,
+                                                                       logStream, platformLogger, metricsPublisher,
+                                                                       missing -> logStreamCache.refresh(providerLogGroupName,
+                                                                           awsAccountId, missing, preparer));
+    }
+
+    /**
+     * Override to choose how the provider metrics are delivered, the same metrics
+     * are published either way
+     *
+     * @return {@link MetricsDeliveryMode#PUT_METRIC_DATA} unless overridden
+     */
+    protected MetricsDeliveryMode getMetricsDeliveryMode() {
+        return MetricsDeliveryMode.PUT_METRIC_DATA;
     }
 
     public void processRequest(final InputStream inputStream, final OutputStream outputStream) throws IOException,
@@ -187,19 +257,19 @@ public abstract class AbstractWrapper<ResourceT, CallbackT, ConfigurationT> {
                 throw new TerminalException("No request object received");
             }
 
-            String input = this.serializer.decompress(IOUtils.toString(inputStream, StandardCharsets.UTF_8));
-
-            JSONObject rawInput = new JSONObject(new JSONTokener(input));
+            // read the (possibly compressed) payload once, the tree is shared between
+            // the modelled request and validation of the raw resource properties
+            JsonNode rawInput = this.serializer.readTree(inputStream);
             // deserialize incoming payload to modelled request
             try {
-                request = this.serializer.deserialize(input, typeReference);
+                request = this.serializer.deserialize(rawInput, typeReference);
 
                 handlerResponse = processInvocation(rawInput, request);
             } catch (MismatchedInputException e) {
-                JSONObject resourceSchemaJSONObject = provideResourceSchemaJSONObject();
-                JSONObject rawModelObject = rawInput.getJSONObject("requestData").getJSONObject("resourceProperties");
+                JSONObject resourceSchemaJSONObject = this.schemaCache.getSchemaJson();
+                JSONObject rawModelObject = getRawModelObject(rawInput);
 
-                this.validator.validateObject(rawModelObject, resourceSchemaJSONObject);
+                validateObject(rawModelObject, resourceSchemaJSONObject);
 
                 handlerResponse = ProgressEvent.defaultFailureHandler(
                     new CfnInvalidRequestException("Resource properties validation failed with invalid configuration", e),
@@ -234,13 +304,36 @@ public abstract class AbstractWrapper<ResourceT, CallbackT, ConfigurationT> {
         } finally {
             // A response will be output on all paths, though CloudFormation will
             // not block on invoking the handlers, but rather listen for callbacks
+            publishExceptionCodeAndCountMetrics(request == null ? null : request.getAction(),
+                handlerResponse == null ? null : handlerResponse.getErrorCode());
+            flushProviderEvents();
+            flushProviderMetrics();
             writeResponse(outputStream, handlerResponse);
-            publishExceptionCodeAndCountMetrics(request == null ? null : request.getAction(), handlerResponse.getErrorCode());
+        }
+    }
+
+    /**
+     * Delivers the provider log events buffered during this invocation, bounded so
+     * that slow log delivery cannot hold back the response
+     */
+    private void flushProviderEvents() {
+        if (this.providerEventsLogger instanceof BatchingCloudWatchLogPublisher) {
+            ((BatchingCloudWatchLogPublisher) this.providerEventsLogger).flush(PROVIDER_LOG_FLUSH_TIMEOUT);
+        }
+    }
+
+    /**
+     * Sends the metrics aggregated during this invocation, after the log flush as
+     * that reports log delivery metrics of its own
+     */
+    private void flushProviderMetrics() {
+        if (this.providerMetricsPublisher instanceof CloudWatchMetricsPublisher) {
+            ((CloudWatchMetricsPublisher) this.providerMetricsPublisher).flush(PROVIDER_METRICS_FLUSH_TIMEOUT);
         }
     }
 
     private ProgressEvent<ResourceT, CallbackT>
-        processInvocation(final JSONObject rawRequest, final HandlerRequest<ResourceT, CallbackT, ConfigurationT> request)
+        processInvocation(final JsonNode rawRequest, final HandlerRequest<ResourceT, CallbackT, ConfigurationT> request)
             throws IOException,
             TerminalException {
         assert request != null : "Invalid request object received";
@@ -258,7 +351,7 @@ public abstract class AbstractWrapper<ResourceT, CallbackT, ConfigurationT> {
 
         // initialise dependencies
         initialiseRuntime(request.getResourceType(), request.getRequestData().getProviderCredentials(),
-            request.getRequestData().getProviderLogGroupName());
+            request.getRequestData().getProviderLogGroupName(), request.getAwsAccountId());
 
         // transform the request object to pass to caller
         ResourceHandlerRequest<ResourceT> resourceHandlerRequest = transform(request);
@@ -292,9 +385,9 @@ public abstract class AbstractWrapper<ResourceT, CallbackT, ConfigurationT> {
         if (shouldValidate) {
             // validate entire incoming payload, including extraneous fields which
             // are stripped by the Serializer (due to FAIL_ON_UNKNOWN_PROPERTIES setting)
-            JSONObject rawModelObject = rawRequest.getJSONObject("requestData").getJSONObject("resourceProperties");
+            JsonNode rawModel = getRawModel(rawRequest);
             try {
-                validateModel(rawModelObject);
+                validateModel(rawModel);
             } catch (final ValidationException e) {
                 // TODO: we'll need a better way to expose the stack of causing exceptions for
                 // user feedback
@@ -325,8 +418,8 @@ public abstract class AbstractWrapper<ResourceT, CallbackT, ConfigurationT> {
         AmazonWebServicesClientProxy awsClientProxy = null;
         if (request.getRequestData().getCallerCredentials() != null) {
             awsClientProxy = new AmazonWebServicesClientProxy(this.loggerProxy, request.getRequestData().getCallerCredentials(),
-                                                              DelayFactory.CONSTANT_DEFAULT_DELAY_FACTORY,
-                                                              WaitStrategy.scheduleForCallbackStrategy());
+                                                              DelayFactory.CONSTANT_DEFAULT_DELAY_FACTORY, getWaitStrategy(),
+                                                              getRequestRateLimiter(typeConfiguration), getHandlerTimeLeft());
         }
 
         ProgressEvent<ResourceT, CallbackT> handlerResponse = wrapInvocationAndHandleErrors(awsClientProxy,
@@ -339,6 +432,64 @@ public abstract class AbstractWrapper<ResourceT, CallbackT, ConfigurationT> {
         return handlerResponse;
     }
 
+    /*
+     * Inside Lambda short waits are made locally when they fit in the time left,
+     * elsewhere there is no deadline to measure against and every wait is a
+     * callback
+     */
+    private WaitStrategy getWaitStrategy() {
+        return remainingTimeToExecute == null
+            ? WaitStrategy.scheduleForCallbackStrategy()
+            : WaitStrategy.newRemainingTimeAwareStrategy(getHandlerTimeLeft());
+    }
+
+    /*
+     * The time left for the handler, the response is only written after logs and
+     * metrics are flushed
+     */
+    private Supplier<Long> getHandlerTimeLeft() {
+        if (remainingTimeToExecute == null) {
+            return null;
+        }
+        final long flushMillis = PROVIDER_LOG_FLUSH_TIMEOUT.plus(PROVIDER_METRICS_FLUSH_TIMEOUT).toMillis();
+        return () -> remainingTimeToExecute.get() - flushMillis;
+    }
+
+    /*
+     * The limiter is rebuilt only when the limits change, its buckets carry over
+     * from one invocation to the next otherwise
+     */
+    private RequestRateLimiter getRequestRateLimiter(final ConfigurationT typeConfiguration) {
+        final Map<String, ? extends Number> limits = provideRequestRateLimits(typeConfiguration);
+        if (limits == null || limits.isEmpty()) {
+            requestRateLimiter = null;
+        } else if (requestRateLimiter == null || !requestRateLimiter.getLimits().equals(toRates(limits))) {
+            requestRateLimiter = new RequestRateLimiter(limits);
+        }
+        return requestRateLimiter;
+    }
+
+    private static Map<String, Double> toRates(final Map<String, ? extends Number> limits) {
+        final Map<String, Double> rates = new HashMap<>();
+        limits.forEach((key, rate) -> rates.put(key, rate == null ? null : rate.doubleValue()));
+        return rates;
+    }
+
+    private void publishRequestRateLimitMetrics() {
+        if (requestRateLimiter != null) {
+            final Instant now = Instant.now();
+            requestRateLimiter.drainWaits().forEach((limit, waits) -> metricsPublisherProxy.publishRequestRateLimitMetrics(now,
+                limit, waits.getPermitsWaited(), waits.getWaited().toMillis()));
+        }
+    }
+
+    private void publishSchemaCacheMetrics() {
+        final ResourceTypeSchemaCache.Counts counts = schemaCache.drainCounts();
+        if (counts.getHits() > 0 || counts.getMisses() > 0) {
+            metricsPublisherProxy.publishSchemaCacheMetrics(Instant.now(), counts.getHits(), counts.getMisses());
+        }
+    }
+
     private void logUnhandledError(final String errorDescription,
                                    final HandlerRequest<ResourceT, CallbackT, ConfigurationT> request,
                                    final Throwable e) {
@@ -395,6 +546,8 @@ public abstract class AbstractWrapper<ResourceT, CallbackT, ConfigurationT> {
             Date endTime = Date.from(Instant.now());
             metricsPublisherProxy.publishDurationMetric(Instant.now(), request.getAction(),
                 (endTime.getTime() - startTime.getTime()));
+            publishRequestRateLimitMetrics();
+            publishSchemaCacheMetrics();
         }
 
     }
@@ -422,30 +575,79 @@ public abstract class AbstractWrapper<ResourceT, CallbackT, ConfigurationT> {
     protected ResourceT sanitizeModel(final ResourceT model) throws IOException {
         // strip write only properties on final results, we will need the intact model
         // while provisioning
-        final JSONObject modelObject = new JSONObject(this.serializer.serialize(model));
-        ResourceTypeSchema.load(provideResourceSchemaJSONObject()).removeWriteOnlyProperties(modelObject);
-        return this.serializer.deserializeStrict(modelObject.toString(), getModelTypeReference());
+        final WriteOnlyPropertyStripper stripper = this.schemaCache.getWriteOnlyPropertyStripper();
+        if (stripper.isEmpty()) {
+            return model;
+        }
+        final JsonNode modelTree = this.serializer.toTree(model);
+        stripper.strip(modelTree);
+        return this.serializer.deserializeStrict(modelTree, getModelTypeReference());
+    }
+
+    private JsonNode getRawModel(final JsonNode rawRequest) {
+        JsonNode rawModel = rawRequest.path("requestData").path("resourceProperties");
+        if (!rawModel.isObject()) {
+            throw new TerminalException("Invalid resource properties object received");
+        }
+        return rawModel;
     }
 
-    private void validateModel(final JSONObject modelObject) throws ValidationException, IOException {
-        JSONObject resourceSchemaJSONObject = provideResourceSchemaJSONObject();
+    private JSONObject getRawModelObject(final JsonNode rawRequest) {
+        return (JSONObject) toJson(getRawModel(rawRequest));
+    }
+
+    /*
+     * Explicit nulls are kept as JSONObject.NULL, as parsing the text would, so the
+     * schema reports them as type errors instead of the keys going missing
+     */
+    private static Object toJson(final JsonNode node) {
+        if (node.isObject()) {
+            final JSONObject object = new JSONObject();
+            node.fields().forEachRemaining(field -> object.put(field.getKey(), toJson(field.getValue())));
+            return object;
+        }
+        if (node.isArray()) {
+            final JSONArray array = new JSONArray();
+            node.forEach(element -> array.put(toJson(element)));
+            return array;
+        }
+        if (node.isNumber()) {
+            return node.numberValue();
+        }
+        if (node.isBoolean()) {
+            return node.booleanValue();
+        }
+        if (node.isTextual()) {
+            return node.textValue();
+        }
+        return JSONObject.NULL;
+    }
+
+    private void validateModel(final JsonNode rawModel) throws ValidationException, IOException {
+        JSONObject resourceSchemaJSONObject = this.schemaCache.getSchemaJson();
         if (resourceSchemaJSONObject == null) {
             throw new TerminalException("Unable to validate incoming model as no schema was provided.");
         }
 
         TypeReference<ResourceT> modelTypeReference = getModelTypeReference();
 
-        // deserialize incoming payload to modelled request
+        // bind the raw tree to the modelled type, which rejects unknown keys, and
+        // validate the normalised model against the schema without any text round trip
         ResourceT deserializedModel;
         try {
-            deserializedModel = this.serializer.deserializeStrict(modelObject.toString(), modelTypeReference);
+            deserializedModel = this.serializer.deserializeStrict(rawModel, modelTypeReference);
         } catch (UnrecognizedPropertyException e) {
             throw new ValidationException(String.format("#: extraneous key [%s] is not permitted", e.getPropertyName()),
                                           "additionalProperties", "#");
         }
 
-        JSONObject serializedModel = new JSONObject(this.serializer.serialize(deserializedModel));
-        this.validator.validateObject(serializedModel, resourceSchemaJSONObject);
+        JSONObject serializedModel = new JSONObject(this.serializer.convert(deserializedModel, Serializer.MAP_TYPE_REFERENCE));
+        validateObject(serializedModel, resourceSchemaJSONObject);
+    }
+
+    private void validateObject(final JSONObject modelObject, final JSONObject resourceSchemaJSONObject)
+        throws ValidationException {
+        this.validator.validateObject(modelObject, resourceSchemaJSONObject);
     }
 
     /**
@@ -476,6 +678,21 @@ public abstract class AbstractWrapper<ResourceT, CallbackT, ConfigurationT> {
      */
     protected abstract Map<String, String> provideResourceDefinedTags(ResourceT resourceModel);
 
+    /**
+     * Handler implementation can override this method to limit the rate of requests
+     * made through {@link AmazonWebServicesClientProxy#newProxy}, e.g. from limits
+     * declared in the type configuration.
+     *
+     * @param typeConfiguration the type configuration for the invocation, can be
+     *            null
+     * @return requests per second keyed by service name, e.g. {@code "ec2"}, or by
+     *         service name and operation, e.g. {@code "ec2:DescribeInstances"}, see
+     *         {@link RequestRateLimiter}. Null or empty for no limits, the default.
+     */
+    protected Map<String, ? extends Number> provideRequestRateLimits(final ConfigurationT typeConfiguration) {
+        return null;
+    }
+
     /**
      * Implemented by the handler package as the key entry point.
      *
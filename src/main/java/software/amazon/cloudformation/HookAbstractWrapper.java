@@ -17,17 +17,19 @@ package software.amazon.cloudformation;
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.retry.RetryUtils;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.json.JSONObject;
-import org.json.JSONTokener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import software.amazon.awssdk.awscore.exception.AwsServiceException;
@@ -45,10 +47,14 @@ import software.amazon.cloudformation.injection.CloudWatchLogsProvider;
 import software.amazon.cloudformation.injection.CloudWatchProvider;
 import software.amazon.cloudformation.injection.CredentialsProvider;
 import software.amazon.cloudformation.injection.SessionCredentialsProvider;
+import software.amazon.cloudformation.loggers.BatchingCloudWatchLogPublisher;
 import software.amazon.cloudformation.loggers.CloudWatchLogHelper;
 import software.amazon.cloudformation.loggers.CloudWatchLogPublisher;
 import software.amazon.cloudformation.loggers.LogPublisher;
+import software.amazon.cloudformation.loggers.LogStreamCache;
+import software.amazon.cloudformation.metrics.CloudWatchMetricsPublisher;
 import software.amazon.cloudformation.metrics.HookMetricsPublisherImpl;
+import software.amazon.cloudformation.metrics.MetricsDeliveryMode;
 import software.amazon.cloudformation.metrics.MetricsPublisher;
 import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
 import software.amazon.cloudformation.proxy.Credentials;
@@ -72,12 +78,17 @@ public abstract class HookAbstractWrapper<TargetT, CallbackT, ConfigurationT> {
 
     public static final SdkHttpClient HTTP_CLIENT = ApacheHttpClient.builder().build();
     private static final Logger LOG = LoggerFactory.getLogger(HookAbstractWrapper.class);
+    private static final Duration PROVIDER_LOG_FLUSH_TIMEOUT = Duration.ofSeconds(2);
+    private static final Duration PROVIDER_METRICS_FLUSH_TIMEOUT = Duration.ofSeconds(1);
 
     protected final Serializer serializer;
     protected LoggerProxy loggerProxy;
     protected MetricsPublisherProxy metricsPublisherProxy;
     protected Cipher cipher;
 
+    // time left in the invocation in milliseconds, set when invoked through Lambda
+    protected Supplier<Long> remainingTimeToExecute;
+
     protected LoggerProxy platformLoggerProxy;
     protected LogPublisher platformLogPublisher;
 
@@ -91,9 +102,12 @@ public abstract class HookAbstractWrapper<TargetT, CallbackT, ConfigurationT> {
 
     private MetricsPublisher providerMetricsPublisher;
 
-    private CloudWatchLogHelper cloudWatchLogHelper;
     private CloudWatchLogPublisher providerEventsLogger;
 
+    private final LogStreamCache logStreamCache = new LogStreamCache();
+    private CompletableFuture<String> providerLogStream;
+    private CloudWatchLogPublisher embeddedMetricsLogger;
+
     protected HookAbstractWrapper() {
         this.providerCredentialsProvider = new SessionCredentialsProvider();
         this.providerCloudWatchProvider = new CloudWatchProvider(this.providerCredentialsProvider, HTTP_CLIENT);
@@ -161,25 +175,92 @@ public abstract class HookAbstractWrapper<TargetT, CallbackT, ConfigurationT> {
                 this.providerCredentialsProvider.setCredentials(processedProviderCredentials);
             }
 
-            if (this.providerMetricsPublisher == null) {
-                this.providerMetricsPublisher = new HookMetricsPublisherImpl(this.providerCloudWatchProvider, this.loggerProxy,
-                                                                             awsAccountId, hookTypeName);
+            // a publisher injected in unit tests is used as is
+            if (this.providerEventsLogger == null || this.providerLogStream != null) {
+                initialiseProviderEventsLogger(providerLogGroupName, awsAccountId);
+            }
+            this.loggerProxy.addLogPublisher(this.providerEventsLogger);
+            this.providerEventsLogger.refreshClient();
+
+            // embedded metrics follow the provider log stream when it is replaced
+            if (this.providerMetricsPublisher == null
+                || this.embeddedMetricsLogger != null && this.embeddedMetricsLogger != this.providerEventsLogger) {
+                if (getMetricsDeliveryMode() == MetricsDeliveryMode.EMBEDDED_METRIC_FORMAT) {
+                    this.providerMetricsPublisher = new HookMetricsPublisherImpl(this.loggerProxy, awsAccountId, hookTypeName,
+                                                                                 this.providerEventsLogger);
+                    this.embeddedMetricsLogger = this.providerEventsLogger;
+                } else {
+                    this.providerMetricsPublisher = new HookMetricsPublisherImpl(this.providerCloudWatchProvider,
+                                                                                 this.loggerProxy, awsAccountId, hookTypeName,
+                                                                                 true);
+                }
             }
             this.metricsPublisherProxy.addMetricsPublisher(this.providerMetricsPublisher);
             this.providerMetricsPublisher.refreshClient();
+        }
+    }
 
-            if (this.providerEventsLogger == null) {
-                this.cloudWatchLogHelper = new CloudWatchLogHelper(this.cloudWatchLogsProvider, providerLogGroupName,
-                                                                   this.platformLoggerProxy, this.metricsPublisherProxy);
-                this.cloudWatchLogHelper.refreshClient();
+    /**
+     * Reuses the log stream prepared for the log group and account by a previous
+     * invocation of this container. Otherwise the stream is prepared in the
+     * background while the handler runs, events logged in the meantime are buffered
+     * by the publisher.
+     */
+    private void initialiseProviderEventsLogger(final String providerLogGroupName, final String awsAccountId) {
+        final LoggerProxy platformLogger = this.platformLoggerProxy;
+        final MetricsPublisherProxy metricsPublisher = this.metricsPublisherProxy;
+        final Supplier<String> preparer = () -> {
+            final CloudWatchLogHelper helper = new CloudWatchLogHelper(this.cloudWatchLogsProvider, providerLogGroupName,
+                                                                       platformLogger, metricsPublisher);
+            helper.refreshClient();
+            return helper.prepareLogStream();
+        };
+
+        final CompletableFuture<String> logStream = logStreamCache.getLogStream(providerLogGroupName, awsAccountId, preparer);
+        if (logStream == this.providerLogStream) {
+            return;
+        }
+        if (this.providerEventsLogger instanceof BatchingCloudWatchLogPublisher) {
+            ((BatchingCloudWatchLogPublisher) this.providerEventsLogger).close(PROVIDER_LOG_FLUSH_TIMEOUT);
+        }
+        this.providerLogStream = logStream;
+        this.providerEventsLogger = new BatchingCloudWatchLogPublisher(this.cloudWatchLogsProvider, providerLogGroupName,
+                                                                       logStream, platformLogger, metricsPublisher,
+                                                                       missing -> logStreamCache.refresh(providerLogGroupName,
+                                                                           awsAccountId, missing, preparer));
+    }
 
-                this.providerEventsLogger = new CloudWatchLogPublisher(this.cloudWatchLogsProvider, providerLogGroupName,
-                                                                       this.cloudWatchLogHelper.prepareLogStream(),
-                                                                       this.platformLoggerProxy, this.metricsPublisherProxy);
-            }
-            this.loggerProxy.addLogPublisher(this.providerEventsLogger);
-            this.providerEventsLogger.refreshClient();
+    /**
+     * Override to choose how the provider metrics are delivered, the same metrics
+     * are published either way
+     *
+     * @return {@link MetricsDeliveryMode#PUT_METRIC_DATA} unless overridden
+     */
+    protected MetricsDeliveryMode getMetricsDeliveryMode() {
+        return MetricsDeliveryMode.PUT_METRIC_DATA;
+    }
+
+    /*
+     * Inside Lambda short waits are made locally when they fit in the time left,
+     * elsewhere there is no deadline to measure against and every wait is a
+     * callback
+     */
+    private WaitStrategy getWaitStrategy() {
+        return remainingTimeToExecute == null
+            ? WaitStrategy.scheduleForCallbackStrategy()
+            : WaitStrategy.newRemainingTimeAwareStrategy(getHandlerTimeLeft());
+    }
+
+    /*
+     * The time left for the handler, the response is only written after logs and
+     * metrics are flushed
+     */
+    private Supplier<Long> getHandlerTimeLeft() {
+        if (remainingTimeToExecute == null) {
+            return null;
         }
+        final long flushMillis = PROVIDER_LOG_FLUSH_TIMEOUT.plus(PROVIDER_METRICS_FLUSH_TIMEOUT).toMillis();
+        return () -> remainingTimeToExecute.get() - flushMillis;
     }
 
     public void processRequest(final InputStream inputStream, final OutputStream outputStream) throws IOException,
@@ -193,10 +274,9 @@ public abstract class HookAbstractWrapper<TargetT, CallbackT, ConfigurationT> {
                 throw new TerminalException("No request object received");
             }
 
-            String input = IOUtils.toString(inputStream, StandardCharsets.UTF_8);
-            JSONObject rawInput = new JSONObject(new JSONTokener(input));
+            JsonNode rawInput = this.serializer.readTree(inputStream);
             // deserialize incoming payload to modeled request
-            request = this.serializer.deserialize(input, typeReference);
+            request = this.serializer.deserialize(rawInput, typeReference);
             handlerResponse = processInvocation(rawInput, request);
         } catch (final Throwable e) {
             // Exceptions are wrapped as a consistent error response to the caller (i.e;
@@ -209,13 +289,35 @@ public abstract class HookAbstractWrapper<TargetT, CallbackT, ConfigurationT> {
         } finally {
             // A response will be output on all paths, though CloudFormation will
             // not block on invoking the handlers, but rather listen for callbacks
-            writeResponse(outputStream, createProgressResponse(handlerResponse, request));
             publishExceptionCodeAndCountMetrics(request == null ? null : request.getActionInvocationPoint(),
-                handlerResponse.getErrorCode());
+                handlerResponse == null ? null : handlerResponse.getErrorCode());
+            flushProviderEvents();
+            flushProviderMetrics();
+            writeResponse(outputStream, createProgressResponse(handlerResponse, request));
+        }
+    }
+
+    /**
+     * Delivers the provider log events buffered during this invocation, bounded so
+     * that slow log delivery cannot hold back the response
+     */
+    private void flushProviderEvents() {
+        if (this.providerEventsLogger instanceof BatchingCloudWatchLogPublisher) {
+            ((BatchingCloudWatchLogPublisher) this.providerEventsLogger).flush(PROVIDER_LOG_FLUSH_TIMEOUT);
+        }
+    }
+
+    /**
+     * Sends the metrics aggregated during this invocation, after the log flush as
+     * that reports log delivery metrics of its own
+     */
+    private void flushProviderMetrics() {
+        if (this.providerMetricsPublisher instanceof CloudWatchMetricsPublisher) {
+            ((CloudWatchMetricsPublisher) this.providerMetricsPublisher).flush(PROVIDER_METRICS_FLUSH_TIMEOUT);
         }
     }
 
-    private ProgressEvent<TargetT, CallbackT> processInvocation(final JSONObject rawRequest,
+    private ProgressEvent<TargetT, CallbackT> processInvocation(final JsonNode rawRequest,
                                                                 final HookInvocationRequest<ConfigurationT, CallbackT> request)
         throws IOException,
         TerminalException {
@@ -248,8 +350,7 @@ public abstract class HookAbstractWrapper<TargetT, CallbackT, ConfigurationT> {
             Credentials processedCallerCredentials = processCredentials(request.getRequestData().getCallerCredentials());
             if (processedCallerCredentials != null) {
                 awsClientProxy = new AmazonWebServicesClientProxy(this.loggerProxy, processedCallerCredentials,
-                                                                  DelayFactory.CONSTANT_DEFAULT_DELAY_FACTORY,
-                                                                  WaitStrategy.scheduleForCallbackStrategy());
+                                                                  DelayFactory.CONSTANT_DEFAULT_DELAY_FACTORY, getWaitStrategy());
 
             }
 
@@ -61,6 +61,7 @@ public abstract class HookLambdaWrapper<TargetT, CallbackT, ConfigurationT>
             platformLogPublisher = new LambdaLogPublisher(context.getLogger());
         }
         this.platformLoggerProxy.addLogPublisher(platformLogPublisher);
+        this.remainingTimeToExecute = () -> (long) context.getRemainingTimeInMillis();
         processRequest(inputStream, outputStream);
         outputStream.close();
     }
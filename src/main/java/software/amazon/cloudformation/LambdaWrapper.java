@@ -58,6 +58,7 @@ public abstract class LambdaWrapper<ResourceT, CallbackT, ConfigurationT>
             platformLogPublisher = new LambdaLogPublisher(context.getLogger());
         }
         this.platformLoggerProxy.addLogPublisher(platformLogPublisher);
+        this.remainingTimeToExecute = () -> (long) context.getRemainingTimeInMillis();
         processRequest(inputStream, outputStream);
         outputStream.close();
     }
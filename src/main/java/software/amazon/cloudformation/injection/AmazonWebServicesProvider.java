@@ -15,7 +15,6 @@
 package software.amazon.cloudformation.injection;
 
 import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
-import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.awscore.client.builder.AwsClientBuilder;
 import software.amazon.awssdk.awscore.client.builder.AwsSyncClientBuilder;
 import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
@@ -36,8 +35,13 @@ public abstract class AmazonWebServicesProvider {
         this.httpClient = httpClient;
     }
 
+    /**
+     * @return a credentials provider resolving the current credentials on every
+     *         request, so a client built once keeps signing with the credentials
+     *         injected for each invocation
+     */
     protected AwsCredentialsProvider getCredentialsProvider() {
-        return StaticCredentialsProvider.create(this.credentialsProvider.get());
+        return this.credentialsProvider::get;
     }
 
     protected <BuilderT extends AwsClientBuilder<BuilderT, ClientT> & AwsSyncClientBuilder<BuilderT, ClientT>,
@@ -15,24 +15,32 @@
 package software.amazon.cloudformation.injection;
 
 import java.net.URI;
+import java.util.Objects;
 import software.amazon.awssdk.http.SdkHttpClient;
 import software.amazon.awssdk.services.cloudformation.CloudFormationClient;
 
 public class CloudFormationProvider extends AmazonWebServicesProvider {
 
     private URI callbackEndpoint;
+    private CloudFormationClient client;
 
     public CloudFormationProvider(final CredentialsProvider credentialsProvider,
                                   final SdkHttpClient httpClient) {
         super(credentialsProvider, httpClient);
     }
 
-    public void setCallbackEndpoint(final URI callbackEndpoint) {
+    public synchronized void setCallbackEndpoint(final URI callbackEndpoint) {
+        if (!Objects.equals(this.callbackEndpoint, callbackEndpoint)) {
+            this.client = null;
+        }
         this.callbackEndpoint = callbackEndpoint;
     }
 
-    public CloudFormationClient get() {
-        return CloudFormationClient.builder().credentialsProvider(this.getCredentialsProvider()).httpClient(httpClient)
-            .endpointOverride(this.callbackEndpoint).build();
+    public synchronized CloudFormationClient get() {
+        if (this.client == null) {
+            this.client = CloudFormationClient.builder().credentialsProvider(this.getCredentialsProvider()).httpClient(httpClient)
+                .endpointOverride(this.callbackEndpoint).build();
+        }
+        return this.client;
     }
 }
@@ -19,12 +19,17 @@ import software.amazon.awssdk.services.cloudwatchevents.CloudWatchEventsClient;
 
 public class CloudWatchEventsProvider extends AmazonWebServicesProvider {
 
+    private CloudWatchEventsClient client;
+
     public CloudWatchEventsProvider(final CredentialsProvider credentialsProvider,
                                     final SdkHttpClient httpClient) {
         super(credentialsProvider, httpClient);
     }
 
-    public CloudWatchEventsClient get() {
-        return defaultClient(CloudWatchEventsClient.builder()).build();
+    public synchronized CloudWatchEventsClient get() {
+        if (this.client == null) {
+            this.client = defaultClient(CloudWatchEventsClient.builder()).build();
+        }
+        return this.client;
     }
 }
@@ -19,12 +19,17 @@ import software.amazon.awssdk.services.cloudwatchlogs.CloudWatchLogsClient;
 
 public class CloudWatchLogsProvider extends AmazonWebServicesProvider {
 
+    private CloudWatchLogsClient client;
+
     public CloudWatchLogsProvider(final CredentialsProvider credentialsProvider,
                                   final SdkHttpClient httpClient) {
         super(credentialsProvider, httpClient);
     }
 
-    public CloudWatchLogsClient get() {
-        return defaultClient(CloudWatchLogsClient.builder()).build();
+    public synchronized CloudWatchLogsClient get() {
+        if (this.client == null) {
+            this.client = defaultClient(CloudWatchLogsClient.builder()).build();
+        }
+        return this.client;
     }
 }
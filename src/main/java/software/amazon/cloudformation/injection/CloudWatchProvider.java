@@ -19,12 +19,17 @@ import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
 
 public class CloudWatchProvider extends AmazonWebServicesProvider {
 
+    private CloudWatchClient client;
+
     public CloudWatchProvider(final CredentialsProvider credentialsProvider,
                               final SdkHttpClient httpClient) {
         super(credentialsProvider, httpClient);
     }
 
-    public CloudWatchClient get() {
-        return defaultClient(CloudWatchClient.builder()).build();
+    public synchronized CloudWatchClient get() {
+        if (this.client == null) {
+            this.client = defaultClient(CloudWatchClient.builder()).build();
+        }
+        return this.client;
     }
 }
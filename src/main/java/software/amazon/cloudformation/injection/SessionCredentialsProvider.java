@@ -19,7 +19,7 @@ import software.amazon.cloudformation.proxy.Credentials;
 
 public class SessionCredentialsProvider implements CredentialsProvider {
 
-    private AwsSessionCredentials awsSessionCredentials;
+    private volatile AwsSessionCredentials awsSessionCredentials;
 
     public AwsSessionCredentials get() {
         return this.awsSessionCredentials;
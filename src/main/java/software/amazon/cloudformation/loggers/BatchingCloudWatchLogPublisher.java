@@ -0,0 +1,235 @@
+/*
+* Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License").
+* You may not use this file except in compliance with the License.
+* A copy of the License is located at
+*
+*  http://aws.amazon.com/apache2.0
+*
+* or in the "license" file accompanying this file. This file is distributed
+* on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied. See the License for the specific language governing
+* permissions and limitations under the License.
+*/
+package software.amazon.cloudformation.loggers;
+
+import com.google.common.base.Utf8;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+import software.amazon.awssdk.services.cloudwatchlogs.model.InputLogEvent;
+import software.amazon.cloudformation.injection.CloudWatchLogsProvider;
+import software.amazon.cloudformation.proxy.LoggerProxy;
+import software.amazon.cloudformation.proxy.MetricsPublisherProxy;
+
+/**
+ * A {@link CloudWatchLogPublisher} which buffers log events and delivers them
+ * in batches from a single background thread, rather than making one
+ * synchronous PutLogEvents call per log line. Batches are flushed when the
+ * buffered events approach the PutLogEvents limits or on a fixed interval,
+ * whichever comes first. The owning wrapper calls {@link #flush(Duration)}
+ * before writing its response so that the events of an invocation are delivered
+ * before the Lambda container is frozen.
+ *
+ * All deliveries happen on the background thread, which keeps the sequence
+ * token confined to it. Events offered while the buffer is full are dropped and
+ * counted.
+ */
+public class BatchingCloudWatchLogPublisher extends CloudWatchLogPublisher {
+
+    // PutLogEvents limits
+    // Ref:
+    // https://docs.aws.amazon.com/AmazonCloudWatchLogs/latest/APIReference/API_PutLogEvents.html
+    static final int MAX_BATCH_EVENTS = 10_000;
+    static final int MAX_BATCH_BYTES = 1_048_576;
+    static final int EVENT_OVERHEAD_BYTES = 26;
+    static final long MAX_BATCH_SPAN_MILLIS = Duration.ofHours(24).toMillis() - 1;
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 4 * MAX_BATCH_EVENTS;
+    private static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofSeconds(1);
+
+    private final BlockingQueue<InputLogEvent> queue;
+    private final Duration flushInterval;
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private ScheduledExecutorService executor;
+
+    public BatchingCloudWatchLogPublisher(final CloudWatchLogsProvider cloudWatchLogsProvider,
+                                          final String logGroupName,
+                                          final String logStreamName,
+                                          final LoggerProxy platformLoggerProxy,
+                                          final MetricsPublisherProxy metricsPublisherProxy,
+                                          final LogFilter... logFilters) {
+        this(cloudWatchLogsProvider, logGroupName, CompletableFuture.completedFuture(logStreamName), platformLoggerProxy,
+             metricsPublisherProxy, null, logFilters);
+    }
+
+    public BatchingCloudWatchLogPublisher(final CloudWatchLogsProvider cloudWatchLogsProvider,
+                                          final String logGroupName,
+                                          final CompletableFuture<String> logStream,
+                                          final LoggerProxy platformLoggerProxy,
+                                          final MetricsPublisherProxy metricsPublisherProxy,
+                                          final UnaryOperator<CompletableFuture<String>> logStreamRecovery,
+                                          final LogFilter... logFilters) {
+        this(cloudWatchLogsProvider, logGroupName, logStream, platformLoggerProxy, metricsPublisherProxy, logStreamRecovery,
+             DEFAULT_QUEUE_CAPACITY, DEFAULT_FLUSH_INTERVAL, logFilters);
+    }
+
+    public BatchingCloudWatchLogPublisher(final CloudWatchLogsProvider cloudWatchLogsProvider,
+                                          final String logGroupName,
+                                          final CompletableFuture<String> logStream,
+                                          final LoggerProxy platformLoggerProxy,
+                                          final MetricsPublisherProxy metricsPublisherProxy,
+                                          final UnaryOperator<CompletableFuture<String>> logStreamRecovery,
+                                          final int queueCapacity,
+                                          final Duration flushInterval,
+                                          final LogFilter... logFilters) {
+        super(cloudWatchLogsProvider, logGroupName, logStream, platformLoggerProxy, metricsPublisherProxy, logStreamRecovery,
+              logFilters);
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.flushInterval = flushInterval;
+    }
+
+    @Override
+    protected void publishMessage(final String message) {
+        if (skipLogging()) {
+            return;
+        }
+        assert isClientInitialised() : "cloudWatchLogsClient was not initialised. " + "You must call refreshClient() first.";
+
+        final ScheduledExecutorService flusher = getExecutor();
+        final InputLogEvent event = InputLogEvent.builder().message(message).timestamp(System.currentTimeMillis()).build();
+        if (flusher.isShutdown() || !queue.offer(event)) {
+            droppedEvents.incrementAndGet();
+            return;
+        }
+        final long bytes = queuedBytes.addAndGet(eventSize(event));
+        if ((queue.size() >= MAX_BATCH_EVENTS || bytes >= MAX_BATCH_BYTES) && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushRequested.set(false);
+                drain();
+            });
+        }
+    }
+
+    /**
+     * Delivers all events buffered so far, waiting up to the timeout for the
+     * delivery to complete, and reports the buffer depth and the number of events
+     * dropped since the previous flush.
+     *
+     * @param timeout the maximum time to wait for delivery
+     */
+    public void flush(final Duration timeout) {
+        final int queueDepth = queue.size();
+        final ScheduledExecutorService flusher = getStartedExecutor();
+        if (flusher != null) {
+            // queued behind any delivery already in progress on the background thread
+            final Future<?> pending = flusher.submit(this::drain);
+            try {
+                pending.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (final ExecutionException | TimeoutException e) {
+                // remaining events are delivered by the background thread on its next run
+            }
+        }
+
+        final MetricsPublisherProxy metricsPublisherProxy = getMetricsPublisherProxy();
+        if (metricsPublisherProxy != null) {
+            metricsPublisherProxy.publishProviderLogQueueMetrics(Instant.now(), queueDepth, droppedEvents.getAndSet(0));
+        }
+    }
+
+    /**
+     * Flushes the buffered events and stops the background thread, events published
+     * afterwards are not delivered
+     *
+     * @param timeout the maximum time to wait for delivery
+     */
+    public void close(final Duration timeout) {
+        flush(timeout);
+        final ScheduledExecutorService flusher = getStartedExecutor();
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+    }
+
+    int getQueueDepth() {
+        return queue.size();
+    }
+
+    long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    private synchronized ScheduledExecutorService getStartedExecutor() {
+        return executor;
+    }
+
+    private synchronized ScheduledExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("provider-log-publisher-%d").build());
+            executor.scheduleWithFixedDelay(this::drain, flushInterval.toMillis(), flushInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        }
+        return executor;
+    }
+
+    /**
+     * Only ever called from the background thread
+     */
+    private void drain() {
+        final List<InputLogEvent> events = new ArrayList<>();
+        queue.drainTo(events);
+        if (events.isEmpty()) {
+            return;
+        }
+        // events within a batch must be in chronological order
+        events.sort(Comparator.comparing(InputLogEvent::timestamp));
+
+        List<InputLogEvent> batch = new ArrayList<>();
+        long batchBytes = 0;
+        long drainedBytes = 0;
+        for (final InputLogEvent event : events) {
+            final int size = eventSize(event);
+            if (!batch.isEmpty() && (batch.size() >= MAX_BATCH_EVENTS || batchBytes + size > MAX_BATCH_BYTES
+                || event.timestamp() - batch.get(0).timestamp() > MAX_BATCH_SPAN_MILLIS)) {
+                putBatch(batch);
+                batch = new ArrayList<>();
+                batchBytes = 0;
+            }
+            batch.add(event);
+            batchBytes += size;
+            drainedBytes += size;
+        }
+        putBatch(batch);
+        queuedBytes.addAndGet(-drainedBytes);
+    }
+
+    private void putBatch(final List<InputLogEvent> batch) {
+        putLogEvents(batch, String.format("batch of %d events", batch.size()));
+    }
+
+    private static int eventSize(final InputLogEvent event) {
+        return Utf8.encodedLength(event.message()) + EVENT_OVERHEAD_BYTES;
+    }
+}
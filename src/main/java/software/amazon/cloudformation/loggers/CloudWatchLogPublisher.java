@@ -15,11 +15,16 @@
 package software.amazon.cloudformation.loggers;
 
 import java.time.Instant;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.UnaryOperator;
 import software.amazon.awssdk.services.cloudwatchlogs.CloudWatchLogsClient;
 import software.amazon.awssdk.services.cloudwatchlogs.model.InputLogEvent;
 import software.amazon.awssdk.services.cloudwatchlogs.model.PutLogEventsRequest;
 import software.amazon.awssdk.services.cloudwatchlogs.model.PutLogEventsResponse;
+import software.amazon.awssdk.services.cloudwatchlogs.model.ResourceNotFoundException;
 import software.amazon.cloudformation.injection.CloudWatchLogsProvider;
 import software.amazon.cloudformation.proxy.LoggerProxy;
 import software.amazon.cloudformation.proxy.MetricsPublisherProxy;
@@ -28,11 +33,12 @@ public class CloudWatchLogPublisher extends LogPublisher {
 
     private final CloudWatchLogsProvider cloudWatchLogsProvider;
 
-    private CloudWatchLogsClient cloudWatchLogsClient;
+    private volatile CloudWatchLogsClient cloudWatchLogsClient;
     private String logGroupName;
-    private String logStreamName;
+    private volatile CompletableFuture<String> logStream;
     private LoggerProxy platformLoggerProxy;
     private MetricsPublisherProxy metricsPublisherProxy;
+    private UnaryOperator<CompletableFuture<String>> logStreamRecovery;
 
     // Note: PutLogEvents returns a result that includes a sequence number.
     // That same sequence number must be used in the subsequent put for the same
@@ -46,12 +52,30 @@ public class CloudWatchLogPublisher extends LogPublisher {
                                   final LoggerProxy platformLoggerProxy,
                                   final MetricsPublisherProxy metricsPublisherProxy,
                                   final LogFilter... logFilters) {
+        this(cloudWatchLogsProvider, logGroupName, CompletableFuture.completedFuture(logStreamName), platformLoggerProxy,
+             metricsPublisherProxy, null, logFilters);
+    }
+
+    /**
+     * @param logStream the log stream name, possibly still being prepared. Events
+     *            are dropped when it completes with null.
+     * @param logStreamRecovery when not null, called with the current log stream if
+     *            it is found to no longer exist, returning its replacement
+     */
+    public CloudWatchLogPublisher(final CloudWatchLogsProvider cloudWatchLogsProvider,
+                                  final String logGroupName,
+                                  final CompletableFuture<String> logStream,
+                                  final LoggerProxy platformLoggerProxy,
+                                  final MetricsPublisherProxy metricsPublisherProxy,
+                                  final UnaryOperator<CompletableFuture<String>> logStreamRecovery,
+                                  final LogFilter... logFilters) {
         super(logFilters);
         this.cloudWatchLogsProvider = cloudWatchLogsProvider;
         this.logGroupName = logGroupName;
-        this.logStreamName = logStreamName;
+        this.logStream = logStream;
         this.platformLoggerProxy = platformLoggerProxy;
         this.metricsPublisherProxy = metricsPublisherProxy;
+        this.logStreamRecovery = logStreamRecovery;
     }
 
     public void refreshClient() {
@@ -60,28 +84,72 @@ public class CloudWatchLogPublisher extends LogPublisher {
 
     @Override
     protected void publishMessage(final String message) {
+        if (skipLogging()) {
+            return;
+        }
+        putLogEvents(Collections.singletonList(InputLogEvent.builder().message(message).timestamp(new Date().getTime()).build()),
+            message);
+    }
+
+    /**
+     * Delivers the events, which must be in chronological order, with a single
+     * PutLogEvents call. Delivery failures are reported to the platform log and as
+     * a log delivery exception metric.
+     *
+     * @param logEvents the events to deliver
+     * @param description the events as described in a delivery failure
+     */
+    protected void putLogEvents(final List<InputLogEvent> logEvents, final String description) {
         try {
-            if (skipLogging()) {
-                return;
-            }
             assert cloudWatchLogsClient != null : "cloudWatchLogsClient was not initialised. "
                 + "You must call refreshClient() first.";
-            PutLogEventsResponse putLogEventsResponse = cloudWatchLogsClient.putLogEvents(PutLogEventsRequest.builder()
-                .overrideConfiguration(builder -> builder.putHeader("x-amzn-logs-format", "json/emf"))
-                .sequenceToken(nextSequenceToken).logGroupName(logGroupName).logStreamName(logStreamName)
-                .logEvents(InputLogEvent.builder().message(message).timestamp(new Date().getTime()).build()).build());
-
-            nextSequenceToken = putLogEventsResponse.nextSequenceToken();
-        } catch (final Exception ex) {
+            try {
+                putLogEvents(logEvents);
+            } catch (final ResourceNotFoundException ex) {
+                if (logStreamRecovery == null) {
+                    throw ex;
+                }
+                // the log stream or its group was deleted, retry once with a new stream
+                logStream = logStreamRecovery.apply(logStream);
+                nextSequenceToken = null;
+                putLogEvents(logEvents);
+            }
+        } catch (final RuntimeException ex) {
             platformLoggerProxy.log(
                 String.format("An error occurred while putting log events [%s] " + "to resource owner account, with error: %s",
-                    message, ex.toString()));
+                    description, ex.toString()));
             emitMetricsForLoggingFailure(ex);
         }
     }
 
-    private boolean skipLogging() {
-        return logStreamName == null;
+    private void putLogEvents(final List<InputLogEvent> logEvents) {
+        final String logStreamName = logStream.join();
+        if (logStreamName == null) {
+            return;
+        }
+        PutLogEventsResponse putLogEventsResponse = cloudWatchLogsClient.putLogEvents(
+            PutLogEventsRequest.builder().overrideConfiguration(builder -> builder.putHeader("x-amzn-logs-format", "json/emf"))
+                .sequenceToken(nextSequenceToken).logGroupName(logGroupName).logStreamName(logStreamName).logEvents(logEvents)
+                .build());
+
+        nextSequenceToken = putLogEventsResponse.nextSequenceToken();
+    }
+
+    protected boolean isClientInitialised() {
+        return cloudWatchLogsClient != null;
+    }
+
+    protected MetricsPublisherProxy getMetricsPublisherProxy() {
+        return metricsPublisherProxy;
+    }
+
+    /**
+     * @return true once the log stream is known to be unavailable, never waits for
+     *         a log stream being prepared
+     */
+    protected boolean skipLogging() {
+        final CompletableFuture<String> current = logStream;
+        return current.isDone() && current.join() == null;
     }
 
     private void emitMetricsForLoggingFailure(final Exception ex) {
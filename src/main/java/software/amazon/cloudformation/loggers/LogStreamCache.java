@@ -0,0 +1,147 @@
+/*
+* Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License").
+* You may not use this file except in compliance with the License.
+* A copy of the License is located at
+*
+*  http://aws.amazon.com/apache2.0
+*
+* or in the "license" file accompanying this file. This file is distributed
+* on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied. See the License for the specific language governing
+* permissions and limitations under the License.
+*/
+package software.amazon.cloudformation.loggers;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import lombok.EqualsAndHashCode;
+
+/**
+ * Remembers the provider log stream prepared for each log group and resource
+ * owner account, so warm containers skip the describe and create calls made by
+ * {@link CloudWatchLogHelper#prepareLogStream()}. Streams are prepared in the
+ * background, letting the handler run while the stream is being created, and
+ * are prepared again once older than the time to live, or when the previous
+ * preparation failed.
+ */
+public class LogStreamCache {
+
+    public static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofHours(1);
+
+    private final Duration timeToLive;
+
+    private final Clock clock;
+
+    private final Map<Key, Entry> entries = new HashMap<>();
+
+    private ExecutorService executor;
+
+    public LogStreamCache() {
+        this(DEFAULT_TIME_TO_LIVE, Clock.systemUTC());
+    }
+
+    /**
+     * @param timeToLive how long a prepared log stream is reused
+     * @param clock current clock system usually {@link Clock#systemUTC()}
+     */
+    public LogStreamCache(final Duration timeToLive,
+                          final Clock clock) {
+        this.timeToLive = timeToLive;
+        this.clock = clock;
+    }
+
+    /**
+     * @param logGroupName the provider log group
+     * @param accountId the resource owner account
+     * @param preparer prepares a new log stream, returning its name or null on
+     *            failure
+     * @return the cached log stream name, or one being prepared by the preparer in
+     *         the background. The future completes with null when no stream could
+     *         be prepared.
+     */
+    public synchronized CompletableFuture<String>
+        getLogStream(final String logGroupName, final String accountId, final Supplier<String> preparer) {
+        final Key key = new Key(logGroupName, accountId);
+        final Entry entry = entries.get(key);
+        if (entry != null && isUsable(entry)) {
+            return entry.logStream;
+        }
+
+        final CompletableFuture<String> prepared = CompletableFuture.supplyAsync(preparer, getExecutor());
+        final CompletableFuture<String> logStream = prepared.exceptionally(e -> null);
+        entries.put(key, new Entry(logStream, clock.instant()));
+        return logStream;
+    }
+
+    /**
+     * Replaces a log stream found to be missing, e.g; after the stream or its log
+     * group was deleted
+     *
+     * @param logGroupName the provider log group
+     * @param accountId the resource owner account
+     * @param missing the log stream which no longer exists
+     * @param preparer prepares a new log stream
+     * @return the replacement log stream, shared with other callers that reported
+     *         the same missing stream
+     */
+    public synchronized CompletableFuture<String> refresh(final String logGroupName,
+                                                          final String accountId,
+                                                          final CompletableFuture<String> missing,
+                                                          final Supplier<String> preparer) {
+        final Key key = new Key(logGroupName, accountId);
+        final Entry entry = entries.get(key);
+        if (entry != null && entry.logStream == missing) {
+            entries.remove(key);
+        }
+        return getLogStream(logGroupName, accountId, preparer);
+    }
+
+    private boolean isUsable(final Entry entry) {
+        if (entry.logStream.isDone() && entry.logStream.join() == null) {
+            // preparation failed, try again
+            return false;
+        }
+        return entry.preparedAt.plus(timeToLive).isAfter(clock.instant());
+    }
+
+    private ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors
+                .newSingleThreadExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("log-stream-cache-%d").build());
+        }
+        return executor;
+    }
+
+    @EqualsAndHashCode
+    private static final class Key {
+        private final String logGroupName;
+        private final String accountId;
+
+        private Key(final String logGroupName,
+                    final String accountId) {
+            this.logGroupName = logGroupName;
+            this.accountId = accountId;
+        }
+    }
+
+    private static final class Entry {
+        private final CompletableFuture<String> logStream;
+        private final Instant preparedAt;
+
+        private Entry(final CompletableFuture<String> logStream,
+                      final Instant preparedAt) {
+            this.logStream = logStream;
+            this.preparedAt = preparedAt;
+        }
+    }
+}
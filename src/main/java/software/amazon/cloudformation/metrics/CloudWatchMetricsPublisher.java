@@ -0,0 +1,261 @@
+/*
+* Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License").
+* You may not use this file except in compliance with the License.
+* A copy of the License is located at
+*
+*  http://aws.amazon.com/apache2.0
+*
+* or in the "license" file accompanying this file. This file is distributed
+* on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied. See the License for the specific language governing
+* permissions and limitations under the License.
+*/
+package software.amazon.cloudformation.metrics;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import lombok.EqualsAndHashCode;
+import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
+import software.amazon.awssdk.services.cloudwatch.model.Dimension;
+import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
+import software.amazon.awssdk.services.cloudwatch.model.PutMetricDataRequest;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
+import software.amazon.awssdk.services.cloudwatch.model.StatisticSet;
+import software.amazon.cloudformation.injection.CloudWatchProvider;
+import software.amazon.cloudformation.loggers.LogPublisher;
+import software.amazon.cloudformation.proxy.HandlerErrorCode;
+import software.amazon.cloudformation.proxy.Logger;
+
+/**
+ * Publishes metrics to CloudWatch with PutMetricData or, when given a log
+ * publisher, as Embedded Metric Format documents written to its log. By default
+ * every publish call is sent straight away. In aggregating mode datums are
+ * buffered instead, datums sharing a metric name, unit and dimensions are
+ * merged into a single statistic set, and the buffer is sent from a background
+ * thread by {@link #flush(Duration)}, which the owning wrapper calls once per
+ * invocation before writing its response.
+ */
+public abstract class CloudWatchMetricsPublisher extends MetricsPublisher {
+
+    // Ref:
+    // https://docs.aws.amazon.com/AmazonCloudWatch/latest/APIReference/API_PutMetricData.html
+    static final int MAX_DATUMS_PER_REQUEST = 1000;
+
+    private static final Map<HandlerErrorCode, Dimension> HANDLER_ERROR_CODE_DIMENSIONS = new EnumMap<>(HandlerErrorCode.class);
+
+    static {
+        for (final HandlerErrorCode errorCode : HandlerErrorCode.values()) {
+            HANDLER_ERROR_CODE_DIMENSIONS.put(errorCode,
+                Dimension.builder().name(Metric.DIMENSION_KEY_HANDLER_ERROR_CODE).value(errorCode.name()).build());
+        }
+    }
+
+    private final CloudWatchProvider cloudWatchProvider;
+    private final Logger loggerProxy;
+    private final boolean aggregating;
+    private final LogPublisher embeddedMetricFormatPublisher;
+
+    // guarded by itself
+    private final Map<DatumKey, DatumAggregate> buffer = new LinkedHashMap<>();
+
+    private CloudWatchClient cloudWatchClient;
+    private ExecutorService executor;
+
+    protected CloudWatchMetricsPublisher(final CloudWatchProvider cloudWatchProvider,
+                                         final Logger loggerProxy,
+                                         final String typeName,
+                                         final boolean aggregating) {
+        super(typeName);
+        this.cloudWatchProvider = cloudWatchProvider;
+        this.loggerProxy = loggerProxy;
+        this.aggregating = aggregating;
+        this.embeddedMetricFormatPublisher = null;
+    }
+
+    /**
+     * Writes the metrics as Embedded Metric Format documents to the log publisher
+     * as they are published, rather than calling PutMetricData
+     */
+    protected CloudWatchMetricsPublisher(final Logger loggerProxy,
+                                         final String typeName,
+                                         final LogPublisher embeddedMetricFormatPublisher) {
+        super(typeName);
+        this.cloudWatchProvider = null;
+        this.loggerProxy = loggerProxy;
+        this.aggregating = false;
+        this.embeddedMetricFormatPublisher = embeddedMetricFormatPublisher;
+    }
+
+    @Override
+    public void refreshClient() {
+        if (cloudWatchProvider != null) {
+            this.cloudWatchClient = cloudWatchProvider.get();
+        }
+    }
+
+    /**
+     * @return the CloudWatch namespace the metrics are published to
+     */
+    protected abstract String getMetricNamespace();
+
+    /**
+     * @param errorCode the handler error code
+     * @return the shared HandlerErrorCode dimension for the error code
+     */
+    protected static Dimension handlerErrorCodeDimension(final HandlerErrorCode errorCode) {
+        return HANDLER_ERROR_CODE_DIMENSIONS.get(errorCode);
+    }
+
+    protected void publishBulkMetrics(final MetricDatum... metricData) {
+        if (embeddedMetricFormatPublisher != null) {
+            EmbeddedMetricFormat.render(getMetricNamespace(), Arrays.asList(metricData))
+                .forEach(embeddedMetricFormatPublisher::publishLogEvent);
+            return;
+        }
+        assert cloudWatchClient != null : "CloudWatchEventsClient was not initialised. You must call refreshClient() first.";
+
+        if (!aggregating) {
+            putMetricData(cloudWatchClient, Arrays.asList(metricData));
+            return;
+        }
+        synchronized (buffer) {
+            for (final MetricDatum metricDatum : metricData) {
+                buffer.computeIfAbsent(new DatumKey(metricDatum), key -> new DatumAggregate()).add(metricDatum);
+            }
+        }
+    }
+
+    /**
+     * Sends the buffered datums, waiting up to the timeout for delivery to
+     * complete. Does nothing unless the publisher is aggregating.
+     *
+     * @param timeout the maximum time to wait for delivery
+     */
+    public void flush(final Duration timeout) {
+        final List<MetricDatum> metricData = drain();
+        if (metricData.isEmpty()) {
+            return;
+        }
+        final CloudWatchClient client = this.cloudWatchClient;
+        final Future<?> pending = getExecutor().submit(() -> putMetricData(client, metricData));
+        try {
+            pending.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException | TimeoutException e) {
+            log(String.format("Metrics were not published within %s: %s", timeout, e.toString()));
+        }
+    }
+
+    List<MetricDatum> drain() {
+        synchronized (buffer) {
+            if (buffer.isEmpty()) {
+                return Collections.emptyList();
+            }
+            final List<MetricDatum> metricData = new ArrayList<>(buffer.size());
+            buffer.values().forEach(aggregate -> metricData.addAll(aggregate.toMetricData()));
+            buffer.clear();
+            return metricData;
+        }
+    }
+
+    private void putMetricData(final CloudWatchClient client, final List<MetricDatum> metricData) {
+        for (final List<MetricDatum> partition : Lists.partition(metricData, MAX_DATUMS_PER_REQUEST)) {
+            try {
+                client
+                    .putMetricData(PutMetricDataRequest.builder().namespace(getMetricNamespace()).metricData(partition).build());
+            } catch (final Exception e) {
+                log(String.format("An error occurred while publishing metrics: %s", e.getMessage()));
+            }
+        }
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("metrics-publisher-%d").build());
+        }
+        return executor;
+    }
+
+    private void log(final String message) {
+        if (loggerProxy != null) {
+            loggerProxy.log(String.format("%s%n", message));
+        }
+    }
+
+    @EqualsAndHashCode
+    private static final class DatumKey {
+        private final String metricName;
+        private final StandardUnit unit;
+        private final Set<Dimension> dimensions;
+
+        private DatumKey(final MetricDatum metricDatum) {
+            this.metricName = metricDatum.metricName();
+            this.unit = metricDatum.unit();
+            this.dimensions = new HashSet<>(metricDatum.dimensions());
+        }
+    }
+
+    /**
+     * Running statistics of the single valued datums for one key. Datums carrying
+     * statistic sets or value arrays are passed through unmerged.
+     */
+    private static final class DatumAggregate {
+        private final List<MetricDatum> unmerged = new ArrayList<>(0);
+        private MetricDatum first;
+        private int sampleCount;
+        private double sum;
+        private double minimum;
+        private double maximum;
+
+        private void add(final MetricDatum metricDatum) {
+            final Double value = metricDatum.value();
+            if (value == null) {
+                unmerged.add(metricDatum);
+                return;
+            }
+            if (first == null) {
+                first = metricDatum;
+                minimum = value;
+                maximum = value;
+            } else {
+                minimum = Math.min(minimum, value);
+                maximum = Math.max(maximum, value);
+            }
+            sampleCount++;
+            sum += value;
+        }
+
+        private List<MetricDatum> toMetricData() {
+            final List<MetricDatum> metricData = new ArrayList<>(unmerged.size() + 1);
+            if (sampleCount == 1) {
+                metricData.add(first);
+            } else if (sampleCount > 1) {
+                metricData.add(first.toBuilder().value(null).statisticValues(
+                    StatisticSet.builder().sampleCount((double) sampleCount).sum(sum).minimum(minimum).maximum(maximum).build())
+                    .build());
+            }
+            metricData.addAll(unmerged);
+            return metricData;
+        }
+    }
+}
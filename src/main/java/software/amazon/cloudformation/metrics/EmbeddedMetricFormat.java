@@ -0,0 +1,127 @@
+/*
+* Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License").
+* You may not use this file except in compliance with the License.
+* A copy of the License is located at
+*
+*  http://aws.amazon.com/apache2.0
+*
+* or in the "license" file accompanying this file. This file is distributed
+* on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied. See the License for the specific language governing
+* permissions and limitations under the License.
+*/
+package software.amazon.cloudformation.metrics;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import software.amazon.awssdk.services.cloudwatch.model.Dimension;
+import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
+
+/**
+ * Renders metric datums as CloudWatch Embedded Metric Format documents. A log
+ * event carrying such a document, delivered to a log stream with the
+ * x-amzn-logs-format: json/emf header or written to the Lambda log, is turned
+ * into metrics by CloudWatch without a PutMetricData call.
+ *
+ * Ref:
+ * https://docs.aws.amazon.com/AmazonCloudWatch/latest/monitoring/CloudWatch_Embedded_Metric_Format_Specification.html
+ */
+public final class EmbeddedMetricFormat {
+
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+
+    private EmbeddedMetricFormat() {
+    }
+
+    /**
+     * Datums sharing dimensions and timestamp are rendered into one document,
+     * repeated datums of a metric become a value array.
+     *
+     * @param namespace the CloudWatch namespace of the metrics
+     * @param metricData the datums to render
+     * @return one document per distinct set of dimensions and timestamp
+     */
+    public static List<String> render(final String namespace, final Collection<MetricDatum> metricData) {
+        final Map<List<Object>, ObjectNode> documents = new LinkedHashMap<>();
+        for (final MetricDatum metricDatum : metricData) {
+            final List<Dimension> dimensions = new ArrayList<>(metricDatum.dimensions());
+            dimensions.sort(Comparator.comparing(Dimension::name));
+            final long timestamp = metricDatum.timestamp() == null
+                ? Instant.now().toEpochMilli()
+                : metricDatum.timestamp().toEpochMilli();
+
+            final List<Object> key = new ArrayList<>(dimensions);
+            key.add(timestamp);
+            final ObjectNode document = documents.computeIfAbsent(key, k -> newDocument(namespace, dimensions, timestamp));
+            addMetric(document, metricDatum);
+        }
+
+        final List<String> rendered = new ArrayList<>(documents.size());
+        documents.values().forEach(document -> rendered.add(document.toString()));
+        return rendered;
+    }
+
+    private static ObjectNode newDocument(final String namespace, final List<Dimension> dimensions, final long timestamp) {
+        final ObjectNode document = NODES.objectNode();
+        final ObjectNode directive = NODES.objectNode();
+        directive.put("Namespace", namespace);
+        final ArrayNode dimensionSet = directive.putArray("Dimensions").addArray();
+        directive.putArray("Metrics");
+
+        final ObjectNode metadata = document.putObject("_aws");
+        metadata.put("Timestamp", timestamp);
+        metadata.putArray("CloudWatchMetrics").add(directive);
+
+        for (final Dimension dimension : dimensions) {
+            dimensionSet.add(dimension.name());
+            document.put(dimension.name(), dimension.value());
+        }
+        return document;
+    }
+
+    private static void addMetric(final ObjectNode document, final MetricDatum metricDatum) {
+        final List<Double> values = new ArrayList<>();
+        if (metricDatum.value() != null) {
+            values.add(metricDatum.value());
+        }
+        values.addAll(metricDatum.values());
+        if (values.isEmpty()) {
+            return;
+        }
+
+        final String name = metricDatum.metricName();
+        final JsonNode existing = document.get(name);
+        if (existing == null) {
+            final ObjectNode definition = ((ArrayNode) document.get("_aws").get("CloudWatchMetrics").get(0).get("Metrics"))
+                .addObject().put("Name", name);
+            if (metricDatum.unit() != null) {
+                definition.put("Unit", metricDatum.unitAsString());
+            }
+            if (values.size() == 1) {
+                document.put(name, values.get(0));
+                return;
+            }
+        }
+
+        final ArrayNode array;
+        if (existing == null) {
+            array = document.putArray(name);
+        } else if (existing.isArray()) {
+            array = (ArrayNode) existing;
+        } else {
+            array = document.putArray(name).add(existing.doubleValue());
+        }
+        values.forEach(array::add);
+    }
+}
@@ -17,37 +17,54 @@ package software.amazon.cloudformation.metrics;
 import com.google.common.collect.Sets;
 import java.time.Instant;
 import java.util.Collection;
-import java.util.EnumSet;
 import java.util.HashSet;
-import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
 import software.amazon.awssdk.services.cloudwatch.model.Dimension;
 import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
-import software.amazon.awssdk.services.cloudwatch.model.PutMetricDataRequest;
 import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
 import software.amazon.cloudformation.HookInvocationPoint;
 import software.amazon.cloudformation.injection.CloudWatchProvider;
+import software.amazon.cloudformation.loggers.LogPublisher;
 import software.amazon.cloudformation.proxy.HandlerErrorCode;
 import software.amazon.cloudformation.proxy.Logger;
 
-public class HookMetricsPublisherImpl extends MetricsPublisher {
-    private final CloudWatchProvider cloudWatchProvider;
-    private Logger loggerProxy;
+public class HookMetricsPublisherImpl extends CloudWatchMetricsPublisher {
     private String awsAccountId;
-    private CloudWatchClient cloudWatchClient;
 
     public HookMetricsPublisherImpl(final CloudWatchProvider cloudWatchProvider,
                                     final Logger loggerProxy,
                                     final String awsAccountId,
                                     final String hookTypeName) {
-        super(hookTypeName);
-        this.cloudWatchProvider = cloudWatchProvider;
-        this.loggerProxy = loggerProxy;
+        this(cloudWatchProvider, loggerProxy, awsAccountId, hookTypeName, false);
+    }
+
+    /**
+     * @param aggregating when true, metrics are buffered until
+     *            {@link #flush(java.time.Duration)} is called
+     */
+    public HookMetricsPublisherImpl(final CloudWatchProvider cloudWatchProvider,
+                                    final Logger loggerProxy,
+                                    final String awsAccountId,
+                                    final String hookTypeName,
+                                    final boolean aggregating) {
+        super(cloudWatchProvider, loggerProxy, hookTypeName, aggregating);
+        this.awsAccountId = awsAccountId;
+    }
+
+    /**
+     * @param embeddedMetricFormatPublisher the log the metrics are written to as
+     *            Embedded Metric Format documents
+     */
+    public HookMetricsPublisherImpl(final Logger loggerProxy,
+                                    final String awsAccountId,
+                                    final String hookTypeName,
+                                    final LogPublisher embeddedMetricFormatPublisher) {
+        super(loggerProxy, hookTypeName, embeddedMetricFormatPublisher);
         this.awsAccountId = awsAccountId;
     }
 
     @Override
-    public void refreshClient() {
-        this.cloudWatchClient = cloudWatchProvider.get();
+    protected String getMetricNamespace() {
+        return String.format("%s/%s/%s", Metric.METRIC_NAMESPACE_ROOT, awsAccountId, namespace);
     }
 
     private String getHookTypeName() {
@@ -111,44 +128,31 @@ public class HookMetricsPublisherImpl extends MetricsPublisher {
         Collection<MetricDatum> bulkData = new HashSet<>();
 
         // By Error Code dimensions
-        EnumSet.allOf(HandlerErrorCode.class).forEach(errorCode -> {
+        final Dimension invocationPointDimension = Dimension.builder().name(Metric.DIMENSION_KEY_INVOCATION_POINT_TYPE)
+            .value(invocationPoint == null ? "NO_INVOCATION_POINT" : invocationPoint.name()).build();
+        for (final HandlerErrorCode errorCode : HandlerErrorCode.values()) {
             bulkData.add(MetricDatum.builder().metricName(Metric.METRIC_NAME_HANDLER_EXCEPTION_BY_ERROR_CODE)
                 .unit(StandardUnit.COUNT).value(errorCode == handlerErrorCode ? 1.0 : 0.0)
-                .dimensions(Sets.newHashSet(
-                    Dimension.builder().name(Metric.DIMENSION_KEY_INVOCATION_POINT_TYPE)
-                        .value(invocationPoint == null ? "NO_INVOCATION_POINT" : invocationPoint.name()).build(),
-                    Dimension.builder().name(Metric.DIMENSION_KEY_HANDLER_ERROR_CODE).value(errorCode.name()).build()))
-                .timestamp(timestamp).build());
-        });
+                .dimensions(Sets.newHashSet(invocationPointDimension, handlerErrorCodeDimension(errorCode))).timestamp(timestamp)
+                .build());
+        }
 
         // By Count dimensions
-        bulkData.add(MetricDatum.builder().metricName(Metric.METRIC_NAME_HANDLER_EXCEPTION_BY_EXCEPTION_COUNT)
-            .unit(StandardUnit.COUNT).value(handlerErrorCode == null ? 0.0 : 1.0)
-            .dimensions(Dimension.builder().name(Metric.DIMENSION_KEY_INVOCATION_POINT_TYPE)
-                .value(invocationPoint == null ? "NO_INVOCATION_POINT" : invocationPoint.name()).build())
-            .timestamp(timestamp).build());
+        bulkData.add(
+            MetricDatum.builder().metricName(Metric.METRIC_NAME_HANDLER_EXCEPTION_BY_EXCEPTION_COUNT).unit(StandardUnit.COUNT)
+                .value(handlerErrorCode == null ? 0.0 : 1.0).dimensions(invocationPointDimension).timestamp(timestamp).build());
 
         publishBulkMetrics(bulkData.toArray(new MetricDatum[0]));
     }
 
-    private void publishBulkMetrics(final MetricDatum... metricData) {
-        assert cloudWatchClient != null : "CloudWatchEventsClient was not initialised. You must call refreshClient() first.";
-
-        PutMetricDataRequest putMetricDataRequest = PutMetricDataRequest.builder()
-            .namespace(String.format("%s/%s/%s", Metric.METRIC_NAMESPACE_ROOT, awsAccountId, namespace)).metricData(metricData)
+    @Override
+    public void publishProviderLogQueueMetrics(final Instant timestamp, final int queueDepth, final long droppedEvents) {
+        final Dimension typeDimension = Dimension.builder().name(Metric.DIMENSION_KEY_HOOK_TYPE).value(this.getHookTypeName())
             .build();
-
-        try {
-            this.cloudWatchClient.putMetricData(putMetricDataRequest);
-        } catch (final Exception e) {
-            log(String.format("An error occurred while publishing metrics: %s", e.getMessage()));
-        }
-    }
-
-    private void log(final String message) {
-        if (loggerProxy != null) {
-            loggerProxy.log(String.format("%s%n", message));
-        }
+        publishBulkMetrics(
+            MetricDatum.builder().metricName(Metric.METRIC_NAME_PROVIDER_LOG_QUEUE_DEPTH).unit(StandardUnit.COUNT)
+                .value((double) queueDepth).dimensions(typeDimension).timestamp(timestamp).build(),
+            MetricDatum.builder().metricName(Metric.METRIC_NAME_PROVIDER_LOG_DROPPED_EVENTS).unit(StandardUnit.COUNT)
+                .value((double) droppedEvents).dimensions(typeDimension).timestamp(timestamp).build());
     }
-
 }
@@ -22,6 +22,12 @@ public class Metric {
     public static final String METRIC_NAME_HANDLER_EXCEPTION_BY_EXCEPTION_COUNT = "HandlerExceptionByExceptionCount";
     public static final String METRIC_NAME_HANDLER_DURATION = "HandlerInvocationDuration";
     public static final String METRIC_NAME_HANDLER_INVOCATION_COUNT = "HandlerInvocationCount";
+    public static final String METRIC_NAME_PROVIDER_LOG_QUEUE_DEPTH = "ProviderLogQueueDepth";
+    public static final String METRIC_NAME_PROVIDER_LOG_DROPPED_EVENTS = "ProviderLogDroppedEvents";
+    public static final String METRIC_NAME_REQUEST_RATE_LIMIT_PERMITS_WAITED = "RequestRateLimitPermitsWaited";
+    public static final String METRIC_NAME_REQUEST_RATE_LIMIT_WAIT_TIME = "RequestRateLimitWaitTime";
+    public static final String METRIC_NAME_SCHEMA_CACHE_HITS = "ResourceSchemaCacheHits";
+    public static final String METRIC_NAME_SCHEMA_CACHE_MISSES = "ResourceSchemaCacheMisses";
 
     public static final String DIMENSION_KEY_ACTION_TYPE = "Action";
     public static final String DIMENSION_KEY_INVOCATION_POINT_TYPE = "InvocationPoint";
@@ -29,6 +35,7 @@ public class Metric {
     public static final String DIMENSION_KEY_RESOURCE_TYPE = "ResourceType";
     public static final String DIMENSION_KEY_HOOK_TYPE = "HookType";
     public static final String DIMENSION_KEY_HANDLER_ERROR_CODE = "HandlerErrorCode";
+    public static final String DIMENSION_KEY_REQUEST_RATE_LIMIT = "RequestRateLimit";
 
     private Metric() {
     }
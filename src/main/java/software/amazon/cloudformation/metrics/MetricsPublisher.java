@@ -74,4 +74,16 @@ public abstract class MetricsPublisher {
 
     public void publishProviderLogDeliveryExceptionMetric(final Instant timestamp, final Throwable exception) {
     }
+
+    public void publishProviderLogQueueMetrics(final Instant timestamp, final int queueDepth, final long droppedEvents) {
+    }
+
+    public void publishRequestRateLimitMetrics(final Instant timestamp,
+                                               final String limit,
+                                               final long permitsWaited,
+                                               final long waitedMilliseconds) {
+    }
+
+    public void publishSchemaCacheMetrics(final Instant timestamp, final long hits, final long misses) {
+    }
 }
@@ -16,36 +16,49 @@ package software.amazon.cloudformation.metrics;
 
 import com.google.common.collect.Sets;
 import java.time.Instant;
-import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Set;
-import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
 import software.amazon.awssdk.services.cloudwatch.model.Dimension;
 import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
-import software.amazon.awssdk.services.cloudwatch.model.PutMetricDataRequest;
 import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
 import software.amazon.cloudformation.Action;
 import software.amazon.cloudformation.injection.CloudWatchProvider;
+import software.amazon.cloudformation.loggers.LogPublisher;
 import software.amazon.cloudformation.proxy.HandlerErrorCode;
 import software.amazon.cloudformation.proxy.Logger;
 
-public class MetricsPublisherImpl extends MetricsPublisher {
-    private final CloudWatchProvider cloudWatchProvider;
-
-    private Logger loggerProxy;
-
-    private CloudWatchClient cloudWatchClient;
+public class MetricsPublisherImpl extends CloudWatchMetricsPublisher {
 
     public MetricsPublisherImpl(final CloudWatchProvider cloudWatchProvider,
                                 final Logger loggerProxy,
                                 final String resourceTypeName) {
-        super(resourceTypeName);
-        this.cloudWatchProvider = cloudWatchProvider;
-        this.loggerProxy = loggerProxy;
+        this(cloudWatchProvider, loggerProxy, resourceTypeName, false);
+    }
+
+    /**
+     * @param aggregating when true, metrics are buffered until
+     *            {@link #flush(java.time.Duration)} is called
+     */
+    public MetricsPublisherImpl(final CloudWatchProvider cloudWatchProvider,
+                                final Logger loggerProxy,
+                                final String resourceTypeName,
+                                final boolean aggregating) {
+        super(cloudWatchProvider, loggerProxy, resourceTypeName, aggregating);
     }
 
-    public void refreshClient() {
-        this.cloudWatchClient = cloudWatchProvider.get();
+    /**
+     * @param embeddedMetricFormatPublisher the log the metrics are written to as
+     *            Embedded Metric Format documents
+     */
+    public MetricsPublisherImpl(final Logger loggerProxy,
+                                final String resourceTypeName,
+                                final LogPublisher embeddedMetricFormatPublisher) {
+        super(loggerProxy, resourceTypeName, embeddedMetricFormatPublisher);
+    }
+
+    @Override
+    protected String getMetricNamespace() {
+        return String.format("%s/%s", Metric.METRIC_NAMESPACE_ROOT, namespace);
     }
 
     private String getResourceTypeName() {
@@ -76,20 +89,18 @@ public class MetricsPublisherImpl extends MetricsPublisher {
 
         // By Error Code dimensions
 
-        EnumSet.allOf(HandlerErrorCode.class).forEach(
-            errorCode -> bulkData.add(MetricDatum.builder().metricName(Metric.METRIC_NAME_HANDLER_EXCEPTION_BY_ERROR_CODE)
+        final Dimension actionDimension = Dimension.builder().name(Metric.DIMENSION_KEY_ACTION_TYPE)
+            .value(action == null ? "NO_ACTION" : action.name()).build();
+        for (final HandlerErrorCode errorCode : HandlerErrorCode.values()) {
+            bulkData.add(MetricDatum.builder().metricName(Metric.METRIC_NAME_HANDLER_EXCEPTION_BY_ERROR_CODE)
                 .unit(StandardUnit.COUNT).value(errorCode == handlerErrorCode ? 1.0 : 0.0)
-                .dimensions(Sets.newHashSet(
-                    Dimension.builder().name(Metric.DIMENSION_KEY_ACTION_TYPE).value(action == null ? "NO_ACTION" : action.name())
-                        .build(),
-                    Dimension.builder().name(Metric.DIMENSION_KEY_HANDLER_ERROR_CODE).value(errorCode.name()).build()))
-                .timestamp(timestamp).build()));
+                .dimensions(Sets.newHashSet(actionDimension, handlerErrorCodeDimension(errorCode))).timestamp(timestamp).build());
+        }
 
         // By Count dimensions
-        bulkData.add(MetricDatum.builder().metricName(Metric.METRIC_NAME_HANDLER_EXCEPTION_BY_EXCEPTION_COUNT)
-            .unit(StandardUnit.COUNT).value(handlerErrorCode == null ? 0.0 : 1.0).dimensions(Dimension.builder()
-                .name(Metric.DIMENSION_KEY_ACTION_TYPE).value(action == null ? "NO_ACTION" : action.name()).build())
-            .timestamp(timestamp).build());
+        bulkData.add(
+            MetricDatum.builder().metricName(Metric.METRIC_NAME_HANDLER_EXCEPTION_BY_EXCEPTION_COUNT).unit(StandardUnit.COUNT)
+                .value(handlerErrorCode == null ? 0.0 : 1.0).dimensions(actionDimension).timestamp(timestamp).build());
 
         publishBulkMetrics(bulkData.toArray(new MetricDatum[bulkData.size()]));
     }
@@ -127,20 +138,40 @@ public class MetricsPublisherImpl extends MetricsPublisher {
             .timestamp(timestamp).build());
     }
 
-    private void publishBulkMetrics(final MetricDatum... metricData) {
-        assert cloudWatchClient != null : "CloudWatchEventsClient was not initialised. You must call refreshClient() first.";
+    @Override
+    public void publishProviderLogQueueMetrics(final Instant timestamp, final int queueDepth, final long droppedEvents) {
+        final Dimension typeDimension = Dimension.builder().name(Metric.DIMENSION_KEY_RESOURCE_TYPE)
+            .value(this.getResourceTypeName()).build();
+        publishBulkMetrics(
+            MetricDatum.builder().metricName(Metric.METRIC_NAME_PROVIDER_LOG_QUEUE_DEPTH).unit(StandardUnit.COUNT)
+                .value((double) queueDepth).dimensions(typeDimension).timestamp(timestamp).build(),
+            MetricDatum.builder().metricName(Metric.METRIC_NAME_PROVIDER_LOG_DROPPED_EVENTS).unit(StandardUnit.COUNT)
+                .value((double) droppedEvents).dimensions(typeDimension).timestamp(timestamp).build());
+    }
 
-        try {
-            this.cloudWatchClient.putMetricData(PutMetricDataRequest.builder()
-                .namespace(String.format("%s/%s", Metric.METRIC_NAMESPACE_ROOT, namespace)).metricData(metricData).build());
-        } catch (final Exception e) {
-            log(String.format("An error occurred while publishing metrics: %s", e.getMessage()));
-        }
+    @Override
+    public void publishRequestRateLimitMetrics(final Instant timestamp,
+                                               final String limit,
+                                               final long permitsWaited,
+                                               final long waitedMilliseconds) {
+        final Set<Dimension> dimensions = Sets.newHashSet(
+            Dimension.builder().name(Metric.DIMENSION_KEY_REQUEST_RATE_LIMIT).value(limit).build(),
+            Dimension.builder().name(Metric.DIMENSION_KEY_RESOURCE_TYPE).value(this.getResourceTypeName()).build());
+        publishBulkMetrics(
+            MetricDatum.builder().metricName(Metric.METRIC_NAME_REQUEST_RATE_LIMIT_PERMITS_WAITED).unit(StandardUnit.COUNT)
+                .value((double) permitsWaited).dimensions(dimensions).timestamp(timestamp).build(),
+            MetricDatum.builder().metricName(Metric.METRIC_NAME_REQUEST_RATE_LIMIT_WAIT_TIME).unit(StandardUnit.MILLISECONDS)
+                .value((double) waitedMilliseconds).dimensions(dimensions).timestamp(timestamp).build());
     }
 
-    private void log(final String message) {
-        if (loggerProxy != null) {
-            loggerProxy.log(String.format("%s%n", message));
-        }
+    @Override
+    public void publishSchemaCacheMetrics(final Instant timestamp, final long hits, final long misses) {
+        final Dimension typeDimension = Dimension.builder().name(Metric.DIMENSION_KEY_RESOURCE_TYPE)
+            .value(this.getResourceTypeName()).build();
+        publishBulkMetrics(
+            MetricDatum.builder().metricName(Metric.METRIC_NAME_SCHEMA_CACHE_HITS).unit(StandardUnit.COUNT).value((double) hits)
+                .dimensions(typeDimension).timestamp(timestamp).build(),
+            MetricDatum.builder().metricName(Metric.METRIC_NAME_SCHEMA_CACHE_MISSES).unit(StandardUnit.COUNT)
+                .value((double) misses).dimensions(typeDimension).timestamp(timestamp).build());
     }
 }
@@ -21,11 +21,19 @@ import com.amazonaws.auth.AWSCredentialsProvider;
 import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.auth.BasicSessionCredentials;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Suppliers;
+import com.google.common.util.concurrent.Uninterruptibles;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -47,6 +55,7 @@ import software.amazon.awssdk.core.exception.RetryableException;
 import software.amazon.awssdk.core.pagination.sync.SdkIterable;
 import software.amazon.awssdk.http.HttpStatusCode;
 import software.amazon.cloudformation.exceptions.BaseHandlerException;
+import software.amazon.cloudformation.exceptions.CfnThrottlingException;
 import software.amazon.cloudformation.exceptions.TerminalException;
 
 /**
@@ -61,11 +70,19 @@ public class AmazonWebServicesClientProxy implements CallChain {
     public static final int HTTP_STATUS_NETWORK_AUTHN_REQUIRED = 511;
     public static final int HTTP_STATUS_GONE = 410;
 
+    /*
+     * Time left for a request after waiting for its permit
+     */
+    private static final Duration MIN_REQUEST_TIME = Duration.ofSeconds(1);
+
     private final AWSCredentialsProvider v1CredentialsProvider;
     private final AwsCredentialsProvider v2CredentialsProvider;
+    private final AwsRequestOverrideConfiguration overrideConfiguration;
     private final LoggerProxy loggerProxy;
     private final DelayFactory override;
     private final WaitStrategy waitStrategy;
+    private final RequestRateLimiter rateLimiter;
+    private final Supplier<Long> remainingTimeToExecute;
 
     public AmazonWebServicesClientProxy(final LoggerProxy loggerProxy,
                                         final Credentials credentials,
@@ -84,6 +101,43 @@ public class AmazonWebServicesClientProxy implements CallChain {
                                         final Credentials credentials,
                                         final DelayFactory override,
                                         final WaitStrategy waitStrategy) {
+        this(loggerProxy, credentials, override, waitStrategy, null);
+    }
+
+    /**
+     * @param loggerProxy logger to use
+     * @param credentials the caller credentials injected into requests
+     * @param override delay to use when none was set on the call chain
+     * @param waitStrategy how to wait between stabilization attempts
+     * @param rateLimiter client side request rate limits for clients from
+     *            {@link #newProxy(Supplier)}, or null to not limit requests
+     */
+    public AmazonWebServicesClientProxy(final LoggerProxy loggerProxy,
+                                        final Credentials credentials,
+                                        final DelayFactory override,
+                                        final WaitStrategy waitStrategy,
+                                        final RequestRateLimiter rateLimiter) {
+        this(loggerProxy, credentials, override, waitStrategy, rateLimiter, null);
+    }
+
+    /**
+     * @param loggerProxy logger to use
+     * @param credentials the caller credentials injected into requests
+     * @param override delay to use when none was set on the call chain
+     * @param waitStrategy how to wait between stabilization attempts
+     * @param rateLimiter client side request rate limits for clients from
+     *            {@link #newProxy(Supplier)}, or null to not limit requests
+     * @param remainingTimeToExecute time left in the invocation in milliseconds, or
+     *            null when there is no deadline. A request that would wait for its
+     *            permit past the deadline fails with
+     *            {@link HandlerErrorCode#Throttling} instead
+     */
+    public AmazonWebServicesClientProxy(final LoggerProxy loggerProxy,
+                                        final Credentials credentials,
+                                        final DelayFactory override,
+                                        final WaitStrategy waitStrategy,
+                                        final RequestRateLimiter rateLimiter,
+                                        final Supplier<Long> remainingTimeToExecute) {
         this.loggerProxy = loggerProxy;
         BasicSessionCredentials basicSessionCredentials = new BasicSessionCredentials(credentials.getAccessKeyId(),
                                                                                       credentials.getSecretAccessKey(),
@@ -93,55 +147,154 @@ public class AmazonWebServicesClientProxy implements CallChain {
         AwsSessionCredentials awsSessionCredentials = AwsSessionCredentials.create(credentials.getAccessKeyId(),
             credentials.getSecretAccessKey(), credentials.getSessionToken());
         this.v2CredentialsProvider = StaticCredentialsProvider.create(awsSessionCredentials);
+        this.overrideConfiguration = AwsRequestOverrideConfiguration.builder().credentialsProvider(v2CredentialsProvider).build();
         this.override = Objects.requireNonNull(override);
         this.waitStrategy = Objects.requireNonNull(waitStrategy);
+        this.rateLimiter = rateLimiter;
+        this.remainingTimeToExecute = remainingTimeToExecute;
     }
 
     public <ClientT> ProxyClient<ClientT> newProxy(@Nonnull Supplier<ClientT> client) {
-        return new ProxyClient<ClientT>() {
-            @Override
-            public <RequestT extends AwsRequest, ResponseT extends AwsResponse>
-                ResponseT
-                injectCredentialsAndInvokeV2(RequestT request, Function<RequestT, ResponseT> requestFunction) {
-                return AmazonWebServicesClientProxy.this.injectCredentialsAndInvokeV2(request, requestFunction);
-            }
+        return new StdProxyClient<>(client, true);
+    }
 
-            @Override
-            public <RequestT extends AwsRequest, ResponseT extends AwsResponse>
-                CompletableFuture<ResponseT>
-                injectCredentialsAndInvokeV2Async(RequestT request,
-                                                  Function<RequestT, CompletableFuture<ResponseT>> requestFunction) {
-                return AmazonWebServicesClientProxy.this.injectCredentialsAndInvokeV2Async(request, requestFunction);
-            }
+    /**
+     * Creates the client with the caller's credentials, requests made through the
+     * returned {@link ProxyClient} are passed to the client as they are instead of
+     * being rebuilt to carry the credentials. Useful for requests with large
+     * payloads, e.g. policy documents, that are made repeatedly.
+     *
+     * @param clientFactory creates the client with the given credentials provider,
+     *            e.g.
+     *            {@code credentials -> KinesisClient.builder().credentialsProvider(credentials).build()}.
+     *            Called once, when the client is first needed
+     * @param <ClientT> the AWS client like KinesisClient
+     * @return a proxy client that does not rebuild requests
+     */
+    public <ClientT> ProxyClient<ClientT> newCredentialedProxy(@Nonnull Function<AwsCredentialsProvider, ClientT> clientFactory) {
+        return new StdProxyClient<>(Suppliers.memoize(() -> clientFactory.apply(v2CredentialsProvider)), false);
+    }
 
-            @Override
-            public <RequestT extends AwsRequest, ResponseT extends AwsResponse, IterableT extends SdkIterable<ResponseT>>
-                IterableT
-                injectCredentialsAndInvokeIterableV2(RequestT request, Function<RequestT, IterableT> requestFunction) {
-                return AmazonWebServicesClientProxy.this.injectCredentialsAndInvokeIterableV2(request, requestFunction);
-            }
+    private final class StdProxyClient<ClientT> implements ProxyClient<ClientT> {
+
+        private final Supplier<ClientT> client;
+        private final boolean injectCredentials;
+        private final Supplier<String> serviceName;
+
+        private StdProxyClient(final Supplier<ClientT> client,
+                               final boolean injectCredentials) {
+            this.client = client;
+            this.injectCredentials = injectCredentials;
+            this.serviceName = Suppliers.memoize(() -> {
+                final ClientT sdkClient = client.get();
+                return sdkClient instanceof SdkClient ? ((SdkClient) sdkClient).serviceName() : null;
+            });
+        }
 
-            @Override
-            public <RequestT extends AwsRequest, ResponseT extends AwsResponse>
-                ResponseInputStream<ResponseT>
-                injectCredentialsAndInvokeV2InputStream(RequestT request,
-                                                        Function<RequestT, ResponseInputStream<ResponseT>> requestFunction) {
-                return AmazonWebServicesClientProxy.this.injectCredentialsAndInvokeV2InputStream(request, requestFunction);
+        @Override
+        public <RequestT extends AwsRequest, ResponseT extends AwsResponse>
+            ResponseT
+            injectCredentialsAndInvokeV2(RequestT request, Function<RequestT, ResponseT> requestFunction) {
+            acquirePermit(request);
+            return invokeV2(request, credentialed(request), requestFunction);
+        }
+
+        @Override
+        public <RequestT extends AwsRequest, ResponseT extends AwsResponse>
+            CompletableFuture<ResponseT>
+            injectCredentialsAndInvokeV2Async(RequestT request,
+                                              Function<RequestT, CompletableFuture<ResponseT>> requestFunction) {
+            final Duration wait = reservePermit(request);
+            if (wait.isZero()) {
+                return invokeV2Async(request, credentialed(request), requestFunction);
             }
+            return CompletableFuture.runAsync(() -> {
+            }, CompletableFuture.delayedExecutor(wait.toNanos(), TimeUnit.NANOSECONDS))
+                .thenCompose(ignored -> invokeV2Async(request, credentialed(request), requestFunction));
+        }
+
+        @Override
+        public <RequestT extends AwsRequest, ResponseT extends AwsResponse, IterableT extends SdkIterable<ResponseT>>
+            IterableT
+            injectCredentialsAndInvokeIterableV2(RequestT request, Function<RequestT, IterableT> requestFunction) {
+            return invokeIterableV2(withPageLogging(request,
+                injectCredentials ? overrideConfiguration : request.overrideConfiguration().orElse(null), pagePermits(request)),
+                requestFunction);
+        }
 
-            @Override
-            public <RequestT extends AwsRequest, ResponseT extends AwsResponse>
-                ResponseBytes<ResponseT>
-                injectCredentialsAndInvokeV2Bytes(RequestT request,
-                                                  Function<RequestT, ResponseBytes<ResponseT>> requestFunction) {
-                return AmazonWebServicesClientProxy.this.injectCredentialsAndInvokeV2Bytes(request, requestFunction);
+        @Override
+        public <RequestT extends AwsRequest, ResponseT extends AwsResponse, IterableT extends SdkIterable<ResponseT>>
+            SdkIterable<ResponseT>
+            injectCredentialsAndStreamV2(RequestT request, Function<RequestT, IterableT> requestFunction) {
+            return injectCredentialsAndStreamV2(request, requestFunction, PageLoggingIterable.UNBOUNDED);
+        }
+
+        @Override
+        public <RequestT extends AwsRequest, ResponseT extends AwsResponse, IterableT extends SdkIterable<ResponseT>>
+            SdkIterable<ResponseT>
+            injectCredentialsAndStreamV2(RequestT request, Function<RequestT, IterableT> requestFunction, int maxPages) {
+            return streamV2(request, credentialed(request), requestFunction, maxPages, pagePermits(request));
+        }
+
+        @Override
+        public <RequestT extends AwsRequest, ResponseT extends AwsResponse>
+            ResponseInputStream<ResponseT>
+            injectCredentialsAndInvokeV2InputStream(RequestT request,
+                                                    Function<RequestT, ResponseInputStream<ResponseT>> requestFunction) {
+            acquirePermit(request);
+            return invokeV2InputStream(request, credentialed(request), requestFunction);
+        }
+
+        @Override
+        public <RequestT extends AwsRequest, ResponseT extends AwsResponse>
+            ResponseBytes<ResponseT>
+            injectCredentialsAndInvokeV2Bytes(RequestT request, Function<RequestT, ResponseBytes<ResponseT>> requestFunction) {
+            acquirePermit(request);
+            return invokeV2Bytes(request, credentialed(request), requestFunction);
+        }
+
+        @Override
+        public ClientT client() {
+            return client.get();
+        }
+
+        private <RequestT extends AwsRequest> RequestT credentialed(final RequestT request) {
+            return injectCredentials ? withCredentials(request) : request;
+        }
+
+        /*
+         * Paginators make a request for each page, each takes its own permit
+         */
+        private Runnable pagePermits(final Object request) {
+            return rateLimiter == null ? null : () -> acquirePermit(request);
+        }
+
+        private void acquirePermit(final Object request) {
+            final Duration wait = reservePermit(request);
+            if (!wait.isZero()) {
+                Uninterruptibles.sleepUninterruptibly(wait.toNanos(), TimeUnit.NANOSECONDS);
             }
+        }
 
-            @Override
-            public ClientT client() {
-                return client.get();
+        /*
+         * Requests are limited per service, named by the SDK client, and per operation,
+         * named after the request without its Request suffix. The wait for a permit
+         * must leave time for the request before the invocation ends
+         */
+        private Duration reservePermit(final Object request) {
+            if (rateLimiter == null || serviceName.get() == null) {
+                return Duration.ZERO;
             }
-        };
+            final String operation = request != null ? request.getClass().getSimpleName().replaceFirst("Request$", "") : "";
+            final Duration maxWait = remainingTimeToExecute == null
+                ? null
+                : Duration.ofMillis(Math.max(0L, remainingTimeToExecute.get() - MIN_REQUEST_TIME.toMillis()));
+            final Duration wait = rateLimiter.tryReserve(serviceName.get(), operation, maxWait);
+            if (wait == null) {
+                throw new CfnThrottlingException(serviceName.get() + RequestRateLimiter.OPERATION_SEPARATOR + operation);
+            }
+            return wait;
+        }
     }
 
     public <ClientT, ModelT, CallbackT extends StdCallbackContext>
@@ -189,6 +342,11 @@ public class AmazonWebServicesClientProxy implements CallChain {
             return initiate("").translateToServiceRequest(maker);
         }
 
+        @Override
+        public BatchStabilizer<ClientT, ModelT, CallbackT> stabilizeBatch(String callGraph, Collection<String> items) {
+            return AmazonWebServicesClientProxy.this.stabilizeBatch(callGraph, client, model, callback, items);
+        }
+
         @Override
         public ModelT getResourceModel() {
             return model;
@@ -262,19 +420,30 @@ public class AmazonWebServicesClientProxy implements CallChain {
                 private final CallGraphNameGenerator<ModelT, RequestT, ClientT,
                     CallbackT> generator = (incoming, model_, reqMaker, client_, context_) -> {
                         final RequestT request = reqMaker.apply(model_);
-                        String objectHash = String.valueOf(Objects.hashCode(request));
                         String serviceName = (client_ == null
                             ? ""
                             : (client_ instanceof SdkClient)
                                 ? ((SdkClient) client_).serviceName()
                                 : client_.getClass().getSimpleName());
                         String requestName = request != null ? request.getClass().getSimpleName().replace("Request", "") : "";
-                        String callGraph = serviceName + ":" + requestName + "-" + (incoming != null ? incoming : "") + "-"
-                            + objectHash;
-                        context_.request(callGraph, (ignored -> request)).apply(model_);
-                        return callGraph;
+                        return serviceName + ":" + requestName + "-" + (incoming != null ? incoming : "") + "-"
+                            + RequestFingerprint.of(request);
                     };
 
+                /*
+                 * Makes the request once per step, the same request names the call graph and is
+                 * recorded for it
+                 */
+                private String callGraphFor(final RequestT request) {
+                    final String callGraph = generator.callGraph(CallContext.this.callGraph, model, ignored -> request,
+                        client.client(), context);
+                    // named by the request hash code before the fingerprint, a step resumed from
+                    // such a context must not make its request again
+                    context.renameCallGraph(callGraph,
+                        () -> callGraph.substring(0, callGraph.lastIndexOf('-') + 1) + Objects.hashCode(request));
+                    return callGraph;
+                }
+
                 @Override
                 public Caller<RequestT, ClientT, ModelT, CallbackT> backoffDelay(Delay delay) {
                     CallContext.this.delay = delay;
@@ -285,156 +454,469 @@ public class AmazonWebServicesClientProxy implements CallChain {
                 public <ResponseT>
                     Stabilizer<RequestT, ResponseT, ClientT, ModelT, CallbackT>
                     makeServiceCall(BiFunction<RequestT, ProxyClient<ClientT>, ResponseT> caller) {
-                    return new Stabilizer<RequestT, ResponseT, ClientT, ModelT, CallbackT>() {
-
-                        private Callback<RequestT, ResponseT, ClientT, ModelT, CallbackT, Boolean> waitFor;
-                        // default exception handler, reports failure.
-                        private Callback<? super RequestT, Exception, ClientT, ModelT, CallbackT,
-                            ProgressEvent<ModelT, CallbackT>> exceptHandler;
-
-                        @Override
-                        public Exceptional<RequestT, ResponseT, ClientT, ModelT, CallbackT>
-                            stabilize(Callback<RequestT, ResponseT, ClientT, ModelT, CallbackT, Boolean> callback) {
-                            this.waitFor = callback;
-                            return this;
+                    return new ServiceCall<>(caller, null);
+                }
+
+                @Override
+                public <ResponseT>
+                    Stabilizer<RequestT, ResponseT, ClientT, ModelT, CallbackT>
+                    makeServiceCallAsync(BiFunction<RequestT, ProxyClient<ClientT>, CompletableFuture<ResponseT>> caller) {
+                    return new ServiceCall<>(null, caller);
+                }
+
+                private final class ServiceCall<ResponseT>
+                    implements Stabilizer<RequestT, ResponseT, ClientT, ModelT, CallbackT> {
+
+                    private final BiFunction<RequestT, ProxyClient<ClientT>, ResponseT> caller;
+                    private final BiFunction<RequestT, ProxyClient<ClientT>, CompletableFuture<ResponseT>> asyncCaller;
+
+                    private Callback<RequestT, ResponseT, ClientT, ModelT, CallbackT, Boolean> waitFor;
+                    // default exception handler, reports failure.
+                    private Callback<? super RequestT, Exception, ClientT, ModelT, CallbackT,
+                        ProgressEvent<ModelT, CallbackT>> exceptHandler;
+                    private boolean discardOnDone;
+
+                    private ServiceCall(BiFunction<RequestT, ProxyClient<ClientT>, ResponseT> caller,
+                                        BiFunction<RequestT, ProxyClient<ClientT>, CompletableFuture<ResponseT>> asyncCaller) {
+                        this.caller = caller;
+                        this.asyncCaller = asyncCaller;
+                    }
+
+                    @Override
+                    public Exceptional<RequestT, ResponseT, ClientT, ModelT, CallbackT>
+                        stabilize(Callback<RequestT, ResponseT, ClientT, ModelT, CallbackT, Boolean> callback) {
+                        this.waitFor = callback;
+                        return this;
+                    }
+
+                    @Override
+                    public Completed<RequestT, ResponseT, ClientT, ModelT, CallbackT> retryErrorFilter(final Callback<
+                        ? super RequestT, Exception, ClientT, ModelT, CallbackT, Boolean> retryFilter) {
+                        return handleError(((request, exception, client_, model_, context_) -> {
+                            if (retryFilter.invoke(request, exception, client_, model_, context_)) {
+                                throw RetryableException.builder().build();
+                            }
+                            return defaultHandler(request, exception, client_, model_, context_);
+                        }));
+                    }
+
+                    @Override
+                    public Completed<RequestT, ResponseT, ClientT, ModelT, CallbackT> discardOnDone() {
+                        this.discardOnDone = true;
+                        return this;
+                    }
+
+                    // a step is done unless its callback failed it
+                    private void completed(String callGraph, ProgressEvent<ModelT, CallbackT> event, boolean discard) {
+                        if (event == null || event.isFailed()) {
+                            return;
+                        }
+                        if (discard) {
+                            context.discardCompleted(callGraph);
+                        } else {
+                            context.retainCompleted(callGraph);
                         }
+                    }
+
+                    @Override
+                    public Completed<RequestT, ResponseT, ClientT, ModelT, CallbackT> handleError(ExceptionPropagate<
+                        ? super RequestT, Exception, ClientT, ModelT, CallbackT, ProgressEvent<ModelT, CallbackT>> handler) {
+                        getExceptionHandler(handler);
+                        return this;
+                    }
+
+                    private Callback<? super RequestT, Exception, ClientT, ModelT, CallbackT, ProgressEvent<ModelT, CallbackT>>
+                        getExceptionHandler(final ExceptionPropagate<? super RequestT, Exception, ClientT, ModelT, CallbackT,
+                            ProgressEvent<ModelT, CallbackT>> handler) {
+                        if (this.exceptHandler == null) {
+                            this.exceptHandler = propagating(handler);
+                        }
+                        return this.exceptHandler;
+                    }
 
-                        @Override
-                        public Completed<RequestT, ResponseT, ClientT, ModelT, CallbackT> retryErrorFilter(final Callback<
-                            ? super RequestT, Exception, ClientT, ModelT, CallbackT, Boolean> retryFilter) {
-                            return handleError(((request, exception, client_, model_, context_) -> {
-                                if (retryFilter.invoke(request, exception, client_, model_, context_)) {
-                                    throw RetryableException.builder().build();
+                    @Override
+                    public ProgressEvent<ModelT, CallbackT> done(Callback<RequestT, ResponseT, ClientT, ModelT, CallbackT,
+                        ProgressEvent<ModelT, CallbackT>> callback) {
+                        if (asyncCaller != null) {
+                            try {
+                                return doneAsync(callback).join();
+                            } catch (CompletionException e) {
+                                final Throwable cause = e.getCause();
+                                if (cause instanceof RuntimeException) {
+                                    throw (RuntimeException) cause;
                                 }
-                                return defaultHandler(request, exception, client_, model_, context_);
-                            }));
+                                throw e;
+                            }
                         }
-
-                        @Override
-                        public Completed<RequestT, ResponseT, ClientT, ModelT, CallbackT> handleError(ExceptionPropagate<
-                            ? super RequestT, Exception, ClientT, ModelT, CallbackT, ProgressEvent<ModelT, CallbackT>> handler) {
-                            getExceptionHandler(handler);
-                            return this;
+                        //
+                        // StdCallbackContext memoization wrappers for request, response, and
+                        // stabilization
+                        // lambdas. This ensures that we call demux as necessary.
+                        //
+                        final RequestT madeRequest = maker.apply(model);
+                        final String callGraph = callGraphFor(madeRequest);
+                        final boolean discard = discardOnDone || context.isDiscardingCompleted();
+                        if (discard && context.isCompleted(callGraph) || context.isDiscarded(callGraph)) {
+                            // done on an earlier invocation, drop the request recorded again for the name
+                            context.evictRequestRecord(callGraph);
+                            return ProgressEvent.progress(model, context);
                         }
+                        Delay delay = override.getDelay(callGraph, CallContext.this.delay);
+                        Function<ModelT, RequestT> reqMaker = context.request(callGraph, ignored -> madeRequest);
+                        BiFunction<RequestT, ProxyClient<ClientT>, ResponseT> resMaker = context.response(callGraph,
+                            (RequestT request, ProxyClient<ClientT> client_) -> {
+                                ResponseT response = caller.apply(request, client_);
+                                context.recordSuccess();
+                                return response;
+                            });
+                        if (waitFor != null) {
+                            waitFor = context.stabilize(callGraph, waitFor);
+                        }
+                        int attempt = context.attempts(callGraph);
+                        RequestT req = null;
+                        ResponseT res = null;
+                        ProgressEvent<ModelT, CallbackT> event = null;
+                        Callback<? super RequestT, Exception, ClientT, ModelT, CallbackT, ProgressEvent<ModelT,
+                            CallbackT>> exceptionHandler = getExceptionHandler(AmazonWebServicesClientProxy.this::defaultHandler);
+                        try {
+                            for (;;) {
+                                Instant now = Instant.now();
+                                try {
+                                    req = req == null ? reqMaker.apply(model) : req;
+                                    res = res == null ? resMaker.apply(req, client) : res;
+                                    if (waitFor == null || waitFor.invoke(req, res, client, model, context)) {
+                                        event = callback.invoke(req, res, client, model, context);
+                                        completed(callGraph, event, discard);
+                                    }
+                                } catch (BaseHandlerException e) {
+                                    throw e;
+                                } catch (Exception e) {
+                                    event = exceptionHandler.invoke(req, e, client, model, context);
+                                }
 
-                        private
-                            Callback<? super RequestT, Exception, ClientT, ModelT, CallbackT, ProgressEvent<ModelT, CallbackT>>
-                            getExceptionHandler(final ExceptionPropagate<? super RequestT, Exception, ClientT, ModelT, CallbackT,
-                                ProgressEvent<ModelT, CallbackT>> handler) {
-                            if (this.exceptHandler == null) {
-                                this.exceptHandler = ((request, exception, client_, model_, context_) -> {
-                                    ProgressEvent<ModelT, CallbackT> event = null;
-                                    Exception ex = exception;
-                                    ExceptionPropagate<? super RequestT, Exception, ClientT, ModelT, CallbackT,
-                                        ProgressEvent<ModelT, CallbackT>> inner = handler;
-                                    boolean defaultHandler = false;
-                                    do {
-                                        try {
-                                            event = inner.invoke(request, ex, client_, model_, context_);
-                                        } catch (RetryableException e) {
-                                            break;
-                                        } catch (Exception e) {
-                                            if (defaultHandler) {
-                                                throw new TerminalException("FRAMEWORK ERROR, LOOPING cause " + e, e);
-                                            }
-                                            defaultHandler = true;
-                                            ex = e;
-                                            inner = AmazonWebServicesClientProxy.this::defaultHandler;
-                                        }
-                                    } while (event == null);
+                                if (event != null) {
                                     return event;
-                                });
-                            }
-                            return this.exceptHandler;
-                        }
+                                }
 
-                        @Override
-                        public ProgressEvent<ModelT, CallbackT> done(Callback<RequestT, ResponseT, ClientT, ModelT, CallbackT,
-                            ProgressEvent<ModelT, CallbackT>> callback) {
+                                //
+                                // The logic to wait is if next delay + 2 * time to run the operation sequence +
+                                // 100ms
+                                // is less than time remaining time to run inside Lambda then we locally wait
+                                // else we bail out. Assuming 3 DAYS for a DB to restore, that would be total of
+                                // 3 x 24 x 60 x 60 x 1000 ms, fits in 32 bit int.
+                                //
+                                Instant opTime = Instant.now();
+                                long elapsed = ChronoUnit.MILLIS.between(now, opTime);
+                                Duration next = delay.nextDelay(attempt++);
+                                context.attempts(callGraph, attempt);
+                                if (next == Duration.ZERO) {
+                                    return ProgressEvent.failed(model, context, HandlerErrorCode.NotStabilized,
+                                        "Exceeded attempts to wait");
+                                }
+                                event = AmazonWebServicesClientProxy.this.waitStrategy.await(elapsed, next, context, model);
+                                if (event != null) {
+                                    return event;
+                                }
+                            }
+                        } finally {
                             //
-                            // StdCallbackContext memoization wrappers for request, response, and
-                            // stabilization
-                            // lambdas. This ensures that we call demux as necessary.
+                            // only set request if response was successful. Otherwise we will remember the
+                            // the original failed request in the callback. So when we fix and resume from
+                            // the error with callback, we will replay the wrong one
                             //
-                            final String callGraph = generator.callGraph(CallContext.this.callGraph, model, maker,
-                                client.client(), context);
-                            Delay delay = override.getDelay(callGraph, CallContext.this.delay);
-                            Function<ModelT, RequestT> reqMaker = context.request(callGraph, maker);
-                            BiFunction<RequestT, ProxyClient<ClientT>, ResponseT> resMaker = context.response(callGraph, caller);
-                            if (waitFor != null) {
-                                waitFor = context.stabilize(callGraph, waitFor);
+                            if (res == null) {
+                                context.evictRequestRecord(callGraph);
+                            }
+                        }
+                    }
+
+                    @Override
+                    public ProgressEvent<ModelT, CallbackT> done(Function<ResponseT, ProgressEvent<ModelT, CallbackT>> func) {
+                        return done((request1, response1, client1, model1, context1) -> func.apply(response1));
+                    }
+
+                    @Override
+                    public CompletableFuture<ProgressEvent<ModelT, CallbackT>> doneAsync(Callback<RequestT, ResponseT, ClientT,
+                        ModelT, CallbackT, ProgressEvent<ModelT, CallbackT>> callback) {
+                        if (asyncCaller == null) {
+                            // made with a blocking caller, completes on this thread
+                            try {
+                                return CompletableFuture.completedFuture(done(callback));
+                            } catch (RuntimeException e) {
+                                return CompletableFuture.failedFuture(e);
                             }
-                            int attempt = context.attempts(callGraph);
+                        }
+                        final RequestT madeRequest;
+                        final String callGraph;
+                        try {
+                            madeRequest = maker.apply(model);
+                            callGraph = callGraphFor(madeRequest);
+                        } catch (RuntimeException e) {
+                            return CompletableFuture.failedFuture(e);
+                        }
+                        final boolean discard = discardOnDone || context.isDiscardingCompleted();
+                        if (discard && context.isCompleted(callGraph) || context.isDiscarded(callGraph)) {
+                            context.evictRequestRecord(callGraph);
+                            return CompletableFuture.completedFuture(ProgressEvent.progress(model, context));
+                        }
+                        final Attempts attempts = new Attempts(callGraph, madeRequest, callback, discard);
+                        return attempts.attempt(context.attempts(callGraph)).whenComplete((event, e) -> {
+                            // same as done, only remember the request once a response was received
+                            if (context.response(callGraph) == null) {
+                                context.evictRequestRecord(callGraph);
+                            }
+                        });
+                    }
+
+                    /*
+                     * The request, response, stabilization and backoff sequence of done, each
+                     * attempt continuing when the call or the wait before the next one completes
+                     * instead of blocking a thread
+                     */
+                    private final class Attempts {
+                        private final String callGraph;
+                        private final Delay delay;
+                        private final Function<ModelT, RequestT> reqMaker;
+                        private final Callback<RequestT, ResponseT, ClientT, ModelT, CallbackT, Boolean> stabilizer;
+                        private final Callback<RequestT, ResponseT, ClientT, ModelT, CallbackT,
+                            ProgressEvent<ModelT, CallbackT>> callback;
+                        private final Callback<? super RequestT, Exception, ClientT, ModelT, CallbackT,
+                            ProgressEvent<ModelT, CallbackT>> exceptionHandler;
+                        private final boolean discard;
+
+                        private Attempts(String callGraph,
+                                         RequestT madeRequest,
+                                         Callback<RequestT, ResponseT, ClientT, ModelT, CallbackT,
+                                             ProgressEvent<ModelT, CallbackT>> callback,
+                                         boolean discard) {
+                            this.callGraph = callGraph;
+                            this.delay = override.getDelay(callGraph, CallContext.this.delay);
+                            this.reqMaker = context.request(callGraph, ignored -> madeRequest);
+                            this.stabilizer = waitFor == null ? null : context.stabilize(callGraph, waitFor);
+                            this.callback = callback;
+                            this.exceptionHandler = getExceptionHandler(AmazonWebServicesClientProxy.this::defaultHandler);
+                            this.discard = discard;
+                        }
+
+                        private CompletableFuture<ProgressEvent<ModelT, CallbackT>> attempt(int attempt) {
+                            final Instant now = Instant.now();
                             RequestT req = null;
-                            ResponseT res = null;
-                            ProgressEvent<ModelT, CallbackT> event = null;
-                            Callback<? super RequestT, Exception, ClientT, ModelT, CallbackT,
-                                ProgressEvent<ModelT, CallbackT>> exceptionHandler = getExceptionHandler(
-                                    AmazonWebServicesClientProxy.this::defaultHandler);
+                            CompletableFuture<ResponseT> res;
                             try {
-                                for (;;) {
-                                    Instant now = Instant.now();
-                                    try {
-                                        req = req == null ? reqMaker.apply(model) : req;
-                                        res = res == null ? resMaker.apply(req, client) : res;
-                                        if (waitFor != null) {
-                                            if (waitFor.invoke(req, res, client, model, context)) {
-                                                event = callback.invoke(req, res, client, model, context);
-                                            }
-                                        } else {
-                                            event = callback.invoke(req, res, client, model, context);
-                                        }
-                                    } catch (BaseHandlerException e) {
-                                        throw e;
-                                    } catch (Exception e) {
-                                        event = exceptionHandler.invoke(req, e, client, model, context);
-                                    }
+                                req = reqMaker.apply(model);
+                                final RequestT request = req;
+                                ResponseT memoized = context.response(callGraph);
+                                res = memoized != null
+                                    ? CompletableFuture.completedFuture(memoized)
+                                    : asyncCaller.apply(request, client).thenApply(r -> {
+                                        context.recordSuccess();
+                                        return context.response(callGraph, (RequestT ign, ProxyClient<ClientT> c) -> r)
+                                            .apply(request, client);
+                                    });
+                            } catch (RuntimeException e) {
+                                res = CompletableFuture.failedFuture(e);
+                            }
+                            final RequestT request = req;
+                            return res.thenApply(response -> {
+                                if (stabilizer != null && !stabilizer.invoke(request, response, client, model, context)) {
+                                    return null;
+                                }
+                                ProgressEvent<ModelT,
+                                    CallbackT> event = callback.invoke(request, response, client, model, context);
+                                completed(callGraph, event, discard);
+                                return event;
+                            }).handle((event, e) -> {
+                                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                                if (cause == null) {
+                                    return event;
+                                }
+                                if (cause instanceof BaseHandlerException || !(cause instanceof Exception)) {
+                                    throw new CompletionException(cause);
+                                }
+                                return exceptionHandler.invoke(request, (Exception) cause, client, model, context);
+                            }).thenCompose(event -> {
+                                if (event != null) {
+                                    return CompletableFuture.completedFuture(event);
+                                }
+                                long elapsed = ChronoUnit.MILLIS.between(now, Instant.now());
+                                Duration next = delay.nextDelay(attempt);
+                                context.attempts(callGraph, attempt + 1);
+                                if (next == Duration.ZERO) {
+                                    return CompletableFuture.completedFuture(ProgressEvent.failed(model, context,
+                                        HandlerErrorCode.NotStabilized, "Exceeded attempts to wait"));
+                                }
+                                return AmazonWebServicesClientProxy.this.waitStrategy.awaitAsync(elapsed, next, context, model)
+                                    .thenCompose(waited -> waited != null
+                                        ? CompletableFuture.completedFuture(waited)
+                                        : attempt(attempt + 1));
+                            });
+                        }
+                    }
+                }
+            };
+        }
 
-                                    if (event != null) {
-                                        return event;
-                                    }
+    }
 
-                                    //
-                                    // The logic to wait is if next delay + 2 * time to run the operation sequence +
-                                    // 100ms
-                                    // is less than time remaining time to run inside Lambda then we locally wait
-                                    // else we bail out. Assuming 3 DAYS for a DB to restore, that would be total of
-                                    // 3 x 24 x 60 x 60 x 1000 ms, fits in 32 bit int.
-                                    //
-                                    Instant opTime = Instant.now();
-                                    long elapsed = ChronoUnit.MILLIS.between(now, opTime);
-                                    Duration next = delay.nextDelay(attempt++);
-                                    context.attempts(callGraph, attempt);
-                                    if (next == Duration.ZERO) {
-                                        return ProgressEvent.failed(model, context, HandlerErrorCode.NotStabilized,
-                                            "Exceeded attempts to wait");
-                                    }
-                                    event = AmazonWebServicesClientProxy.this.waitStrategy.await(elapsed, next, context, model);
-                                    if (event != null) {
-                                        return event;
-                                    }
-                                }
-                            } finally {
-                                //
-                                // only set request if response was successful. Otherwise we will remember the
-                                // the original failed request in the callback. So when we fix and resume from
-                                // the error with callback, we will replay the wrong one
-                                //
-                                if (res == null) {
-                                    context.evictRequestRecord(callGraph);
+    @Override
+    public <ClientT, ModelT, CallbackT extends StdCallbackContext>
+        BatchStabilizer<ClientT, ModelT, CallbackT>
+        stabilizeBatch(String callGraph, ProxyClient<ClientT> client, ModelT model, CallbackT cxt, Collection<String> items) {
+        Preconditions.checkNotNull(callGraph, "callGraph can not be null");
+        Preconditions.checkNotNull(client, "ProxyClient can not be null");
+        Preconditions.checkNotNull(model, "Resource Model can not be null");
+        Preconditions.checkNotNull(cxt, "cxt can not be null");
+        Preconditions.checkNotNull(items, "items can not be null");
+        return new BatchContext<>(callGraph, client, model, cxt, items);
+    }
+
+    /*
+     * The poll, stabilization and backoff sequence of a batch. Unlike a call chain
+     * nothing is memoized but the items that are stable, every poll is made for the
+     * items still pending at the time
+     */
+    private final class BatchContext<ClientT, ModelT, CallbackT extends StdCallbackContext> implements
+        BatchStabilizer<ClientT, ModelT, CallbackT>, Exceptional<Set<String>, Set<String>, ClientT, ModelT, CallbackT> {
+
+        private final String callGraph;
+        private final ProxyClient<ClientT> client;
+        private final ModelT model;
+        private final CallbackT context;
+        private final Set<String> items;
+
+        private Delay delay = null;
+        private BatchPoller<ClientT, ModelT, CallbackT> poller;
+        private Callback<? super Set<String>, Exception, ClientT, ModelT, CallbackT,
+            ProgressEvent<ModelT, CallbackT>> exceptHandler;
+        private boolean discardOnDone;
+
+        private BatchContext(String callGraph,
+                             ProxyClient<ClientT> client,
+                             ModelT model,
+                             CallbackT context,
+                             Collection<String> items) {
+            this.callGraph = callGraph;
+            this.client = client;
+            this.model = model;
+            this.context = context;
+            this.items = Collections.unmodifiableSet(new LinkedHashSet<>(items));
+        }
+
+        @Override
+        public BatchStabilizer<ClientT, ModelT, CallbackT> backoffDelay(Delay delay) {
+            this.delay = delay;
+            return this;
+        }
+
+        @Override
+        public Exceptional<Set<String>, Set<String>, ClientT, ModelT, CallbackT>
+            stabilize(BatchPoller<ClientT, ModelT, CallbackT> poller) {
+            this.poller = Preconditions.checkNotNull(poller, "poller can not be null");
+            return this;
+        }
+
+        @Override
+        public Completed<Set<String>, Set<String>, ClientT, ModelT, CallbackT>
+            retryErrorFilter(final Callback<? super Set<String>, Exception, ClientT, ModelT, CallbackT, Boolean> retryFilter) {
+            return handleError(((request, exception, client_, model_, context_) -> {
+                if (retryFilter.invoke(request, exception, client_, model_, context_)) {
+                    throw RetryableException.builder().build();
+                }
+                return defaultHandler(request, exception, client_, model_, context_);
+            }));
+        }
+
+        @Override
+        public Completed<Set<String>, Set<String>, ClientT, ModelT, CallbackT> handleError(ExceptionPropagate<? super Set<String>,
+            Exception, ClientT, ModelT, CallbackT, ProgressEvent<ModelT, CallbackT>> handler) {
+            if (this.exceptHandler == null) {
+                this.exceptHandler = propagating(handler);
+            }
+            return this;
+        }
+
+        @Override
+        public Completed<Set<String>, Set<String>, ClientT, ModelT, CallbackT> discardOnDone() {
+            this.discardOnDone = true;
+            return this;
+        }
+
+        @Override
+        public ProgressEvent<ModelT, CallbackT> done(Function<Set<String>, ProgressEvent<ModelT, CallbackT>> func) {
+            return done((request, response, client_, model_, context_) -> func.apply(response));
+        }
+
+        @Override
+        public ProgressEvent<ModelT, CallbackT>
+            done(Callback<Set<String>, Set<String>, ClientT, ModelT, CallbackT, ProgressEvent<ModelT, CallbackT>> callback) {
+            final boolean discard = discardOnDone || context.isDiscardingCompleted();
+            if (discard && context.isCompleted(callGraph)) {
+                return ProgressEvent.progress(model, context);
+            }
+            handleError(AmazonWebServicesClientProxy.this::defaultHandler);
+            final Delay delay = override.getDelay(callGraph, this.delay);
+            int attempt = context.attempts(callGraph);
+            for (;;) {
+                Instant now = Instant.now();
+                Set<String> pending = new LinkedHashSet<>();
+                for (String item : items) {
+                    if (!context.isStabilized(callGraph, item)) {
+                        pending.add(item);
+                    }
+                }
+                ProgressEvent<ModelT, CallbackT> event = null;
+                try {
+                    if (!pending.isEmpty()) {
+                        Collection<String> stable = poller.poll(Collections.unmodifiableSet(new LinkedHashSet<>(pending)), client,
+                            model, context);
+                        context.recordSuccess();
+                        if (stable != null) {
+                            for (String item : stable) {
+                                if (pending.remove(item)) {
+                                    context.recordStabilized(callGraph, item);
                                 }
                             }
                         }
-
-                        @Override
-                        public ProgressEvent<ModelT, CallbackT> done(Function<ResponseT, ProgressEvent<ModelT, CallbackT>> func) {
-                            return done((request1, response1, client1, model1, context1) -> func.apply(response1));
+                    }
+                    if (pending.isEmpty()) {
+                        event = callback.invoke(items, items, client, model, context);
+                        if (discard && event != null && !event.isFailed()) {
+                            context.discardStabilized(callGraph, items);
                         }
-                    };
+                    }
+                } catch (BaseHandlerException e) {
+                    throw e;
+                } catch (Exception e) {
+                    event = exceptHandler.invoke(pending, e, client, model, context);
                 }
-            };
+
+                if (event != null) {
+                    return event;
+                }
+
+                long elapsed = ChronoUnit.MILLIS.between(now, Instant.now());
+                Duration next = delay.nextDelay(attempt++);
+                context.attempts(callGraph, attempt);
+                if (next == Duration.ZERO) {
+                    return ProgressEvent.failed(model, context, HandlerErrorCode.NotStabilized, "Exceeded attempts to wait");
+                }
+                event = AmazonWebServicesClientProxy.this.waitStrategy.await(elapsed, next, context, model);
+                if (event != null) {
+                    return event;
+                }
+            }
         }
 
+        @Override
+        public CompletableFuture<ProgressEvent<ModelT, CallbackT>>
+            doneAsync(Callback<Set<String>, Set<String>, ClientT, ModelT, CallbackT, ProgressEvent<ModelT, CallbackT>> callback) {
+            // polls with a blocking call, completes on this thread
+            try {
+                return CompletableFuture.completedFuture(done(callback));
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
     }
 
     public <RequestT extends AmazonWebServiceRequest, ResultT extends AmazonWebServiceResult<ResponseMetadata>>
@@ -473,13 +955,103 @@ public class AmazonWebServicesClientProxy implements CallChain {
     public <RequestT extends AwsRequest, ResultT extends AwsResponse>
         ResultT
         injectCredentialsAndInvokeV2(final RequestT request, final Function<RequestT, ResultT> requestFunction) {
+        return invokeV2(request, withCredentials(request), requestFunction);
+    }
 
-        AwsRequestOverrideConfiguration overrideConfiguration = AwsRequestOverrideConfiguration.builder()
-            .credentialsProvider(v2CredentialsProvider).build();
+    public <RequestT extends AwsRequest, ResultT extends AwsResponse>
+        CompletableFuture<ResultT>
+        injectCredentialsAndInvokeV2Async(final RequestT request,
+                                          final Function<RequestT, CompletableFuture<ResultT>> requestFunction) {
+        return invokeV2Async(request, withCredentials(request), requestFunction);
+    }
 
-        @SuppressWarnings("unchecked")
-        RequestT wrappedRequest = (RequestT) request.toBuilder().overrideConfiguration(overrideConfiguration).build();
+    /**
+     * See
+     * {@link ProxyClient#injectCredentialsAndInvokeIterableV2(AwsRequest, Function)},
+     * the metric publishers configured on the client do not receive the metrics of
+     * the page requests.
+     *
+     * @param request the AWS service request to make
+     * @param requestFunction makes the request, returning the SDK paginator
+     * @param <RequestT> the request type
+     * @param <ResultT> the page type
+     * @param <IterableT> the paginator type
+     * @return the paginator, pages are fetched as it is iterated
+     */
+    public <RequestT extends AwsRequest, ResultT extends AwsResponse, IterableT extends SdkIterable<ResultT>>
+        IterableT
+        injectCredentialsAndInvokeIterableV2(final RequestT request, final Function<RequestT, IterableT> requestFunction) {
+        return invokeIterableV2(withPageLogging(request, overrideConfiguration, null), requestFunction);
+    }
 
+    public <RequestT extends AwsRequest, ResultT extends AwsResponse, IterableT extends SdkIterable<ResultT>>
+        SdkIterable<ResultT>
+        injectCredentialsAndStreamV2(final RequestT request, final Function<RequestT, IterableT> requestFunction) {
+        return injectCredentialsAndStreamV2(request, requestFunction, PageLoggingIterable.UNBOUNDED);
+    }
+
+    public <RequestT extends AwsRequest, ResultT extends AwsResponse, IterableT extends SdkIterable<ResultT>>
+        SdkIterable<ResultT>
+        injectCredentialsAndStreamV2(final RequestT request,
+                                     final Function<RequestT, IterableT> requestFunction,
+                                     final int maxPages) {
+        return streamV2(request, withCredentials(request), requestFunction, maxPages, null);
+    }
+
+    public <RequestT extends AwsRequest, ResultT extends AwsResponse>
+        ResponseInputStream<ResultT>
+        injectCredentialsAndInvokeV2InputStream(final RequestT request,
+                                                final Function<RequestT, ResponseInputStream<ResultT>> requestFunction) {
+        return invokeV2InputStream(request, withCredentials(request), requestFunction);
+    }
+
+    public <RequestT extends AwsRequest, ResultT extends AwsResponse>
+        ResponseBytes<ResultT>
+        injectCredentialsAndInvokeV2Bytes(final RequestT request,
+                                          final Function<RequestT, ResponseBytes<ResultT>> requestFunction) {
+        return invokeV2Bytes(request, withCredentials(request), requestFunction);
+    }
+
+    /*
+     * Copies the request to carry the caller credentials, sharing one override
+     * configuration across all requests
+     */
+    @SuppressWarnings("unchecked")
+    private <RequestT extends AwsRequest> RequestT withCredentials(final RequestT request) {
+        return (RequestT) request.toBuilder().overrideConfiguration(overrideConfiguration).build();
+    }
+
+    /*
+     * Copies the request to log the request id of each page as the paginator
+     * fetches it. Metric publishers on the request replace those of the client. The
+     * paginator type is the caller's, so the page hook runs when the SDK resolves
+     * the credentials, once for each page request on the calling thread.
+     */
+    @SuppressWarnings("unchecked")
+    private <RequestT extends AwsRequest> RequestT withPageLogging(final RequestT request,
+                                                                   final AwsRequestOverrideConfiguration configuration,
+                                                                   final Runnable beforePage) {
+        final String requestName = request.getClass().getSimpleName();
+        final AwsRequestOverrideConfiguration.Builder builder = configuration == null
+            ? AwsRequestOverrideConfiguration.builder()
+            : configuration.toBuilder();
+        builder.addMetricPublisher(new PageRequestIdLogger(requestId -> logRequestId(requestName, requestId)));
+        if (beforePage != null) {
+            // credentialed clients were built with the same credentials
+            final AwsCredentialsProvider credentials = builder.credentialsProvider() != null
+                ? builder.credentialsProvider()
+                : v2CredentialsProvider;
+            builder.credentialsProvider(() -> {
+                beforePage.run();
+                return credentials.resolveCredentials();
+            });
+        }
+        return (RequestT) request.toBuilder().overrideConfiguration(builder.build()).build();
+    }
+
+    private <RequestT extends AwsRequest, ResultT extends AwsResponse>
+        ResultT
+        invokeV2(final RequestT request, final RequestT wrappedRequest, final Function<RequestT, ResultT> requestFunction) {
         try {
             ResultT response = requestFunction.apply(wrappedRequest);
             logRequestMetadataV2(request, response);
@@ -490,19 +1062,13 @@ public class AmazonWebServicesClientProxy implements CallChain {
         }
     }
 
-    public <RequestT extends AwsRequest, ResultT extends AwsResponse>
+    private <RequestT extends AwsRequest, ResultT extends AwsResponse>
         CompletableFuture<ResultT>
-        injectCredentialsAndInvokeV2Async(final RequestT request,
-                                          final Function<RequestT, CompletableFuture<ResultT>> requestFunction) {
-
-        AwsRequestOverrideConfiguration overrideConfiguration = AwsRequestOverrideConfiguration.builder()
-            .credentialsProvider(v2CredentialsProvider).build();
-
-        @SuppressWarnings("unchecked")
-        RequestT wrappedRequest = (RequestT) request.toBuilder().overrideConfiguration(overrideConfiguration).build();
-
+        invokeV2Async(final RequestT request,
+                      final RequestT wrappedRequest,
+                      final Function<RequestT, CompletableFuture<ResultT>> requestFunction) {
         try {
-            CompletableFuture<ResultT> response = requestFunction.apply(wrappedRequest).thenApplyAsync(resultT -> {
+            CompletableFuture<ResultT> response = requestFunction.apply(wrappedRequest).thenApply(resultT -> {
                 logRequestMetadataV2(request, resultT);
                 return resultT;
             });
@@ -513,37 +1079,36 @@ public class AmazonWebServicesClientProxy implements CallChain {
         }
     }
 
-    public <RequestT extends AwsRequest, ResultT extends AwsResponse, IterableT extends SdkIterable<ResultT>>
+    private <RequestT extends AwsRequest, ResultT extends AwsResponse, IterableT extends SdkIterable<ResultT>>
         IterableT
-        injectCredentialsAndInvokeIterableV2(final RequestT request, final Function<RequestT, IterableT> requestFunction) {
-
-        AwsRequestOverrideConfiguration overrideConfiguration = AwsRequestOverrideConfiguration.builder()
-            .credentialsProvider(v2CredentialsProvider).build();
-
-        @SuppressWarnings("unchecked")
-        RequestT wrappedRequest = (RequestT) request.toBuilder().overrideConfiguration(overrideConfiguration).build();
-
+        invokeIterableV2(final RequestT wrappedRequest, final Function<RequestT, IterableT> requestFunction) {
         try {
-            IterableT response = requestFunction.apply(wrappedRequest);
-            response.forEach(r -> logRequestMetadataV2(request, r));
-            return response;
+            // pages are fetched as the caller iterates, walking them here to log
+            // their request ids would fetch every page twice
+            return requestFunction.apply(wrappedRequest);
         } catch (final Throwable e) {
             loggerProxy.log(String.format("Failed to execute remote function: {%s}", e.getMessage()));
             throw e;
         }
     }
 
-    public <RequestT extends AwsRequest, ResultT extends AwsResponse>
-        ResponseInputStream<ResultT>
-        injectCredentialsAndInvokeV2InputStream(final RequestT request,
-                                                final Function<RequestT, ResponseInputStream<ResultT>> requestFunction) {
-
-        AwsRequestOverrideConfiguration overrideConfiguration = AwsRequestOverrideConfiguration.builder()
-            .credentialsProvider(v2CredentialsProvider).build();
-
-        @SuppressWarnings("unchecked")
-        RequestT wrappedRequest = (RequestT) request.toBuilder().overrideConfiguration(overrideConfiguration).build();
+    private <RequestT extends AwsRequest, ResultT extends AwsResponse,
+        IterableT extends SdkIterable<ResultT>> SdkIterable<ResultT> streamV2(final RequestT request,
+                                                                              final RequestT wrappedRequest,
+                                                                              final Function<RequestT, IterableT> requestFunction,
+                                                                              final int maxPages,
+                                                                              final Runnable beforePage) {
+        final IterableT pages = invokeIterableV2(wrappedRequest, requestFunction);
+        return beforePage == null
+            ? new PageLoggingIterable<>(pages, page -> logRequestMetadataV2(request, page), maxPages)
+            : new PageLoggingIterable<>(pages, beforePage, page -> logRequestMetadataV2(request, page), maxPages);
+    }
 
+    private <RequestT extends AwsRequest, ResultT extends AwsResponse>
+        ResponseInputStream<ResultT>
+        invokeV2InputStream(final RequestT request,
+                            final RequestT wrappedRequest,
+                            final Function<RequestT, ResponseInputStream<ResultT>> requestFunction) {
         try {
             ResponseInputStream<ResultT> response = requestFunction.apply(wrappedRequest);
             logRequestMetadataV2(request, response.response());
@@ -554,17 +1119,11 @@ public class AmazonWebServicesClientProxy implements CallChain {
         }
     }
 
-    public <RequestT extends AwsRequest, ResultT extends AwsResponse>
+    private <RequestT extends AwsRequest, ResultT extends AwsResponse>
         ResponseBytes<ResultT>
-        injectCredentialsAndInvokeV2Bytes(final RequestT request,
-                                          final Function<RequestT, ResponseBytes<ResultT>> requestFunction) {
-
-        AwsRequestOverrideConfiguration overrideConfiguration = AwsRequestOverrideConfiguration.builder()
-            .credentialsProvider(v2CredentialsProvider).build();
-
-        @SuppressWarnings("unchecked")
-        RequestT wrappedRequest = (RequestT) request.toBuilder().overrideConfiguration(overrideConfiguration).build();
-
+        invokeV2Bytes(final RequestT request,
+                      final RequestT wrappedRequest,
+                      final Function<RequestT, ResponseBytes<ResultT>> requestFunction) {
         try {
             ResponseBytes<ResultT> response = requestFunction.apply(wrappedRequest);
             logRequestMetadataV2(request, response.response());
@@ -575,6 +1134,39 @@ public class AmazonWebServicesClientProxy implements CallChain {
         }
     }
 
+    /*
+     * Runs the handler, falling back to the default handler for exceptions it
+     * rethrows. A RetryableException from either returns null, to make another
+     * attempt
+     */
+    private <RequestT, ClientT, ModelT, CallbackT extends StdCallbackContext>
+        Callback<RequestT, Exception, ClientT, ModelT, CallbackT, ProgressEvent<ModelT, CallbackT>>
+        propagating(final ExceptionPropagate<? super RequestT, Exception, ClientT, ModelT, CallbackT,
+            ProgressEvent<ModelT, CallbackT>> handler) {
+        return (request, exception, client, model, context) -> {
+            ProgressEvent<ModelT, CallbackT> event = null;
+            Exception ex = exception;
+            ExceptionPropagate<? super RequestT, Exception, ClientT, ModelT, CallbackT,
+                ProgressEvent<ModelT, CallbackT>> inner = handler;
+            boolean defaultHandler = false;
+            do {
+                try {
+                    event = inner.invoke(request, ex, client, model, context);
+                } catch (RetryableException e) {
+                    break;
+                } catch (Exception e) {
+                    if (defaultHandler) {
+                        throw new TerminalException("FRAMEWORK ERROR, LOOPING cause " + e, e);
+                    }
+                    defaultHandler = true;
+                    ex = e;
+                    inner = AmazonWebServicesClientProxy.this::defaultHandler;
+                }
+            } while (event == null);
+            return event;
+        };
+    }
+
     public <RequestT, ClientT, ModelT, CallbackT extends StdCallbackContext>
         ProgressEvent<ModelT, CallbackT>
         defaultHandler(RequestT request, Exception e, ClientT client, ModelT model, CallbackT context) throws Exception {
@@ -620,6 +1212,10 @@ public class AmazonWebServicesClientProxy implements CallChain {
                 case HttpStatusCode.GATEWAY_TIMEOUT:
                 case HttpStatusCode.THROTTLING: // Throttle, TOO many requests
                     AmazonWebServicesClientProxy.this.loggerProxy.log("Retrying for error " + details.errorMessage());
+                    if (context != null) {
+                        // lengthens Adaptive delays until calls succeed again
+                        context.recordThrottle();
+                    }
                     throw RetryableException.builder().cause(e).build();
 
                 default:
@@ -652,10 +1248,14 @@ public class AmazonWebServicesClientProxy implements CallChain {
             String requestId = (response == null || response.responseMetadata() == null)
                 ? ""
                 : response.responseMetadata().requestId();
-            loggerProxy
-                .log(String.format("{\"apiRequest\": {\"requestId\": \"%s\", \"requestName\": \"%s\"}}", requestId, requestName));
+            logRequestId(requestName, requestId);
         } catch (final Exception e) {
             loggerProxy.log(e.getMessage());
         }
     }
+
+    private void logRequestId(final String requestName, final String requestId) {
+        loggerProxy
+            .log(String.format("{\"apiRequest\": {\"requestId\": \"%s\", \"requestName\": \"%s\"}}", requestId, requestName));
+    }
 }
@@ -14,6 +14,9 @@
 */
 package software.amazon.cloudformation.proxy;
 
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
@@ -64,6 +67,18 @@ public interface CallChain {
          */
         RequestMaker<ClientT, ModelT, CallbackT> initiate(String callGraph);
 
+        /**
+         * Waits for several items to stabilize with one batched call per poll, see
+         * {@link CallChain#stabilizeBatch(String, ProxyClient, Object, StdCallbackContext, Collection)}
+         *
+         * @param callGraph, the name of the batch, e.g. "ec2:DescribeNetworkInterfaces"
+         * @param items, the identifiers of the items to wait for
+         * @return Provides the next logical set in the fluent API.
+         */
+        default BatchStabilizer<ClientT, ModelT, CallbackT> stabilizeBatch(String callGraph, Collection<String> items) {
+            throw new UnsupportedOperationException();
+        }
+
         /**
          * @return the model associated with the API initiator. Can not be null
          */
@@ -139,6 +154,90 @@ public interface CallChain {
         RequestMaker<ClientT, ModelT, CallbackT>
         initiate(String callGraph, ProxyClient<ClientT> client, ModelT model, CallbackT cxt);
 
+    /**
+     * Waits for several items to stabilize, e.g. the network interfaces created by
+     * a call chain each, polling all the items not yet stable with one batched
+     * describe call per poll instead of one call chain polling per item. Each item
+     * is recorded in the callback context once it is stable, a replayed batch only
+     * polls the items still pending and is done when all of them are stable.
+     *
+     * <pre>
+     * {@code
+     *     proxy.stabilizeBatch("ec2:DescribeNetworkInterfaces", client, model, context, eniIds)
+     *         .stabilize((pending, c, m, cxt) -> c.injectCredentialsAndInvokeV2(
+     *             DescribeNetworkInterfacesRequest.builder().networkInterfaceIds(pending).build(),
+     *             c.client()::describeNetworkInterfaces).networkInterfaces().stream()
+     *             .filter(eni -> eni.status() == NetworkInterfaceStatus.AVAILABLE)
+     *             .map(NetworkInterface::networkInterfaceId).collect(Collectors.toList()))
+     *         .progress();
+     * }
+     * </pre>
+     *
+     * @param callGraph, the name of the batch, the items are recorded under it.
+     * @param client, actual client needed to make the call wrapped inside
+     *            {@link ProxyClient} to support injection of scoped credentials
+     * @param model, the actual resource model that defines the shape for setting up
+     *            this resource type.
+     * @param cxt, Callback context used to record the items that are stable.
+     * @param items, the identifiers of the items to wait for.
+     * @param <ClientT> Actual client e.g. Ec2Client.
+     * @param <ModelT> The type (POJO) of Resource model.
+     * @param <CallbackT>, callback context the extends {@link StdCallbackContext}
+     * @return Provides the next logical set in the fluent API.
+     */
+    default <ClientT, ModelT, CallbackT extends StdCallbackContext>
+        BatchStabilizer<ClientT, ModelT, CallbackT>
+        stabilizeBatch(String callGraph, ProxyClient<ClientT> client, ModelT model, CallbackT cxt, Collection<String> items) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Makes the batched call for the items of
+     * {@link CallChain#stabilizeBatch(String, ProxyClient, Object, StdCallbackContext, Collection)}
+     * that are not yet stable.
+     *
+     * @param <ClientT>, the web service client to make the call
+     * @param <ModelT>, the current model we are using
+     * @param <CallbackT>, the callback context
+     */
+    @FunctionalInterface
+    interface BatchPoller<ClientT, ModelT, CallbackT extends StdCallbackContext> {
+        /**
+         * @param pending the items not yet stable, in the order they were given
+         * @param client the client to make the call with
+         * @param model the resource model
+         * @param context the callback context
+         * @return the items that are stable, the others are polled again after the
+         *         backoff delay
+         */
+        Collection<String> poll(Set<String> pending, ProxyClient<ClientT> client, ModelT model, CallbackT context);
+    }
+
+    /**
+     * Sets up the polling of a batch. Once stabilized the chain continues as any
+     * other, the request and the response handed to the callbacks are the items of
+     * the batch, the exception handlers get the items that were pending.
+     *
+     * @param <ClientT>, the web service client to make the call
+     * @param <ModelT>, the current model we are using
+     * @param <CallbackT>, the callback context
+     */
+    interface BatchStabilizer<ClientT, ModelT, CallbackT extends StdCallbackContext> {
+        /**
+         * @param delay, the delay between polls, and how long to keep polling
+         * @return this
+         */
+        BatchStabilizer<ClientT, ModelT, CallbackT> backoffDelay(Delay delay);
+
+        /**
+         * @param poller, makes one batched call for all the pending items
+         * @return {@link Exceptional} to continue the chain, done when all items are
+         *         stable
+         */
+        Exceptional<Set<String>, Set<String>, ClientT, ModelT, CallbackT>
+            stabilize(BatchPoller<ClientT, ModelT, CallbackT> poller);
+    }
+
     /**
      * This performs the translate step between the ModelT properties and what is
      * needed for making the service call.
@@ -197,6 +296,23 @@ public interface CallChain {
             Stabilizer<RequestT, ResponseT, ClientT, ModelT, CallbackT>
             makeServiceCall(BiFunction<RequestT, ProxyClient<ClientT>, ResponseT> caller);
 
+        /**
+         * Makes the service call with an async SDK client, e.g.
+         * {@code (r, c) -> c.injectCredentialsAndInvokeV2Async(r, c.client()::createLogGroup)}.
+         * Use {@link Completed#doneAsync(Callback)} to compose the call with others
+         * without blocking, stabilization and backoff waits included, so independent
+         * calls can overlap within one invocation.
+         *
+         * @param caller makes the call, returning the pending response
+         * @param <ResponseT> the response type
+         * @return {@link Stabilizer} to continue the chain
+         */
+        default <ResponseT>
+            Stabilizer<RequestT, ResponseT, ClientT, ModelT, CallbackT>
+            makeServiceCallAsync(BiFunction<RequestT, ProxyClient<ClientT>, CompletableFuture<ResponseT>> caller) {
+            throw new UnsupportedOperationException();
+        }
+
         @Deprecated
         default Caller<RequestT, ClientT, ModelT, CallbackT> retry(Delay delay) {
             return backoffDelay(delay);
@@ -370,6 +486,22 @@ public interface CallChain {
      * @param <CallbackT>, the callback context that contains results
      */
     interface Completed<RequestT, ResponseT, ClientT, ModelT, CallbackT extends StdCallbackContext> {
+        /**
+         * Marks the request and response of this call as no longer needed once the call
+         * is done. They are discarded from the callback context, keeping only whether
+         * the call stabilized and completed, so the context does not grow with every
+         * step of a long chain. When the chain is replayed on a later invocation the
+         * call is not made again and the done callback is not invoked, the step returns
+         * {@link ProgressEvent#progress(Object, Object)} instead. Any results needed by
+         * later steps must therefore be kept in the model or the callback context.
+         *
+         * @return {@link Completed} to set the done callback
+         * @see StdCallbackContext.CallGraphRetention
+         */
+        default Completed<RequestT, ResponseT, ClientT, ModelT, CallbackT> discardOnDone() {
+            throw new UnsupportedOperationException();
+        }
+
         /**
          * @param func, this works with only the response of the web service call to
          *            provide {@link ProgressEvent} function
@@ -385,6 +517,23 @@ public interface CallChain {
         ProgressEvent<ModelT, CallbackT>
             done(Callback<RequestT, ResponseT, ClientT, ModelT, CallbackT, ProgressEvent<ModelT, CallbackT>> callback);
 
+        /**
+         * Same as {@link #done(Callback)} without blocking the calling thread when the
+         * call was made with {@link Caller#makeServiceCallAsync(BiFunction)}.
+         * Memoization in the callback context applies as for a blocking call, the
+         * callbacks run on the thread completing the call or the wait before a retry.
+         * For a call made with {@link Caller#makeServiceCall(BiFunction)} the chain
+         * runs on the calling thread and the returned future is complete, as it is for
+         * implementations that only block.
+         *
+         * @param callback provides the {@link ProgressEvent} once the call is done
+         * @return the pending {@link ProgressEvent}
+         */
+        default CompletableFuture<ProgressEvent<ModelT, CallbackT>>
+            doneAsync(Callback<RequestT, ResponseT, ClientT, ModelT, CallbackT, ProgressEvent<ModelT, CallbackT>> callback) {
+            return CompletableFuture.completedFuture(done(callback));
+        }
+
         /**
          * @return {@link ProgressEvent} Helper function that provides a
          *         {@link OperationStatus#SUCCESS} status when the callchain is done
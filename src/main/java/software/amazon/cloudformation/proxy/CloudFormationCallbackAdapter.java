@@ -15,15 +15,19 @@
 package software.amazon.cloudformation.proxy;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.base.Suppliers;
 import java.util.UUID;
-import org.json.JSONObject;
+import java.util.function.Supplier;
 import software.amazon.awssdk.services.cloudformation.CloudFormationClient;
 import software.amazon.awssdk.services.cloudformation.model.RecordHandlerProgressRequest;
 import software.amazon.awssdk.services.cloudformation.model.RecordHandlerProgressResponse;
 import software.amazon.cloudformation.exceptions.TerminalException;
 import software.amazon.cloudformation.injection.CloudFormationProvider;
 import software.amazon.cloudformation.resource.ResourceTypeSchema;
+import software.amazon.cloudformation.resource.ResourceTypeSchemaCache;
 import software.amazon.cloudformation.resource.Serializer;
+import software.amazon.cloudformation.resource.WriteOnlyPropertyStripper;
 
 public class CloudFormationCallbackAdapter<T> implements CallbackAdapter<T> {
 
@@ -35,16 +39,35 @@ public class CloudFormationCallbackAdapter<T> implements CallbackAdapter<T> {
 
     private Serializer serializer;
 
-    private ResourceTypeSchema resourceTypeSchema;
+    private Supplier<WriteOnlyPropertyStripper> writeOnlyPropertyStripper;
 
     public CloudFormationCallbackAdapter(final CloudFormationProvider cloudFormationProvider,
                                          final LoggerProxy loggerProxy,
                                          final Serializer serializer,
                                          final ResourceTypeSchema resourceTypeSchema) {
+        this(cloudFormationProvider, loggerProxy, serializer,
+             Suppliers.memoize(() -> WriteOnlyPropertyStripper.compile(resourceTypeSchema)));
+    }
+
+    /**
+     * Shares the wrapper's compiled schema, which is only loaded when progress with
+     * a resource model is first reported
+     */
+    public CloudFormationCallbackAdapter(final CloudFormationProvider cloudFormationProvider,
+                                         final LoggerProxy loggerProxy,
+                                         final Serializer serializer,
+                                         final ResourceTypeSchemaCache schemaCache) {
+        this(cloudFormationProvider, loggerProxy, serializer, schemaCache::getWriteOnlyPropertyStripper);
+    }
+
+    private CloudFormationCallbackAdapter(final CloudFormationProvider cloudFormationProvider,
+                                          final LoggerProxy loggerProxy,
+                                          final Serializer serializer,
+                                          final Supplier<WriteOnlyPropertyStripper> writeOnlyPropertyStripper) {
         this.cloudFormationProvider = cloudFormationProvider;
         this.loggerProxy = loggerProxy;
         this.serializer = serializer;
-        this.resourceTypeSchema = resourceTypeSchema;
+        this.writeOnlyPropertyStripper = writeOnlyPropertyStripper;
     }
 
     public void refreshClient() {
@@ -66,10 +89,10 @@ public class CloudFormationCallbackAdapter<T> implements CallbackAdapter<T> {
 
         if (resourceModel != null) {
             try {
-                JSONObject jsonModel = new JSONObject(this.serializer.serialize(resourceModel));
-                resourceTypeSchema.removeWriteOnlyProperties(jsonModel);
+                JsonNode jsonModel = this.serializer.toTree(resourceModel);
+                writeOnlyPropertyStripper.get().strip(jsonModel);
                 // expect return type to be non-null
-                requestBuilder.resourceModel(jsonModel.toString());
+                requestBuilder.resourceModel(this.serializer.serialize(jsonModel));
             } catch (JsonProcessingException e) {
                 throw new TerminalException("Unable to serialize resource model for reporting progress", e);
             }
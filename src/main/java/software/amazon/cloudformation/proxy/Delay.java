@@ -38,6 +38,9 @@ import java.time.Duration;
  * @see software.amazon.cloudformation.proxy.delay.Exponential
  * @see software.amazon.cloudformation.proxy.delay.MultipleOf
  * @see software.amazon.cloudformation.proxy.delay.ShiftByMultipleOf
+ * @see software.amazon.cloudformation.proxy.delay.FullJitter
+ * @see software.amazon.cloudformation.proxy.delay.DecorrelatedJitter
+ * @see software.amazon.cloudformation.proxy.delay.Adaptive
  */
 public interface Delay {
     /**
@@ -0,0 +1,96 @@
+/*
+* Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License").
+* You may not use this file except in compliance with the License.
+* A copy of the License is located at
+*
+*  http://aws.amazon.com/apache2.0
+*
+* or in the "license" file accompanying this file. This file is distributed
+* on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied. See the License for the specific language governing
+* permissions and limitations under the License.
+*/
+package software.amazon.cloudformation.proxy;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Waits for the next attempt inside the invocation when it fits in the time
+ * left to execute, and up to a maximum wait, scheduling a callback otherwise.
+ * Waits are as precise as the delay, down to the millisecond. Asynchronous
+ * waits hold no thread while waiting and continue on a virtual thread when the
+ * runtime has them.
+ */
+final class LocalWaitStrategy implements WaitStrategy {
+
+    private static final Executor EXECUTOR = VirtualThreads.newExecutor("local-wait-%d");
+
+    private final Supplier<Long> remainingTimeToExecute;
+    private final Duration maxLocalWait;
+
+    /**
+     * @param remainingTimeToExecute time left in the invocation in milliseconds
+     * @param maxLocalWait the longest wait made locally, longer waits schedule a
+     *            callback even when there is time left. Null for no maximum
+     */
+    LocalWaitStrategy(final Supplier<Long> remainingTimeToExecute,
+                      final Duration maxLocalWait) {
+        this.remainingTimeToExecute = remainingTimeToExecute;
+        this.maxLocalWait = maxLocalWait;
+    }
+
+    @Override
+    public <ModelT, CallbackT>
+        ProgressEvent<ModelT, CallbackT>
+        await(long operationElapsedTime, Duration next, CallbackT context, ModelT model) {
+        if (canWaitLocally(operationElapsedTime, next)) {
+            Uninterruptibles.sleepUninterruptibly(next.toNanos(), TimeUnit.NANOSECONDS);
+            return null;
+        }
+        return ProgressEvent.defaultInProgressHandler(context, callbackDelaySeconds(next), model);
+    }
+
+    @Override
+    public <ModelT, CallbackT>
+        CompletableFuture<ProgressEvent<ModelT, CallbackT>>
+        awaitAsync(long operationElapsedTime, Duration next, CallbackT context, ModelT model) {
+        if (canWaitLocally(operationElapsedTime, next)) {
+            return CompletableFuture.supplyAsync(() -> null,
+                CompletableFuture.delayedExecutor(next.toNanos(), TimeUnit.NANOSECONDS, EXECUTOR));
+        }
+        return CompletableFuture
+            .completedFuture(ProgressEvent.defaultInProgressHandler(context, callbackDelaySeconds(next), model));
+    }
+
+    /*
+     * Leaves room for the next attempt to take twice as long as the last one did,
+     * and for the response to be written. Time the wrapper needs once the handler
+     * returns is left out of the time to execute by the wrapper
+     */
+    private boolean canWaitLocally(long operationElapsedTime, Duration next) {
+        if (maxLocalWait != null && next.compareTo(maxLocalWait) > 0) {
+            return false;
+        }
+        long remainingTime = remainingTimeToExecute.get();
+        long localWait = next.toMillis() + 2 * operationElapsedTime + 100;
+        return remainingTime > localWait;
+    }
+
+    /**
+     * @param next the delay before the next attempt
+     * @return the delay in whole seconds, rounded up so the callback is not made
+     *         early. At least a second, an IN_PROGRESS event without a delay would
+     *         let the handler carry on as if the step was done
+     */
+    static int callbackDelaySeconds(Duration next) {
+        final long seconds = next.getSeconds() + (next.getNano() > 0 ? 1 : 0);
+        return (int) Math.max(1L, seconds);
+    }
+}
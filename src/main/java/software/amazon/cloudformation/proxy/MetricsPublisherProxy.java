@@ -82,4 +82,22 @@ public class MetricsPublisherProxy {
         metricsPublishers.stream()
             .forEach(metricsPublisher -> metricsPublisher.publishProviderLogDeliveryExceptionMetric(timestamp, exception));
     }
+
+    public void publishProviderLogQueueMetrics(final Instant timestamp, final int queueDepth, final long droppedEvents) {
+        metricsPublishers.stream()
+            .forEach(metricsPublisher -> metricsPublisher.publishProviderLogQueueMetrics(timestamp, queueDepth, droppedEvents));
+    }
+
+    public void publishRequestRateLimitMetrics(final Instant timestamp,
+                                               final String limit,
+                                               final long permitsWaited,
+                                               final long waitedMilliseconds) {
+        metricsPublishers.stream().forEach(metricsPublisher -> metricsPublisher.publishRequestRateLimitMetrics(timestamp, limit,
+            permitsWaited, waitedMilliseconds));
+    }
+
+    public void publishSchemaCacheMetrics(final Instant timestamp, final long hits, final long misses) {
+        metricsPublishers.stream()
+            .forEach(metricsPublisher -> metricsPublisher.publishSchemaCacheMetrics(timestamp, hits, misses));
+    }
 }
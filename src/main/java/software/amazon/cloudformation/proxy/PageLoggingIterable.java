@@ -0,0 +1,87 @@
+/*
+* Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License").
+* You may not use this file except in compliance with the License.
+* A copy of the License is located at
+*
+*  http://aws.amazon.com/apache2.0
+*
+* or in the "license" file accompanying this file. This file is distributed
+* on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied. See the License for the specific language governing
+* permissions and limitations under the License.
+*/
+package software.amazon.cloudformation.proxy;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import software.amazon.awssdk.core.pagination.sync.SdkIterable;
+
+/**
+ * Pages of an SDK paginator, handed out as the caller consumes them. Each page
+ * is passed to the page consumer, e.g. to log its request id, when the caller
+ * takes it, so no page is fetched ahead of the caller. The page hook runs
+ * before each page is fetched, e.g. to take a request permit. When bounded,
+ * iteration stops after the maximum number of pages, leaving the next token of
+ * the last page as the point to resume from.
+ *
+ * @param <ResponseT> the page type
+ */
+final class PageLoggingIterable<ResponseT> implements SdkIterable<ResponseT> {
+
+    static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    private final SdkIterable<ResponseT> pages;
+    private final Runnable beforePage;
+    private final Consumer<ResponseT> onPage;
+    private final int maxPages;
+
+    PageLoggingIterable(final SdkIterable<ResponseT> pages,
+                        final Consumer<ResponseT> onPage,
+                        final int maxPages) {
+        this(pages, () -> {
+        }, onPage, maxPages);
+    }
+
+    PageLoggingIterable(final SdkIterable<ResponseT> pages,
+                        final Runnable beforePage,
+                        final Consumer<ResponseT> onPage,
+                        final int maxPages) {
+        if (maxPages < 1) {
+            throw new IllegalArgumentException("maxPages must be at least 1, was " + maxPages);
+        }
+        this.pages = pages;
+        this.beforePage = beforePage;
+        this.onPage = onPage;
+        this.maxPages = maxPages;
+    }
+
+    @Override
+    public Iterator<ResponseT> iterator() {
+        final Iterator<ResponseT> each = pages.iterator();
+        return new Iterator<ResponseT>() {
+            private int consumed;
+
+            @Override
+            public boolean hasNext() {
+                // checked first, asking the SDK iterator may fetch the next page
+                return consumed < maxPages && each.hasNext();
+            }
+
+            @Override
+            public ResponseT next() {
+                if (consumed >= maxPages) {
+                    throw new NoSuchElementException();
+                }
+                // SDK paginators fetch the page when it is taken
+                beforePage.run();
+                final ResponseT page = each.next();
+                consumed++;
+                onPage.accept(page);
+                return page;
+            }
+        };
+    }
+}
@@ -0,0 +1,54 @@
+/*
+* Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License").
+* You may not use this file except in compliance with the License.
+* A copy of the License is located at
+*
+*  http://aws.amazon.com/apache2.0
+*
+* or in the "license" file accompanying this file. This file is distributed
+* on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied. See the License for the specific language governing
+* permissions and limitations under the License.
+*/
+package software.amazon.cloudformation.proxy;
+
+import java.util.List;
+import java.util.function.Consumer;
+import software.amazon.awssdk.core.metrics.CoreMetric;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricPublisher;
+
+/**
+ * Request ids of the pages of an SDK paginator, taken from the metrics the SDK
+ * publishes after each page request. Paginators are returned to the caller as
+ * their own type, so unlike {@link PageLoggingIterable} the pages can not be
+ * wrapped; the SDK publishes the metrics on the calling thread as each page is
+ * fetched, so no page is fetched ahead of the caller either.
+ */
+final class PageRequestIdLogger implements MetricPublisher {
+
+    private final Consumer<String> onRequestId;
+
+    PageRequestIdLogger(final Consumer<String> onRequestId) {
+        this.onRequestId = onRequestId;
+    }
+
+    @Override
+    public void publish(final MetricCollection metrics) {
+        if (!metrics.metricValues(CoreMetric.API_CALL_SUCCESSFUL).contains(Boolean.TRUE)) {
+            return;
+        }
+        // the page was read from the last attempt, earlier ones were retried
+        final List<MetricCollection> attempts = metrics.children();
+        final List<String> requestIds = attempts.isEmpty()
+            ? metrics.metricValues(CoreMetric.AWS_REQUEST_ID)
+            : attempts.get(attempts.size() - 1).metricValues(CoreMetric.AWS_REQUEST_ID);
+        onRequestId.accept(requestIds.isEmpty() ? "" : requestIds.get(0));
+    }
+
+    @Override
+    public void close() {
+    }
+}
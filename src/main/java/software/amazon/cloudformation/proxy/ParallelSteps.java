@@ -0,0 +1,138 @@
+/*
+* Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License").
+* You may not use this file except in compliance with the License.
+* A copy of the License is located at
+*
+*  http://aws.amazon.com/apache2.0
+*
+* or in the "license" file accompanying this file. This file is distributed
+* on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied. See the License for the specific language governing
+* permissions and limitations under the License.
+*/
+package software.amazon.cloudformation.proxy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * Runs the independent steps of {@link ProgressEvent#thenAll(List)}
+ * concurrently and combines their outcomes. Steps run on virtual threads when
+ * the runtime has them, on a shared pool of daemon threads otherwise. Each
+ * fan-out bounds how many of its steps are in flight, so steps that fan out
+ * again can not starve one another. Each step is handed its own copy of the
+ * event, the resource model and callback context are shared.
+ */
+final class ParallelSteps {
+
+    static final int DEFAULT_MAX_CONCURRENCY = 8;
+
+    private static final ExecutorService EXECUTOR = VirtualThreads.newExecutor("progress-step-%d");
+
+    private ParallelSteps() {
+    }
+
+    static <ResourceT> BinaryOperator<ResourceT> failOnDifferentModels() {
+        return (model, other) -> {
+            throw new IllegalStateException("Steps returned different resource models, "
+                + "pass thenAll a function to merge them");
+        };
+    }
+
+    static <ResourceT, CallbackT>
+        ProgressEvent<ResourceT, CallbackT>
+        run(ProgressEvent<ResourceT, CallbackT> event,
+            List<Function<ProgressEvent<ResourceT, CallbackT>, ProgressEvent<ResourceT, CallbackT>>> steps,
+            int maxConcurrency,
+            BinaryOperator<ResourceT> mergeModels) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1, was " + maxConcurrency);
+        }
+        final Semaphore permits = new Semaphore(maxConcurrency);
+        final List<CompletableFuture<ProgressEvent<ResourceT, CallbackT>>> running = new ArrayList<>(steps.size());
+        for (Function<ProgressEvent<ResourceT, CallbackT>, ProgressEvent<ResourceT, CallbackT>> step : steps) {
+            permits.acquireUninterruptibly();
+            try {
+                final ProgressEvent<ResourceT, CallbackT> own = copyOf(event);
+                running.add(CompletableFuture.supplyAsync(() -> step.apply(own), EXECUTOR)
+                    .whenComplete((result, e) -> permits.release()));
+            } catch (RuntimeException e) {
+                permits.release();
+                running.add(CompletableFuture.failedFuture(e));
+            }
+        }
+
+        //
+        // wait for every step, even when one has failed, the others are still
+        // recording their requests and responses in the callback context
+        //
+        final List<ProgressEvent<ResourceT, CallbackT>> results = new ArrayList<>(running.size());
+        RuntimeException thrown = null;
+        for (CompletableFuture<ProgressEvent<ResourceT, CallbackT>> each : running) {
+            try {
+                results.add(each.join());
+            } catch (CompletionException e) {
+                final Throwable cause = e.getCause();
+                if (thrown == null) {
+                    thrown = cause instanceof RuntimeException ? (RuntimeException) cause : e;
+                }
+            }
+        }
+        if (thrown != null) {
+            throw thrown;
+        }
+        return combine(event, results, mergeModels);
+    }
+
+    private static <ResourceT, CallbackT> ProgressEvent<ResourceT, CallbackT> copyOf(ProgressEvent<ResourceT, CallbackT> event) {
+        return ProgressEvent.<ResourceT, CallbackT>builder().status(event.getStatus()).errorCode(event.getErrorCode())
+            .message(event.getMessage()).result(event.getResult()).callbackContext(event.getCallbackContext())
+            .callbackDelaySeconds(event.getCallbackDelaySeconds()).resourceModel(event.getResourceModel())
+            .resourceModels(event.getResourceModels()).nextToken(event.getNextToken()).build();
+    }
+
+    /*
+     * The first failed step in list order fails the fan-out. Otherwise the longest
+     * callback delay requested by a step is honored, and when no step asked for one
+     * the chain continues. Steps that succeeded are done. A model returned in place
+     * of the one the steps were given is carried on, several are merged in list
+     * order.
+     */
+    private static <ResourceT,
+        CallbackT> ProgressEvent<ResourceT, CallbackT> combine(ProgressEvent<ResourceT, CallbackT> event,
+                                                               List<ProgressEvent<ResourceT, CallbackT>> results,
+                                                               BinaryOperator<ResourceT> mergeModels) {
+        int callbackDelaySeconds = 0;
+        String message = null;
+        ResourceT model = event.getResourceModel();
+        for (ProgressEvent<ResourceT, CallbackT> result : results) {
+            if (result == null) {
+                continue;
+            }
+            if (result.isFailed()) {
+                return result;
+            }
+            final ResourceT returned = result.getResourceModel();
+            if (returned != null && returned != event.getResourceModel() && !Objects.equals(returned, model)) {
+                model = model == event.getResourceModel() ? returned : mergeModels.apply(model, returned);
+            }
+            if (result.isInProgressCallbackDelay() && result.getCallbackDelaySeconds() > callbackDelaySeconds) {
+                callbackDelaySeconds = result.getCallbackDelaySeconds();
+                message = result.getMessage();
+            }
+        }
+        ProgressEvent<ResourceT, CallbackT> combined = ProgressEvent.progress(model, event.getCallbackContext());
+        combined.setCallbackDelaySeconds(callbackDelaySeconds);
+        combined.setMessage(message);
+        return combined;
+    }
+}
@@ -16,6 +16,7 @@ package software.amazon.cloudformation.proxy;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.util.List;
+import java.util.function.BinaryOperator;
 import java.util.function.Function;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -192,6 +193,63 @@ public class ProgressEvent<ResourceT, CallbackT> {
         return canContinueProgress() ? func.apply(this) : this;
     }
 
+    /**
+     * Fans out to independent steps, e.g. tagging, attaching policies and creating
+     * child resources, running them concurrently instead of one after another. Each
+     * step receives its own copy of this event and records its calls in the shared
+     * callback context. Call graph names are derived from the name given to
+     * {@link AmazonWebServicesClientProxy#initiate(String, ProxyClient, Object, StdCallbackContext)}
+     * and the request, never from the order steps run or complete in, so a
+     * re-invocation replays every step from where it left off.
+     * <p>
+     * Waits for all steps, then returns the first FAILED event in list order. When
+     * none failed, returns IN_PROGRESS with the longest callback delay any step
+     * asked for, or IN_PROGRESS without delay so the chain continues. A step that
+     * throws has its exception rethrown once all steps are done. The combined event
+     * carries the resource model a step returned in place of this one, e.g. a new
+     * model with the identifier of a child resource set. When several steps return
+     * different models, use {@link #thenAll(List, int, BinaryOperator)} to merge
+     * them, otherwise an IllegalStateException is thrown.
+     * <p>
+     * The steps run on different threads and share the resource model and the
+     * callback context. Neither is thread-safe, only the call graphs recorded by
+     * {@link StdCallbackContext} are: a step must not modify the model or fields of
+     * its own callback context type that another step reads, but return a copy of
+     * the model with its changes instead.
+     *
+     * @param funcs the independent steps
+     * @return the combined event, or this event when progress can not continue
+     */
+    public ProgressEvent<ResourceT, CallbackT>
+        thenAll(List<Function<ProgressEvent<ResourceT, CallbackT>, ProgressEvent<ResourceT, CallbackT>>> funcs) {
+        return thenAll(funcs, ParallelSteps.DEFAULT_MAX_CONCURRENCY);
+    }
+
+    /**
+     * @param funcs the independent steps
+     * @param maxConcurrency how many of the steps run at the same time
+     * @return the combined event, see {@link #thenAll(List)}
+     */
+    public ProgressEvent<ResourceT, CallbackT>
+        thenAll(List<Function<ProgressEvent<ResourceT, CallbackT>, ProgressEvent<ResourceT, CallbackT>>> funcs,
+                int maxConcurrency) {
+        return thenAll(funcs, maxConcurrency, ParallelSteps.failOnDifferentModels());
+    }
+
+    /**
+     * @param funcs the independent steps
+     * @param maxConcurrency how many of the steps run at the same time
+     * @param mergeModels merges the different models returned by two steps, called
+     *            in list order of the steps
+     * @return the combined event, see {@link #thenAll(List)}
+     */
+    public ProgressEvent<ResourceT, CallbackT>
+        thenAll(List<Function<ProgressEvent<ResourceT, CallbackT>, ProgressEvent<ResourceT, CallbackT>>> funcs,
+                int maxConcurrency,
+                BinaryOperator<ResourceT> mergeModels) {
+        return canContinueProgress() ? ParallelSteps.run(this, funcs, maxConcurrency, mergeModels) : this;
+    }
+
     @JsonIgnore
     public boolean isSuccess() {
         return status == OperationStatus.SUCCESS;
@@ -80,7 +80,14 @@ public interface ProxyClient<ClientT> {
 
     /**
      * This is a synchronous version of making API calls which implement Iterable in
-     * the SDKv2
+     * the SDKv2. Pages are fetched by the SDK as the iterable is iterated, the
+     * request metadata of each page is logged as it is fetched.
+     * <p>
+     * The request id of each page is read from the SDK metrics of its request, by a
+     * metric publisher added to the request override configuration. Metric
+     * publishers on a request replace those of the client, so the metric publishers
+     * configured on the client do not receive the metrics of these requests. Use
+     * {@link #injectCredentialsAndStreamV2(AwsRequest, Function)} to keep them.
      *
      * @param request, the AWS service request that we need to make
      * @param requestFunction, this is a Lambda closure that provide the actual API
@@ -100,6 +107,51 @@ public interface ProxyClient<ClientT> {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * This is a synchronous version of making API calls which implement Iterable in
+     * the SDKv2, streaming the pages as they are consumed. Unlike
+     * {@link #injectCredentialsAndInvokeIterableV2(AwsRequest, Function)} the pages
+     * are returned as a plain {@link SdkIterable}, so the iteration can be bounded;
+     * breaking out of it early leaves the remaining pages unfetched.
+     *
+     * @param request, the AWS service request that we need to make
+     * @param requestFunction, this is a Lambda closure that provide the actual API
+     *            that needs to be invoked.
+     * @param <RequestT> the request type
+     * @param <ResponseT> the response from the request
+     * @param <IterableT> the iterable collection from the response
+     * @return the pages of the response. Service errors are propagated while
+     *         iterating, as pages are fetched
+     */
+    default <RequestT extends AwsRequest, ResponseT extends AwsResponse, IterableT extends SdkIterable<ResponseT>>
+        SdkIterable<ResponseT>
+        injectCredentialsAndStreamV2(RequestT request, Function<RequestT, IterableT> requestFunction) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Page bounded version of
+     * {@link #injectCredentialsAndStreamV2(AwsRequest, Function)}, used by LIST
+     * handlers that return a page of results with a next token. The request carries
+     * the caller's next token and page size (maxResults), iteration stops after
+     * maxPages pages and the next token of the last page is where the following
+     * invocation resumes.
+     *
+     * @param request, the AWS service request that we need to make
+     * @param requestFunction, this is a Lambda closure that provide the actual API
+     *            that needs to be invoked.
+     * @param maxPages the most pages fetched, at least 1
+     * @param <RequestT> the request type
+     * @param <ResponseT> the response from the request
+     * @param <IterableT> the iterable collection from the response
+     * @return at most maxPages pages of the response
+     */
+    default <RequestT extends AwsRequest, ResponseT extends AwsResponse, IterableT extends SdkIterable<ResponseT>>
+        SdkIterable<ResponseT>
+        injectCredentialsAndStreamV2(RequestT request, Function<RequestT, IterableT> requestFunction, int maxPages) {
+        throw new UnsupportedOperationException();
+    }
+
     /**
      * This is a synchronous version of making API calls which implement
      * ResponseInputStream in the SDKv2
@@ -0,0 +1,113 @@
+/*
+* Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License").
+* You may not use this file except in compliance with the License.
+* A copy of the License is located at
+*
+*  http://aws.amazon.com/apache2.0
+*
+* or in the "license" file accompanying this file. This file is distributed
+* on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied. See the License for the specific language governing
+* permissions and limitations under the License.
+*/
+package software.amazon.cloudformation.proxy;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.core.SdkField;
+import software.amazon.awssdk.core.SdkPojo;
+import software.amazon.awssdk.core.util.SdkAutoConstructList;
+import software.amazon.awssdk.core.util.SdkAutoConstructMap;
+
+/**
+ * A 64 bit fingerprint of a request, used to name its call graph. SDK requests
+ * are hashed field by field, in the order and with the member names they are
+ * marshalled with, in one pass without building the serialized form. The
+ * fingerprint is stable across invocations, so a re-invoked handler finds the
+ * call graphs recorded for the same requests, and unlike a 32 bit hash code it
+ * does not collide between similar requests.
+ */
+final class RequestFingerprint {
+
+    private static final byte NULL = 0;
+    private static final byte POJO = 1;
+    private static final byte LIST = 2;
+    private static final byte MAP = 3;
+    private static final byte BYTES = 4;
+    private static final byte STRING = 5;
+    private static final byte SCALAR = 6;
+    private static final byte OTHER = 7;
+
+    private RequestFingerprint() {
+    }
+
+    /**
+     * @param request the request to fingerprint, can be null
+     * @return the fingerprint as 16 hex digits
+     */
+    static String of(final Object request) {
+        final Hasher hasher = Hashing.murmur3_128().newHasher();
+        put(hasher, request);
+        return String.format("%016x", hasher.hash().asLong());
+    }
+
+    private static void put(final Hasher hasher, final Object value) {
+        if (value == null) {
+            hasher.putByte(NULL);
+        } else if (value instanceof SdkPojo && !((SdkPojo) value).sdkFields().isEmpty()) {
+            hasher.putByte(POJO);
+            for (SdkField<?> field : ((SdkPojo) value).sdkFields()) {
+                // unset fields are left out, members added by a newer SDK keep the
+                // fingerprint of requests that do not set them
+                final Object member = field.getValueOrDefault(value);
+                if (member != null && !(member instanceof SdkAutoConstructList) && !(member instanceof SdkAutoConstructMap)) {
+                    putString(hasher, field.memberName());
+                    put(hasher, member);
+                }
+            }
+        } else if (value instanceof Collection) {
+            hasher.putByte(LIST).putInt(((Collection<?>) value).size());
+            for (Object each : (Collection<?>) value) {
+                put(hasher, each);
+            }
+        } else if (value instanceof Map) {
+            // entries in key order, maps with the same entries have the same fingerprint
+            final List<Map.Entry<?, ?>> entries = new ArrayList<>(((Map<?, ?>) value).entrySet());
+            entries.sort(Comparator.comparing(entry -> String.valueOf(entry.getKey())));
+            hasher.putByte(MAP).putInt(entries.size());
+            for (Map.Entry<?, ?> entry : entries) {
+                put(hasher, entry.getKey());
+                put(hasher, entry.getValue());
+            }
+        } else if (value instanceof SdkBytes) {
+            final byte[] bytes = ((SdkBytes) value).asByteArrayUnsafe();
+            hasher.putByte(BYTES).putInt(bytes.length).putBytes(bytes);
+        } else if (value instanceof CharSequence) {
+            putString(hasher.putByte(STRING), value.toString());
+        } else if (value instanceof Number || value instanceof Boolean || value instanceof Enum
+            || value instanceof TemporalAccessor) {
+            putString(hasher.putByte(SCALAR), value.toString());
+        } else {
+            // not an SDK shape, e.g. a request without marshalled fields, rely on its
+            // own hash code
+            putString(hasher.putByte(OTHER), value.getClass().getName());
+            hasher.putInt(Objects.hashCode(value));
+        }
+    }
+
+    // length prefixed, adjacent strings can not run into one another
+    private static void putString(final Hasher hasher, final String value) {
+        hasher.putInt(value.length()).putString(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,211 @@
+/*
+* Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License").
+* You may not use this file except in compliance with the License.
+* A copy of the License is located at
+*
+*  http://aws.amazon.com/apache2.0
+*
+* or in the "license" file accompanying this file. This file is distributed
+* on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied. See the License for the specific language governing
+* permissions and limitations under the License.
+*/
+package software.amazon.cloudformation.proxy;
+
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import lombok.Getter;
+
+/**
+ * Client side token bucket limits for requests made through a
+ * {@link ProxyClient}, keeping a handler that pages or polls in a tight loop
+ * under the service TPS limits instead of being throttled and retrying. Limits
+ * are in requests per second and keyed either by service name, as returned by
+ * {@link software.amazon.awssdk.core.SdkClient#serviceName()}, e.g.
+ * {@code "ec2"}, or by service name and operation, e.g.
+ * {@code "ec2:DescribeInstances"}. A request takes a permit from its service
+ * bucket and from its operation bucket, when one is configured, paginated
+ * requests take them for each page. Each bucket holds up to a second worth of
+ * permits, so short bursts are not delayed.
+ * <p>
+ * The time spent waiting for permits is tracked per limit, see
+ * {@link #drainWaits()}.
+ */
+public class RequestRateLimiter {
+
+    public static final String OPERATION_SEPARATOR = ":";
+
+    private final Map<String, Double> limits;
+    private final Map<String, TokenBucket> buckets = new HashMap<>();
+    private final Map<String, Waits> waits = new LinkedHashMap<>();
+    private final Ticker ticker;
+
+    /**
+     * @param limits requests per second keyed by service name or by service name
+     *            and operation separated by {@link #OPERATION_SEPARATOR}
+     */
+    public RequestRateLimiter(final Map<String, ? extends Number> limits) {
+        this(limits, Ticker.systemTicker());
+    }
+
+    RequestRateLimiter(final Map<String, ? extends Number> limits,
+                       final Ticker ticker) {
+        final Map<String, Double> rates = new HashMap<>();
+        limits.forEach((key, rate) -> {
+            if (rate == null || !(rate.doubleValue() > 0)) {
+                throw new IllegalArgumentException("Request rate limit for " + key + " must be positive, was " + rate);
+            }
+            rates.put(key, rate.doubleValue());
+        });
+        this.limits = Collections.unmodifiableMap(rates);
+        this.ticker = ticker;
+        final long now = ticker.read();
+        this.limits.forEach((key, rate) -> buckets.put(key, new TokenBucket(rate, now)));
+    }
+
+    /**
+     * @return the configured limits, requests per second by key
+     */
+    public Map<String, Double> getLimits() {
+        return limits;
+    }
+
+    /**
+     * Takes a permit for the operation, waiting as long as needed
+     *
+     * @param serviceName the service called
+     * @param operation the operation called, e.g. {@code "DescribeInstances"}
+     * @return how long the caller waited
+     */
+    public Duration acquire(final String serviceName, final String operation) {
+        final Duration wait = reserve(serviceName, operation);
+        if (!wait.isZero()) {
+            Uninterruptibles.sleepUninterruptibly(wait.toNanos(), TimeUnit.NANOSECONDS);
+        }
+        return wait;
+    }
+
+    /**
+     * Takes a permit for the operation without waiting for it. Callers must wait
+     * for the returned time before making the request, used by asynchronous callers
+     * that must not block.
+     *
+     * @param serviceName the service called
+     * @param operation the operation called, e.g. {@code "DescribeInstances"}
+     * @return how long to wait before making the request
+     */
+    public Duration reserve(final String serviceName, final String operation) {
+        return tryReserve(serviceName, operation, null);
+    }
+
+    /**
+     * Takes a permit for the operation without waiting for it, unless the wait
+     * would be longer than allowed, see {@link #reserve(String, String)}
+     *
+     * @param serviceName the service called
+     * @param operation the operation called, e.g. {@code "DescribeInstances"}
+     * @param maxWait the longest wait allowed, null for no limit
+     * @return how long to wait before making the request, or null when the wait
+     *         would be longer than allowed. No permit is taken then
+     */
+    public synchronized Duration tryReserve(final String serviceName, final String operation, final Duration maxWait) {
+        final long now = ticker.read();
+        final String operationKey = serviceName + OPERATION_SEPARATOR + operation;
+        if (maxWait != null && Math.max(waitNanos(serviceName, now), waitNanos(operationKey, now)) > maxWait.toNanos()) {
+            return null;
+        }
+        long waitNanos = reserve(serviceName, now);
+        waitNanos = Math.max(waitNanos, reserve(operationKey, now));
+        return Duration.ofNanos(waitNanos);
+    }
+
+    /**
+     * @return the permits waited for and time spent waiting per limit since the
+     *         last call, limits nobody waited for are left out
+     */
+    public synchronized Map<String, Waits> drainWaits() {
+        final Map<String, Waits> drained = new LinkedHashMap<>(waits);
+        waits.clear();
+        return drained;
+    }
+
+    private long waitNanos(final String key, final long now) {
+        final TokenBucket bucket = buckets.get(key);
+        return bucket == null ? 0L : bucket.waitNanos(now);
+    }
+
+    private long reserve(final String key, final long now) {
+        final TokenBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            return 0L;
+        }
+        final long waitNanos = bucket.reserve(now);
+        if (waitNanos > 0) {
+            waits.computeIfAbsent(key, k -> new Waits()).add(waitNanos);
+        }
+        return waitNanos;
+    }
+
+    @Getter
+    public static class Waits {
+        private long permitsWaited;
+        private long waitedNanos;
+
+        private void add(final long nanos) {
+            permitsWaited++;
+            waitedNanos += nanos;
+        }
+
+        public Duration getWaited() {
+            return Duration.ofNanos(waitedNanos);
+        }
+    }
+
+    /*
+     * Permits are refilled at the rate up to the capacity. A reservation may drive
+     * the permits negative, later reservations then queue up behind it.
+     */
+    private static final class TokenBucket {
+        private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+        private final double permitsPerSecond;
+        private final double capacity;
+        private double permits;
+        private long refilledAt;
+
+        private TokenBucket(final double permitsPerSecond,
+                            final long now) {
+            this.permitsPerSecond = permitsPerSecond;
+            this.capacity = Math.max(1.0, permitsPerSecond);
+            this.permits = capacity;
+            this.refilledAt = now;
+        }
+
+        private long waitNanos(final long now) {
+            refill(now);
+            final double left = permits - 1.0;
+            return left >= 0 ? 0L : (long) Math.ceil(-left / permitsPerSecond * NANOS_PER_SECOND);
+        }
+
+        private long reserve(final long now) {
+            final long waitNanos = waitNanos(now);
+            permits -= 1.0;
+            return waitNanos;
+        }
+
+        private void refill(final long now) {
+            if (now > refilledAt) {
+                permits = Math.min(capacity, permits + (now - refilledAt) * permitsPerSecond / NANOS_PER_SECOND);
+                refilledAt = now;
+            }
+        }
+    }
+}
@@ -14,30 +14,68 @@
 */
 package software.amazon.cloudformation.proxy;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerationException;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
 import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.PropertyName;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerBuilder;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerModifier;
+import com.fasterxml.jackson.databind.deser.SettableBeanProperty;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import javax.annotation.concurrent.ThreadSafe;
 
@@ -63,14 +101,147 @@ import javax.annotation.concurrent.ThreadSafe;
 @lombok.ToString
 public class StdCallbackContext {
 
+    private static final CBORFactory CBOR_FACTORY = new CBORFactory();
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /*
+     * Kept alongside the call graphs, a name without a call graph part suffix is
+     * read back as is by any version
+     */
+    private static final String ADAPTIVE_BACKOFF = "adaptiveBackoff";
+
+    private static final int MAX_ADAPTIVE_BACKOFF = 10;
+
+    // a value read with the context and not measured yet
+    private static final int UNMEASURED = -1;
+
+    // call graph names of older versions ended in the request hash code
+    private static final Pattern HASH_CODE = Pattern.compile("-?\\d{1,10}");
+
+    private static final ClassValue<Integer> MAX_BYTES = new ClassValue<Integer>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            CallGraphRetention retention = type.getAnnotation(CallGraphRetention.class);
+            return retention == null ? 0 : retention.maxBytes();
+        }
+    };
+
+    /**
+     * Opts a callback context into the compact encoding of its call graphs. The
+     * call graphs are written as CBOR, carried as a base64 string, and each class
+     * name is written once with later occurrences referring to it by index. This
+     * shrinks contexts that memoize many SDK requests and responses, which are sent
+     * back and forth on every callback, while for a context of a few entries the
+     * base64 overhead outweighs the savings. Contexts are read in either encoding,
+     * so the annotation can be added or removed while callbacks are in flight.
+     */
+    @Documented
+    @Inherited
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.TYPE)
+    public @interface CompactEncoding {
+    }
+
+    /**
+     * Opts a callback context into decoding memoized requests and responses only
+     * when they are first accessed, e.g. with
+     * {@link StdCallbackContext#response(String)} or the find methods. A handler
+     * re-invoked during a long stabilization usually touches the call graph of the
+     * current step only, the requests and responses of the others are kept in their
+     * encoded form and written back as read. The annotation is resolved from the
+     * context type by {@link DeferredDecodingModule}, which
+     * {@link software.amazon.cloudformation.resource.Serializer} registers; other
+     * mappers without the module only see it on contexts created before their call
+     * graphs are read, i.e. not on contexts built from a creator.
+     */
+    @Documented
+    @Inherited
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.TYPE)
+    public @interface DeferredDecoding {
+    }
+
+    /**
+     * Bounds the call graphs a callback context carries between invocations, which
+     * otherwise grow with every step of a handler.
+     */
+    @Documented
+    @Inherited
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.TYPE)
+    public @interface CallGraphRetention {
+        /**
+         * @return true to discard the request and response of every call graph once its
+         *         step is done, as if each step was made with
+         *         {@link CallChain.Completed#discardOnDone()}
+         */
+        boolean discardCompleted() default false;
+
+        /**
+         * Once the requests and responses held exceed the budget, those of the least
+         * recently used call graphs whose steps are done are dropped until they fit. A
+         * dropped step is not made again, it is skipped on the next invocation as if it
+         * was made with {@link CallChain.Completed#discardOnDone()}. Steps in flight
+         * are never dropped, as that would make their requests again, so the budget can
+         * be exceeded while they are. Sizes are measured in the JSON encoding when a
+         * value is memoized, and are approximate.
+         *
+         * @return size budget in bytes for the serialized call graphs, 0 for none
+         */
+        int maxBytes() default 0;
+    }
+
+    /*
+     * A memoized value read from an encoded context and not decoded yet
+     */
+    private static final class Encoded {
+        private final Class<?> type;
+        private final TokenBuffer value;
+        private final ObjectCodec codec;
+
+        private Encoded(Class<?> type,
+                        TokenBuffer value,
+                        ObjectCodec codec) {
+            this.type = type;
+            this.value = value;
+            this.codec = codec;
+        }
+
+        private Object decode() {
+            try (JsonParser parser = value.asParser(codec)) {
+                return codec.readValue(parser, type);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Can not decode memoized " + type.getName(), e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Encoded(" + type.getName() + ")";
+        }
+    }
+
     public static class Serializer extends JsonSerializer<Map<String, Object>> {
         @Override
         public void serialize(Map<String, Object> value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
-            writeMap(value, gen, serializers);
+            final Object context = gen.getOutputContext().getCurrentValue();
+            if (context == null || !context.getClass().isAnnotationPresent(CompactEncoding.class)) {
+                writeMap(value, gen, serializers, null);
+                return;
+            }
+
+            ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+            try (JsonGenerator compact = CBOR_FACTORY.createGenerator(encoded)) {
+                compact.setCodec(gen.getCodec());
+                writeMap(value, compact, serializers, new HashMap<>());
+            }
+            gen.writeBinary(encoded.toByteArray());
         }
 
         @SuppressWarnings("unchecked")
-        private void writeObject(Object val, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        private void writeObject(Object val, JsonGenerator gen, SerializerProvider serializers, Map<Class<?>, Integer> classes)
+            throws IOException {
             if (val == null) {
                 gen.writeNull();
                 return;
@@ -82,17 +253,27 @@ public class StdCallbackContext {
                 return;
             }
 
+            // Not decoded since read, written back as is
+            if (val instanceof Encoded) {
+                Encoded encoded = (Encoded) val;
+                gen.writeStartArray();
+                writeType(encoded.type, gen, classes);
+                encoded.value.serialize(gen);
+                gen.writeEndArray();
+                return;
+            }
+
             // Encode object type information
             gen.writeStartArray();
             Class<?> type = val.getClass();
             // write class name first
-            gen.writeString(type.getName());
+            writeType(type, gen, classes);
             // the write value next
             if (val instanceof Collection<?>) {
-                writeCollection((Collection<?>) val, gen, serializers);
+                writeCollection((Collection<?>) val, gen, serializers, classes);
             } else if (val instanceof Map<?, ?>) {
                 Map<?, ?> map = (Map<?, ?>) val;
-                writeMap(map, gen, serializers);
+                writeMap(map, gen, serializers, classes);
             } else {
                 JsonSerializer<Object> serializer = serializers.findValueSerializer(type);
                 serializer.serialize(val, gen, serializers);
@@ -101,16 +282,39 @@ public class StdCallbackContext {
             gen.writeEndArray();
         }
 
-        private void writeCollection(Collection<?> collection, JsonGenerator gen, SerializerProvider serializers)
+        /*
+         * Without a class dictionary the class name is written every time, with one
+         * only the first occurrence of a class is named and later ones are referred to
+         * by their index in order of appearance
+         */
+        private void writeType(Class<?> type, JsonGenerator gen, Map<Class<?>, Integer> classes) throws IOException {
+            if (classes == null) {
+                gen.writeString(type.getName());
+                return;
+            }
+            Integer index = classes.get(type);
+            if (index != null) {
+                gen.writeNumber(index);
+            } else {
+                classes.put(type, classes.size());
+                gen.writeString(type.getName());
+            }
+        }
+
+        private void writeCollection(Collection<?> collection,
+                                     JsonGenerator gen,
+                                     SerializerProvider serializers,
+                                     Map<Class<?>, Integer> classes)
             throws IOException {
             gen.writeStartArray();
             for (Object each : collection) {
-                writeObject(each, gen, serializers);
+                writeObject(each, gen, serializers, classes);
             }
             gen.writeEndArray();
         }
 
-        private void writeMap(Map<?, ?> value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        private void writeMap(Map<?, ?> value, JsonGenerator gen, SerializerProvider serializers, Map<Class<?>, Integer> classes)
+            throws IOException {
             gen.writeStartObject();
             for (Map.Entry<?, ?> each : value.entrySet()) {
                 Object key = each.getKey();
@@ -118,26 +322,123 @@ public class StdCallbackContext {
                     throw new JsonGenerationException("Expected string key got " + key.getClass(), gen);
                 }
                 gen.writeFieldName((String) each.getKey());
-                writeObject(each.getValue(), gen, serializers);
+                writeObject(each.getValue(), gen, serializers, classes);
             }
             gen.writeEndObject();
         }
 
     }
 
+    /**
+     * Reads the call graphs of contexts annotated with {@link DeferredDecoding}
+     * without decoding their requests and responses. The annotation is taken from
+     * the type being deserialized, so it applies however the context is created.
+     */
+    public static class DeferredDecodingModule extends SimpleModule {
+        private static final long serialVersionUID = 1L;
+
+        public DeferredDecodingModule() {
+            super(DeferredDecodingModule.class.getSimpleName());
+            setDeserializerModifier(new DeferredDecodingModifier());
+        }
+    }
+
+    private static final class DeferredDecodingModifier extends BeanDeserializerModifier {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public BeanDeserializerBuilder
+            updateBuilder(DeserializationConfig config, BeanDescription beanDesc, BeanDeserializerBuilder builder) {
+            Class<?> type = beanDesc.getBeanClass();
+            if (!StdCallbackContext.class.isAssignableFrom(type) || !type.isAnnotationPresent(DeferredDecoding.class)) {
+                return builder;
+            }
+            SettableBeanProperty callGraphs = builder.findProperty(PropertyName.construct("callGraphs"));
+            if (callGraphs != null && Deserializer.class.isInstance(callGraphs.getValueDeserializer())) {
+                builder.addOrReplaceProperty(callGraphs.withValueDeserializer(new Deserializer(true)), true);
+            }
+            return builder;
+        }
+    }
+
     public static class Deserializer extends JsonDeserializer<Map<String, Object>> {
+        private static final int MAX_CACHED_TYPES = 1024;
+
+        /*
+         * Classes resolved by name for each class loader. Loaders and classes are held
+         * weakly so neither is kept from being unloaded by the cache
+         */
+        private static final LoadingCache<ClassLoader, Cache<String, Class<?>>> CLASSES = CacheBuilder.newBuilder().weakKeys()
+            .build(CacheLoader.from(loader -> CacheBuilder.newBuilder().maximumSize(MAX_CACHED_TYPES).weakValues().build()));
+
+        /*
+         * Public no-arg constructors of the Map and Collection classes, null when the
+         * class has none
+         */
+        private static final ClassValue<MethodHandle> CONSTRUCTORS = new ClassValue<MethodHandle>() {
+            @Override
+            protected MethodHandle computeValue(Class<?> type) {
+                try {
+                    return MethodHandles.publicLookup().findConstructor(type, MethodType.methodType(void.class));
+                } catch (NoSuchMethodException | IllegalAccessException e) {
+                    return null;
+                }
+            }
+        };
+
+        // set for annotated contexts by DeferredDecodingModule
+        private final boolean deferred;
+
+        // Jackson creates a Deserializer for each mapper, so are the deserializers
+        private final Cache<Class<?>,
+            JsonDeserializer<Object>> deserializers = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_TYPES).build();
+
+        public Deserializer() {
+            this(false);
+        }
+
+        private Deserializer(boolean deferred) {
+            this.deferred = deferred;
+        }
+
         @Override
         public Map<String, Object> deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
-            return readMap(LinkedHashMap.class, p, ctxt);
+            boolean decodeLater = deferred || isDeferred(p);
+            if (p.currentToken() != JsonToken.VALUE_STRING && p.currentToken() != JsonToken.VALUE_EMBEDDED_OBJECT) {
+                return readMap(LinkedHashMap.class, p, ctxt, null, decodeLater);
+            }
+
+            // compact encoding, see CompactEncoding
+            try (JsonParser compact = CBOR_FACTORY.createParser(p.getBinaryValue())) {
+                compact.setCodec(p.getCodec());
+                compact.nextToken();
+                return readMap(LinkedHashMap.class, compact, ctxt, new ArrayList<>(), decodeLater);
+            }
+        }
+
+        /*
+         * Without the module, the context being read is the current value of the
+         * enclosing object, one level up when the call graphs start an object of their
+         * own. It is not set yet for contexts built from a creator.
+         */
+        private static boolean isDeferred(JsonParser p) {
+            JsonStreamContext parsing = p.getParsingContext();
+            if (p.isExpectedStartObjectToken() && parsing.getParent() != null) {
+                parsing = parsing.getParent();
+            }
+            Object context = parsing.getCurrentValue();
+            return context != null && context.getClass().isAnnotationPresent(DeferredDecoding.class);
         }
 
         @SuppressWarnings("unchecked")
-        private Map<String, Object> readMap(Class<?> type, JsonParser p, DeserializationContext ctxt) throws IOException {
+        private Map<String, Object>
+            readMap(Class<?> type, JsonParser p, DeserializationContext ctxt, List<Class<?>> classes, boolean deferred)
+                throws IOException {
             if (!p.isExpectedStartObjectToken()) {
                 throw new JsonParseException(p, "Expected start of object for Map got " + p.currentToken());
             }
             try {
-                Map<String, Object> value = (Map<String, Object>) type.getDeclaredConstructor().newInstance();
+                Map<String, Object> value = (Map<String, Object>) newInstance(type);
                 JsonToken next = p.nextToken();
                 while (next != JsonToken.END_OBJECT) {
                     if (next != JsonToken.FIELD_NAME) {
@@ -145,18 +446,21 @@ public class StdCallbackContext {
                     }
                     String key = p.currentName();
                     p.nextToken(); // position to next
-                    Object val = readObject(p, ctxt);
+                    Part part = Part.of(key);
+                    Object val = deferred && (part == Part.REQUEST || part == Part.RESPONSE) && p.isExpectedStartArrayToken()
+                        ? readEncoded(p, ctxt, classes, true)
+                        : readObject(p, ctxt, classes);
                     value.put(key, val);
                     next = p.nextToken();
                 }
                 return value;
-            } catch (InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
+            } catch (ReflectiveOperationException e) {
                 throw new JsonMappingException(p, "Can not create empty map for class " + type + " @ " + p.getCurrentLocation(),
                                                e);
             }
         }
 
-        private Object readObject(JsonParser p, DeserializationContext ctxt) throws IOException,
+        private Object readObject(JsonParser p, DeserializationContext ctxt, List<Class<?>> classes) throws IOException,
             NoSuchMethodException,
             InvocationTargetException {
             Object val = null;
@@ -179,7 +483,7 @@ public class StdCallbackContext {
 
                 // Encoded Object information
                 case START_ARRAY:
-                    val = readEncoded(p, ctxt);
+                    val = readEncoded(p, ctxt, classes, false);
                     break;
 
                 default:
@@ -188,134 +492,445 @@ public class StdCallbackContext {
             return val;
         }
 
-        private Object readEncoded(JsonParser p, DeserializationContext ctxt) throws IOException {
+        private Object readEncoded(JsonParser p, DeserializationContext ctxt, List<Class<?>> classes, boolean deferred)
+            throws IOException {
             if (!p.isExpectedStartArrayToken()) {
                 throw new JsonParseException(p, "Expected array for encoded object got " + p.currentToken());
             }
 
             Object value = null;
+            Class<?> type = readType(p, classes);
+            p.nextToken(); // fwd to next
+            if (Collection.class.isAssignableFrom(type)) {
+                value = readCollection(type, p, ctxt, classes);
+            } else if (Map.class.isAssignableFrom(type)) {
+                value = readMap(type, p, ctxt, classes, false);
+            } else if (deferred) {
+                value = new Encoded(type, ctxt.bufferAsCopyOfValue(p), p.getCodec());
+            } else {
+                JsonDeserializer<Object> deser = deserializers.getIfPresent(type);
+                if (deser == null) {
+                    deser = ctxt.findRootValueDeserializer(ctxt.constructType(type));
+                    deserializers.put(type, deser);
+                }
+                value = deser.deserialize(p, ctxt);
+            }
+            if (p.nextToken() != JsonToken.END_ARRAY) {
+                throw new JsonParseException(p, "Encoded expected end of ARRAY marker " + p.currentToken());
+            }
+            return value;
+        }
+
+        private Class<?> readType(JsonParser p, List<Class<?>> classes) throws IOException {
             JsonToken next = p.nextToken();
+            if (classes != null && next == JsonToken.VALUE_NUMBER_INT) {
+                int index = p.getIntValue();
+                if (index < 0 || index >= classes.size()) {
+                    throw new JsonParseException(p, "Encoded Class index " + index + " not defined");
+                }
+                return classes.get(index);
+            }
             if (next != JsonToken.VALUE_STRING) {
                 throw new JsonParseException(p, "Encoded Class value not present " + next);
             }
             String typeName = p.getText();
-            p.nextToken(); // fwd to next
             ClassLoader loader = Thread.currentThread().getContextClassLoader();
             if (loader == null) {
                 loader = getClass().getClassLoader();
             }
             try {
-                Class<?> type = loader.loadClass(typeName);
-                if (Collection.class.isAssignableFrom(type)) {
-                    value = readCollection(type, p, ctxt);
-                } else if (Map.class.isAssignableFrom(type)) {
-                    value = readMap(type, p, ctxt);
-                } else {
-                    JsonDeserializer<Object> deser = ctxt.findRootValueDeserializer(ctxt.constructType(type));
-                    value = deser.deserialize(p, ctxt);
+                Cache<String, Class<?>> loaded = CLASSES.getUnchecked(loader);
+                Class<?> type = loaded.getIfPresent(typeName);
+                if (type == null) {
+                    type = loader.loadClass(typeName);
+                    loaded.put(typeName, type);
                 }
+                if (classes != null) {
+                    classes.add(type);
+                }
+                return type;
             } catch (ClassNotFoundException e) {
                 throw new JsonParseException(p, "Type name encoded " + typeName + " could not be loaded", e);
             }
-            if (p.nextToken() != JsonToken.END_ARRAY) {
-                throw new JsonParseException(p, "Encoded expected end of ARRAY marker " + p.currentToken());
+        }
+
+        private static Object newInstance(Class<?> type) throws ReflectiveOperationException {
+            MethodHandle constructor = CONSTRUCTORS.get(type);
+            if (constructor == null) {
+                // reports why the class can not be created
+                return type.getDeclaredConstructor().newInstance();
+            }
+            try {
+                return constructor.invoke();
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new InvocationTargetException(e);
             }
-            return value;
         }
 
         @SuppressWarnings("unchecked")
-        private Object readCollection(Class<?> type, JsonParser p, DeserializationContext ctxt) throws IOException {
+        private Object readCollection(Class<?> type, JsonParser p, DeserializationContext ctxt, List<Class<?>> classes)
+            throws IOException {
             if (!p.isExpectedStartArrayToken()) {
                 throw new JsonParseException(p, "Expected array for encoded object got " + p.currentToken());
             }
             try {
-                Collection<Object> value = (Collection<Object>) type.getDeclaredConstructor().newInstance();
+                Collection<Object> value = (Collection<Object>) newInstance(type);
                 p.nextToken(); // move to next token
                 do {
-                    Object val = readObject(p, ctxt);
+                    Object val = readObject(p, ctxt, classes);
                     value.add(val);
                 } while (p.nextToken() != JsonToken.END_ARRAY);
                 return value;
-            } catch (IllegalAccessException | InstantiationException | NoSuchMethodException | InvocationTargetException e) {
+            } catch (ReflectiveOperationException e) {
                 throw new IOException("Can not create empty constructor collection class " + type + " @ "
                     + p.getCurrentLocation(), e);
             }
         }
     }
 
+    /*
+     * The parts memoized for each call graph, stored in the wire format under the
+     * call graph name followed by the suffix
+     */
+    private enum Part {
+        REQUEST(".request", Object.class),
+        RESPONSE(".response", Object.class),
+        STABILIZE(".stabilize", Boolean.class),
+        ATTEMPTS(".attempts", Integer.class),
+        COMPLETED(".completed", Boolean.class);
+
+        private final String suffix;
+        private final Class<?> type;
+
+        Part(String suffix,
+             Class<?> type) {
+            this.suffix = suffix;
+            this.type = type;
+        }
+
+        private static Part of(String key) {
+            for (Part part : values()) {
+                if (key.endsWith(part.suffix) && key.length() > part.suffix.length()) {
+                    return part;
+                }
+            }
+            return null;
+        }
+    }
+
+    @lombok.ToString
+    private static final class CallGraph {
+        private final Object[] parts = new Object[Part.values().length];
+
+        // of the requests and responses, kept while the context has a budget
+        @lombok.ToString.Exclude
+        private final int[] sizes = new int[Part.values().length];
+
+        // when last accessed, in accesses of the owning context
+        @lombok.ToString.Exclude
+        private long used;
+
+        private Object get(Part part) {
+            Object value = parts[part.ordinal()];
+            if (value instanceof Encoded) {
+                value = ((Encoded) value).decode();
+                parts[part.ordinal()] = value;
+            }
+            return value;
+        }
+
+        /*
+         * Without decoding the part, see DeferredDecoding
+         */
+        private Object getEncoded(Part part) {
+            return parts[part.ordinal()];
+        }
+
+        private Object set(Part part, Object value) {
+            Object previous = parts[part.ordinal()];
+            parts[part.ordinal()] = value;
+            return previous;
+        }
+
+        private void decode() {
+            for (Part part : Part.values()) {
+                get(part);
+            }
+        }
+
+        private boolean isEmpty() {
+            for (Object each : parts) {
+                if (each != null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // decoded values are compared, whichever way they were read
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof CallGraph)) {
+                return false;
+            }
+            for (Part part : Part.values()) {
+                if (!Objects.equals(get(part), ((CallGraph) other).get(part))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 1;
+            for (Part part : Part.values()) {
+                hash = 31 * hash + Objects.hashCode(get(part));
+            }
+            return hash;
+        }
+    }
+
     /*
      * Uses a LinkedHashMap to preserve the order of calls within a set of
      * callGraphs. If things interleave in terms of entries then it means that the
-     * context was being used in different threads.
+     * context was being used in different threads. All three maps are guarded by
+     * the records map.
      */
-    @JsonDeserialize(using = Deserializer.class)
-    @JsonSerialize(using = Serializer.class)
-    private Map<String, Object> callGraphs = Collections.synchronizedMap(new LinkedHashMap<>(10));
+    @JsonIgnore
+    private final Map<String, CallGraph> records = new LinkedHashMap<>(10);
+
+    /*
+     * Entries that are not part of a call graph, kept as is so that any context
+     * serialized before reads back unchanged
+     */
+    @JsonIgnore
+    private final Map<String, Object> entries = new LinkedHashMap<>(0);
+
+    /*
+     * Names of the call graphs indexed by the service:Operation they start with,
+     * see AmazonWebServicesClientProxy for how the names are generated
+     */
+    @JsonIgnore
+    @lombok.EqualsAndHashCode.Exclude
+    @lombok.ToString.Exclude
+    private final Map<String, Set<String>> operations = new HashMap<>();
+
+    @JsonIgnore
+    @lombok.EqualsAndHashCode.Exclude
+    @lombok.ToString.Exclude
+    private long accesses;
+
+    /*
+     * Sizes of the requests and responses held while the context has a
+     * CallGraphRetention budget. Values read with the context are measured once,
+     * the first time the budget is checked
+     */
+    @JsonIgnore
+    @lombok.EqualsAndHashCode.Exclude
+    @lombok.ToString.Exclude
+    private long heldBytes;
+
+    @JsonIgnore
+    @lombok.EqualsAndHashCode.Exclude
+    @lombok.ToString.Exclude
+    private int unmeasured;
 
     @SuppressWarnings("unchecked")
     public <M, R> Function<M, R> request(String callGraph, Function<M, R> func) {
-        return (m) -> (R) callGraphs.computeIfAbsent(callGraph + ".request", (ign) -> func.apply(m));
+        return (m) -> (R) computeIfAbsent(callGraph, Part.REQUEST, () -> func.apply(m));
     }
 
     @SuppressWarnings("unchecked")
     public <R> R evictRequestRecord(String callGraph) {
-        return (R) callGraphs.remove(callGraph + ".request");
+        synchronized (records) {
+            CallGraph record = records.get(callGraph);
+            if (record == null) {
+                return null;
+            }
+            R request = (R) record.get(Part.REQUEST);
+            setPart(record, Part.REQUEST, null, false);
+            removeIfEmpty(callGraph, record);
+            return request;
+        }
+    }
+
+    /**
+     * Discards the request, response and attempts of a call graph whose step is
+     * done, keeping whether it stabilized and that it completed
+     *
+     * @param callGraph the call graph of the step
+     */
+    public void discardCompleted(String callGraph) {
+        synchronized (records) {
+            put(callGraph, Part.REQUEST, null);
+            put(callGraph, Part.RESPONSE, null);
+            put(callGraph, Part.ATTEMPTS, null);
+            put(callGraph, Part.COMPLETED, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * @param callGraph the call graph of the step
+     * @return true when the step was done and discarded with
+     *         {@link #discardCompleted(String)}, or done while the context has a
+     *         {@link CallGraphRetention#maxBytes()} budget
+     */
+    public boolean isCompleted(String callGraph) {
+        return Boolean.TRUE.equals(get(callGraph, Part.COMPLETED));
+    }
+
+    /*
+     * Records that a step is done while keeping its request and response, which
+     * makes them candidates for dropping once over budget. Nothing is recorded
+     * without a budget
+     */
+    void retainCompleted(String callGraph) {
+        if (maxBytes() <= 0) {
+            return;
+        }
+        synchronized (records) {
+            put(callGraph, Part.COMPLETED, Boolean.TRUE);
+            withinBudget();
+        }
+    }
+
+    /*
+     * A done step whose response was discarded or dropped for the budget, it is
+     * skipped rather than made again
+     */
+    boolean isDiscarded(String callGraph) {
+        synchronized (records) {
+            CallGraph record = records.get(callGraph);
+            return record != null && Boolean.TRUE.equals(record.getEncoded(Part.COMPLETED))
+                && record.getEncoded(Part.RESPONSE) == null;
+        }
+    }
+
+    boolean isDiscardingCompleted() {
+        CallGraphRetention retention = getClass().getAnnotation(CallGraphRetention.class);
+        return retention != null && retention.discardCompleted();
     }
 
     @SuppressWarnings("unchecked")
     public <R, C, RT> BiFunction<R, C, RT> response(String callGraph, BiFunction<R, C, RT> func) {
-        return (r, c) -> (RT) callGraphs.computeIfAbsent(callGraph + ".response", (ign) -> func.apply(r, c));
+        return (r, c) -> (RT) computeIfAbsent(callGraph, Part.RESPONSE, () -> func.apply(r, c));
     }
 
+    /**
+     * @return a snapshot of the call graphs keyed the way they are serialized, i.e.
+     *         the call graph name followed by .request, .response, .stabilize or
+     *         .attempts
+     */
     public Map<String, Object> callGraphs() {
-        return Collections.unmodifiableMap(callGraphs);
+        synchronized (records) {
+            records.values().forEach(CallGraph::decode);
+            return Collections.unmodifiableMap(flatten());
+        }
     }
 
     @SuppressWarnings("unchecked")
     public <ResponseT> ResponseT response(String callGraph) {
-        return (ResponseT) callGraphs.get(callGraph + ".response");
+        return (ResponseT) get(callGraph, Part.RESPONSE);
     }
 
     @SuppressWarnings("unchecked")
     public <RequestT> RequestT findFirstRequestByContains(String contains) {
-        return (RequestT) findFirst((key) -> key.contains(contains) && key.endsWith(".request"));
+        return (RequestT) findFirst(Part.REQUEST, (name) -> name.contains(contains));
     }
 
     @SuppressWarnings("unchecked")
     public <RequestT> List<RequestT> findAllRequestByContains(String contains) {
-        return (List<RequestT>) findAll((key) -> key.contains(contains) && key.endsWith(".request"));
+        return (List<RequestT>) findAll(Part.REQUEST, (name) -> name.contains(contains));
     }
 
     @SuppressWarnings("unchecked")
     public <ResponseT> ResponseT findFirstResponseByContains(String contains) {
-        return (ResponseT) findFirst((key) -> key.contains(contains) && key.endsWith(".response"));
+        return (ResponseT) findFirst(Part.RESPONSE, (name) -> name.contains(contains));
     }
 
     @SuppressWarnings("unchecked")
     public <ResponseT> List<ResponseT> findAllResponseByContains(String contains) {
-        return (List<ResponseT>) findAll((key) -> key.contains(contains) && key.endsWith(".response"));
+        return (List<ResponseT>) findAll(Part.RESPONSE, (name) -> name.contains(contains));
     }
 
-    Object findFirst(Predicate<String> contains) {
-        Objects.requireNonNull(contains);
-        return callGraphs.entrySet().stream().filter(e -> contains.test(e.getKey())).findFirst().map(Map.Entry::getValue)
-            .orElse(null);
+    /**
+     * Looks up the index of call graphs made through
+     * {@link AmazonWebServicesClientProxy}, whose names start with the service name
+     * and the API name, e.g. "logs:CreateLogGroup", without scanning every call
+     * graph like {@link #findFirstRequestByContains(String)} does.
+     *
+     * @param operation the service name and API name, e.g. "logs:CreateLogGroup"
+     * @param <RequestT> the request type
+     * @return the first request made for the operation, or null if none was made
+     */
+    @SuppressWarnings("unchecked")
+    public <RequestT> RequestT findFirstRequestByOperation(String operation) {
+        return (RequestT) findFirst(Part.REQUEST, operation);
+    }
 
+    @SuppressWarnings("unchecked")
+    public <RequestT> List<RequestT> findAllRequestByOperation(String operation) {
+        return (List<RequestT>) findAll(Part.REQUEST, operation);
     }
 
-    List<Object> findAll(Predicate<String> contains) {
-        Objects.requireNonNull(contains);
-        return callGraphs.entrySet().stream().filter(e -> contains.test(e.getKey())).map(Map.Entry::getValue)
-            .collect(Collectors.toList());
+    @SuppressWarnings("unchecked")
+    public <ResponseT> ResponseT findFirstResponseByOperation(String operation) {
+        return (ResponseT) findFirst(Part.RESPONSE, operation);
     }
 
-    <RequestT, ResponseT, ClientT, ModelT, CallbackT extends StdCallbackContext>
+    @SuppressWarnings("unchecked")
+    public <ResponseT> List<ResponseT> findAllResponseByOperation(String operation) {
+        return (List<ResponseT>) findAll(Part.RESPONSE, operation);
+    }
+
+    private Object findFirst(Part part, Predicate<String> callGraph) {
+        Objects.requireNonNull(callGraph);
+        synchronized (records) {
+            for (Map.Entry<String, CallGraph> each : records.entrySet()) {
+                if (each.getValue().getEncoded(part) != null && callGraph.test(each.getKey())) {
+                    return touch(each.getValue()).get(part);
+                }
+            }
+            return null;
+        }
+    }
+
+    private List<Object> findAll(Part part, Predicate<String> callGraph) {
+        Objects.requireNonNull(callGraph);
+        synchronized (records) {
+            return records.entrySet().stream().filter(e -> e.getValue().getEncoded(part) != null && callGraph.test(e.getKey()))
+                .map(e -> touch(e.getValue()).get(part)).collect(Collectors.toList());
+        }
+    }
+
+    private Object findFirst(Part part, String operation) {
+        synchronized (records) {
+            for (String name : operations.getOrDefault(operation, Collections.emptySet())) {
+                Object value = get(name, part);
+                if (value != null) {
+                    return value;
+                }
+            }
+            return null;
+        }
+    }
+
+    private List<Object> findAll(Part part, String operation) {
+        synchronized (records) {
+            return operations.getOrDefault(operation, Collections.emptySet()).stream().map(name -> get(name, part))
+                .filter(Objects::nonNull).collect(Collectors.toList());
+        }
+    }
+
+    public <RequestT, ResponseT, ClientT, ModelT, CallbackT extends StdCallbackContext>
         CallChain.Callback<RequestT, ResponseT, ClientT, ModelT, CallbackT, Boolean>
         stabilize(String callGraph, CallChain.Callback<RequestT, ResponseT, ClientT, ModelT, CallbackT, Boolean> callback) {
         return (request1, response1, client, model, context) -> {
-            final String key = callGraph + ".stabilize";
-            Boolean result = (Boolean) callGraphs.getOrDefault(key, Boolean.FALSE);
-            if (!result) {
+            Boolean result = (Boolean) get(callGraph, Part.STABILIZE);
+            if (result == null || !result) {
                 //
                 // The StdCallbackContext can be shared. However the call to stabilize for a
                 // given content
@@ -333,7 +948,7 @@ public class StdCallbackContext {
                 //
                 result = callback.invoke(request1, response1, client, model, context);
                 if (result) {
-                    callGraphs.put(key, Boolean.TRUE);
+                    put(callGraph, Part.STABILIZE, Boolean.TRUE);
                 }
             }
             return result;
@@ -341,15 +956,349 @@ public class StdCallbackContext {
     }
 
     public int attempts(String callGraph) {
-        return (Integer) callGraphs.computeIfAbsent(callGraph + ".attempts", (ign) -> 1);
+        return (Integer) computeIfAbsent(callGraph, Part.ATTEMPTS, () -> 1);
     }
 
     public void attempts(String callGraph, int attempts) {
-        callGraphs.put(callGraph + ".attempts", attempts);
+        put(callGraph, Part.ATTEMPTS, attempts);
+    }
+
+    /**
+     * Records that an item of a batch is stable, see
+     * {@link CallChain#stabilizeBatch(String, ProxyClient, Object, StdCallbackContext, Collection)}
+     *
+     * @param callGraph the call graph of the batch
+     * @param item the identifier of the item
+     */
+    public void recordStabilized(String callGraph, String item) {
+        put(itemCallGraph(callGraph, item), Part.STABILIZE, Boolean.TRUE);
+    }
+
+    /**
+     * @param callGraph the call graph of the batch
+     * @param item the identifier of the item
+     * @return true when the item was recorded with
+     *         {@link #recordStabilized(String, String)}
+     */
+    public boolean isStabilized(String callGraph, String item) {
+        return Boolean.TRUE.equals(get(itemCallGraph(callGraph, item), Part.STABILIZE));
+    }
+
+    /*
+     * Same as discardCompleted for a batch, its items are dropped and the batch
+     * call graph is kept as completed
+     */
+    void discardStabilized(String callGraph, Collection<String> items) {
+        synchronized (records) {
+            for (String item : items) {
+                String name = itemCallGraph(callGraph, item);
+                CallGraph record = records.get(name);
+                if (record != null) {
+                    record.set(Part.STABILIZE, null);
+                    removeIfEmpty(name, record);
+                }
+            }
+            discardCompleted(callGraph);
+        }
+    }
+
+    /*
+     * Items are indexed under the operation of the batch, like the generated names
+     * service:Operation-incoming-hash
+     */
+    private static String itemCallGraph(String callGraph, String item) {
+        return callGraph + "-" + item;
+    }
+
+    /**
+     * Records that a service throttled a call or was unavailable, doubling the
+     * waits of {@link software.amazon.cloudformation.proxy.delay.Adaptive} delays
+     */
+    public void recordThrottle() {
+        synchronized (records) {
+            entries.put(ADAPTIVE_BACKOFF, Math.min(adaptiveBackoff() + 1, MAX_ADAPTIVE_BACKOFF));
+        }
+    }
+
+    /**
+     * Records a successful service call, halving the waits of
+     * {@link software.amazon.cloudformation.proxy.delay.Adaptive} delays again
+     */
+    public void recordSuccess() {
+        synchronized (records) {
+            int backoff = adaptiveBackoff();
+            if (backoff > 1) {
+                entries.put(ADAPTIVE_BACKOFF, backoff - 1);
+            } else if (backoff == 1) {
+                entries.remove(ADAPTIVE_BACKOFF);
+            }
+        }
+    }
+
+    /**
+     * @return the throttles recorded less the successes since, the power of two
+     *         {@link software.amazon.cloudformation.proxy.delay.Adaptive} delays
+     *         multiply their waits by
+     */
+    public int adaptiveBackoff() {
+        synchronized (records) {
+            Object backoff = entries.get(ADAPTIVE_BACKOFF);
+            return backoff instanceof Integer ? (Integer) backoff : 0;
+        }
+    }
+
+    /*
+     * Moves the records of a call graph from the name an older version gave it,
+     * ending in the request hash code, so a context serialized by that version
+     * resumes where it left off. The former name is only computed when the context
+     * holds such names for the operation, nothing moves once the call graph has
+     * records under its current name.
+     */
+    void renameCallGraph(String callGraph, Supplier<String> formerName) {
+        synchronized (records) {
+            if (records.isEmpty() || records.containsKey(callGraph) || !hasHashCodeNames(callGraph)) {
+                return;
+            }
+            String former = formerName.get();
+            CallGraph record = records.remove(former);
+            if (record == null) {
+                return;
+            }
+            unindex(former);
+            records.put(callGraph, record);
+            operations.computeIfAbsent(operation(callGraph), (ign) -> new LinkedHashSet<>()).add(callGraph);
+        }
+    }
+
+    private boolean hasHashCodeNames(String callGraph) {
+        String prefix = callGraph.substring(0, callGraph.lastIndexOf('-') + 1);
+        for (String name : operations.getOrDefault(operation(callGraph), Collections.emptySet())) {
+            if (name.startsWith(prefix) && HASH_CODE.matcher(name).region(prefix.length(), name.length()).matches()) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @VisibleForTesting
     void setCallGraphs(LinkedHashMap<String, Object> graphs) {
-        this.callGraphs = Collections.synchronizedMap(new LinkedHashMap<>(graphs));
+        unflatten(graphs);
+    }
+
+    private Object get(String callGraph, Part part) {
+        synchronized (records) {
+            CallGraph record = records.get(callGraph);
+            return record == null ? null : touch(record).get(part);
+        }
+    }
+
+    private void put(String callGraph, Part part, Object value) {
+        synchronized (records) {
+            put(callGraph, part, value, true);
+            if (value != null && (part == Part.REQUEST || part == Part.RESPONSE)) {
+                withinBudget();
+            }
+        }
+    }
+
+    private void put(String callGraph, Part part, Object value, boolean measure) {
+        CallGraph record = records.get(callGraph);
+        if (record == null) {
+            record = new CallGraph();
+            records.put(callGraph, record);
+            operations.computeIfAbsent(operation(callGraph), (ign) -> new LinkedHashSet<>()).add(callGraph);
+        }
+        setPart(touch(record), part, value, measure);
+    }
+
+    /*
+     * Keeps the running size of the requests and responses held when the context
+     * has a budget, a value not measured now is measured when the budget is checked
+     */
+    private void setPart(CallGraph record, Part part, Object value, boolean measure) {
+        record.set(part, value);
+        if ((part != Part.REQUEST && part != Part.RESPONSE) || maxBytes() <= 0) {
+            return;
+        }
+        int previous = record.sizes[part.ordinal()];
+        if (previous == UNMEASURED) {
+            unmeasured--;
+        } else {
+            heldBytes -= previous;
+        }
+        int size = 0;
+        if (value != null && measure) {
+            size = sizeOf(value);
+            heldBytes += size;
+        } else if (value != null) {
+            size = UNMEASURED;
+            unmeasured++;
+        }
+        record.sizes[part.ordinal()] = size;
+    }
+
+    private CallGraph touch(CallGraph record) {
+        record.used = ++accesses;
+        return record;
+    }
+
+    private void removeIfEmpty(String callGraph, CallGraph record) {
+        if (record.isEmpty()) {
+            records.remove(callGraph);
+            unindex(callGraph);
+        }
+    }
+
+    private void unindex(String callGraph) {
+        Set<String> names = operations.get(operation(callGraph));
+        names.remove(callGraph);
+        if (names.isEmpty()) {
+            operations.remove(operation(callGraph));
+        }
+    }
+
+    /*
+     * Drops the requests and responses of call graphs whose steps are done, least
+     * recently used first, until the values held fit the budget. Call graphs in
+     * flight are kept, see CallGraphRetention#maxBytes
+     */
+    private void withinBudget() {
+        int maxBytes = maxBytes();
+        if (maxBytes <= 0 || heldBytes() <= maxBytes) {
+            return;
+        }
+        List<CallGraph> completed = new ArrayList<>();
+        for (CallGraph record : records.values()) {
+            if (Boolean.TRUE.equals(record.getEncoded(Part.COMPLETED)) && record.getEncoded(Part.RESPONSE) != null) {
+                completed.add(record);
+            }
+        }
+        completed.sort(Comparator.comparingLong(record -> record.used));
+        for (CallGraph record : completed) {
+            if (heldBytes <= maxBytes) {
+                break;
+            }
+            setPart(record, Part.REQUEST, null, false);
+            setPart(record, Part.RESPONSE, null, false);
+            record.set(Part.ATTEMPTS, null);
+        }
+    }
+
+    private long heldBytes() {
+        if (unmeasured > 0) {
+            for (CallGraph record : records.values()) {
+                for (Part part : new Part[] { Part.REQUEST, Part.RESPONSE }) {
+                    if (record.sizes[part.ordinal()] == UNMEASURED) {
+                        record.sizes[part.ordinal()] = sizeOf(record.getEncoded(part));
+                        heldBytes += record.sizes[part.ordinal()];
+                    }
+                }
+            }
+            unmeasured = 0;
+        }
+        return heldBytes;
+    }
+
+    /*
+     * The value and its class name in the JSON encoding, values not decoded yet are
+     * measured as read
+     */
+    private static int sizeOf(Object value) {
+        try {
+            if (value instanceof Encoded) {
+                Encoded encoded = (Encoded) value;
+                CountingOutputStream counter = new CountingOutputStream(ByteStreams.nullOutputStream());
+                try (JsonGenerator sizer = JSON_FACTORY.createGenerator(counter)) {
+                    sizer.setCodec(encoded.codec);
+                    encoded.value.serialize(sizer);
+                }
+                return (int) counter.getCount() + encoded.type.getName().length();
+            }
+            // with the mapper the wrapper serializes the context with
+            long size = software.amazon.cloudformation.resource.Serializer.sizeOf(value);
+            return (int) size + value.getClass().getName().length();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can not measure memoized " + value.getClass().getName(), e);
+        }
+    }
+
+    private int maxBytes() {
+        return MAX_BYTES.get(getClass());
+    }
+
+    /*
+     * The value is computed outside the lock, a service call made by one step of
+     * ProgressEvent.thenAll must not hold up the other steps. When two callers race
+     * for the same call graph, the first value recorded wins.
+     */
+    private Object computeIfAbsent(String callGraph, Part part, Supplier<Object> func) {
+        Object value = get(callGraph, part);
+        if (value != null) {
+            return value;
+        }
+        value = func.get();
+        if (value == null) {
+            return null;
+        }
+        synchronized (records) {
+            Object recorded = get(callGraph, part);
+            if (recorded != null) {
+                return recorded;
+            }
+            put(callGraph, part, value);
+            return value;
+        }
+    }
+
+    /*
+     * Generated names are service:Operation-incoming-hash, names given by handlers
+     * are usually service:Operation already
+     */
+    private static String operation(String callGraph) {
+        int end = callGraph.indexOf('-', callGraph.indexOf(':') + 1);
+        return end < 0 ? callGraph : callGraph.substring(0, end);
+    }
+
+    @JsonProperty("callGraphs")
+    @JsonSerialize(using = Serializer.class)
+    private Map<String, Object> flatten() {
+        synchronized (records) {
+            Map<String, Object> flattened = new LinkedHashMap<>(records.size() * 2 + entries.size());
+            for (Map.Entry<String, CallGraph> each : records.entrySet()) {
+                for (Part part : Part.values()) {
+                    Object value = each.getValue().getEncoded(part);
+                    if (value != null) {
+                        flattened.put(each.getKey() + part.suffix, value);
+                    }
+                }
+            }
+            flattened.putAll(entries);
+            return flattened;
+        }
+    }
+
+    @JsonProperty("callGraphs")
+    @JsonDeserialize(using = Deserializer.class)
+    private void unflatten(Map<String, Object> graphs) {
+        synchronized (records) {
+            records.clear();
+            entries.clear();
+            operations.clear();
+            heldBytes = 0;
+            unmeasured = 0;
+            if (graphs == null) {
+                return;
+            }
+            for (Map.Entry<String, Object> each : graphs.entrySet()) {
+                String key = each.getKey();
+                Object value = each.getValue();
+                Part part = Part.of(key);
+                if (part != null && part.type.isInstance(value)) {
+                    put(key.substring(0, key.length() - part.suffix.length()), part, value, false);
+                } else {
+                    entries.put(key, value);
+                }
+            }
+        }
     }
 }
@@ -0,0 +1,42 @@
+/*
+* Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License").
+* You may not use this file except in compliance with the License.
+* A copy of the License is located at
+*
+*  http://aws.amazon.com/apache2.0
+*
+* or in the "license" file accompanying this file. This file is distributed
+* on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied. See the License for the specific language governing
+* permissions and limitations under the License.
+*/
+package software.amazon.cloudformation.proxy;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executors running each task on a virtual thread when the runtime has them,
+ * Java 21 and later, on a cached pool of daemon threads otherwise.
+ */
+final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @param nameFormat names the pooled threads used when virtual threads are not
+     *            available, e.g. {@code "progress-step-%d"}
+     * @return a new executor
+     */
+    static ExecutorService newExecutor(final String nameFormat) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true).setNameFormat(nameFormat).build());
+        }
+    }
+}
@@ -14,31 +14,74 @@
 */
 package software.amazon.cloudformation.proxy;
 
-import com.google.common.util.concurrent.Uninterruptibles;
 import java.time.Duration;
-import java.util.concurrent.TimeUnit;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
 
 public interface WaitStrategy {
+    /**
+     * The longest wait {@link #newRemainingTimeAwareStrategy(Supplier)} makes
+     * locally, a callback costs about as much as this in re-invocation overhead
+     */
+    Duration DEFAULT_MAX_LOCAL_WAIT = Duration.ofSeconds(5);
+
     <ModelT, CallbackT>
         ProgressEvent<ModelT, CallbackT>
         await(long operationElapsedTime, Duration nextAttempt, CallbackT context, ModelT model);
 
+    /**
+     * Non blocking form of {@link #await(long, Duration, Object, Object)} used by
+     * {@link CallChain.Completed#doneAsync(CallChain.Callback)}. The default waits
+     * on the calling thread, strategies waiting locally should complete the future
+     * once the wait is over instead.
+     *
+     * @param operationElapsedTime time taken by the last attempt in milliseconds
+     * @param nextAttempt the delay before the next attempt
+     * @param context the callback context
+     * @param model the resource model
+     * @param <ModelT> the model type
+     * @param <CallbackT> the callback context type
+     * @return completes with null to make the next attempt, or the event to return
+     */
+    default <ModelT, CallbackT>
+        CompletableFuture<ProgressEvent<ModelT, CallbackT>>
+        awaitAsync(long operationElapsedTime, Duration nextAttempt, CallbackT context, ModelT model) {
+        return CompletableFuture.completedFuture(await(operationElapsedTime, nextAttempt, context, model));
+    }
+
+    /**
+     * Waits locally whenever the wait fits in the time left to execute
+     *
+     * @param remainingTimeToExecute time left in the invocation in milliseconds
+     * @return the wait strategy
+     */
     static WaitStrategy newLocalLoopAwaitStrategy(final Supplier<Long> remainingTimeToExecute) {
-        return new WaitStrategy() {
-            @Override
-            public <ModelT, CallbackT>
-                ProgressEvent<ModelT, CallbackT>
-                await(long operationElapsedTime, Duration next, CallbackT context, ModelT model) {
-                long remainingTime = remainingTimeToExecute.get();
-                long localWait = next.toMillis() + 2 * operationElapsedTime + 100;
-                if (remainingTime > localWait) {
-                    Uninterruptibles.sleepUninterruptibly(next.getSeconds(), TimeUnit.SECONDS);
-                    return null;
-                }
-                return ProgressEvent.defaultInProgressHandler(context, (int) next.getSeconds(), model);
-            }
-        };
+        return new LocalWaitStrategy(remainingTimeToExecute, null);
+    }
+
+    /**
+     * Waits locally for short delays that fit in the time left to execute, so short
+     * stabilizations complete in one invocation, and schedules a callback for the
+     * longer ones
+     *
+     * @param remainingTimeToExecute time left in the invocation in milliseconds,
+     *            less any time needed once the handler returns
+     * @return the wait strategy, waiting locally up to
+     *         {@link #DEFAULT_MAX_LOCAL_WAIT}
+     */
+    static WaitStrategy newRemainingTimeAwareStrategy(final Supplier<Long> remainingTimeToExecute) {
+        return newRemainingTimeAwareStrategy(remainingTimeToExecute, DEFAULT_MAX_LOCAL_WAIT);
+    }
+
+    /**
+     * @param remainingTimeToExecute time left in the invocation in milliseconds
+     * @param maxLocalWait the longest wait made locally
+     * @return the wait strategy, see
+     *         {@link #newRemainingTimeAwareStrategy(Supplier)}
+     */
+    static WaitStrategy newRemainingTimeAwareStrategy(final Supplier<Long> remainingTimeToExecute, final Duration maxLocalWait) {
+        return new LocalWaitStrategy(remainingTimeToExecute, Objects.requireNonNull(maxLocalWait));
     }
 
     static WaitStrategy scheduleForCallbackStrategy() {
@@ -47,7 +90,7 @@ public interface WaitStrategy {
             public <ModelT, CallbackT>
                 ProgressEvent<ModelT, CallbackT>
                 await(long operationElapsedTime, Duration next, CallbackT context, ModelT model) {
-                return ProgressEvent.defaultInProgressHandler(context, (int) next.getSeconds(), model);
+                return ProgressEvent.defaultInProgressHandler(context, LocalWaitStrategy.callbackDelaySeconds(next), model);
             }
         };
     }
@@ -21,7 +21,6 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
@@ -76,7 +75,6 @@ public class SdkPojoDeserializer extends StdDeserializer<SdkPojo> {
 
         Map<String, SdkField<?>> fieldMap = getFields(pojo);
         JsonToken next = p.nextToken();
-        ObjectMapper codec = (ObjectMapper) p.getCodec();
         while (next != JsonToken.END_OBJECT) {
             /*
              * if (next != JsonToken.FIELD_NAME) { throw new JsonMappingException(p,
@@ -85,7 +83,7 @@ public class SdkPojoDeserializer extends StdDeserializer<SdkPojo> {
             String fieldName = p.getCurrentName();
             SdkField<?> sdkField = fieldMap.get(fieldName);
             if (sdkField == null) {
-                if (codec.isEnabled(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)) {
+                if (ctxt.isEnabled(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)) {
                     throw new JsonMappingException(p, "Unknown property encountered " + fieldName);
                 }
                 // we need to skip this
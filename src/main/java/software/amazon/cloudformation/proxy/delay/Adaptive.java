@@ -0,0 +1,102 @@
+/*
+* Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License").
+* You may not use this file except in compliance with the License.
+* A copy of the License is located at
+*
+*  http://aws.amazon.com/apache2.0
+*
+* or in the "license" file accompanying this file. This file is distributed
+* on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied. See the License for the specific language governing
+* permissions and limitations under the License.
+*/
+package software.amazon.cloudformation.proxy.delay;
+
+import com.google.common.base.Preconditions;
+import java.time.Duration;
+import software.amazon.cloudformation.proxy.Delay;
+import software.amazon.cloudformation.proxy.StdCallbackContext;
+
+/**
+ * {@link Adaptive}, lengthens the waits of another delay while the service
+ * pushes back. Each throttled or unavailable response seen by the proxy's
+ * default error handling doubles the waits, each successful call halves them
+ * again, see {@link StdCallbackContext#adaptiveBackoff()}. The state is kept in
+ * the callback context, so it carries over to the next invocation of the
+ * handler. The delay it adapts decides when to stop waiting.
+ *
+ * {@code
+ *     final Delay delay = Adaptive.of().context(callbackContext)
+ *         .delay(Constant.of().delay(Duration.ofSeconds(5)).timeout(Duration.ofMinutes(20)).build())
+ *         .build();
+ * }
+ */
+public class Adaptive implements Delay {
+
+    final Delay delay;
+    final StdCallbackContext context;
+    final Duration maxDelay;
+
+    Adaptive(Delay delay,
+             StdCallbackContext context,
+             Duration maxDelay) {
+        Preconditions.checkArgument(delay != null, "delay must be specified");
+        Preconditions.checkArgument(context != null, "context must be specified");
+        Preconditions.checkArgument(maxDelay != null && maxDelay.toMillis() > 0, "maxDelay must be > 0");
+        this.delay = delay;
+        this.context = context;
+        this.maxDelay = maxDelay;
+    }
+
+    public static Builder of() {
+        return new Builder();
+    }
+
+    public static final class Builder implements software.amazon.cloudformation.proxy.delay.Builder<Adaptive> {
+        private Delay delay;
+        private StdCallbackContext context;
+        private Duration maxDelay = Duration.ofMinutes(5);
+
+        public Builder delay(Delay delay) {
+            this.delay = delay;
+            return this;
+        }
+
+        public Builder context(StdCallbackContext context) {
+            this.context = context;
+            return this;
+        }
+
+        public Builder maxDelay(Duration maxDelay) {
+            this.maxDelay = maxDelay;
+            return this;
+        }
+
+        @Override
+        public Adaptive build() {
+            return new Adaptive(delay, context, maxDelay);
+        }
+    }
+
+    /**
+     * The wait of the adapted delay doubled for each throttle not yet offset by a
+     * success, at most maxDelay unless the adapted delay asks for longer
+     */
+    @Override
+    public Duration nextDelay(int attempt) {
+        Duration next = delay.nextDelay(attempt);
+        int backoff = context.adaptiveBackoff();
+        if (next == Duration.ZERO || backoff == 0 || next.compareTo(maxDelay) >= 0) {
+            return next;
+        }
+        Duration scaled = next.multipliedBy(1L << backoff);
+        return scaled.compareTo(maxDelay) > 0 ? maxDelay : scaled;
+    }
+
+    @Override
+    public String toString() {
+        return "Adaptive{" + "delay=" + delay + ", maxDelay=" + maxDelay + '}';
+    }
+}
@@ -67,20 +67,43 @@ public class CappedExponential extends MinDelayAbstractBase {
     }
 
     /**
-     * Calculating accrued time as summation of all the delay based on attempt.
-     * Assumption:- attempt will not be big number.
+     * Calculating accrued time as summation of all the delays up to the attempt.
+     * The delays are summed one attempt at a time until they stop growing, after
+     * which every attempt adds the same delay and the remainder is computed in one
+     * step.
      */
     @Override
     public Duration nextDelay(int attempt) {
-        Duration next = Duration.ofSeconds(Math.round(Math.pow(powerBy, attempt)));
-        Duration nextDelay = Duration.ofSeconds(Math.min(maxDelay.getSeconds(), next.getSeconds()));
         Duration accrued = Duration.ZERO;
-        for (int i = 1; i <= attempt; i++) {
-            Duration nextDuration = i > 1 ? nextDelay(i - 1) : Duration.ZERO;
-            accrued = accrued.plus(nextDuration);
+        int next = 1;
+        for (; next < attempt; next++) {
+            Duration delay = delay(next);
+            Duration bounded = enforceBounds(accrued.plus(delay), delay);
+            if (bounded == Duration.ZERO) {
+                // accrued time only grows, every later attempt is past the timeout too
+                return Duration.ZERO;
+            }
+            if (isSteady(delay) && bounded.equals(delay)) {
+                break;
+            }
+            accrued = accrued.plus(bounded);
         }
-        accrued = accrued.plus(nextDelay);
-        return enforceBounds(accrued, nextDelay);
+        if (next < attempt) {
+            accrued = accrued.plus(delay(next).multipliedBy((long) attempt - next));
+        }
+        Duration nextDelay = delay(attempt);
+        return enforceBounds(accrued.plus(nextDelay), nextDelay);
+    }
+
+    private Duration delay(int attempt) {
+        return Duration.ofSeconds(Math.min(maxDelay.getSeconds(), Math.round(Math.pow(powerBy, attempt))));
+    }
+
+    /*
+     * Delays never shrink, once capped, or when powerBy is 1, they stay the same
+     */
+    private boolean isSteady(Duration delay) {
+        return powerBy == 1.0 || delay.getSeconds() == maxDelay.getSeconds();
     }
 
     @Override
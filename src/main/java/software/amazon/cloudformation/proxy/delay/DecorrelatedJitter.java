@@ -0,0 +1,84 @@
+/*
+* Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License").
+* You may not use this file except in compliance with the License.
+* A copy of the License is located at
+*
+*  http://aws.amazon.com/apache2.0
+*
+* or in the "license" file accompanying this file. This file is distributed
+* on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied. See the License for the specific language governing
+* permissions and limitations under the License.
+*/
+package software.amazon.cloudformation.proxy.delay;
+
+import java.time.Duration;
+
+/**
+ * {@link DecorrelatedJitter}, waits a random time between the minimum delay and
+ * three times the previous wait, so consecutive waits grow like
+ * {@link Exponential} without retries from different handlers lining up. Each
+ * wait is at most the {@link CappedExponential} delay for the attempt, and the
+ * timeout applies to that schedule, so the waits never add up to more than it.
+ * A new instance, e.g. after a re-invocation, starts again from the minimum
+ * delay.
+ *
+ * Ref:
+ * https://aws.amazon.com/blogs/architecture/exponential-backoff-and-jitter/
+ */
+public class DecorrelatedJitter extends CappedExponential {
+
+    private Duration previous;
+
+    DecorrelatedJitter(Duration timeout,
+                       Duration minDelay,
+                       Double powerBy,
+                       Duration maxDelay) {
+        super(timeout, minDelay, powerBy, maxDelay);
+    }
+
+    public static Builder decorrelatedJitter() {
+        return new Builder();
+    }
+
+    public static final class Builder extends MinDelayBasedBuilder<DecorrelatedJitter, Builder> {
+        private double powerBy = 3;
+        private Duration maxDelay = Duration.ofSeconds(20);
+
+        public Builder powerBy(Double powerBy) {
+            this.powerBy = powerBy;
+            return this;
+        }
+
+        public Builder maxDelay(Duration maxDelay) {
+            this.maxDelay = maxDelay;
+            return this;
+        }
+
+        @Override
+        public DecorrelatedJitter build() {
+            return new DecorrelatedJitter(timeout, minDelay, powerBy, maxDelay);
+        }
+    }
+
+    @Override
+    public Duration nextDelay(int attempt) {
+        Duration capped = super.nextDelay(attempt);
+        if (capped == Duration.ZERO) {
+            return capped;
+        }
+        Duration base = minDelay.isZero() ? Duration.ofSeconds(1) : minDelay;
+        Duration upper = previous == null ? base : previous.multipliedBy(3);
+        Duration next = FullJitter.between(minDelay, upper.compareTo(capped) < 0 ? upper : capped);
+        previous = next.compareTo(base) < 0 ? base : next;
+        return next;
+    }
+
+    @Override
+    public String toString() {
+        return "DecorrelatedJitter{" + "powerBy=" + powerBy + ", maxDelay=" + maxDelay + ", minDelay=" + minDelay + ", timeout="
+            + timeout + '}';
+    }
+}
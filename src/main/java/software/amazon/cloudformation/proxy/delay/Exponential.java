@@ -24,7 +24,7 @@ import java.time.Duration;
 public class Exponential extends MinDelayAbstractBase {
 
     final int powerBy;
-    private Duration accrued = Duration.ZERO;
+    private int first = Integer.MAX_VALUE;
 
     private Exponential(Duration timeout,
                         Duration minDelay,
@@ -53,11 +53,18 @@ public class Exponential extends MinDelayAbstractBase {
         }
     }
 
+    /**
+     * Accrued time is the geometric sum of the delays from the first attempt this
+     * delay was asked for, computed in closed form rather than kept as a running
+     * total, so asking again for an attempt does not count it twice.
+     */
     @Override
     public Duration nextDelay(int attempt) {
+        first = Math.min(first, attempt);
         long next = Math.round(Math.pow(powerBy, attempt));
         Duration nextDelay = Duration.ofSeconds(next);
-        accrued = accrued.plus(nextDelay);
+        double sum = (Math.pow(powerBy, attempt + 1.0) - Math.pow(powerBy, first)) / (powerBy - 1);
+        Duration accrued = Duration.ofSeconds(Math.round(sum));
         return enforceBounds(accrued, nextDelay);
     }
 }
@@ -0,0 +1,87 @@
+/*
+* Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License").
+* You may not use this file except in compliance with the License.
+* A copy of the License is located at
+*
+*  http://aws.amazon.com/apache2.0
+*
+* or in the "license" file accompanying this file. This file is distributed
+* on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied. See the License for the specific language governing
+* permissions and limitations under the License.
+*/
+package software.amazon.cloudformation.proxy.delay;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * {@link FullJitter}, waits a random time between the minimum delay and the
+ * {@link CappedExponential} delay for the attempt. Handlers that back off on
+ * the same schedule spread their retries instead of calling the service in
+ * lockstep. The timeout applies to the capped exponential schedule, jitter only
+ * shortens the waits, so the attempts made do not depend on the random draws.
+ *
+ * Ref:
+ * https://aws.amazon.com/blogs/architecture/exponential-backoff-and-jitter/
+ */
+public class FullJitter extends CappedExponential {
+
+    FullJitter(Duration timeout,
+               Duration minDelay,
+               Double powerBy,
+               Duration maxDelay) {
+        super(timeout, minDelay, powerBy, maxDelay);
+    }
+
+    public static Builder fullJitter() {
+        return new Builder();
+    }
+
+    public static final class Builder extends MinDelayBasedBuilder<FullJitter, Builder> {
+        private double powerBy = 2;
+        private Duration maxDelay = Duration.ofSeconds(20);
+
+        public Builder powerBy(Double powerBy) {
+            this.powerBy = powerBy;
+            return this;
+        }
+
+        public Builder maxDelay(Duration maxDelay) {
+            this.maxDelay = maxDelay;
+            return this;
+        }
+
+        @Override
+        public FullJitter build() {
+            return new FullJitter(timeout, minDelay, powerBy, maxDelay);
+        }
+    }
+
+    @Override
+    public Duration nextDelay(int attempt) {
+        Duration capped = super.nextDelay(attempt);
+        if (capped == Duration.ZERO) {
+            return capped;
+        }
+        return between(minDelay, capped);
+    }
+
+    static Duration between(Duration lower, Duration upper) {
+        // never Duration.ZERO, which would end the waits
+        long from = Math.max(1L, lower.toMillis());
+        long to = upper.toMillis();
+        if (to <= from) {
+            return upper;
+        }
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(from, to + 1));
+    }
+
+    @Override
+    public String toString() {
+        return "FullJitter{" + "powerBy=" + powerBy + ", maxDelay=" + maxDelay + ", minDelay=" + minDelay + ", timeout=" + timeout
+            + '}';
+    }
+}
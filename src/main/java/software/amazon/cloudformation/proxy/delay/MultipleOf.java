@@ -26,6 +26,7 @@ public class MultipleOf extends Constant {
 
     Duration accrued = Duration.ZERO;
     final int multiple;
+    private int first = Integer.MAX_VALUE;
 
     MultipleOf(Duration timeout,
                Duration delay,
@@ -53,14 +54,27 @@ public class MultipleOf extends Constant {
         return new Builder();
     }
 
+    /**
+     * Accrued time is the arithmetic sum of the delays from the first attempt this
+     * delay was asked for, or from the first attempt overall once attempt 1 was
+     * asked for, computed in closed form rather than kept as a running total.
+     */
     @Override
     public Duration nextDelay(int attempt) {
+        first = Math.min(first, attempt);
         if (attempt < 2) {
+            first = attempt;
             accrued = delay;
             return delay;
         }
         Duration next = delay.multipliedBy((long) (attempt - 1) * multiple);
-        accrued = accrued.plus(next);
+        // sum of (k - 1) for k in [max(first, 2), attempt]
+        long from = Math.max(first, 2) - 1L;
+        long steps = ((long) attempt * (attempt - 1) - (from - 1) * from) / 2;
+        accrued = delay.multipliedBy(steps * multiple);
+        if (first < 2) {
+            accrued = accrued.plus(delay);
+        }
         return enforceBounds(accrued, next);
     }
 }
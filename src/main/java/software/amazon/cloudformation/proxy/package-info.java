@@ -55,7 +55,10 @@
  * "logs.CreateLogGroup.request" key and the corresponding response
  * {@code CreateLogGroupResponse} using "logs.CreateLogGroup.response" key after
  * a successful API call is completed. Developers can use them as needed to get
- * data like ARNs from responses when needed.</li>
+ * data like ARNs from responses when needed. Requests and responses can also be
+ * looked up by the service and API name with
+ * {@link software.amazon.cloudformation.proxy.StdCallbackContext#findFirstResponseByOperation(String)}
+ * and friends.</li>
  * <li>Translate the incoming CFN resource model properties to the underlying
  * service API request. E.g.
  * {@code translate(translator::translatetocreaterequest)} translates incoming
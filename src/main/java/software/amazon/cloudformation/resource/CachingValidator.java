@@ -0,0 +1,66 @@
+/*
+* Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License").
+* You may not use this file except in compliance with the License.
+* A copy of the License is located at
+*
+*  http://aws.amazon.com/apache2.0
+*
+* or in the "license" file accompanying this file. This file is distributed
+* on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied. See the License for the specific language governing
+* permissions and limitations under the License.
+*/
+package software.amazon.cloudformation.resource;
+
+import java.net.URI;
+import org.everit.json.schema.Schema;
+import org.everit.json.schema.loader.SchemaLoader;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import software.amazon.cloudformation.resource.exceptions.ValidationException;
+
+/**
+ * The stock {@link Validator}, keeping the schema it compiles for the last
+ * schema document it was given. The wrapper validates every request against the
+ * same cached document (see {@link ResourceTypeSchemaCache}), so the schema is
+ * compiled once per container instead of once per request. The schema is
+ * compiled with the same meta-schemas as
+ * {@link Validator#validateObject(JSONObject, JSONObject)}, registered through
+ * the public loader API, and fails the same way: invalid models raise a
+ * {@link ValidationException}, an invalid resource schema raises the loader's
+ * {@link org.everit.json.schema.SchemaException}.
+ */
+public class CachingValidator extends Validator {
+
+    private static final JSONObject JSON_SCHEMA = loadResource(JSON_SCHEMA_PATH);
+    private static final JSONObject BASE_DEFINITION_SCHEMA = loadResource(BASE_DEFINITION_SCHEMA_PATH);
+
+    private JSONObject compiledFrom;
+    private Schema compiled;
+
+    @Override
+    public void validateObject(final JSONObject modelObject, final JSONObject definitionSchemaObject) throws ValidationException {
+        try {
+            getSchema(definitionSchemaObject).validate(modelObject);
+        } catch (final org.everit.json.schema.ValidationException e) {
+            throw ValidationException.newScrubbedException(e);
+        }
+    }
+
+    // documents are compared by identity, a modified document must be a new copy
+    private synchronized Schema getSchema(final JSONObject definitionSchemaObject) {
+        if (compiled == null || compiledFrom != definitionSchemaObject) {
+            compiled = SchemaLoader.builder().draftV7Support().registerSchemaByURI(JSON_SCHEMA_URI_HTTP, JSON_SCHEMA)
+                .registerSchemaByURI(URI.create(BASE_DEFINITION_SCHEMA.getString(ID_KEY)), BASE_DEFINITION_SCHEMA)
+                .schemaJson(definitionSchemaObject).build().load().build();
+            compiledFrom = definitionSchemaObject;
+        }
+        return compiled;
+    }
+
+    private static JSONObject loadResource(final String path) {
+        return new JSONObject(new JSONTokener(CachingValidator.class.getResourceAsStream(path)));
+    }
+}
@@ -0,0 +1,139 @@
+/*
+* Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License").
+* You may not use this file except in compliance with the License.
+* A copy of the License is located at
+*
+*  http://aws.amazon.com/apache2.0
+*
+* or in the "license" file accompanying this file. This file is distributed
+* on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied. See the License for the specific language governing
+* permissions and limitations under the License.
+*/
+package software.amazon.cloudformation.resource;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import lombok.Getter;
+import org.json.JSONObject;
+import software.amazon.cloudformation.exceptions.TerminalException;
+
+/**
+ * Lazily loads and compiles the resource type schema once, and hands out the
+ * same instances for the lifetime of the owning wrapper (i.e; once per
+ * container). Loading and compiling the schema is one of the most expensive
+ * steps of an invocation, so sanitization, validation and progress reporting
+ * all share the cached copies. Hits and misses are counted per cached item
+ * asked for, see {@link #drainCounts()}.
+ */
+public class ResourceTypeSchemaCache {
+
+    private final Supplier<JSONObject> schemaSupplier;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private long drainedHits;
+
+    private long drainedMisses;
+
+    private JSONObject schemaJson;
+
+    private ResourceTypeSchema resourceTypeSchema;
+
+    private WriteOnlyPropertyStripper writeOnlyPropertyStripper;
+
+    public ResourceTypeSchemaCache(final Supplier<JSONObject> schemaSupplier) {
+        this.schemaSupplier = schemaSupplier;
+    }
+
+    /**
+     * @return the raw schema document, or null when the type provides none. The
+     *         returned object is shared, callers must not modify it.
+     */
+    public synchronized JSONObject getSchemaJson() {
+        if (schemaJson != null) {
+            hits.incrementAndGet();
+            return schemaJson;
+        }
+        misses.incrementAndGet();
+        return loadSchemaJson();
+    }
+
+    /**
+     * @return the compiled schema, loaded from {@link #getSchemaJson()} on first
+     *         use
+     */
+    public synchronized ResourceTypeSchema getResourceTypeSchema() {
+        if (resourceTypeSchema != null) {
+            hits.incrementAndGet();
+            return resourceTypeSchema;
+        }
+        misses.incrementAndGet();
+        return loadResourceTypeSchema();
+    }
+
+    /**
+     * @return the write only property stripper compiled from
+     *         {@link #getResourceTypeSchema()} on first use
+     */
+    public synchronized WriteOnlyPropertyStripper getWriteOnlyPropertyStripper() {
+        if (writeOnlyPropertyStripper != null) {
+            hits.incrementAndGet();
+            return writeOnlyPropertyStripper;
+        }
+        misses.incrementAndGet();
+        writeOnlyPropertyStripper = WriteOnlyPropertyStripper
+            .compile(resourceTypeSchema != null ? resourceTypeSchema : loadResourceTypeSchema());
+        return writeOnlyPropertyStripper;
+    }
+
+    /**
+     * @return the hits and misses since the last call
+     */
+    public synchronized Counts drainCounts() {
+        final Counts counts = new Counts(hits.get() - drainedHits, misses.get() - drainedMisses);
+        drainedHits += counts.hits;
+        drainedMisses += counts.misses;
+        return counts;
+    }
+
+    private JSONObject loadSchemaJson() {
+        schemaJson = schemaSupplier.get();
+        return schemaJson;
+    }
+
+    private ResourceTypeSchema loadResourceTypeSchema() {
+        JSONObject schema = schemaJson != null ? schemaJson : loadSchemaJson();
+        if (schema == null) {
+            throw new TerminalException("Unable to load resource schema as no schema was provided.");
+        }
+        // load() stamps the meta-schema onto the document it is given, compile a
+        // copy to leave the shared document untouched
+        resourceTypeSchema = ResourceTypeSchema.load(new JSONObject(schema, JSONObject.getNames(schema)));
+        return resourceTypeSchema;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Getter
+    public static class Counts {
+        private final long hits;
+        private final long misses;
+
+        private Counts(final long hits,
+                       final long misses) {
+            this.hits = hits;
+            this.misses = misses;
+        }
+    }
+}
@@ -16,23 +16,31 @@ package software.amazon.cloudformation.resource;
 
 import com.amazonaws.util.IOUtils;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.json.JsonMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 import org.apache.commons.codec.binary.Base64;
+import software.amazon.cloudformation.proxy.StdCallbackContext;
 import software.amazon.cloudformation.proxy.aws.AWSServiceSerdeModule;
 
 public class Serializer {
@@ -60,6 +68,7 @@ public class Serializer {
         STRICT_OBJECT_MAPPER.setSerializationInclusion(JsonInclude.Include.NON_NULL);
         STRICT_OBJECT_MAPPER.registerModule(new AWSServiceSerdeModule());
         STRICT_OBJECT_MAPPER.registerModule(new JavaTimeModule());
+        STRICT_OBJECT_MAPPER.registerModule(new StdCallbackContext.DeferredDecodingModule());
     }
 
     /**
@@ -81,6 +90,7 @@ public class Serializer {
         OBJECT_MAPPER.setSerializationInclusion(JsonInclude.Include.NON_NULL);
         OBJECT_MAPPER.registerModule(new AWSServiceSerdeModule());
         OBJECT_MAPPER.registerModule(new JavaTimeModule());
+        OBJECT_MAPPER.registerModule(new StdCallbackContext.DeferredDecodingModule());
     }
 
     private final Boolean strictDeserialize;
@@ -97,6 +107,18 @@ public class Serializer {
         return OBJECT_MAPPER.writeValueAsString(modelObject);
     }
 
+    /**
+     * @param value the value to measure
+     * @return the length in bytes of the value serialized as JSON, counted without
+     *         building the serialized form
+     * @throws IOException if the value can not be serialized
+     */
+    public static long sizeOf(final Object value) throws IOException {
+        final CountingOutputStream counter = new CountingOutputStream(ByteStreams.nullOutputStream());
+        OBJECT_MAPPER.writeValue(counter, value);
+        return counter.getCount();
+    }
+
     public <T> String compress(final String modelInput) throws IOException {
         final Map<String, String> map = new HashMap<>();
         try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
@@ -131,10 +153,53 @@ public class Serializer {
         }
     }
 
+    /**
+     * Reads a request payload from the stream in a single pass. A payload holding
+     * compressed content, as {@link #decompress(String)} detects it, is inflated
+     * and parsed directly, without an intermediate String copy. The resulting tree
+     * can be bound to typed models with
+     * {@link #deserialize(JsonNode, TypeReference)} and reused for validation.
+     *
+     * @param inputStream the raw request payload
+     * @return the parsed (and decompressed) payload
+     * @throws IOException if the payload is not a valid JSON object
+     */
+    public JsonNode readTree(final InputStream inputStream) throws IOException {
+        try (JsonParser parser = OBJECT_MAPPER.getFactory().createParser(inputStream)) {
+            final JsonToken start = parser.nextToken();
+            if (start != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected start of object for request payload got " + start);
+            }
+            final JsonNode tree = OBJECT_MAPPER.readTree(parser);
+            if (!tree.has(COMPRESSED)) {
+                return tree;
+            }
+
+            final byte[] bytes = Base64.decodeBase64(tree.path(COMPRESSED).asText());
+            try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(bytes);
+                GZIPInputStream gzipInputStream = new GZIPInputStream(byteArrayInputStream)) {
+                return OBJECT_MAPPER.readTree(gzipInputStream);
+            }
+        }
+    }
+
+    public <T> T deserialize(final JsonNode tree, final TypeReference<T> reference) throws IOException {
+        final ObjectMapper mapper = strictDeserialize ? STRICT_OBJECT_MAPPER : OBJECT_MAPPER;
+        return mapper.readerFor(reference).readValue(tree);
+    }
+
+    public JsonNode toTree(final Object value) {
+        return OBJECT_MAPPER.valueToTree(value);
+    }
+
     public <T> T deserializeStrict(final String s, final TypeReference<T> reference) throws IOException {
         return STRICT_OBJECT_MAPPER.readValue(s, reference);
     }
 
+    public <T> T deserializeStrict(final JsonNode tree, final TypeReference<T> reference) throws IOException {
+        return STRICT_OBJECT_MAPPER.readerFor(reference).readValue(tree);
+    }
+
     public <T> T convert(final Object obj, final TypeReference<T> reference) {
         return OBJECT_MAPPER.convertValue(obj, reference);
     }
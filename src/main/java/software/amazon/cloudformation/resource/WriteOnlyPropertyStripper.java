@@ -0,0 +1,95 @@
+/*
+* Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License").
+* You may not use this file except in compliance with the License.
+* A copy of the License is located at
+*
+*  http://aws.amazon.com/apache2.0
+*
+* or in the "license" file accompanying this file. This file is distributed
+* on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied. See the License for the specific language governing
+* permissions and limitations under the License.
+*/
+package software.amazon.cloudformation.resource;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Removes the writeOnlyProperties of a resource type from models. The JSON
+ * pointers are compiled once from the schema, stripping is then a single walk
+ * over the model tree with no further parsing. Follows the semantics of
+ * {@link ResourceTypeSchema#removeWriteOnlyProperties(org.json.JSONObject)},
+ * pointers whose parent does not resolve to an object are ignored.
+ */
+public final class WriteOnlyPropertyStripper {
+
+    private static final WriteOnlyPropertyStripper EMPTY = new WriteOnlyPropertyStripper(Collections.emptyList());
+
+    private final List<Property> properties;
+
+    private WriteOnlyPropertyStripper(final List<Property> properties) {
+        this.properties = properties;
+    }
+
+    public static WriteOnlyPropertyStripper compile(final ResourceTypeSchema schema) {
+        return compile(schema.getWriteOnlyPropertiesAsStrings());
+    }
+
+    /**
+     * @param writeOnlyProperties schema pointers such as /properties/Password
+     * @return a stripper for the given pointers
+     */
+    public static WriteOnlyPropertyStripper compile(final List<String> writeOnlyProperties) {
+        if (writeOnlyProperties == null || writeOnlyProperties.isEmpty()) {
+            return EMPTY;
+        }
+        final List<Property> properties = new ArrayList<>(writeOnlyProperties.size());
+        for (final String each : writeOnlyProperties) {
+            final JsonPointer pointer = JsonPointer.compile(each.replaceFirst("^/properties", ""));
+            final JsonPointer parent = pointer.head();
+            if (parent != null) {
+                properties.add(new Property(parent, pointer.last().getMatchingProperty()));
+            }
+        }
+        return new WriteOnlyPropertyStripper(Collections.unmodifiableList(properties));
+    }
+
+    public boolean isEmpty() {
+        return properties.isEmpty();
+    }
+
+    /**
+     * Removes all write only properties from the model tree in place
+     *
+     * @param model the resource model tree
+     */
+    public void strip(final JsonNode model) {
+        if (model == null) {
+            return;
+        }
+        for (final Property each : properties) {
+            final JsonNode parent = model.at(each.parent);
+            if (parent.isObject()) {
+                ((ObjectNode) parent).remove(each.name);
+            }
+        }
+    }
+
+    private static final class Property {
+        private final JsonPointer parent;
+        private final String name;
+
+        private Property(final JsonPointer parent,
+                         final String name) {
+            this.parent = parent;
+            this.name = name;
+        }
+    }
+}
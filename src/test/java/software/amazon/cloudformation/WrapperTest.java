@@ -29,6 +29,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
@@ -56,6 +57,9 @@ import software.amazon.cloudformation.proxy.OperationStatus;
 import software.amazon.cloudformation.proxy.ProgressEvent;
 import software.amazon.cloudformation.proxy.RequestData;
 import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+import software.amazon.cloudformation.proxy.StdCallbackContext;
+import software.amazon.cloudformation.proxy.delay.Constant;
+import software.amazon.cloudformation.resource.CachingValidator;
 import software.amazon.cloudformation.resource.SchemaValidator;
 import software.amazon.cloudformation.resource.Serializer;
 import software.amazon.cloudformation.resource.Validator;
@@ -374,6 +378,28 @@ public class WrapperTest {
         }
     }
 
+    @Test
+    public void invokeHandler_localWaitsLeaveTimeToFlush() throws IOException {
+        final TestModel model = TestModel.builder().property1("abc").property2(123).build();
+        wrapper.setInvokeHandlerResponse(ProgressEvent.success(model, null));
+        wrapper.setTransformResponse(resourceHandlerRequest);
+        // the wait fits in the time left, but not once logs and metrics are flushed
+        wrapper.remainingTimeToExecute = () -> 3500L;
+
+        try (final InputStream in = loadRequestStream("create.request.json");
+            final OutputStream out = new ByteArrayOutputStream()) {
+            wrapper.processRequest(in, out);
+        }
+
+        final ProgressEvent<TestModel, StdCallbackContext> event = wrapper.awsClientProxy
+            .initiate("client:waitForStable", wrapper.awsClientProxy.newProxy(() -> "client"), model, new StdCallbackContext())
+            .translateToServiceRequest(m -> m)
+            .backoffDelay(Constant.of().delay(Duration.ofSeconds(1)).timeout(Duration.ofMinutes(1)).build())
+            .makeServiceCall((r, c) -> r).stabilize((r, response, c, m, context) -> false).success();
+        assertThat(event.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        assertThat(event.getCallbackDelaySeconds()).isEqualTo(1);
+    }
+
     @ParameterizedTest
     @CsvSource({ "create.request.json,CREATE", "update.request.json,UPDATE", "delete.request.json,DELETE",
         "read.request.json,READ", "list.request.json,LIST" })
@@ -422,6 +448,11 @@ public class WrapperTest {
             verify(providerMetricsPublisher).publishExceptionByErrorCodeAndCountBulkMetrics(any(Instant.class), eq(action),
                 any());
 
+            // the schema is only used to validate CREATE/UPDATE models
+            if (action == Action.CREATE || action == Action.UPDATE) {
+                verify(providerMetricsPublisher).publishSchemaCacheMetrics(any(Instant.class), anyLong(), anyLong());
+            }
+
             // validation failure metric should not be published
             verifyNoMoreInteractions(providerMetricsPublisher);
 
@@ -511,6 +542,11 @@ public class WrapperTest {
             verify(providerMetricsPublisher).publishExceptionByErrorCodeAndCountBulkMetrics(any(Instant.class), eq(action),
                 any());
 
+            // the schema is only used to validate CREATE/UPDATE models
+            if (action == Action.CREATE || action == Action.UPDATE) {
+                verify(providerMetricsPublisher).publishSchemaCacheMetrics(any(Instant.class), anyLong(), anyLong());
+            }
+
             // validation failure metric should not be published
             verifyNoMoreInteractions(providerMetricsPublisher);
 
@@ -650,6 +686,53 @@ public class WrapperTest {
         }
     }
 
+    @Test
+    public void invokeHandler_nullModelProperty_causesSchemaValidationFailure() throws IOException {
+        // use actual validator to verify behaviour
+        final WrapperOverride wrapper = new WrapperOverride(providerLoggingCredentialsProvider, platformEventsLogger,
+                                                            providerEventsLogger, providerMetricsPublisher, new Validator() {
+                                                            }, httpClient);
+
+        wrapper.setTransformResponse(resourceHandlerRequest);
+
+        try (final InputStream in = loadRequestStream("create.request.with-null-model-property.json");
+            final OutputStream out = new ByteArrayOutputStream()) {
+            wrapper.processRequest(in, out);
+
+            // the explicit null is reported alongside the type mismatch
+            final ProgressEvent<TestModel, TestContext> handlerResponse = new Serializer().deserialize(out.toString(),
+                new TypeReference<ProgressEvent<TestModel, TestContext>>() {
+                });
+            assertThat(handlerResponse.getErrorCode()).isEqualTo(HandlerErrorCode.InvalidRequest);
+            assertThat(handlerResponse.getStatus()).isEqualTo(OperationStatus.FAILED);
+            assertThat(handlerResponse.getMessage()).startsWith("Model validation failed")
+                .contains("#/property1: expected type: String, found: Null")
+                .contains("#/property2: expected type: Integer, found: JSONArray");
+        }
+    }
+
+    @Test
+    public void invokeHandler_cachingValidator_causesSchemaValidationFailure() throws IOException {
+        // the default validator, the schema is compiled once and reused
+        final WrapperOverride wrapper = new WrapperOverride(providerLoggingCredentialsProvider, platformEventsLogger,
+                                                            providerEventsLogger, providerMetricsPublisher,
+                                                            new CachingValidator(), httpClient);
+
+        wrapper.setTransformResponse(resourceHandlerRequest);
+
+        for (int invocation = 0; invocation < 2; invocation++) {
+            try (final InputStream in = loadRequestStream("create.request.with-invalid-model-types.json");
+                final OutputStream out = new ByteArrayOutputStream()) {
+                wrapper.processRequest(in, out);
+
+                verifyHandlerResponse(out,
+                    ProgressEvent.<TestModel, TestContext>builder().errorCode(HandlerErrorCode.InvalidRequest)
+                        .status(OperationStatus.FAILED)
+                        .message("Model validation failed (#/property1: expected type: String, found: JSONArray)").build());
+            }
+        }
+    }
+
     @Test
     public void invokeHandler_extraneousModelFields_causesSchemaValidationFailure() throws IOException {
         // use actual validator to verify behaviour
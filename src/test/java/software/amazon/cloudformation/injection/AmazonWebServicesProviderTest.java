@@ -0,0 +1,87 @@
+/*
+* Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License").
+* You may not use this file except in compliance with the License.
+* A copy of the License is located at
+*
+*  http://aws.amazon.com/apache2.0
+*
+* or in the "license" file accompanying this file. This file is distributed
+* on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied. See the License for the specific language governing
+* permissions and limitations under the License.
+*/
+package software.amazon.cloudformation.injection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.net.URI;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.auth.credentials.AwsCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.core.SdkSystemSetting;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.services.cloudformation.CloudFormationClient;
+import software.amazon.cloudformation.proxy.Credentials;
+
+@ExtendWith(MockitoExtension.class)
+public class AmazonWebServicesProviderTest {
+
+    @Mock
+    private SdkHttpClient httpClient;
+
+    private String region;
+
+    // the clients are built for real, they need a region whatever the environment
+    @BeforeEach
+    public void setRegion() {
+        region = System.setProperty(SdkSystemSetting.AWS_REGION.property(), "us-east-1");
+    }
+
+    @AfterEach
+    public void restoreRegion() {
+        if (region == null) {
+            System.clearProperty(SdkSystemSetting.AWS_REGION.property());
+        } else {
+            System.setProperty(SdkSystemSetting.AWS_REGION.property(), region);
+        }
+    }
+
+    @Test
+    public void testClientReusedWhenCredentialsRotate() {
+        final SessionCredentialsProvider credentialsProvider = new SessionCredentialsProvider();
+        final CloudWatchProvider provider = new CloudWatchProvider(credentialsProvider, httpClient);
+        final AwsCredentialsProvider awsCredentialsProvider = provider.getCredentialsProvider();
+
+        credentialsProvider.setCredentials(new Credentials("accessKeyId1", "secretAccessKey1", "sessionToken1"));
+        final Object first = provider.get();
+        AwsCredentials resolved = awsCredentialsProvider.resolveCredentials();
+        assertThat(resolved.accessKeyId()).isEqualTo("accessKeyId1");
+
+        credentialsProvider.setCredentials(new Credentials("accessKeyId2", "secretAccessKey2", "sessionToken2"));
+        assertThat(provider.get()).isSameAs(first);
+        resolved = awsCredentialsProvider.resolveCredentials();
+        assertThat(resolved.accessKeyId()).isEqualTo("accessKeyId2");
+        assertThat(resolved.secretAccessKey()).isEqualTo("secretAccessKey2");
+    }
+
+    @Test
+    public void testCloudFormationClientRebuiltForNewEndpoint() {
+        final SessionCredentialsProvider credentialsProvider = new SessionCredentialsProvider();
+        credentialsProvider.setCredentials(new Credentials("accessKeyId", "secretAccessKey", "sessionToken"));
+        final CloudFormationProvider provider = new CloudFormationProvider(credentialsProvider, httpClient);
+
+        provider.setCallbackEndpoint(URI.create("https://cloudformation.us-east-1.amazonaws.com"));
+        final CloudFormationClient first = provider.get();
+        provider.setCallbackEndpoint(URI.create("https://cloudformation.us-east-1.amazonaws.com"));
+        assertThat(provider.get()).isSameAs(first);
+
+        provider.setCallbackEndpoint(URI.create("https://cloudformation.us-west-2.amazonaws.com"));
+        assertThat(provider.get()).isNotSameAs(first);
+    }
+}
@@ -0,0 +1,177 @@
+/*
+* Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License").
+* You may not use this file except in compliance with the License.
+* A copy of the License is located at
+*
+*  http://aws.amazon.com/apache2.0
+*
+* or in the "license" file accompanying this file. This file is distributed
+* on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied. See the License for the specific language governing
+* permissions and limitations under the License.
+*/
+package software.amazon.cloudformation.loggers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import com.google.common.base.Strings;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.services.cloudwatchlogs.CloudWatchLogsClient;
+import software.amazon.awssdk.services.cloudwatchlogs.model.InputLogEvent;
+import software.amazon.awssdk.services.cloudwatchlogs.model.PutLogEventsRequest;
+import software.amazon.awssdk.services.cloudwatchlogs.model.PutLogEventsResponse;
+import software.amazon.cloudformation.injection.CloudWatchLogsProvider;
+import software.amazon.cloudformation.proxy.LoggerProxy;
+import software.amazon.cloudformation.proxy.MetricsPublisherProxy;
+
+@ExtendWith(MockitoExtension.class)
+public class BatchingCloudWatchLogPublisherTest {
+
+    private static final String LOG_GROUP_NAME = "log-group-name";
+    private static final String LOG_STREAM_NAME = "log-stream-name";
+    private static final Duration FLUSH_TIMEOUT = Duration.ofSeconds(10);
+    // long enough that only explicit and size triggered flushes deliver events
+    private static final Duration FLUSH_INTERVAL = Duration.ofHours(1);
+
+    @Mock
+    private CloudWatchLogsProvider cloudWatchLogsProvider;
+
+    @Mock
+    private CloudWatchLogsClient cloudWatchLogsClient;
+
+    @Mock
+    private LoggerProxy platformLoggerProxy;
+
+    @Mock
+    private MetricsPublisherProxy metricsPublisherProxy;
+
+    private BatchingCloudWatchLogPublisher createPublisher(final String logStreamName, final int queueCapacity) {
+        return new BatchingCloudWatchLogPublisher(cloudWatchLogsProvider, LOG_GROUP_NAME,
+                                                  CompletableFuture.completedFuture(logStreamName), platformLoggerProxy,
+                                                  metricsPublisherProxy, null, queueCapacity, FLUSH_INTERVAL);
+    }
+
+    @Test
+    public void testEventsBufferedUntilFlush() {
+        final BatchingCloudWatchLogPublisher logPublisher = createPublisher(LOG_STREAM_NAME, 100);
+        final ArgumentCaptor<PutLogEventsRequest> captor = ArgumentCaptor.forClass(PutLogEventsRequest.class);
+        when(cloudWatchLogsProvider.get()).thenReturn(cloudWatchLogsClient);
+        when(cloudWatchLogsClient.putLogEvents(captor.capture()))
+            .thenReturn(PutLogEventsResponse.builder().nextSequenceToken("token-1").build());
+
+        logPublisher.refreshClient();
+        logPublisher.publishLogEvent("first");
+        logPublisher.publishLogEvent("second");
+        logPublisher.publishLogEvent("third");
+
+        verify(cloudWatchLogsClient, never()).putLogEvents(any(PutLogEventsRequest.class));
+        assertThat(logPublisher.getQueueDepth()).isEqualTo(3);
+
+        logPublisher.flush(FLUSH_TIMEOUT);
+
+        final PutLogEventsRequest request = captor.getValue();
+        assertThat(request.logGroupName()).isEqualTo(LOG_GROUP_NAME);
+        assertThat(request.logStreamName()).isEqualTo(LOG_STREAM_NAME);
+        assertThat(request.logEvents().stream().map(InputLogEvent::message).collect(Collectors.toList())).containsExactly("first",
+            "second", "third");
+        assertThat(logPublisher.getQueueDepth()).isZero();
+        verify(metricsPublisherProxy).publishProviderLogQueueMetrics(any(), eq(3), eq(0L));
+    }
+
+    @Test
+    public void testEventsDroppedWhenQueueFull() {
+        final BatchingCloudWatchLogPublisher logPublisher = createPublisher(LOG_STREAM_NAME, 2);
+        final ArgumentCaptor<PutLogEventsRequest> captor = ArgumentCaptor.forClass(PutLogEventsRequest.class);
+        when(cloudWatchLogsProvider.get()).thenReturn(cloudWatchLogsClient);
+        when(cloudWatchLogsClient.putLogEvents(captor.capture())).thenReturn(PutLogEventsResponse.builder().build());
+
+        logPublisher.refreshClient();
+        logPublisher.publishLogEvent("first");
+        logPublisher.publishLogEvent("second");
+        logPublisher.publishLogEvent("dropped");
+
+        assertThat(logPublisher.getDroppedEvents()).isEqualTo(1);
+
+        logPublisher.flush(FLUSH_TIMEOUT);
+
+        assertThat(captor.getValue().logEvents()).hasSize(2);
+        verify(metricsPublisherProxy).publishProviderLogQueueMetrics(any(), eq(2), eq(1L));
+        // dropped events are reported once
+        assertThat(logPublisher.getDroppedEvents()).isZero();
+    }
+
+    @Test
+    public void testBatchesRespectSizeLimit() {
+        final BatchingCloudWatchLogPublisher logPublisher = createPublisher(LOG_STREAM_NAME, 100);
+        final ArgumentCaptor<PutLogEventsRequest> captor = ArgumentCaptor.forClass(PutLogEventsRequest.class);
+        when(cloudWatchLogsProvider.get()).thenReturn(cloudWatchLogsClient);
+        when(cloudWatchLogsClient.putLogEvents(captor.capture())).thenReturn(PutLogEventsResponse.builder().build());
+
+        final String message = Strings.repeat("x", 200 * 1024);
+        logPublisher.refreshClient();
+        for (int i = 0; i < 12; i++) {
+            logPublisher.publishLogEvent(message);
+        }
+        logPublisher.flush(FLUSH_TIMEOUT);
+
+        final List<PutLogEventsRequest> requests = captor.getAllValues();
+        assertThat(requests.size()).isGreaterThanOrEqualTo(3);
+        assertThat(requests.stream().mapToInt(request -> request.logEvents().size()).sum()).isEqualTo(12);
+        requests.forEach(request -> {
+            final long bytes = request.logEvents().stream()
+                .mapToLong(event -> event.message().length() + BatchingCloudWatchLogPublisher.EVENT_OVERHEAD_BYTES).sum();
+            assertThat(bytes).isLessThanOrEqualTo(BatchingCloudWatchLogPublisher.MAX_BATCH_BYTES);
+        });
+    }
+
+    @Test
+    public void testDeliveryErrorReported() {
+        final BatchingCloudWatchLogPublisher logPublisher = createPublisher(LOG_STREAM_NAME, 100);
+        final ArgumentCaptor<String> stringArgumentCaptor = ArgumentCaptor.forClass(String.class);
+        when(cloudWatchLogsProvider.get()).thenReturn(cloudWatchLogsClient);
+        when(cloudWatchLogsClient.putLogEvents(any(PutLogEventsRequest.class))).thenThrow(new RuntimeException("AccessDenied"));
+
+        logPublisher.refreshClient();
+        logPublisher.publishLogEvent("How is it going?");
+        logPublisher.flush(FLUSH_TIMEOUT);
+
+        verify(platformLoggerProxy).log(stringArgumentCaptor.capture());
+        assertThat(stringArgumentCaptor.getValue()).contains("batch of 1 events").contains("AccessDenied");
+        verify(metricsPublisherProxy).publishProviderLogDeliveryExceptionMetric(any(), any());
+    }
+
+    @Test
+    public void testPublishLogEventsWithoutRefreshingClient() {
+        final BatchingCloudWatchLogPublisher logPublisher = createPublisher(LOG_STREAM_NAME, 100);
+
+        assertThrows(AssertionError.class, () -> logPublisher.publishLogEvent("How is it going?"), "Expected assertion error");
+    }
+
+    @Test
+    public void testNoLogStream() {
+        final BatchingCloudWatchLogPublisher logPublisher = createPublisher(null, 100);
+
+        logPublisher.publishLogEvent("How is it going?");
+        logPublisher.flush(FLUSH_TIMEOUT);
+
+        assertThat(logPublisher.getQueueDepth()).isZero();
+        verifyNoInteractions(cloudWatchLogsProvider, cloudWatchLogsClient);
+        verify(metricsPublisherProxy).publishProviderLogQueueMetrics(any(), eq(0), eq(0L));
+    }
+}
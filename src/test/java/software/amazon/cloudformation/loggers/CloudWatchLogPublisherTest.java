@@ -22,6 +22,8 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
@@ -29,6 +31,8 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import software.amazon.awssdk.services.cloudwatchlogs.CloudWatchLogsClient;
 import software.amazon.awssdk.services.cloudwatchlogs.model.PutLogEventsRequest;
+import software.amazon.awssdk.services.cloudwatchlogs.model.PutLogEventsResponse;
+import software.amazon.awssdk.services.cloudwatchlogs.model.ResourceNotFoundException;
 import software.amazon.cloudformation.injection.CloudWatchLogsProvider;
 import software.amazon.cloudformation.proxy.LoggerProxy;
 import software.amazon.cloudformation.proxy.MetricsPublisherProxy;
@@ -100,6 +104,34 @@ public class CloudWatchLogPublisherTest {
         verifyNoMoreInteractions(cloudWatchLogsProvider);
     }
 
+    @Test
+    public void testPublishLogEventsRecoversMissingLogStream() {
+        final CompletableFuture<String> missing = CompletableFuture.completedFuture(LOG_STREAM_NAME);
+        final CompletableFuture<String> replacement = CompletableFuture.completedFuture("replacement-log-stream-name");
+        final CloudWatchLogPublisher logPublisher = new CloudWatchLogPublisher(cloudWatchLogsProvider, LOG_GROUP_NAME, missing,
+                                                                               platformLoggerProxy, metricsPublisherProxy,
+                                                                               logStream -> logStream == missing
+                                                                                   ? replacement
+                                                                                   : null);
+        final ArgumentCaptor<
+            PutLogEventsRequest> putLogEventsRequestArgumentCaptor = ArgumentCaptor.forClass(PutLogEventsRequest.class);
+
+        when(cloudWatchLogsProvider.get()).thenReturn(cloudWatchLogsClient);
+        when(cloudWatchLogsClient.putLogEvents(putLogEventsRequestArgumentCaptor.capture()))
+            .thenThrow(ResourceNotFoundException.builder().message("The specified log stream does not exist.").build())
+            .thenReturn(PutLogEventsResponse.builder().nextSequenceToken("token-1").build());
+
+        logPublisher.refreshClient();
+        logPublisher.publishLogEvent("How is it going?");
+
+        final List<PutLogEventsRequest> requests = putLogEventsRequestArgumentCaptor.getAllValues();
+        assertThat(requests).hasSize(2);
+        assertThat(requests.get(0).logStreamName()).isEqualTo(LOG_STREAM_NAME);
+        assertThat(requests.get(1).logStreamName()).isEqualTo("replacement-log-stream-name");
+        assertThat(requests.get(1).sequenceToken()).isNull();
+        verifyNoMoreInteractions(platformLoggerProxy, metricsPublisherProxy);
+    }
+
     @Test
     public void testPublishLogEventsWithoutRefreshingClient() {
         final CloudWatchLogPublisher logPublisher = new CloudWatchLogPublisher(cloudWatchLogsProvider, LOG_GROUP_NAME,
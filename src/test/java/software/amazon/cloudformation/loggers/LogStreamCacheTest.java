@@ -0,0 +1,119 @@
+/*
+* Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License").
+* You may not use this file except in compliance with the License.
+* A copy of the License is located at
+*
+*  http://aws.amazon.com/apache2.0
+*
+* or in the "license" file accompanying this file. This file is distributed
+* on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied. See the License for the specific language governing
+* permissions and limitations under the License.
+*/
+package software.amazon.cloudformation.loggers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+
+public class LogStreamCacheTest {
+
+    private static final String LOG_GROUP_NAME = "log-group-name";
+    private static final String ACCOUNT_ID = "123456789012";
+    private static final Instant NOW = Instant.parse("2019-06-04T17:50:00Z");
+
+    private final AtomicInteger preparations = new AtomicInteger();
+
+    private final Supplier<String> preparer = () -> "log-stream-" + preparations.incrementAndGet();
+
+    @Test
+    public void testLogStreamReusedWithinTimeToLive() {
+        final LogStreamCache cache = new LogStreamCache(Duration.ofHours(1), Clock.fixed(NOW, ZoneOffset.UTC));
+
+        final CompletableFuture<String> first = cache.getLogStream(LOG_GROUP_NAME, ACCOUNT_ID, preparer);
+        final CompletableFuture<String> second = cache.getLogStream(LOG_GROUP_NAME, ACCOUNT_ID, preparer);
+
+        assertThat(second).isSameAs(first);
+        assertThat(first.join()).isEqualTo("log-stream-1");
+        assertThat(preparations.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testLogStreamPreparedAgainAfterTimeToLive() {
+        final MutableClock clock = new MutableClock(NOW);
+        final LogStreamCache cache = new LogStreamCache(Duration.ofHours(1), clock);
+
+        assertThat(cache.getLogStream(LOG_GROUP_NAME, ACCOUNT_ID, preparer).join()).isEqualTo("log-stream-1");
+        clock.instant = NOW.plus(Duration.ofMinutes(59));
+        assertThat(cache.getLogStream(LOG_GROUP_NAME, ACCOUNT_ID, preparer).join()).isEqualTo("log-stream-1");
+        clock.instant = NOW.plus(Duration.ofHours(1));
+        assertThat(cache.getLogStream(LOG_GROUP_NAME, ACCOUNT_ID, preparer).join()).isEqualTo("log-stream-2");
+    }
+
+    @Test
+    public void testFailedPreparationRetried() {
+        final LogStreamCache cache = new LogStreamCache(Duration.ofHours(1), Clock.fixed(NOW, ZoneOffset.UTC));
+
+        assertThat(cache.getLogStream(LOG_GROUP_NAME, ACCOUNT_ID, () -> null).join()).isNull();
+        assertThat(cache.getLogStream(LOG_GROUP_NAME, ACCOUNT_ID, () -> {
+            throw new RuntimeException("AccessDenied");
+        }).join()).isNull();
+        assertThat(cache.getLogStream(LOG_GROUP_NAME, ACCOUNT_ID, preparer).join()).isEqualTo("log-stream-1");
+    }
+
+    @Test
+    public void testLogStreamsKeyedByAccount() {
+        final LogStreamCache cache = new LogStreamCache(Duration.ofHours(1), Clock.fixed(NOW, ZoneOffset.UTC));
+
+        assertThat(cache.getLogStream(LOG_GROUP_NAME, ACCOUNT_ID, preparer).join()).isEqualTo("log-stream-1");
+        assertThat(cache.getLogStream(LOG_GROUP_NAME, "210987654321", preparer).join()).isEqualTo("log-stream-2");
+        assertThat(cache.getLogStream("other-log-group-name", ACCOUNT_ID, preparer).join()).isEqualTo("log-stream-3");
+        assertThat(cache.getLogStream(LOG_GROUP_NAME, ACCOUNT_ID, preparer).join()).isEqualTo("log-stream-1");
+    }
+
+    @Test
+    public void testRefreshReplacesMissingLogStream() {
+        final LogStreamCache cache = new LogStreamCache(Duration.ofHours(1), Clock.fixed(NOW, ZoneOffset.UTC));
+
+        final CompletableFuture<String> missing = cache.getLogStream(LOG_GROUP_NAME, ACCOUNT_ID, preparer);
+        missing.join();
+        final CompletableFuture<String> replacement = cache.refresh(LOG_GROUP_NAME, ACCOUNT_ID, missing, preparer);
+        assertThat(replacement.join()).isEqualTo("log-stream-2");
+
+        // a second publisher reporting the same missing stream shares the replacement
+        assertThat(cache.refresh(LOG_GROUP_NAME, ACCOUNT_ID, missing, preparer)).isSameAs(replacement);
+        assertThat(cache.getLogStream(LOG_GROUP_NAME, ACCOUNT_ID, preparer)).isSameAs(replacement);
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant instant;
+
+        private MutableClock(final Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(final ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+* Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License").
+* You may not use this file except in compliance with the License.
+* A copy of the License is located at
+*
+*  http://aws.amazon.com/apache2.0
+*
+* or in the "license" file accompanying this file. This file is distributed
+* on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied. See the License for the specific language governing
+* permissions and limitations under the License.
+*/
+package software.amazon.cloudformation.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.services.cloudwatch.model.Dimension;
+import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
+import software.amazon.cloudformation.Action;
+import software.amazon.cloudformation.HookInvocationPoint;
+import software.amazon.cloudformation.loggers.LogPublisher;
+import software.amazon.cloudformation.proxy.HandlerErrorCode;
+import software.amazon.cloudformation.proxy.Logger;
+
+@ExtendWith(MockitoExtension.class)
+public class EmbeddedMetricFormatTest {
+
+    private static final Instant TIMESTAMP = Instant.parse("2019-06-04T17:50:00Z");
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Mock
+    private Logger loggerProxy;
+
+    @Mock
+    private LogPublisher logPublisher;
+
+    @Test
+    public void testRender() throws IOException {
+        final Dimension action = Dimension.builder().name("Action").value("CREATE").build();
+        final Dimension type = Dimension.builder().name("ResourceType").value("AWS::Test::TestModel").build();
+
+        final List<String> documents = EmbeddedMetricFormat.render("AWS/CloudFormation/AWS/Test/TestModel",
+            Arrays.asList(
+                MetricDatum.builder().metricName("HandlerInvocationCount").unit(StandardUnit.COUNT).value(1.0)
+                    .dimensions(type, action).timestamp(TIMESTAMP).build(),
+                MetricDatum.builder().metricName("HandlerInvocationDuration").unit(StandardUnit.MILLISECONDS).value(12.0)
+                    .dimensions(action, type).timestamp(TIMESTAMP).build(),
+                MetricDatum.builder().metricName("HandlerInvocationDuration").unit(StandardUnit.MILLISECONDS).value(30.0)
+                    .dimensions(action, type).timestamp(TIMESTAMP).build(),
+                MetricDatum.builder().metricName("HandlerInvocationCount").unit(StandardUnit.COUNT).value(1.0).dimensions(type)
+                    .timestamp(TIMESTAMP).build()));
+
+        assertThat(documents).hasSize(2);
+        final JsonNode document = mapper.readTree(documents.get(0));
+        assertThat(document.get("_aws").get("Timestamp").asLong()).isEqualTo(TIMESTAMP.toEpochMilli());
+        final JsonNode directive = document.get("_aws").get("CloudWatchMetrics").get(0);
+        assertThat(directive.get("Namespace").asText()).isEqualTo("AWS/CloudFormation/AWS/Test/TestModel");
+        assertThat(directive.get("Dimensions").toString()).isEqualTo("[[\"Action\",\"ResourceType\"]]");
+        assertThat(directive.get("Metrics").toString()).isEqualTo(
+            "[{\"Name\":\"HandlerInvocationCount\",\"Unit\":\"Count\"},{\"Name\":\"HandlerInvocationDuration\",\"Unit\":\"Milliseconds\"}]");
+        assertThat(document.get("Action").asText()).isEqualTo("CREATE");
+        assertThat(document.get("ResourceType").asText()).isEqualTo("AWS::Test::TestModel");
+        assertThat(document.get("HandlerInvocationCount").asDouble()).isEqualTo(1.0);
+        assertThat(document.get("HandlerInvocationDuration").toString()).isEqualTo("[12.0,30.0]");
+
+        final JsonNode other = mapper.readTree(documents.get(1));
+        assertThat(other.get("_aws").get("CloudWatchMetrics").get(0).get("Dimensions").toString())
+            .isEqualTo("[[\"ResourceType\"]]");
+        assertThat(other.has("Action")).isFalse();
+    }
+
+    @Test
+    public void testResourceAndHookPublishersEmitSameMetricNames() throws IOException {
+        final MetricsPublisherImpl resourcePublisher = new MetricsPublisherImpl(loggerProxy, "AWS::Test::TestModel",
+                                                                                logPublisher);
+        resourcePublisher.refreshClient();
+        resourcePublisher.publishInvocationMetric(TIMESTAMP, Action.CREATE);
+        resourcePublisher.publishDurationMetric(TIMESTAMP, Action.CREATE, 100);
+        resourcePublisher.publishExceptionMetric(TIMESTAMP, Action.CREATE, new RuntimeException(),
+            HandlerErrorCode.InternalFailure);
+        resourcePublisher.publishExceptionByErrorCodeAndCountBulkMetrics(TIMESTAMP, Action.CREATE,
+            HandlerErrorCode.InternalFailure);
+        final Set<String> resourceMetrics = publishedMetricNames("AWS/CloudFormation/AWS/Test/TestModel");
+
+        final HookMetricsPublisherImpl hookPublisher = new HookMetricsPublisherImpl(loggerProxy, "123456789012",
+                                                                                    "AWS::Test::TestHook", logPublisher);
+        hookPublisher.refreshClient();
+        hookPublisher.publishInvocationMetric(TIMESTAMP, HookInvocationPoint.CREATE_PRE_PROVISION);
+        hookPublisher.publishDurationMetric(TIMESTAMP, HookInvocationPoint.CREATE_PRE_PROVISION, 100);
+        hookPublisher.publishExceptionMetric(TIMESTAMP, HookInvocationPoint.CREATE_PRE_PROVISION, new RuntimeException(),
+            HandlerErrorCode.InternalFailure);
+        hookPublisher.publishExceptionByErrorCodeAndCountBulkMetrics(TIMESTAMP, HookInvocationPoint.CREATE_PRE_PROVISION,
+            HandlerErrorCode.InternalFailure);
+        final Set<String> hookMetrics = publishedMetricNames("AWS/CloudFormation/123456789012/AWS/Test/TestHook");
+
+        assertThat(resourceMetrics).containsExactlyInAnyOrder("HandlerInvocationCount", "HandlerInvocationDuration",
+            "HandlerException", "HandlerExceptionByErrorCode", "HandlerExceptionByExceptionCount");
+        assertThat(hookMetrics).isEqualTo(resourceMetrics);
+    }
+
+    private Set<String> publishedMetricNames(final String namespace) throws IOException {
+        final ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(logPublisher, atLeastOnce()).publishLogEvent(captor.capture());
+
+        final Set<String> names = new HashSet<>();
+        for (final String each : captor.getAllValues()) {
+            final JsonNode directive = mapper.readTree(each).get("_aws").get("CloudWatchMetrics").get(0);
+            if (directive.get("Namespace").asText().equals(namespace)) {
+                directive.get("Metrics").forEach(metric -> names.add(metric.get("Name").asText()));
+            }
+        }
+        return names;
+    }
+}
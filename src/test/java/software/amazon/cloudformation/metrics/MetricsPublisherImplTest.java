@@ -17,10 +17,15 @@ package software.amazon.cloudformation.metrics;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -34,6 +39,7 @@ import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
 import software.amazon.awssdk.services.cloudwatch.model.PutMetricDataRequest;
 import software.amazon.awssdk.services.cloudwatch.model.PutMetricDataResponse;
 import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
+import software.amazon.awssdk.services.cloudwatch.model.StatisticSet;
 import software.amazon.cloudformation.Action;
 import software.amazon.cloudformation.injection.CloudWatchProvider;
 import software.amazon.cloudformation.proxy.HandlerErrorCode;
@@ -143,4 +149,136 @@ public class MetricsPublisherImplTest {
         assertThat(metricDatum.dimensions()).containsExactlyInAnyOrder(Dimension.builder().name("Action").value("UPDATE").build(),
             Dimension.builder().name("ResourceType").value(resourceTypeName).build());
     }
+
+    @Test
+    public void testPublishProviderLogQueueMetrics() {
+        final MetricsPublisherImpl providerMetricsPublisher = new MetricsPublisherImpl(providerCloudWatchProvider, loggerProxy,
+                                                                                       resourceTypeName);
+        providerMetricsPublisher.refreshClient();
+
+        final Instant instant = Instant.parse("2019-06-04T17:50:00Z");
+        providerMetricsPublisher.publishProviderLogQueueMetrics(instant, 42, 7L);
+
+        final ArgumentCaptor<PutMetricDataRequest> argument1 = ArgumentCaptor.forClass(PutMetricDataRequest.class);
+        verify(providerCloudWatchClient).putMetricData(argument1.capture());
+
+        final PutMetricDataRequest request = argument1.getValue();
+        assertThat(request.metricData()).hasSize(2);
+        final MetricDatum queueDepth = request.metricData().get(0);
+        assertThat(queueDepth.metricName()).isEqualTo("ProviderLogQueueDepth");
+        assertThat(queueDepth.value()).isEqualTo(42);
+        final MetricDatum droppedEvents = request.metricData().get(1);
+        assertThat(droppedEvents.metricName()).isEqualTo("ProviderLogDroppedEvents");
+        assertThat(droppedEvents.value()).isEqualTo(7);
+        request.metricData().forEach(metricDatum -> {
+            assertThat(metricDatum.unit()).isEqualTo(StandardUnit.COUNT);
+            assertThat(metricDatum.timestamp()).isEqualTo(instant);
+            assertThat(metricDatum.dimensions())
+                .containsExactly(Dimension.builder().name("ResourceType").value(resourceTypeName).build());
+        });
+    }
+
+    @Test
+    public void testPublishRequestRateLimitMetrics() {
+        final MetricsPublisherImpl providerMetricsPublisher = new MetricsPublisherImpl(providerCloudWatchProvider, loggerProxy,
+                                                                                       resourceTypeName);
+        providerMetricsPublisher.refreshClient();
+
+        final Instant instant = Instant.parse("2019-06-04T17:50:00Z");
+        providerMetricsPublisher.publishRequestRateLimitMetrics(instant, "ec2:DescribeInstances", 3, 1500L);
+
+        final ArgumentCaptor<PutMetricDataRequest> argument1 = ArgumentCaptor.forClass(PutMetricDataRequest.class);
+        verify(providerCloudWatchClient).putMetricData(argument1.capture());
+
+        final PutMetricDataRequest request = argument1.getValue();
+        assertThat(request.metricData()).hasSize(2);
+        final MetricDatum permitsWaited = request.metricData().get(0);
+        assertThat(permitsWaited.metricName()).isEqualTo("RequestRateLimitPermitsWaited");
+        assertThat(permitsWaited.unit()).isEqualTo(StandardUnit.COUNT);
+        assertThat(permitsWaited.value()).isEqualTo(3);
+        final MetricDatum waitTime = request.metricData().get(1);
+        assertThat(waitTime.metricName()).isEqualTo("RequestRateLimitWaitTime");
+        assertThat(waitTime.unit()).isEqualTo(StandardUnit.MILLISECONDS);
+        assertThat(waitTime.value()).isEqualTo(1500);
+        request.metricData().forEach(metricDatum -> {
+            assertThat(metricDatum.timestamp()).isEqualTo(instant);
+            assertThat(metricDatum.dimensions()).containsExactlyInAnyOrder(
+                Dimension.builder().name("RequestRateLimit").value("ec2:DescribeInstances").build(),
+                Dimension.builder().name("ResourceType").value(resourceTypeName).build());
+        });
+    }
+
+    @Test
+    public void testPublishSchemaCacheMetrics() {
+        final MetricsPublisherImpl providerMetricsPublisher = new MetricsPublisherImpl(providerCloudWatchProvider, loggerProxy,
+                                                                                       resourceTypeName);
+        providerMetricsPublisher.refreshClient();
+
+        final Instant instant = Instant.parse("2019-06-04T17:50:00Z");
+        providerMetricsPublisher.publishSchemaCacheMetrics(instant, 4, 1);
+
+        final ArgumentCaptor<PutMetricDataRequest> argument1 = ArgumentCaptor.forClass(PutMetricDataRequest.class);
+        verify(providerCloudWatchClient).putMetricData(argument1.capture());
+
+        final PutMetricDataRequest request = argument1.getValue();
+        assertThat(request.metricData()).hasSize(2);
+        final MetricDatum hits = request.metricData().get(0);
+        assertThat(hits.metricName()).isEqualTo("ResourceSchemaCacheHits");
+        assertThat(hits.unit()).isEqualTo(StandardUnit.COUNT);
+        assertThat(hits.value()).isEqualTo(4);
+        final MetricDatum misses = request.metricData().get(1);
+        assertThat(misses.metricName()).isEqualTo("ResourceSchemaCacheMisses");
+        assertThat(misses.unit()).isEqualTo(StandardUnit.COUNT);
+        assertThat(misses.value()).isEqualTo(1);
+        request.metricData().forEach(metricDatum -> {
+            assertThat(metricDatum.timestamp()).isEqualTo(instant);
+            assertThat(metricDatum.dimensions())
+                .containsExactly(Dimension.builder().name("ResourceType").value(resourceTypeName).build());
+        });
+    }
+
+    @Test
+    public void testAggregatingPublisherCoalescesDatums() {
+        final MetricsPublisherImpl providerMetricsPublisher = new MetricsPublisherImpl(providerCloudWatchProvider, loggerProxy,
+                                                                                       resourceTypeName, true);
+        providerMetricsPublisher.refreshClient();
+
+        final Instant instant = Instant.parse("2019-06-04T17:50:00Z");
+        providerMetricsPublisher.publishInvocationMetric(instant, Action.UPDATE);
+        providerMetricsPublisher.publishDurationMetric(instant, Action.UPDATE, 100);
+        providerMetricsPublisher.publishInvocationMetric(instant, Action.UPDATE);
+        providerMetricsPublisher.publishDurationMetric(instant, Action.UPDATE, 300);
+        providerMetricsPublisher.publishExceptionByErrorCodeAndCountBulkMetrics(instant, Action.UPDATE,
+            HandlerErrorCode.InvalidRequest);
+        providerMetricsPublisher.publishExceptionByErrorCodeAndCountBulkMetrics(instant, Action.UPDATE, null);
+
+        verify(providerCloudWatchClient, never()).putMetricData(any(PutMetricDataRequest.class));
+
+        providerMetricsPublisher.flush(Duration.ofSeconds(10));
+
+        final ArgumentCaptor<PutMetricDataRequest> argument1 = ArgumentCaptor.forClass(PutMetricDataRequest.class);
+        verify(providerCloudWatchClient).putMetricData(argument1.capture());
+
+        final PutMetricDataRequest request = argument1.getValue();
+        assertThat(request.namespace()).isEqualTo(String.format("%s/%s", "AWS/CloudFormation", "AWS/Test/TestModel"));
+        assertThat(request.metricData()).hasSize(2 + HandlerErrorCode.values().length + 1);
+
+        final Map<String,
+            List<MetricDatum>> byName = request.metricData().stream().collect(Collectors.groupingBy(MetricDatum::metricName));
+        final MetricDatum invocations = byName.get("HandlerInvocationCount").get(0);
+        assertThat(invocations.value()).isNull();
+        assertThat(invocations.statisticValues())
+            .isEqualTo(StatisticSet.builder().sampleCount(2.0).sum(2.0).minimum(1.0).maximum(1.0).build());
+        final MetricDatum duration = byName.get("HandlerInvocationDuration").get(0);
+        assertThat(duration.statisticValues())
+            .isEqualTo(StatisticSet.builder().sampleCount(2.0).sum(400.0).minimum(100.0).maximum(300.0).build());
+        assertThat(duration.unit()).isEqualTo(StandardUnit.MILLISECONDS);
+        final MetricDatum exceptionCount = byName.get("HandlerExceptionByExceptionCount").get(0);
+        assertThat(exceptionCount.statisticValues())
+            .isEqualTo(StatisticSet.builder().sampleCount(2.0).sum(1.0).minimum(0.0).maximum(1.0).build());
+        assertThat(byName.get("HandlerExceptionByErrorCode")).hasSize(HandlerErrorCode.values().length);
+
+        // the buffer is empty once flushed
+        providerMetricsPublisher.flush(Duration.ofSeconds(10));
+    }
 }
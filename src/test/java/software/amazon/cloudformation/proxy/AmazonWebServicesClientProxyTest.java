@@ -20,6 +20,7 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
@@ -30,15 +31,27 @@ import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.services.cloudformation.AmazonCloudFormation;
 import com.amazonaws.services.cloudformation.model.DescribeStackEventsRequest;
 import com.amazonaws.services.cloudformation.model.DescribeStackEventsResult;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.google.common.base.Ticker;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import org.joda.time.Instant;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
@@ -48,16 +61,22 @@ import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.core.ResponseBytes;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.exception.NonRetryableException;
+import software.amazon.awssdk.core.metrics.CoreMetric;
 import software.amazon.awssdk.core.pagination.sync.SdkIterable;
 import software.amazon.awssdk.http.SdkHttpResponse;
+import software.amazon.awssdk.metrics.MetricCollector;
 import software.amazon.awssdk.services.cloudformation.CloudFormationAsyncClient;
 import software.amazon.awssdk.services.cloudformation.CloudFormationClient;
 import software.amazon.awssdk.services.cloudformation.model.DescribeStackEventsResponse;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
 import software.amazon.awssdk.services.s3.paginators.ListObjectsV2Iterable;
+import software.amazon.cloudformation.exceptions.CfnGeneralServiceException;
+import software.amazon.cloudformation.exceptions.CfnThrottlingException;
 import software.amazon.cloudformation.exceptions.ResourceAlreadyExistsException;
 import software.amazon.cloudformation.exceptions.TerminalException;
+import software.amazon.cloudformation.proxy.delay.Adaptive;
 import software.amazon.cloudformation.proxy.delay.Constant;
 import software.amazon.cloudformation.proxy.handler.Model;
 import software.amazon.cloudformation.proxy.service.AccessDenied;
@@ -69,6 +88,7 @@ import software.amazon.cloudformation.proxy.service.DescribeResponse;
 import software.amazon.cloudformation.proxy.service.NotFoundException;
 import software.amazon.cloudformation.proxy.service.ServiceClient;
 import software.amazon.cloudformation.proxy.service.ThrottleException;
+import software.amazon.cloudformation.resource.Serializer;
 
 public class AmazonWebServicesClientProxyTest {
     //
@@ -221,6 +241,69 @@ public class AmazonWebServicesClientProxyTest {
 
         // ensure the return type matches
         assertThat(result).isEqualTo(response);
+
+        // no page is fetched or logged until the SDK reports one
+        verify(loggerProxy, times(0)).log(any(String.class));
+        final ArgumentCaptor<
+            AwsRequestOverrideConfiguration> configuration = ArgumentCaptor.forClass(AwsRequestOverrideConfiguration.class);
+        verify(builder).overrideConfiguration(configuration.capture());
+        assertThat(configuration.getValue().credentialsProvider()).isPresent();
+        assertThat(configuration.getValue().metricPublishers()).hasSize(1);
+
+        // the request id of the last attempt is logged for each page fetched
+        final MetricCollector page = MetricCollector.create("ApiCall");
+        page.reportMetric(CoreMetric.API_CALL_SUCCESSFUL, true);
+        page.createChild("ApiCallAttempt").reportMetric(CoreMetric.AWS_REQUEST_ID, "retried");
+        page.createChild("ApiCallAttempt").reportMetric(CoreMetric.AWS_REQUEST_ID, "page-1");
+        configuration.getValue().metricPublishers().get(0).publish(page.collect());
+        verify(loggerProxy).log(String.format("{\"apiRequest\": {\"requestId\": \"page-1\", \"requestName\": \"%s\"}}",
+            request.getClass().getSimpleName()));
+
+        // failed pages are propagated to the caller rather than logged
+        final MetricCollector failed = MetricCollector.create("ApiCall");
+        failed.reportMetric(CoreMetric.API_CALL_SUCCESSFUL, false);
+        configuration.getValue().metricPublishers().get(0).publish(failed.collect());
+        verify(loggerProxy, times(1)).log(any(String.class));
+    }
+
+    @Test
+    public void testInjectCredentialsAndStreamV2() {
+        final LoggerProxy loggerProxy = mock(LoggerProxy.class);
+        final AmazonWebServicesClientProxy proxy = new AmazonWebServicesClientProxy(loggerProxy, MOCK, () -> 1000L);
+        final ServiceClient client = mock(ServiceClient.class);
+        when(client.serviceName()).thenReturn("repositoryService");
+        final ProxyClient<ServiceClient> svcClient = proxy.newProxy(() -> client);
+        final int[] fetched = { 0 };
+        final Function<DescribeRequest, SdkIterable<DescribeResponse>> paginator = r -> () -> new Iterator<DescribeResponse>() {
+            @Override
+            public boolean hasNext() {
+                return fetched[0] < 5;
+            }
+
+            @Override
+            public DescribeResponse next() {
+                fetched[0]++;
+                return new DescribeResponse.Builder().repoName(r.getRepoName() + "-" + fetched[0]).build();
+            }
+        };
+        final DescribeRequest request = new DescribeRequest.Builder().repoName("repo").build();
+
+        final SdkIterable<DescribeResponse> pages = svcClient.injectCredentialsAndStreamV2(request, paginator);
+        assertThat(fetched[0]).isZero();
+        verify(loggerProxy, times(0)).log(any(String.class));
+
+        final Iterator<DescribeResponse> iterator = pages.iterator();
+        assertThat(iterator.next().getRepoName()).isEqualTo("repo-1");
+        assertThat(iterator.next().getRepoName()).isEqualTo("repo-2");
+        // only the pages taken were fetched and logged
+        assertThat(fetched[0]).isEqualTo(2);
+        verify(loggerProxy, times(2)).log(any(String.class));
+
+        fetched[0] = 0;
+        final SdkIterable<DescribeResponse> bounded = svcClient.injectCredentialsAndStreamV2(request, paginator, 3);
+        assertThat(bounded.stream().map(DescribeResponse::getRepoName)).containsExactly("repo-1", "repo-2", "repo-3");
+        assertThat(fetched[0]).isEqualTo(3);
+        assertThrows(IllegalArgumentException.class, () -> proxy.injectCredentialsAndStreamV2(request, paginator, 0));
     }
 
     @Test
@@ -629,6 +712,58 @@ public class AmazonWebServicesClientProxyTest {
         assertThat(describeResponses[0]).isSameAs(objToCmp);
     }
 
+    @Test
+    public void adaptiveBackoffFollowsThrottling() {
+        final List<Duration> waits = new ArrayList<>();
+        final WaitStrategy recording = new WaitStrategy() {
+            @Override
+            public <ModelT, CallbackT>
+                ProgressEvent<ModelT, CallbackT>
+                await(long operationElapsedTime, Duration nextAttempt, CallbackT context, ModelT model) {
+                waits.add(nextAttempt);
+                return null;
+            }
+        };
+        final AmazonWebServicesClientProxy proxy = new AmazonWebServicesClientProxy(mock(LoggerProxy.class), MOCK,
+                                                                                    DelayFactory.CONSTANT_DEFAULT_DELAY_FACTORY,
+                                                                                    recording);
+        final Model model = Model.builder().repoName("NewRepo").build();
+        final StdCallbackContext context = new StdCallbackContext();
+        final ServiceClient client = mock(ServiceClient.class);
+        when(client.createRepository(any(CreateRequest.class)))
+            .thenReturn(new CreateResponse.Builder().repoName(model.getRepoName()).build());
+        final ProxyClient<ServiceClient> svcClient = proxy.newProxy(() -> client);
+        final SdkHttpResponse sdkHttpResponse = mock(SdkHttpResponse.class);
+        when(sdkHttpResponse.statusCode()).thenReturn(429);
+        final int[] throttles = { 3 };
+
+        final ProgressEvent<Model,
+            StdCallbackContext> result = proxy.initiate("client:createRepository", svcClient, model, context)
+                .translateToServiceRequest(m -> new CreateRequest.Builder().repoName(m.getRepoName()).build())
+                .backoffDelay(Adaptive.of().context(context).maxDelay(Duration.ofSeconds(6))
+                    .delay(Constant.of().delay(Duration.ofSeconds(1)).timeout(Duration.ofMinutes(1)).build()).build())
+                .makeServiceCall((r, c) -> {
+                    if (throttles[0]-- > 0) {
+                        throw new ThrottleException(AwsServiceException.builder()) {
+                            private static final long serialVersionUID = 1L;
+
+                            @Override
+                            public AwsErrorDetails awsErrorDetails() {
+                                return AwsErrorDetails.builder().errorCode("ThrottleException")
+                                    .errorMessage("Temporary Limit Exceeded").sdkHttpResponse(sdkHttpResponse).build();
+                            }
+                        };
+                    }
+                    return c.injectCredentialsAndInvokeV2(r, c.client()::createRepository);
+                }).done(ign -> ProgressEvent.success(model, context));
+
+        assertThat(result.isSuccess()).isTrue();
+        // doubled for each throttle, capped at the max delay
+        assertThat(waits).containsExactly(Duration.ofSeconds(2), Duration.ofSeconds(4), Duration.ofSeconds(6));
+        // the successful call halved the waits again
+        assertThat(context.adaptiveBackoff()).isEqualTo(2);
+    }
+
     @Test
     public void throttledExceedRuntimeBailout() {
         final AmazonWebServicesClientProxy proxy = new AmazonWebServicesClientProxy(mock(LoggerProxy.class), MOCK,
@@ -693,6 +828,99 @@ public class AmazonWebServicesClientProxyTest {
         assertThat(result.getStatus()).isEqualTo(OperationStatus.SUCCESS);
     }
 
+    @Test
+    public void asyncServiceCallsOverlap() {
+        final AmazonWebServicesClientProxy proxy = new AmazonWebServicesClientProxy(mock(LoggerProxy.class), MOCK,
+                                                                                    () -> Duration.ofMinutes(1).toMillis());
+        final Model model = Model.builder().repoName("NewRepo").build();
+        final StdCallbackContext context = new StdCallbackContext();
+        final ProxyClient<ServiceClient> svcClient = proxy.newProxy(() -> mock(ServiceClient.class));
+        final CompletableFuture<CreateResponse> first = new CompletableFuture<>();
+        final CompletableFuture<CreateResponse> second = new CompletableFuture<>();
+
+        final CompletableFuture<ProgressEvent<Model, StdCallbackContext>> one = proxy
+            .initiate("client:createRepository", svcClient, model, context)
+            .translateToServiceRequest(m -> new CreateRequest.Builder().repoName("one").build())
+            .makeServiceCallAsync((r, c) -> first).doneAsync((request, response, c, m, cxt) -> ProgressEvent.progress(m, cxt));
+        final CompletableFuture<ProgressEvent<Model, StdCallbackContext>> two = proxy
+            .initiate("client:createRepository", svcClient, model, context)
+            .translateToServiceRequest(m -> new CreateRequest.Builder().repoName("two").build())
+            .makeServiceCallAsync((r, c) -> second).doneAsync((request, response, c, m, cxt) -> ProgressEvent.progress(m, cxt));
+        assertThat(one.isDone()).isFalse();
+        assertThat(two.isDone()).isFalse();
+
+        second.complete(new CreateResponse.Builder().repoName("two").build());
+        assertThat(two.join().isInProgress()).isTrue();
+        assertThat(one.isDone()).isFalse();
+        first.complete(new CreateResponse.Builder().repoName("one").build());
+        assertThat(one.join().isInProgress()).isTrue();
+
+        final List<CreateResponse> responses = context.findAllResponseByContains("client:createRepository");
+        assertThat(responses).containsExactlyInAnyOrder(new CreateResponse.Builder().repoName("one").build(),
+            new CreateResponse.Builder().repoName("two").build());
+    }
+
+    @Test
+    public void asyncServiceCallWithStabilization() {
+        final WaitStrategy noWait = new WaitStrategy() {
+            @Override
+            public <ModelT, CallbackT>
+                ProgressEvent<ModelT, CallbackT>
+                await(long operationElapsedTime, Duration nextAttempt, CallbackT context, ModelT model) {
+                return null;
+            }
+        };
+        final AmazonWebServicesClientProxy proxy = new AmazonWebServicesClientProxy(mock(LoggerProxy.class), MOCK,
+                                                                                    DelayFactory.CONSTANT_DEFAULT_DELAY_FACTORY,
+                                                                                    noWait);
+        final Model model = Model.builder().repoName("NewRepo").build();
+        final StdCallbackContext context = new StdCallbackContext();
+        final ServiceClient client = mock(ServiceClient.class);
+        when(client.createRepository(any(CreateRequest.class)))
+            .thenReturn(new CreateResponse.Builder().repoName(model.getRepoName()).build());
+        final ProxyClient<ServiceClient> svcClient = proxy.newProxy(() -> client);
+        final int[] attempt = { 2 };
+
+        final ProgressEvent<Model, StdCallbackContext> result = proxy
+            .initiate("client:createRepository", svcClient, model, context)
+            .translateToServiceRequest(m -> new CreateRequest.Builder().repoName(m.getRepoName()).build())
+            .backoffDelay(Constant.of().delay(Duration.ofSeconds(5)).timeout(Duration.ofSeconds(30)).build())
+            .makeServiceCallAsync(
+                (r, c) -> CompletableFuture.supplyAsync(() -> c.injectCredentialsAndInvokeV2(r, c.client()::createRepository)))
+            .stabilize((request, response, client1, model1, context1) -> attempt[0]-- <= 0)
+            .doneAsync((request, response, c, m, cxt) -> ProgressEvent.success(m, cxt)).join();
+
+        assertThat(result.isSuccess()).isTrue();
+        verify(client).createRepository(any(CreateRequest.class));
+    }
+
+    @Test
+    public void asyncServiceCallFailures() {
+        final AmazonWebServicesClientProxy proxy = new AmazonWebServicesClientProxy(mock(LoggerProxy.class), MOCK,
+                                                                                    () -> Duration.ofMinutes(1).toMillis());
+        final Model model = Model.builder().repoName("NewRepo").build();
+        final StdCallbackContext context = new StdCallbackContext();
+        final ProxyClient<ServiceClient> svcClient = proxy.newProxy(() -> mock(ServiceClient.class));
+
+        final ProgressEvent<Model,
+            StdCallbackContext> failed = proxy.initiate("client:createRepository", svcClient, model, context)
+                .translateToServiceRequest(m -> new CreateRequest.Builder().repoName(m.getRepoName()).build())
+                .makeServiceCallAsync((r, c) -> CompletableFuture.<CreateResponse>failedFuture(new RuntimeException("failed")))
+                .done(r -> ProgressEvent.success(model, context));
+        assertThat(failed.isFailed()).isTrue();
+        assertThat(failed.getErrorCode()).isEqualTo(HandlerErrorCode.InternalFailure);
+        // failed requests are not remembered
+        assertThat(context.<CreateRequest>findFirstRequestByContains("client:createRepository")).isNull();
+        assertThat(context.<CreateResponse>findFirstResponseByContains("client:createRepository")).isNull();
+
+        assertThrows(CfnGeneralServiceException.class,
+            () -> proxy.initiate("client:createRepository", svcClient, model, context)
+                .translateToServiceRequest(m -> new CreateRequest.Builder().repoName(m.getRepoName()).build())
+                .makeServiceCallAsync(
+                    (r, c) -> CompletableFuture.<CreateResponse>failedFuture(new CfnGeneralServiceException("createRepository")))
+                .done(r -> ProgressEvent.success(model, context)));
+    }
+
     @Test
     public void serviceCallWithFilterException() {
         final AmazonWebServicesClientProxy proxy = new AmazonWebServicesClientProxy(mock(LoggerProxy.class), MOCK,
@@ -856,6 +1084,138 @@ public class AmazonWebServicesClientProxyTest {
         verify(client).createRepository(any(CreateRequest.class));
     }
 
+    @StdCallbackContext.CallGraphRetention(discardCompleted = true)
+    public static class DiscardingCallbackContext extends StdCallbackContext {
+    }
+
+    @Test
+    public void discardOnDone() {
+        AmazonWebServicesClientProxy proxy = new AmazonWebServicesClientProxy(mock(LoggerProxy.class), MOCK,
+                                                                              () -> Duration.ofSeconds(1).toMillis());
+        final Model model = Model.builder().repoName("NewRepo").build();
+        final StdCallbackContext context = new StdCallbackContext();
+        final ServiceClient client = mock(ServiceClient.class);
+        when(client.createRepository(any(CreateRequest.class)))
+            .thenReturn(new CreateResponse.Builder().repoName(model.getRepoName()).build());
+        when(client.serviceName()).thenReturn("repositoryService");
+
+        final CallChain.Initiator<ServiceClient, Model,
+            StdCallbackContext> initiator = proxy.newInitiator(() -> client, model, context);
+        final CreateRequest createRepository = new CreateRequest.Builder().repoName("NewRepo").build();
+        ProgressEvent<Model,
+            StdCallbackContext> result = initiator.translateToServiceRequest(m -> createRepository)
+                .makeServiceCall((r, c) -> c.injectCredentialsAndInvokeV2(r, c.client()::createRepository)).discardOnDone()
+                .done(r -> ProgressEvent.progress(model, context));
+        assertThat(result.isInProgress()).isTrue();
+        assertThat(context.callGraphs().keySet()).hasSize(1).allMatch(key -> key.endsWith(".completed"));
+
+        // replayed on the next invocation, the call is not made again
+        ProgressEvent<Model,
+            StdCallbackContext> replayed = initiator.translateToServiceRequest(m -> createRepository)
+                .makeServiceCall((r, c) -> c.injectCredentialsAndInvokeV2(r, c.client()::createRepository)).discardOnDone()
+                .done(r -> ProgressEvent.failed(model, context, HandlerErrorCode.InternalFailure, "not expected"));
+        assertThat(replayed.isInProgress()).isTrue();
+        assertThat(context.callGraphs()).hasSize(1);
+        verify(client).createRepository(any(CreateRequest.class));
+    }
+
+    @StdCallbackContext.CallGraphRetention(maxBytes = 1)
+    public static class TinyBudgetCallbackContext extends StdCallbackContext {
+    }
+
+    @Test
+    public void budgetDropsDoneStepsOnly() {
+        AmazonWebServicesClientProxy proxy = new AmazonWebServicesClientProxy(mock(LoggerProxy.class), MOCK,
+                                                                              () -> Duration.ofSeconds(1).toMillis());
+        final Model model = Model.builder().repoName("NewRepo").build();
+        final TinyBudgetCallbackContext context = new TinyBudgetCallbackContext();
+        final ServiceClient client = mock(ServiceClient.class);
+        when(client.createRepository(any(CreateRequest.class)))
+            .thenReturn(new CreateResponse.Builder().repoName(model.getRepoName()).build());
+        when(client.serviceName()).thenReturn("repositoryService");
+
+        final CallChain.Initiator<ServiceClient, Model,
+            TinyBudgetCallbackContext> initiator = proxy.newInitiator(() -> client, model, context);
+        final CreateRequest createRepository = new CreateRequest.Builder().repoName("NewRepo").build();
+        // over budget while in flight, the response is kept until the step is done
+        ProgressEvent<Model,
+            TinyBudgetCallbackContext> result = initiator.translateToServiceRequest(m -> createRepository)
+                .makeServiceCall((r, c) -> c.injectCredentialsAndInvokeV2(r, c.client()::createRepository))
+                .done(r -> ProgressEvent.progress(r.getRepoName().equals("NewRepo") ? model : null, context));
+        assertThat(result.getResourceModel()).isSameAs(model);
+        assertThat(context.callGraphs().keySet()).hasSize(1).allMatch(key -> key.endsWith(".completed"));
+
+        // dropped once done, the step is skipped rather than made again
+        result = initiator.translateToServiceRequest(m -> createRepository)
+            .makeServiceCall((r, c) -> c.injectCredentialsAndInvokeV2(r, c.client()::createRepository))
+            .done(r -> ProgressEvent.failed(model, context, HandlerErrorCode.InternalFailure, "not expected"));
+        assertThat(result.isInProgress()).isTrue();
+        verify(client).createRepository(any(CreateRequest.class));
+    }
+
+    @Test
+    public void discardCompletedRetention() {
+        AmazonWebServicesClientProxy proxy = new AmazonWebServicesClientProxy(mock(LoggerProxy.class), MOCK,
+                                                                              () -> Duration.ofSeconds(1).toMillis());
+        final Model model = Model.builder().repoName("NewRepo").build();
+        final DiscardingCallbackContext context = new DiscardingCallbackContext();
+        final ServiceClient client = mock(ServiceClient.class);
+        when(client.createRepository(any(CreateRequest.class))).thenThrow(new RuntimeException("failed"))
+            .thenReturn(new CreateResponse.Builder().repoName(model.getRepoName()).build());
+        when(client.serviceName()).thenReturn("repositoryService");
+
+        final CallChain.Initiator<ServiceClient, Model,
+            DiscardingCallbackContext> initiator = proxy.newInitiator(() -> client, model, context);
+        // failed calls are not discarded, the step is made again
+        ProgressEvent<Model,
+            DiscardingCallbackContext> result = initiator
+                .translateToServiceRequest(m -> new CreateRequest.Builder().repoName("NewRepo").build())
+                .makeServiceCall((r, c) -> c.injectCredentialsAndInvokeV2(r, c.client()::createRepository)).progress();
+        assertThat(result.isFailed()).isTrue();
+        assertThat(context.callGraphs().keySet()).noneMatch(key -> key.endsWith(".completed"));
+
+        result = initiator.translateToServiceRequest(m -> new CreateRequest.Builder().repoName("NewRepo").build())
+            .makeServiceCall((r, c) -> c.injectCredentialsAndInvokeV2(r, c.client()::createRepository)).progress();
+        assertThat(result.isInProgress()).isTrue();
+        assertThat(context.callGraphs().keySet()).hasSize(1).allMatch(key -> key.endsWith(".completed"));
+        verify(client, times(2)).createRepository(any(CreateRequest.class));
+    }
+
+    @Test
+    public void resumesFromHashCodeNamedCallGraph() throws Exception {
+        final AmazonWebServicesClientProxy proxy = new AmazonWebServicesClientProxy(mock(LoggerProxy.class), MOCK,
+                                                                                    () -> Duration.ofMinutes(1).toMillis());
+        final Model model = Model.builder().repoName("NewRepo").build();
+        final ServiceClient client = mock(ServiceClient.class);
+        when(client.serviceName()).thenReturn("repositoryService");
+        final CreateRequest createRepository = new CreateRequest.Builder().repoName("NewRepo").build();
+
+        // serialized before call graphs were named by the request fingerprint, the
+        // create was made and the step was stabilizing
+        final String legacy = "repositoryService:Create-client:createRepository-" + Objects.hashCode(createRepository);
+        final LinkedHashMap<String, Object> callGraphs = new LinkedHashMap<>();
+        callGraphs.put(legacy + ".response", "NewRepo");
+        callGraphs.put(legacy + ".attempts", 3);
+        final StdCallbackContext serialized = new StdCallbackContext();
+        serialized.setCallGraphs(callGraphs);
+        final Serializer serializer = new Serializer();
+        final StdCallbackContext context = serializer.deserialize(serializer.serialize(serialized),
+            new TypeReference<StdCallbackContext>() {
+            });
+
+        final ProgressEvent<Model,
+            StdCallbackContext> result = proxy.initiate("client:createRepository", proxy.newProxy(() -> client), model, context)
+                .translateToServiceRequest(m -> createRepository)
+                .makeServiceCall((r, c) -> c.injectCredentialsAndInvokeV2(r, c.client()::createRepository).getRepoName())
+                .stabilize((request, response, client1, model1, context1) -> "NewRepo".equals(response)).progress();
+
+        assertThat(result.isInProgress()).isTrue();
+        verify(client, times(0)).createRepository(any(CreateRequest.class));
+        final String callGraph = "repositoryService:Create-client:createRepository-" + RequestFingerprint.of(createRepository);
+        assertThat(context.<String>response(callGraph)).isEqualTo("NewRepo");
+        assertThat(context.callGraphs().keySet()).noneMatch(key -> key.startsWith(legacy + "."));
+    }
+
     @Test
     public void automaticNamedUniqueRequests() {
         AmazonWebServicesClientProxy proxy = new AmazonWebServicesClientProxy(mock(LoggerProxy.class), MOCK,
@@ -920,4 +1280,259 @@ public class AmazonWebServicesClientProxyTest {
         assertThat(result).isNotNull();
 
     }
+
+    @Test
+    public void requestRateLimits() throws Exception {
+        final RequestRateLimiter limiter = new RequestRateLimiter(Collections.singletonMap("repositoryService:Create", 2));
+        final AmazonWebServicesClientProxy proxy = new AmazonWebServicesClientProxy(mock(LoggerProxy.class), MOCK,
+                                                                                    DelayFactory.CONSTANT_DEFAULT_DELAY_FACTORY,
+                                                                                    WaitStrategy.scheduleForCallbackStrategy(),
+                                                                                    limiter);
+        final ServiceClient client = mock(ServiceClient.class);
+        when(client.serviceName()).thenReturn("repositoryService");
+        when(client.createRepository(any(CreateRequest.class)))
+            .thenAnswer(invocation -> new CreateResponse.Builder().repoName("NewRepo").build());
+        when(client.describeRepository(any(DescribeRequest.class)))
+            .thenReturn(new DescribeResponse.Builder().repoName("NewRepo").build());
+        final ProxyClient<ServiceClient> svcClient = proxy.newProxy(() -> client);
+        final CreateRequest request = new CreateRequest.Builder().repoName("NewRepo").build();
+
+        final long started = System.nanoTime();
+        svcClient.injectCredentialsAndInvokeV2(request, svcClient.client()::createRepository);
+        svcClient.injectCredentialsAndInvokeV2(request, svcClient.client()::createRepository);
+        svcClient.injectCredentialsAndInvokeV2(new DescribeRequest.Builder().repoName("NewRepo").build(),
+            svcClient.client()::describeRepository);
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofMillis(400));
+
+        svcClient.injectCredentialsAndInvokeV2(request, svcClient.client()::createRepository);
+        final CompletableFuture<CreateResponse> async = svcClient.injectCredentialsAndInvokeV2Async(request,
+            r -> CompletableFuture.completedFuture(client.createRepository(r)));
+        // the asynchronous call is scheduled instead of blocking the caller
+        assertThat(async.isDone()).isFalse();
+        assertThat(async.get()).isNotNull();
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isGreaterThanOrEqualTo(Duration.ofMillis(900));
+
+        final Map<String, RequestRateLimiter.Waits> waits = limiter.drainWaits();
+        assertThat(waits).containsOnlyKeys("repositoryService:Create");
+        assertThat(waits.get("repositoryService:Create").getPermitsWaited()).isEqualTo(2);
+        verify(client, times(4)).createRepository(any(CreateRequest.class));
+    }
+
+    @Test
+    public void requestRateLimitsWithinDeadline() {
+        final Ticker frozen = new Ticker() {
+            @Override
+            public long read() {
+                return 0L;
+            }
+        };
+        final RequestRateLimiter limiter = new RequestRateLimiter(Collections.singletonMap("repositoryService", 1), frozen);
+        final AmazonWebServicesClientProxy proxy = new AmazonWebServicesClientProxy(mock(LoggerProxy.class), MOCK,
+                                                                                    DelayFactory.CONSTANT_DEFAULT_DELAY_FACTORY,
+                                                                                    WaitStrategy.scheduleForCallbackStrategy(),
+                                                                                    limiter, () -> 1500L);
+        final ServiceClient client = mock(ServiceClient.class);
+        when(client.serviceName()).thenReturn("repositoryService");
+        when(client.createRepository(any(CreateRequest.class)))
+            .thenReturn(new CreateResponse.Builder().repoName("NewRepo").build());
+        final AtomicInteger clients = new AtomicInteger();
+        final ProxyClient<ServiceClient> svcClient = proxy.newProxy(() -> {
+            clients.incrementAndGet();
+            return client;
+        });
+        final CreateRequest request = new CreateRequest.Builder().repoName("NewRepo").build();
+
+        svcClient.injectCredentialsAndInvokeV2(request, client::createRepository);
+        // the next permit is a second away, too late to leave time for the request
+        final CfnThrottlingException throttled = assertThrows(CfnThrottlingException.class,
+            () -> svcClient.injectCredentialsAndInvokeV2(request, client::createRepository));
+        assertThat(throttled.getErrorCode()).isEqualTo(HandlerErrorCode.Throttling);
+        assertThrows(CfnThrottlingException.class,
+            () -> svcClient.injectCredentialsAndInvokeV2Async(request, r -> CompletableFuture.completedFuture(null)));
+        verify(client, times(1)).createRepository(any(CreateRequest.class));
+
+        // the refused requests took no permit, and the service name was read once
+        assertThat(limiter.reserve("repositoryService", "Create")).isEqualTo(Duration.ofSeconds(1));
+        assertThat(clients.get()).isEqualTo(1);
+        verify(client, times(1)).serviceName();
+    }
+
+    @Test
+    public void requestRateLimitsEachPage() {
+        final Ticker frozen = new Ticker() {
+            @Override
+            public long read() {
+                return 0L;
+            }
+        };
+        final RequestRateLimiter limiter = new RequestRateLimiter(Collections.singletonMap("s3:ListObjectsV2", 100), frozen);
+        final software.amazon.awssdk.services.s3.model.ListObjectsV2Request request = software.amazon.awssdk.services.s3.model.ListObjectsV2Request
+            .builder().bucket("bucket").build();
+        // use up the burst, each later permit waits
+        for (int i = 0; i < 100; i++) {
+            assertThat(limiter.reserve("s3", "ListObjectsV2")).isEqualTo(Duration.ZERO);
+        }
+        final AmazonWebServicesClientProxy proxy = new AmazonWebServicesClientProxy(mock(LoggerProxy.class), MOCK,
+                                                                                    DelayFactory.CONSTANT_DEFAULT_DELAY_FACTORY,
+                                                                                    WaitStrategy.scheduleForCallbackStrategy(),
+                                                                                    limiter);
+        final S3Client client = mock(S3Client.class);
+        when(client.serviceName()).thenReturn("s3");
+        final ProxyClient<S3Client> svcClient = proxy.newProxy(() -> client);
+
+        final SdkIterable<ListObjectsV2Response> pages = () -> Arrays
+            .asList(ListObjectsV2Response.builder().build(), ListObjectsV2Response.builder().build()).iterator();
+        final SdkIterable<ListObjectsV2Response> streamed = svcClient.injectCredentialsAndStreamV2(request, r -> pages);
+        assertThat(limiter.drainWaits()).isEmpty();
+        streamed.forEach(page -> {
+        });
+        assertThat(limiter.drainWaits().get("s3:ListObjectsV2").getPermitsWaited()).isEqualTo(2);
+
+        // the SDK resolves the credentials once for each page it fetches
+        final ListObjectsV2Iterable paginator = mock(ListObjectsV2Iterable.class);
+        final ArgumentCaptor<software.amazon.awssdk.services.s3.model.ListObjectsV2Request> sent = ArgumentCaptor
+            .forClass(software.amazon.awssdk.services.s3.model.ListObjectsV2Request.class);
+        when(client.listObjectsV2Paginator(sent.capture())).thenReturn(paginator);
+        svcClient.injectCredentialsAndInvokeIterableV2(request, svcClient.client()::listObjectsV2Paginator);
+        assertThat(limiter.drainWaits()).isEmpty();
+        final AwsCredentialsProvider credentials = sent.getValue().overrideConfiguration().get().credentialsProvider().get();
+        assertThat(credentials.resolveCredentials().accessKeyId()).isEqualTo(MOCK.getAccessKeyId());
+        credentials.resolveCredentials();
+        assertThat(limiter.drainWaits().get("s3:ListObjectsV2").getPermitsWaited()).isEqualTo(2);
+    }
+
+    @Test
+    public void sharedOverrideConfiguration() {
+        final AmazonWebServicesClientProxy proxy = new AmazonWebServicesClientProxy(mock(LoggerProxy.class), MOCK, () -> 1000L);
+        final ServiceClient client = mock(ServiceClient.class);
+        final ArgumentCaptor<CreateRequest> sent = ArgumentCaptor.forClass(CreateRequest.class);
+        when(client.createRepository(sent.capture())).thenReturn(new CreateResponse.Builder().repoName("NewRepo").build());
+        final CreateRequest request = new CreateRequest.Builder().repoName("NewRepo").build();
+
+        proxy.injectCredentialsAndInvokeV2(request, client::createRepository);
+        proxy.injectCredentialsAndInvokeV2(request, client::createRepository);
+
+        final List<CreateRequest> requests = sent.getAllValues();
+        assertThat(requests.get(0)).isNotSameAs(request);
+        assertThat(requests.get(0).overrideConfiguration().get()).isSameAs(requests.get(1).overrideConfiguration().get());
+        assertThat(requests.get(0).overrideConfiguration().get().credentialsProvider().get().resolveCredentials())
+            .isEqualTo(MockCreds);
+    }
+
+    @Test
+    public void credentialedProxyPassesRequestsThrough() {
+        final AmazonWebServicesClientProxy proxy = new AmazonWebServicesClientProxy(mock(LoggerProxy.class), MOCK, () -> 1000L);
+        final ServiceClient client = mock(ServiceClient.class);
+        final List<AwsCredentialsProvider> providers = new ArrayList<>();
+        final ProxyClient<ServiceClient> svcClient = proxy.newCredentialedProxy(credentials -> {
+            providers.add(credentials);
+            return client;
+        });
+        final CreateRequest request = new CreateRequest.Builder().repoName("NewRepo").build();
+        when(client.createRepository(same(request))).thenReturn(new CreateResponse.Builder().repoName("NewRepo").build());
+
+        assertThat(providers).isEmpty();
+        svcClient.injectCredentialsAndInvokeV2(request, svcClient.client()::createRepository);
+        svcClient.injectCredentialsAndInvokeV2(request, svcClient.client()::createRepository);
+
+        // the client is created once, with the caller credentials
+        assertThat(providers).hasSize(1);
+        assertThat(providers.get(0).resolveCredentials()).isEqualTo(MockCreds);
+        verify(client, times(2)).createRepository(same(request));
+    }
+
+    @Test
+    public void batchStabilization() {
+        final AmazonWebServicesClientProxy proxy = new AmazonWebServicesClientProxy(mock(LoggerProxy.class), MOCK,
+                                                                                    () -> Duration.ofMinutes(1).toMillis());
+        final Model model = Model.builder().repoName("NewRepo").build();
+        final StdCallbackContext context = new StdCallbackContext();
+        final ProxyClient<ServiceClient> svcClient = proxy.newProxy(() -> mock(ServiceClient.class));
+        final List<Set<String>> polls = new ArrayList<>();
+        final Iterator<List<String>> stable = Arrays
+            .asList(Arrays.asList("repo-2"), Collections.<String>emptyList(), Arrays.asList("repo-1", "repo-3", "unknown"))
+            .iterator();
+
+        final ProgressEvent<Model,
+            StdCallbackContext> result = proxy.newInitiator(svcClient, model, context)
+                .stabilizeBatch("client:describeRepositories", Arrays.asList("repo-1", "repo-2", "repo-3"))
+                .backoffDelay(Constant.of().delay(Duration.ofMillis(10)).timeout(Duration.ofSeconds(10)).build())
+                .stabilize((pending, client, model_, context_) -> {
+                    polls.add(new LinkedHashSet<>(pending));
+                    return stable.next();
+                }).done((items, stabilized, client, model_, context_) -> {
+                    assertThat(stabilized).containsExactly("repo-1", "repo-2", "repo-3");
+                    return ProgressEvent.success(model_, context_);
+                });
+
+        assertThat(result.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        // one poll per cycle, for the items still pending
+        assertThat(polls).containsExactly(new LinkedHashSet<>(Arrays.asList("repo-1", "repo-2", "repo-3")),
+            new LinkedHashSet<>(Arrays.asList("repo-1", "repo-3")), new LinkedHashSet<>(Arrays.asList("repo-1", "repo-3")));
+        assertThat(context.isStabilized("client:describeRepositories", "repo-2")).isTrue();
+        assertThat(context.isStabilized("client:describeRepositories", "unknown")).isFalse();
+    }
+
+    @Test
+    public void batchStabilizationAcrossCallbacks() {
+        final AmazonWebServicesClientProxy proxy = new AmazonWebServicesClientProxy(mock(LoggerProxy.class), MOCK,
+                                                                                    DelayFactory.CONSTANT_DEFAULT_DELAY_FACTORY,
+                                                                                    WaitStrategy.scheduleForCallbackStrategy());
+        final Model model = Model.builder().repoName("NewRepo").build();
+        final StdCallbackContext context = new StdCallbackContext();
+        final ProxyClient<ServiceClient> svcClient = proxy.newProxy(() -> mock(ServiceClient.class));
+        final List<Set<String>> polls = new ArrayList<>();
+        final List<String> items = Arrays.asList("repo-1", "repo-2");
+
+        ProgressEvent<Model,
+            StdCallbackContext> result = proxy.stabilizeBatch("client:describeRepositories", svcClient, model, context, items)
+                .stabilize((pending, client, model_, context_) -> {
+                    polls.add(new LinkedHashSet<>(pending));
+                    return Collections.singletonList("repo-1");
+                }).discardOnDone().progress();
+        assertThat(result.isInProgress()).isTrue();
+        assertThat(result.getCallbackDelaySeconds()).isEqualTo(5);
+
+        // the next invocation polls the pending item only
+        result = proxy.stabilizeBatch("client:describeRepositories", svcClient, model, context, items)
+            .stabilize((pending, client, model_, context_) -> {
+                polls.add(new LinkedHashSet<>(pending));
+                return pending;
+            }).discardOnDone().done(stabilized -> ProgressEvent.success(model, context));
+        assertThat(result.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(polls).containsExactly(new LinkedHashSet<>(items), Collections.singleton("repo-2"));
+        assertThat(context.callGraphs().keySet()).containsExactly("client:describeRepositories.completed");
+
+        // done on an earlier invocation, nothing is polled again
+        result = proxy.stabilizeBatch("client:describeRepositories", svcClient, model, context, items)
+            .stabilize((pending, client, model_, context_) -> {
+                throw new IllegalStateException("not expected");
+            }).discardOnDone().done(stabilized -> ProgressEvent.success(model, context));
+        assertThat(result.isInProgress()).isTrue();
+    }
+
+    @Test
+    public void batchStabilizationFailures() {
+        final AmazonWebServicesClientProxy proxy = new AmazonWebServicesClientProxy(mock(LoggerProxy.class), MOCK,
+                                                                                    () -> Duration.ofMinutes(1).toMillis());
+        final Model model = Model.builder().repoName("NewRepo").build();
+        final StdCallbackContext context = new StdCallbackContext();
+        final ProxyClient<ServiceClient> svcClient = proxy.newProxy(() -> mock(ServiceClient.class));
+        final List<String> items = Arrays.asList("repo-1", "repo-2");
+
+        ProgressEvent<Model,
+            StdCallbackContext> result = proxy.stabilizeBatch("client:describeRepositories", svcClient, model, context, items)
+                .stabilize((pending, client, model_, context_) -> {
+                    throw new RuntimeException("describe failed");
+                }).success();
+        assertThat(result.isFailed()).isTrue();
+        assertThat(result.getErrorCode()).isEqualTo(HandlerErrorCode.InternalFailure);
+
+        // never stable within the timeout
+        result = proxy.stabilizeBatch("client:describeRepositories-never", svcClient, model, context, items)
+            .backoffDelay(Constant.of().delay(Duration.ofMillis(10)).timeout(Duration.ofMillis(50)).build())
+            .stabilize((pending, client, model_, context_) -> Collections.emptyList()).success();
+        assertThat(result.isFailed()).isTrue();
+        assertThat(result.getErrorCode()).isEqualTo(HandlerErrorCode.NotStabilized);
+    }
 }
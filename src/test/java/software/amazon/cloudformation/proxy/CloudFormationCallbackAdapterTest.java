@@ -27,8 +27,10 @@ import static software.amazon.awssdk.services.cloudformation.model.OperationStat
 import static software.amazon.awssdk.services.cloudformation.model.OperationStatus.PENDING;
 import static software.amazon.awssdk.services.cloudformation.model.OperationStatus.SUCCESS;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.Collections;
 import java.util.UUID;
-import org.json.JSONObject;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
@@ -113,7 +115,10 @@ public class CloudFormationCallbackAdapterTest {
         when(response.responseMetadata()).thenReturn(responseMetadata);
 
         when(cloudFormationProvider.get()).thenReturn(client);
+        final ObjectNode model = JsonNodeFactory.instance.objectNode().put("property1", "abc").put("property2", 123);
+        when(serializer.toTree(any())).thenReturn(model);
         when(serializer.serialize(any())).thenReturn("{}");
+        when(resourceTypeSchema.getWriteOnlyPropertiesAsStrings()).thenReturn(Collections.singletonList("/properties/property2"));
 
         when(client.recordHandlerProgress(any(RecordHandlerProgressRequest.class))).thenReturn(response);
 
@@ -135,7 +140,9 @@ public class CloudFormationCallbackAdapterTest {
         assertThat(argument.getValue().currentOperationStatus()).isEqualTo(PENDING);
         assertThat(argument.getValue().statusMessage()).isEqualTo("doing it");
 
-        verify(resourceTypeSchema).removeWriteOnlyProperties(any(JSONObject.class));
+        verify(serializer).serialize(model);
+        assertThat(model.has("property1")).isTrue();
+        assertThat(model.has("property2")).isFalse();
     }
 
     @Test
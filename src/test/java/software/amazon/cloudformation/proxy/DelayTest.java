@@ -16,6 +16,9 @@ package software.amazon.cloudformation.proxy;
 
 import static org.assertj.core.api.Assertions.*;
 import java.time.Duration;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -268,4 +271,199 @@ public class DelayTest {
             }
         }
     }
+
+    @Test
+    public void cappedExponentialMatchesSummation() {
+        final Random random = new Random(20191017L);
+        for (int trial = 0; trial < 100; trial++) {
+            final double powerBy = 1.0 + random.nextInt(21) / 10.0;
+            final long minDelay = random.nextInt(5);
+            final long maxDelay = Math.max(1, minDelay) + random.nextInt(30);
+            final long timeout = minDelay + 1 + random.nextInt(trial % 2 == 0 ? 600 : 100_000);
+            final Delay delay = CappedExponential.of().powerBy(powerBy).minDelay(Duration.ofSeconds(minDelay))
+                .maxDelay(Duration.ofSeconds(maxDelay)).timeout(Duration.ofSeconds(timeout)).build();
+            final String params = delay.toString();
+
+            for (int attempt = 0; attempt <= 14; attempt++) {
+                assertThat(delay.nextDelay(attempt)).as(params + " attempt " + attempt)
+                    .isEqualTo(recursiveCappedExponential(powerBy, minDelay, maxDelay, timeout, attempt));
+            }
+            final long[] expected = summedCappedExponential(powerBy, minDelay, maxDelay, timeout, 3000);
+            for (int attempt = 1; attempt <= 3000; attempt += 1 + random.nextInt(7)) {
+                assertThat(delay.nextDelay(attempt).getSeconds()).as(params + " attempt " + attempt).isEqualTo(expected[attempt]);
+            }
+        }
+        final Delay longRunning = CappedExponential.of().timeout(Duration.ofDays(3)).build();
+        assertThat(longRunning.nextDelay(10_000)).isEqualTo(Duration.ofSeconds(20));
+        assertThat(longRunning.nextDelay(20_000)).isSameAs(Duration.ZERO);
+    }
+
+    @Test
+    public void exponentialMatchesRunningTotal() {
+        final Random random = new Random(20191017L);
+        for (int trial = 0; trial < 200; trial++) {
+            final int powerBy = 2 + random.nextInt(4);
+            final long minDelay = random.nextInt(10);
+            final long timeout = minDelay + 1 + random.nextInt((int) Math.pow(powerBy, 10));
+            final Delay delay = Exponential.of().powerBy(powerBy).minDelay(Duration.ofSeconds(minDelay))
+                .timeout(Duration.ofSeconds(timeout)).build();
+            final int first = random.nextInt(6);
+            long accrued = 0L;
+            for (int attempt = first; attempt <= first + 20; attempt++) {
+                final long next = Math.round(Math.pow(powerBy, attempt));
+                accrued += next;
+                final Duration expected = accrued < minDelay
+                    ? Duration.ofSeconds(minDelay)
+                    : accrued > timeout ? Duration.ZERO : Duration.ofSeconds(next);
+                assertThat(delay.nextDelay(attempt)).as("powerBy " + powerBy + " attempt " + attempt).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    public void multipleOfMatchesRunningTotal() {
+        final Random random = new Random(20191017L);
+        for (int trial = 0; trial < 200; trial++) {
+            final long seconds = 1 + random.nextInt(10);
+            final int multiple = 2 + random.nextInt(4);
+            final long timeout = seconds + random.nextInt(5000);
+            final Delay multipleOf = MultipleOf.multipleOf().delay(Duration.ofSeconds(seconds)).multiple(multiple)
+                .timeout(Duration.ofSeconds(timeout)).build();
+            final Delay shifted = ShiftByMultipleOf.shiftedOf().delay(Duration.ofSeconds(seconds)).multiple(multiple)
+                .timeout(Duration.ofSeconds(timeout)).build();
+            final int first = 1 + random.nextInt(6);
+            long accrued = 0L;
+            for (int attempt = first; attempt <= first + 40; attempt++) {
+                final String params = "delay " + seconds + " multiple " + multiple + " attempt " + attempt;
+                if (attempt < 2) {
+                    accrued = seconds;
+                    assertThat(multipleOf.nextDelay(attempt)).as(params).isEqualTo(Duration.ofSeconds(seconds));
+                    assertThat(shifted.nextDelay(attempt)).as(params).isEqualTo(Duration.ofSeconds(seconds));
+                    continue;
+                }
+                final long next = seconds * (attempt - 1) * multiple;
+                accrued += next;
+                assertThat(multipleOf.nextDelay(attempt)).as(params)
+                    .isEqualTo(accrued > timeout ? Duration.ZERO : Duration.ofSeconds(next));
+                assertThat(shifted.nextDelay(attempt)).as(params)
+                    .isEqualTo(accrued > timeout ? Duration.ZERO : Duration.ofSeconds(accrued));
+            }
+        }
+    }
+
+    @Test
+    public void fullJitterDelays() {
+        final Duration minDelay = Duration.ofSeconds(1);
+        final Duration maxDelay = Duration.ofSeconds(15);
+        final Delay capped = CappedExponential.of().minDelay(minDelay).maxDelay(maxDelay).timeout(Duration.ofMinutes(5)).build();
+        final Delay jittered = FullJitter.fullJitter().minDelay(minDelay).maxDelay(maxDelay).timeout(Duration.ofMinutes(5))
+            .build();
+        final Set<Duration> distinct = new HashSet<>();
+        for (int attempt = 1; attempt <= 40; attempt++) {
+            final Duration upper = capped.nextDelay(attempt);
+            final Duration next = jittered.nextDelay(attempt);
+            if (upper == Duration.ZERO) {
+                assertThat(next).isSameAs(Duration.ZERO);
+                continue;
+            }
+            assertThat(next).isBetween(minDelay, upper);
+            distinct.add(next);
+        }
+        assertThat(distinct.size()).isGreaterThan(1);
+    }
+
+    @Test
+    public void decorrelatedJitterDelays() {
+        final Duration timeout = Duration.ofMinutes(5);
+        for (int trial = 0; trial < 50; trial++) {
+            final Delay capped = CappedExponential.of().powerBy(3.0).minDelay(Duration.ofSeconds(1))
+                .maxDelay(Duration.ofSeconds(30)).timeout(timeout).build();
+            final Delay jittered = DecorrelatedJitter.decorrelatedJitter().minDelay(Duration.ofSeconds(1))
+                .maxDelay(Duration.ofSeconds(30)).timeout(timeout).build();
+            Duration previous = Duration.ofSeconds(1);
+            Duration accrued = Duration.ZERO;
+            int attempt = 1;
+            Duration next;
+            while ((next = jittered.nextDelay(attempt)) != Duration.ZERO) {
+                assertThat(next).isBetween(Duration.ofSeconds(1), capped.nextDelay(attempt));
+                assertThat(next).isLessThanOrEqualTo(previous.multipliedBy(3));
+                previous = next;
+                accrued = accrued.plus(next);
+                attempt++;
+            }
+            // same attempts as the schedule it is bounded by
+            assertThat(capped.nextDelay(attempt)).isSameAs(Duration.ZERO);
+            assertThat(capped.nextDelay(attempt - 1)).isNotSameAs(Duration.ZERO);
+            assertThat(accrued).isLessThanOrEqualTo(timeout);
+        }
+    }
+
+    @Test
+    public void adaptiveDelays() {
+        final StdCallbackContext context = new StdCallbackContext();
+        final Delay delay = Adaptive.of().context(context).maxDelay(Duration.ofSeconds(30))
+            .delay(Constant.of().delay(Duration.ofSeconds(5)).timeout(Duration.ofSeconds(20)).build()).build();
+
+        assertThat(delay.nextDelay(1)).isEqualTo(Duration.ofSeconds(5));
+        context.recordThrottle();
+        assertThat(delay.nextDelay(2)).isEqualTo(Duration.ofSeconds(10));
+        context.recordThrottle();
+        context.recordThrottle();
+        assertThat(delay.nextDelay(3)).isEqualTo(Duration.ofSeconds(30));
+        context.recordSuccess();
+        context.recordSuccess();
+        assertThat(delay.nextDelay(3)).isEqualTo(Duration.ofSeconds(10));
+        context.recordSuccess();
+        context.recordSuccess();
+        assertThat(context.adaptiveBackoff()).isZero();
+        assertThat(delay.nextDelay(4)).isEqualTo(Duration.ofSeconds(5));
+        // the adapted delay decides when to stop
+        context.recordThrottle();
+        assertThat(delay.nextDelay(5)).isSameAs(Duration.ZERO);
+
+        for (int i = 0; i < 20; i++) {
+            context.recordThrottle();
+        }
+        assertThat(context.adaptiveBackoff()).isEqualTo(10);
+        assertThatThrownBy(() -> Adaptive.of().delay(delay).build()).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /*
+     * The summation CappedExponential used to do, calling itself for each of the
+     * attempts before
+     */
+    private static Duration recursiveCappedExponential(double powerBy, long minDelay, long maxDelay, long timeout, int attempt) {
+        Duration next = Duration.ofSeconds(Math.round(Math.pow(powerBy, attempt)));
+        Duration nextDelay = Duration.ofSeconds(Math.min(maxDelay, next.getSeconds()));
+        Duration accrued = Duration.ZERO;
+        for (int i = 1; i <= attempt; i++) {
+            Duration nextDuration = i > 1
+                ? recursiveCappedExponential(powerBy, minDelay, maxDelay, timeout, i - 1)
+                : Duration.ZERO;
+            accrued = accrued.plus(nextDuration);
+        }
+        accrued = accrued.plus(nextDelay);
+        return bounded(accrued.getSeconds(), nextDelay, minDelay, timeout);
+    }
+
+    /*
+     * Same summation with the delays of the attempts before remembered
+     */
+    private static long[] summedCappedExponential(double powerBy, long minDelay, long maxDelay, long timeout, int attempts) {
+        final long[] delays = new long[attempts + 1];
+        long accrued = 0L;
+        for (int attempt = 1; attempt <= attempts; attempt++) {
+            Duration nextDelay = Duration.ofSeconds(Math.min(maxDelay, Math.round(Math.pow(powerBy, attempt))));
+            delays[attempt] = bounded(accrued + nextDelay.getSeconds(), nextDelay, minDelay, timeout).getSeconds();
+            accrued += delays[attempt];
+        }
+        return delays;
+    }
+
+    private static Duration bounded(long accrued, Duration nextDelay, long minDelay, long timeout) {
+        if (accrued < minDelay) {
+            return Duration.ofSeconds(minDelay);
+        }
+        return accrued > timeout ? Duration.ZERO : nextDelay;
+    }
 }
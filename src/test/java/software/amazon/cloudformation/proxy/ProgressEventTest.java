@@ -15,10 +15,19 @@
 package software.amazon.cloudformation.proxy;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import org.junit.jupiter.api.Test;
 import software.amazon.cloudformation.TestContext;
 import software.amazon.cloudformation.TestModel;
+import software.amazon.cloudformation.exceptions.CfnNotFoundException;
 import software.amazon.cloudformation.exceptions.ResourceNotFoundException;
 import software.amazon.cloudformation.resource.Serializer;
 
@@ -137,6 +146,135 @@ public class ProgressEventTest {
         progressEvent.onSuccess((ProgressEvent<TestModel, TestContext> testModelTestContextProgressEvent) -> progressEvent);
     }
 
+    @Test
+    public void testThenAllRunsStepsConcurrently() {
+        final TestModel model = TestModel.builder().property1("abc").property2(123).build();
+        final StdCallbackContext context = new StdCallbackContext();
+        final CountDownLatch started = new CountDownLatch(3);
+        final AtomicInteger steps = new AtomicInteger();
+        final Function<ProgressEvent<TestModel, StdCallbackContext>, ProgressEvent<TestModel, StdCallbackContext>> step = e -> {
+            started.countDown();
+            try {
+                // only returns when all steps are running at the same time
+                assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            final String callGraph = "service:Operation-" + steps.incrementAndGet();
+            context.response(callGraph, (r, c) -> "done").apply(null, null);
+            return ProgressEvent.progress(e.getResourceModel(), e.getCallbackContext());
+        };
+
+        final ProgressEvent<TestModel,
+            StdCallbackContext> result = ProgressEvent.progress(model, context).thenAll(Arrays.asList(step, step, step));
+
+        assertThat(result.canContinueProgress()).isTrue();
+        assertThat(result.getResourceModel()).isSameAs(model);
+        assertThat(result.getCallbackContext()).isSameAs(context);
+        assertThat(context.findAllResponseByContains("service:Operation")).hasSize(3);
+    }
+
+    @Test
+    public void testThenAllBoundsConcurrency() {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger mostRunning = new AtomicInteger();
+        final Function<ProgressEvent<TestModel, TestContext>, ProgressEvent<TestModel, TestContext>> step = e -> {
+            mostRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            return ProgressEvent.success(e.getResourceModel(), e.getCallbackContext());
+        };
+
+        final ProgressEvent<TestModel, TestContext> result = ProgressEvent.<TestModel, TestContext>progress(null, null)
+            .thenAll(Collections.nCopies(6, step), 2);
+
+        assertThat(result.canContinueProgress()).isTrue();
+        assertThat(mostRunning.get()).isBetween(1, 2);
+    }
+
+    @Test
+    public void testThenAllCombinesOutcomes() {
+        final TestModel model = TestModel.builder().property1("abc").property2(123).build();
+        final ProgressEvent<TestModel, TestContext> start = ProgressEvent.progress(model, null);
+        final Function<ProgressEvent<TestModel, TestContext>,
+            ProgressEvent<TestModel, TestContext>> succeed = e -> ProgressEvent.success(e.getResourceModel(), null);
+        final Function<ProgressEvent<TestModel, TestContext>, ProgressEvent<TestModel,
+            TestContext>> wait5 = e -> ProgressEvent.defaultInProgressHandler(null, 5, e.getResourceModel());
+        final Function<ProgressEvent<TestModel, TestContext>, ProgressEvent<TestModel,
+            TestContext>> wait30 = e -> ProgressEvent.defaultInProgressHandler(null, 30, e.getResourceModel());
+        final Function<ProgressEvent<TestModel, TestContext>, ProgressEvent<TestModel,
+            TestContext>> fail = e -> ProgressEvent.failed(e.getResourceModel(), null, HandlerErrorCode.NotFound, "gone");
+        final Function<ProgressEvent<TestModel, TestContext>, ProgressEvent<TestModel, TestContext>> throttle = e -> ProgressEvent
+            .failed(e.getResourceModel(), null, HandlerErrorCode.Throttling, "slow down");
+
+        final ProgressEvent<TestModel, TestContext> delayed = start.thenAll(Arrays.asList(succeed, wait5, wait30));
+        assertThat(delayed.isInProgressCallbackDelay()).isTrue();
+        assertThat(delayed.getCallbackDelaySeconds()).isEqualTo(30);
+
+        final ProgressEvent<TestModel, TestContext> failed = start.thenAll(Arrays.asList(wait5, fail, throttle));
+        assertThat(failed.isFailed()).isTrue();
+        assertThat(failed.getErrorCode()).isEqualTo(HandlerErrorCode.NotFound);
+
+        final List<Function<ProgressEvent<TestModel, TestContext>, ProgressEvent<TestModel, TestContext>>> none = Collections
+            .emptyList();
+        assertThat(start.thenAll(none).canContinueProgress()).isTrue();
+
+        // steps are not run once progress can not continue
+        final ProgressEvent<TestModel, TestContext> done = ProgressEvent.success(model, null);
+        assertThat(done.thenAll(Collections.singletonList(fail))).isSameAs(done);
+    }
+
+    @Test
+    public void testThenAllKeepsReturnedModels() {
+        final TestModel model = TestModel.builder().property1("abc").build();
+        final ProgressEvent<TestModel, TestContext> start = ProgressEvent.progress(model, null);
+        final Function<ProgressEvent<TestModel, TestContext>, ProgressEvent<TestModel, TestContext>> same = e -> {
+            assertThat(e).isNotSameAs(start);
+            return ProgressEvent.success(e.getResourceModel(), null);
+        };
+        final Function<ProgressEvent<TestModel, TestContext>, ProgressEvent<TestModel, TestContext>> identify = e -> ProgressEvent
+            .progress(TestModel.builder().property1("abc").property2(123).build(), null);
+        final Function<ProgressEvent<TestModel, TestContext>, ProgressEvent<TestModel, TestContext>> tag = e -> ProgressEvent
+            .success(TestModel.builder().property1("abc").tags(Collections.singletonMap("k", "v")).build(), null);
+
+        final ProgressEvent<TestModel, TestContext> identified = start.thenAll(Arrays.asList(same, identify));
+        assertThat(identified.getResourceModel().getProperty2()).isEqualTo(123);
+
+        final ProgressEvent<TestModel, TestContext> tagged = start.thenAll(Arrays.asList(tag, same));
+        assertThat(tagged.getResourceModel().getTags()).containsEntry("k", "v");
+
+        // different models need a merge function
+        assertThrows(IllegalStateException.class, () -> start.thenAll(Arrays.asList(identify, tag)));
+        final ProgressEvent<TestModel,
+            TestContext> merged = start.thenAll(Arrays.asList(identify, tag), 2, (m, other) -> TestModel.builder()
+                .property1(m.getProperty1()).property2(m.getProperty2()).tags(other.getTags()).build());
+        assertThat(merged.getResourceModel().getProperty2()).isEqualTo(123);
+        assertThat(merged.getResourceModel().getTags()).containsEntry("k", "v");
+        assertThat(model.getProperty2()).isNull();
+    }
+
+    @Test
+    public void testThenAllRethrowsAfterAllStepsComplete() {
+        final AtomicInteger completed = new AtomicInteger();
+        final Function<ProgressEvent<TestModel, TestContext>, ProgressEvent<TestModel, TestContext>> step = e -> {
+            completed.incrementAndGet();
+            return e;
+        };
+        final Function<ProgressEvent<TestModel, TestContext>, ProgressEvent<TestModel, TestContext>> notFound = e -> {
+            throw new CfnNotFoundException("AWS::Test::TestModel", "abc");
+        };
+
+        assertThrows(CfnNotFoundException.class,
+            () -> ProgressEvent.<TestModel, TestContext>progress(null, null).thenAll(Arrays.asList(notFound, step, step)));
+        assertThat(completed.get()).isEqualTo(2);
+        assertThrows(IllegalArgumentException.class,
+            () -> ProgressEvent.<TestModel, TestContext>progress(null, null).thenAll(Arrays.asList(step), 0));
+    }
+
     @Test
     public void progressEvent_serialize_shouldReturnJson() throws JsonProcessingException {
         final ProgressEvent<String, String> progressEvent = ProgressEvent.defaultSuccessHandler("");
@@ -0,0 +1,79 @@
+/*
+* Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License").
+* You may not use this file except in compliance with the License.
+* A copy of the License is located at
+*
+*  http://aws.amazon.com/apache2.0
+*
+* or in the "license" file accompanying this file. This file is distributed
+* on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied. See the License for the specific language governing
+* permissions and limitations under the License.
+*/
+package software.amazon.cloudformation.proxy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.cloudformation.model.CreateStackRequest;
+import software.amazon.awssdk.services.cloudformation.model.Parameter;
+import software.amazon.awssdk.services.cloudformation.model.Tag;
+import software.amazon.awssdk.services.s3.model.PutBucketTaggingRequest;
+import software.amazon.cloudformation.proxy.service.CreateRequest;
+
+public class RequestFingerprintTest {
+
+    private static CreateStackRequest createStack(final String stackName, final String templateBody) {
+        return CreateStackRequest.builder().stackName(stackName).templateBody(templateBody)
+            .parameters(Parameter.builder().parameterKey("Env").parameterValue("prod").build())
+            .tags(Tag.builder().key("team").value("storage").build()).build();
+    }
+
+    @Test
+    public void sameRequestSameFingerprint() {
+        final String fingerprint = RequestFingerprint.of(createStack("stack", "{}"));
+
+        assertThat(fingerprint).hasSize(16);
+        assertThat(RequestFingerprint.of(createStack("stack", "{}"))).isEqualTo(fingerprint);
+        // stable from one invocation, and JVM, to the next
+        assertThat(RequestFingerprint.of(CreateStackRequest.builder().stackName("stack").build())).isEqualTo("720d82458749698d");
+    }
+
+    @Test
+    public void differentRequestsDifferentFingerprints() {
+        final String fingerprint = RequestFingerprint.of(createStack("stack", "{}"));
+
+        assertThat(RequestFingerprint.of(createStack("stack-2", "{}"))).isNotEqualTo(fingerprint);
+        assertThat(RequestFingerprint.of(createStack("stack", "{ }"))).isNotEqualTo(fingerprint);
+        // values moved between fields
+        assertThat(RequestFingerprint.of(createStack("{}", "stack"))).isNotEqualTo(fingerprint);
+        assertThat(RequestFingerprint.of(CreateStackRequest.builder().stackName("stack").build()))
+            .isNotEqualTo(RequestFingerprint.of(CreateStackRequest.builder().templateBody("stack").build()));
+        assertThat(RequestFingerprint.of(null)).isNotEqualTo(RequestFingerprint.of(CreateStackRequest.builder().build()));
+    }
+
+    @Test
+    public void mapsInKeyOrder() {
+        final Map<String, String> forward = new LinkedHashMap<>();
+        forward.put("a", "1");
+        forward.put("b", "2");
+        final Map<String, String> backward = new LinkedHashMap<>();
+        backward.put("b", "2");
+        backward.put("a", "1");
+
+        assertThat(RequestFingerprint.of(forward)).isEqualTo(RequestFingerprint.of(backward));
+        assertThat(RequestFingerprint.of(PutBucketTaggingRequest.builder().bucket("bucket").build()))
+            .isNotEqualTo(RequestFingerprint.of(PutBucketTaggingRequest.builder().bucket("bucket-2").build()));
+    }
+
+    @Test
+    public void requestsWithoutMarshalledFields() {
+        // the test service shapes have no SDK fields, their hash codes tell them apart
+        assertThat(RequestFingerprint.of(new CreateRequest.Builder().repoName("repo").build()))
+            .isEqualTo(RequestFingerprint.of(new CreateRequest.Builder().repoName("repo").build()))
+            .isNotEqualTo(RequestFingerprint.of(new CreateRequest.Builder().repoName("repo-2").build()));
+    }
+}
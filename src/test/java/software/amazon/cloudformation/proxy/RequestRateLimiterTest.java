@@ -0,0 +1,100 @@
+/*
+* Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License").
+* You may not use this file except in compliance with the License.
+* A copy of the License is located at
+*
+*  http://aws.amazon.com/apache2.0
+*
+* or in the "license" file accompanying this file. This file is distributed
+* on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied. See the License for the specific language governing
+* permissions and limitations under the License.
+*/
+package software.amazon.cloudformation.proxy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableMap;
+import java.time.Duration;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class RequestRateLimiterTest {
+
+    private static final class ManualTicker extends Ticker {
+        private long nanos;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        private void advance(final Duration duration) {
+            nanos += duration.toNanos();
+        }
+    }
+
+    @Test
+    public void burstThenRate() {
+        final ManualTicker ticker = new ManualTicker();
+        final RequestRateLimiter limiter = new RequestRateLimiter(ImmutableMap.of("ec2", 2), ticker);
+
+        assertThat(limiter.reserve("ec2", "DescribeInstances")).isEqualTo(Duration.ZERO);
+        assertThat(limiter.reserve("ec2", "DescribeInstances")).isEqualTo(Duration.ZERO);
+        assertThat(limiter.reserve("ec2", "DescribeInstances")).isEqualTo(Duration.ofMillis(500));
+        // queued behind the previous reservation
+        assertThat(limiter.reserve("ec2", "RunInstances")).isEqualTo(Duration.ofSeconds(1));
+
+        ticker.advance(Duration.ofSeconds(1));
+        assertThat(limiter.reserve("ec2", "DescribeInstances")).isEqualTo(Duration.ofMillis(500));
+
+        // refills no further than the burst
+        ticker.advance(Duration.ofMinutes(1));
+        assertThat(limiter.reserve("ec2", "DescribeInstances")).isEqualTo(Duration.ZERO);
+        assertThat(limiter.reserve("ec2", "DescribeInstances")).isEqualTo(Duration.ZERO);
+        assertThat(limiter.reserve("ec2", "DescribeInstances")).isEqualTo(Duration.ofMillis(500));
+    }
+
+    @Test
+    public void serviceAndOperationLimits() {
+        final ManualTicker ticker = new ManualTicker();
+        final RequestRateLimiter limiter = new RequestRateLimiter(ImmutableMap.of("ec2", 10, "ec2:DescribeInstances", 0.5),
+                                                                  ticker);
+
+        assertThat(limiter.reserve("ec2", "DescribeInstances")).isEqualTo(Duration.ZERO);
+        assertThat(limiter.reserve("ec2", "DescribeInstances")).isEqualTo(Duration.ofSeconds(2));
+        // other operations only share the service limit
+        assertThat(limiter.reserve("ec2", "RunInstances")).isEqualTo(Duration.ZERO);
+        // services without limits are never held up
+        assertThat(limiter.reserve("s3", "ListObjectsV2")).isEqualTo(Duration.ZERO);
+
+        final Map<String, RequestRateLimiter.Waits> waits = limiter.drainWaits();
+        assertThat(waits).containsOnlyKeys("ec2:DescribeInstances");
+        assertThat(waits.get("ec2:DescribeInstances").getPermitsWaited()).isEqualTo(1);
+        assertThat(waits.get("ec2:DescribeInstances").getWaited()).isEqualTo(Duration.ofSeconds(2));
+        assertThat(limiter.drainWaits()).isEmpty();
+    }
+
+    @Test
+    public void tryReserveWithinMaxWait() {
+        final ManualTicker ticker = new ManualTicker();
+        final RequestRateLimiter limiter = new RequestRateLimiter(ImmutableMap.of("ec2", 2), ticker);
+
+        assertThat(limiter.tryReserve("ec2", "DescribeInstances", Duration.ZERO)).isEqualTo(Duration.ZERO);
+        assertThat(limiter.tryReserve("ec2", "DescribeInstances", Duration.ZERO)).isEqualTo(Duration.ZERO);
+        assertThat(limiter.tryReserve("ec2", "DescribeInstances", Duration.ofMillis(499))).isNull();
+        // the refused request took no permit
+        assertThat(limiter.tryReserve("ec2", "DescribeInstances", Duration.ofMillis(500))).isEqualTo(Duration.ofMillis(500));
+        assertThat(limiter.tryReserve("ec2", "DescribeInstances", null)).isEqualTo(Duration.ofSeconds(1));
+        assertThat(limiter.drainWaits().get("ec2").getPermitsWaited()).isEqualTo(2);
+    }
+
+    @Test
+    public void invalidLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new RequestRateLimiter(ImmutableMap.of("ec2", 0)));
+        assertThrows(IllegalArgumentException.class, () -> new RequestRateLimiter(ImmutableMap.of("ec2", -1.5)));
+    }
+}
@@ -16,20 +16,36 @@ package software.amazon.cloudformation.proxy;
 
 import static org.assertj.core.api.AssertionsForClassTypes.*;
 import static org.junit.jupiter.api.Assertions.*;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.regex.Pattern;
 import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.cloudwatchlogs.model.DescribeLogStreamsRequest;
+import software.amazon.awssdk.services.cloudwatchlogs.model.DescribeLogStreamsResponse;
+import software.amazon.awssdk.services.cloudwatchlogs.model.LogStream;
 import software.amazon.cloudformation.resource.Serializer;
 
 public class StdCallackContextTest {
@@ -249,4 +265,356 @@ public class StdCallackContextTest {
         assertThat(graphs.get("bool")).isEqualTo(true);
     }
 
+    @StdCallbackContext.CompactEncoding
+    public static class CompactCallbackContext extends StdCallbackContext {
+    }
+
+    private static LinkedHashMap<String, Object> sdkCallGraphs() {
+        LinkedHashMap<String, Object> callGraphs = new LinkedHashMap<>();
+        for (int i = 0; i < 10; i++) {
+            callGraphs.put("logs:DescribeLogStreams-" + i + ".request",
+                DescribeLogStreamsRequest.builder().logGroupName("log-group-" + i).limit(10).build());
+            callGraphs.put("logs:DescribeLogStreams-" + i + ".response",
+                DescribeLogStreamsResponse.builder()
+                    .logStreams(LogStream.builder().logStreamName("stream-" + i).creationTime(1559670600000L).build())
+                    .nextToken("token-" + i).build());
+            callGraphs.put("logs:DescribeLogStreams-" + i + ".stabilize", Boolean.TRUE);
+        }
+        callGraphs.put("pojos", new ArrayList<>(Arrays.asList(new SimplePOJO("one", "two"), new SimplePOJO("three", "four"))));
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("pojo", new SimplePOJO("five", "six"));
+        callGraphs.put("map", map);
+        return callGraphs;
+    }
+
+    @Test
+    public void testCompactEncodingSerDeser() throws Exception {
+        CompactCallbackContext cxt = new CompactCallbackContext();
+        cxt.setCallGraphs(sdkCallGraphs());
+
+        Serializer serializer = new Serializer();
+        String serialized = serializer.serialize(cxt);
+        JsonNode encoded = new ObjectMapper().readTree(serialized).get("callGraphs");
+        assertThat(encoded.isTextual()).isTrue();
+
+        // every class name is written once
+        String decoded = new String(encoded.binaryValue(), StandardCharsets.ISO_8859_1);
+        assertThat(decoded.split(Pattern.quote(SimplePOJO.class.getName()), -1).length).isEqualTo(2);
+        assertThat(decoded.split(Pattern.quote(DescribeLogStreamsResponse.class.getName()), -1).length).isEqualTo(2);
+
+        CompactCallbackContext deserialized = serializer.deserialize(serialized, new TypeReference<CompactCallbackContext>() {
+        });
+        assertThat(deserialized.callGraphs()).isEqualTo(cxt.callGraphs());
+    }
+
+    @Test
+    public void testCompactEncodingIsSmaller() throws Exception {
+        StdCallbackContext json = new StdCallbackContext();
+        json.setCallGraphs(sdkCallGraphs());
+        CompactCallbackContext compact = new CompactCallbackContext();
+        compact.setCallGraphs(sdkCallGraphs());
+
+        Serializer serializer = new Serializer();
+        assertThat(serializer.serialize(compact).length()).isLessThan(serializer.serialize(json).length());
+    }
+
+    @Test
+    public void testEncodingsReadInterchangeably() throws Exception {
+        StdCallbackContext json = new StdCallbackContext();
+        json.setCallGraphs(sdkCallGraphs());
+        CompactCallbackContext compact = new CompactCallbackContext();
+        compact.setCallGraphs(sdkCallGraphs());
+
+        Serializer serializer = new Serializer();
+        CompactCallbackContext fromJson = serializer.deserialize(serializer.serialize(json),
+            new TypeReference<CompactCallbackContext>() {
+            });
+        assertThat(fromJson.callGraphs()).isEqualTo(json.callGraphs());
+        StdCallbackContext fromCompact = serializer.deserialize(serializer.serialize(compact),
+            new TypeReference<StdCallbackContext>() {
+            });
+        assertThat(fromCompact.callGraphs()).isEqualTo(compact.callGraphs());
+    }
+
+    @Test
+    public void testCompactEncodingUndefinedClassIndex() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (JsonGenerator gen = new CBORFactory().createGenerator(bytes)) {
+            gen.writeStartObject();
+            gen.writeFieldName("foo");
+            gen.writeStartArray();
+            gen.writeNumber(0);
+            gen.writeString("bar");
+            gen.writeEndArray();
+            gen.writeEndObject();
+        }
+        String json = "{\"callGraphs\": \"" + Base64.getEncoder().encodeToString(bytes.toByteArray()) + "\"}";
+
+        JsonMappingException exception = assertThrows(JsonMappingException.class,
+            () -> new Serializer().deserialize(json, new TypeReference<StdCallbackContext>() {
+            }));
+        assertThat(exception.getCause().getMessage()).contains("Encoded Class index 0 not defined");
+    }
+
+    @Test
+    public void testCallGraphsKeepWireFormat() throws Exception {
+        String json = "{\"callGraphs\": {\"logs:DescribeLogStreams-create-1.request\": [\"" + SimplePOJO.class.getName()
+            + "\", {\"name\": \"one\", \"lastThing\": \"two\"}], \"logs:DescribeLogStreams-create-1.attempts\": 2, "
+            + "\"logs:DescribeLogStreams-create-1.stabilize\": true, \"foo.attempts\": \"not a number\", \"bar\": 1}}";
+        Serializer serializer = new Serializer();
+        StdCallbackContext cxt = serializer.deserialize(json, new TypeReference<StdCallbackContext>() {
+        });
+
+        assertThat(cxt.attempts("logs:DescribeLogStreams-create-1")).isEqualTo(2);
+        assertThat((SimplePOJO) cxt.findFirstRequestByOperation("logs:DescribeLogStreams"))
+            .isEqualTo(new SimplePOJO("one", "two"));
+        assertThat(cxt.callGraphs().get("foo.attempts")).isEqualTo("not a number");
+        assertThat(cxt.callGraphs().get("bar")).isEqualTo(1);
+
+        ObjectMapper mapper = new ObjectMapper();
+        assertThat(mapper.readTree(serializer.serialize(cxt))).isEqualTo(mapper.readTree(json));
+    }
+
+    @Test
+    public void testFindByOperation() {
+        for (int i = 0; i < 3; i++) {
+            String callGraph = "logs:DescribeLogStreams-describe" + i + "-" + i;
+            cxt.request(callGraph, (ign) -> "request" + ign).apply(callGraph);
+            cxt.response(callGraph, (r, c) -> "response" + c).apply(null, callGraph);
+        }
+        cxt.request("logs:CreateLogGroup", (ign) -> "create").apply(null);
+
+        assertThat(cxt.<String>findFirstRequestByOperation("logs:DescribeLogStreams"))
+            .isEqualTo("requestlogs:DescribeLogStreams-describe0-0");
+        assertThat(cxt.<String>findAllResponseByOperation("logs:DescribeLogStreams"))
+            .isEqualTo(Arrays.asList("responselogs:DescribeLogStreams-describe0-0", "responselogs:DescribeLogStreams-describe1-1",
+                "responselogs:DescribeLogStreams-describe2-2"));
+        assertThat(cxt.<String>findFirstRequestByOperation("logs:CreateLogGroup")).isEqualTo("create");
+        assertThat(cxt.<String>findFirstResponseByOperation("logs:CreateLogGroup")).isNull();
+        assertThat(cxt.<String>findAllRequestByOperation("logs:Describe")).isEqualTo(Collections.emptyList());
+        // contains still matches anywhere in the name
+        assertThat(cxt.<String>findAllRequestByContains("describe1"))
+            .isEqualTo(Collections.singletonList("requestlogs:DescribeLogStreams-describe1-1"));
+
+        assertThat(cxt.<String>evictRequestRecord("logs:CreateLogGroup")).isEqualTo("create");
+        assertThat(cxt.<String>findFirstRequestByOperation("logs:CreateLogGroup")).isNull();
+        assertThat(cxt.callGraphs().containsKey("logs:CreateLogGroup.request")).isFalse();
+        assertThat(cxt.callGraphs().size()).isEqualTo(6);
+    }
+
+    @Test
+    public void testRepeatedDeserializationReusesLookups() throws Exception {
+        LinkedHashMap<String, Object> callGraphs = sdkCallGraphs();
+        callGraphs.put("set", new HashSet<>(Arrays.asList("one", "two")));
+        cxt.setCallGraphs(callGraphs);
+
+        Serializer serializer = new Serializer();
+        String serialized = serializer.serialize(cxt);
+        for (int i = 0; i < 3; i++) {
+            StdCallbackContext deserialized = serializer.deserialize(serialized, new TypeReference<StdCallbackContext>() {
+            });
+            assertThat(deserialized.callGraphs()).isEqualTo(cxt.callGraphs());
+            assertThat(deserialized.callGraphs().get("set")).isInstanceOf(HashSet.class);
+        }
+    }
+
+    @StdCallbackContext.DeferredDecoding
+    public static class DeferredCallbackContext extends StdCallbackContext {
+    }
+
+    @StdCallbackContext.DeferredDecoding
+    @StdCallbackContext.CompactEncoding
+    public static class DeferredCompactCallbackContext extends StdCallbackContext {
+    }
+
+    @Test
+    public void testDeferredDecoding() throws Exception {
+        StdCallbackContext eager = new StdCallbackContext();
+        eager.setCallGraphs(sdkCallGraphs());
+        Serializer serializer = new Serializer();
+        String serialized = serializer.serialize(eager);
+
+        DeferredCallbackContext deferred = serializer.deserialize(serialized, new TypeReference<DeferredCallbackContext>() {
+        });
+        assertThat(deferred.toString()).contains("Encoded(" + DescribeLogStreamsResponse.class.getName() + ")");
+
+        DescribeLogStreamsResponse response = deferred.response("logs:DescribeLogStreams-3");
+        assertThat(response).isEqualTo(eager.response("logs:DescribeLogStreams-3"));
+        assertThat(deferred.toString()).contains("NextToken=token-3").doesNotContain("NextToken=token-4");
+
+        // untouched values are written back as read
+        ObjectMapper mapper = new ObjectMapper();
+        assertThat(mapper.readTree(serializer.serialize(deferred))).isEqualTo(mapper.readTree(serialized));
+        assertThat(deferred.callGraphs()).isEqualTo(eager.callGraphs());
+    }
+
+    @Test
+    public void testDeferredDecodingCompactEncoding() throws Exception {
+        DeferredCompactCallbackContext cxt = new DeferredCompactCallbackContext();
+        cxt.setCallGraphs(sdkCallGraphs());
+        Serializer serializer = new Serializer();
+
+        DeferredCompactCallbackContext deferred = serializer.deserialize(serializer.serialize(cxt),
+            new TypeReference<DeferredCompactCallbackContext>() {
+            });
+        assertThat(deferred.<DescribeLogStreamsRequest>findFirstRequestByContains("DescribeLogStreams-7").logGroupName())
+            .isEqualTo("log-group-7");
+
+        // class indexes are still assigned in order when re-encoding values not decoded
+        DeferredCompactCallbackContext reread = serializer.deserialize(serializer.serialize(deferred),
+            new TypeReference<DeferredCompactCallbackContext>() {
+            });
+        assertThat(reread.callGraphs()).isEqualTo(cxt.callGraphs());
+    }
+
+    @StdCallbackContext.DeferredDecoding
+    public static class DeferredCreatorCallbackContext extends StdCallbackContext {
+        private final String stackId;
+
+        @JsonCreator
+        public DeferredCreatorCallbackContext(@JsonProperty("stackId") String stackId) {
+            this.stackId = stackId;
+        }
+
+        public String getStackId() {
+            return stackId;
+        }
+    }
+
+    @Test
+    public void testDeferredDecodingCreatorContext() throws Exception {
+        StdCallbackContext eager = new StdCallbackContext();
+        eager.setCallGraphs(sdkCallGraphs());
+        Serializer serializer = new Serializer();
+
+        // the call graphs are read before the context is created from the creator
+        ObjectNode serialized = (ObjectNode) new ObjectMapper().readTree(serializer.serialize(eager));
+        serialized.put("stackId", "stack-1");
+        DeferredCreatorCallbackContext deferred = serializer.deserialize(serialized.toString(),
+            new TypeReference<DeferredCreatorCallbackContext>() {
+            });
+        assertThat(deferred.getStackId()).isEqualTo("stack-1");
+        assertThat(deferred.toString()).contains("Encoded(" + DescribeLogStreamsResponse.class.getName() + ")");
+        assertThat(deferred.callGraphs()).isEqualTo(eager.callGraphs());
+    }
+
+    @StdCallbackContext.CallGraphRetention(maxBytes = 2048)
+    public static class BoundedCallbackContext extends StdCallbackContext {
+    }
+
+    @Test
+    public void testSizeBudgetKeepsStepsInFlight() throws Exception {
+        BoundedCallbackContext cxt = new BoundedCallbackContext();
+        cxt.setCallGraphs(sdkCallGraphs());
+        cxt.request("logs:CreateLogGroup", (ign) -> "request").apply(null);
+
+        // over budget, but no step is done, dropping one would make its request again
+        assertThat(cxt.callGraphs().keySet().stream().filter(key -> key.endsWith(".response")).count()).isEqualTo(10);
+
+        // serializing leaves the call graphs as they are
+        Serializer serializer = new Serializer();
+        BoundedCallbackContext deserialized = serializer.deserialize(serializer.serialize(cxt),
+            new TypeReference<BoundedCallbackContext>() {
+            });
+        assertThat(deserialized.callGraphs()).isEqualTo(cxt.callGraphs());
+    }
+
+    @Test
+    public void testSizeBudgetDropsCompletedLeastRecentlyUsed() throws Exception {
+        Serializer serializer = new Serializer();
+        BoundedCallbackContext read = new BoundedCallbackContext();
+        read.setCallGraphs(sdkCallGraphs());
+        // measured when first needed, as read
+        BoundedCallbackContext cxt = serializer.deserialize(serializer.serialize(read),
+            new TypeReference<BoundedCallbackContext>() {
+            });
+
+        for (int i = 0; i < 10; i++) {
+            if (i != 5) {
+                cxt.retainCompleted("logs:DescribeLogStreams-" + i);
+            }
+        }
+
+        // the steps done first are dropped, and are not made again
+        assertThat(cxt.<Object>response("logs:DescribeLogStreams-0")).isNull();
+        assertThat(cxt.isCompleted("logs:DescribeLogStreams-0")).isTrue();
+        assertThat(cxt.isDiscarded("logs:DescribeLogStreams-0")).isTrue();
+        assertThat(cxt.callGraphs().get("logs:DescribeLogStreams-0.stabilize")).isEqualTo(true);
+        // the step in flight and the steps done last are kept
+        assertThat(cxt.<Object>response("logs:DescribeLogStreams-5")).isNotNull();
+        assertThat(cxt.isDiscarded("logs:DescribeLogStreams-5")).isFalse();
+        assertThat(cxt.<Object>response("logs:DescribeLogStreams-9")).isNotNull();
+        assertThat(cxt.isDiscarded("logs:DescribeLogStreams-9")).isFalse();
+        // the requests and responses sent fit the budget
+        JsonNode sent = new ObjectMapper().readTree(serializer.serialize(cxt)).get("callGraphs");
+        int held = 0;
+        for (Iterator<Map.Entry<String, JsonNode>> each = sent.fields(); each.hasNext();) {
+            Map.Entry<String, JsonNode> entry = each.next();
+            if (entry.getKey().endsWith(".request") || entry.getKey().endsWith(".response")) {
+                held += entry.getValue().toString().length();
+            }
+        }
+        assertThat(held).isLessThanOrEqualTo(2048);
+    }
+
+    @Test
+    public void testRetainCompletedWithoutBudget() {
+        cxt.response("logs:CreateLogGroup", (r, c) -> "response").apply(null, null);
+        cxt.retainCompleted("logs:CreateLogGroup");
+        assertThat(cxt.isCompleted("logs:CreateLogGroup")).isFalse();
+        assertThat(cxt.callGraphs().keySet()).isEqualTo(Collections.singleton("logs:CreateLogGroup.response"));
+    }
+
+    @Test
+    public void testDiscardCompleted() {
+        cxt.request("logs:CreateLogGroup", (ign) -> "request").apply(null);
+        cxt.response("logs:CreateLogGroup", (r, c) -> "response").apply(null, null);
+        cxt.attempts("logs:CreateLogGroup", 3);
+        assertThat(cxt.isCompleted("logs:CreateLogGroup")).isFalse();
+
+        cxt.discardCompleted("logs:CreateLogGroup");
+        assertThat(cxt.isCompleted("logs:CreateLogGroup")).isTrue();
+        assertThat(cxt.callGraphs().keySet()).isEqualTo(Collections.singleton("logs:CreateLogGroup.completed"));
+    }
+
+    @Test
+    public void testAdaptiveBackoffSerDeser() throws Exception {
+        StdCallbackContext cxt = new StdCallbackContext();
+        cxt.attempts("client:createRepository", 3);
+        cxt.recordThrottle();
+        cxt.recordThrottle();
+
+        Serializer serializer = new Serializer();
+        StdCallbackContext deserialized = serializer.deserialize(serializer.serialize(cxt),
+            new TypeReference<StdCallbackContext>() {
+            });
+        assertThat(deserialized.adaptiveBackoff()).isEqualTo(2);
+        assertThat(deserialized.attempts("client:createRepository")).isEqualTo(3);
+        assertThat(deserialized).isEqualTo(cxt);
+
+        deserialized.recordSuccess();
+        deserialized.recordSuccess();
+        assertThat(deserialized.callGraphs().containsKey("adaptiveBackoff")).isFalse();
+    }
+
+    @Test
+    public void testRenameOnlyFromHashCodeNames() {
+        final String callGraph = "repositoryService:Create-step-fedcba9876543210";
+        final LinkedHashMap<String, Object> callGraphs = new LinkedHashMap<>();
+        callGraphs.put("repositoryService:Create-step-0123456789abcdef.response", "other");
+        final StdCallbackContext cxt = new StdCallbackContext();
+        cxt.setCallGraphs(callGraphs);
+
+        // no former name to look for, the request hash code is not computed
+        cxt.renameCallGraph(callGraph, () -> {
+            throw new AssertionError("former name computed");
+        });
+        assertThat(cxt.<String>response(callGraph)).isNull();
+
+        callGraphs.put("repositoryService:Create-step--42.response", "former");
+        cxt.setCallGraphs(callGraphs);
+        cxt.renameCallGraph(callGraph, () -> "repositoryService:Create-step--42");
+        assertThat(cxt.<String>response(callGraph)).isEqualTo("former");
+        assertThat(cxt.<String>response("repositoryService:Create-step-0123456789abcdef")).isEqualTo("other");
+    }
 }
@@ -0,0 +1,98 @@
+/*
+* Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License").
+* You may not use this file except in compliance with the License.
+* A copy of the License is located at
+*
+*  http://aws.amazon.com/apache2.0
+*
+* or in the "license" file accompanying this file. This file is distributed
+* on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied. See the License for the specific language governing
+* permissions and limitations under the License.
+*/
+package software.amazon.cloudformation.proxy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+
+public class WaitStrategyTest {
+
+    @Test
+    public void shortWaitsAreLocalAndPrecise() {
+        final WaitStrategy strategy = WaitStrategy.newRemainingTimeAwareStrategy(() -> 60_000L);
+
+        final long start = System.nanoTime();
+        final ProgressEvent<String,
+            StdCallbackContext> event = strategy.await(10L, Duration.ofMillis(150), new StdCallbackContext(), "model");
+        final Duration waited = Duration.ofNanos(System.nanoTime() - start);
+
+        assertThat(event).isNull();
+        assertThat(waited).isGreaterThanOrEqualTo(Duration.ofMillis(150)).isLessThan(Duration.ofSeconds(1));
+    }
+
+    @Test
+    public void longWaitsScheduleCallback() {
+        final WaitStrategy strategy = WaitStrategy.newRemainingTimeAwareStrategy(() -> 600_000L);
+        final StdCallbackContext context = new StdCallbackContext();
+
+        final ProgressEvent<String, StdCallbackContext> event = strategy.await(10L, Duration.ofMillis(6_200), context, "model");
+
+        assertThat(event.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        assertThat(event.getCallbackDelaySeconds()).isEqualTo(7);
+        assertThat(event.getCallbackContext()).isSameAs(context);
+        assertThat(event.getResourceModel()).isEqualTo("model");
+    }
+
+    @Test
+    public void lowRemainingTimeSchedulesCallback() {
+        final WaitStrategy strategy = WaitStrategy.newRemainingTimeAwareStrategy(() -> 1_000L);
+
+        // the next attempt may take twice as long as the last one did
+        final ProgressEvent<String,
+            StdCallbackContext> event = strategy.await(500L, Duration.ofMillis(200), new StdCallbackContext(), "model");
+
+        assertThat(event.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        assertThat(event.getCallbackDelaySeconds()).isEqualTo(1);
+    }
+
+    @Test
+    public void localLoopHasNoMaximumWait() {
+        final WaitStrategy strategy = WaitStrategy.newLocalLoopAwaitStrategy(() -> 600_000L);
+
+        final CompletableFuture<ProgressEvent<String, StdCallbackContext>> event = strategy.awaitAsync(10L,
+            Duration.ofMillis(100), new StdCallbackContext(), "model");
+
+        assertThat(event.join()).isNull();
+        assertThat(WaitStrategy.newRemainingTimeAwareStrategy(() -> 600_000L, Duration.ofMillis(50))
+            .awaitAsync(10L, Duration.ofMillis(100), new StdCallbackContext(), "model").join().getStatus())
+                .isEqualTo(OperationStatus.IN_PROGRESS);
+    }
+
+    @Test
+    public void asyncLocalWaitCompletesAfterDelay() {
+        final WaitStrategy strategy = WaitStrategy.newRemainingTimeAwareStrategy(() -> 60_000L);
+
+        final long start = System.nanoTime();
+        final CompletableFuture<ProgressEvent<String, StdCallbackContext>> event = strategy.awaitAsync(10L,
+            Duration.ofMillis(120), new StdCallbackContext(), "model");
+
+        assertThat(event.join()).isNull();
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(120));
+    }
+
+    @Test
+    public void callbackDelaysRoundUp() {
+        assertThat(LocalWaitStrategy.callbackDelaySeconds(Duration.ofMillis(300))).isEqualTo(1);
+        assertThat(LocalWaitStrategy.callbackDelaySeconds(Duration.ZERO)).isEqualTo(1);
+        assertThat(LocalWaitStrategy.callbackDelaySeconds(Duration.ofSeconds(3))).isEqualTo(3);
+        assertThat(LocalWaitStrategy.callbackDelaySeconds(Duration.ofMillis(3_200))).isEqualTo(4);
+
+        final ProgressEvent<String, StdCallbackContext> event = WaitStrategy.scheduleForCallbackStrategy().await(10L,
+            Duration.ofMillis(300), new StdCallbackContext(), "model");
+        assertThat(event.getCallbackDelaySeconds()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+* Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License").
+* You may not use this file except in compliance with the License.
+* A copy of the License is located at
+*
+*  http://aws.amazon.com/apache2.0
+*
+* or in the "license" file accompanying this file. This file is distributed
+* on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied. See the License for the specific language governing
+* permissions and limitations under the License.
+*/
+package software.amazon.cloudformation.resource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.everit.json.schema.SchemaException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.junit.jupiter.api.Test;
+import software.amazon.cloudformation.resource.exceptions.ValidationException;
+
+public class CachingValidatorTest {
+
+    private static JSONObject loadSchema() {
+        return new JSONObject(new JSONTokener(CachingValidatorTest.class
+            .getResourceAsStream("/software/amazon/cloudformation/wrapper-override.json")));
+    }
+
+    @Test
+    public void validateObject_matchesValidator() {
+        final CachingValidator validator = new CachingValidator();
+        final JSONObject schema = loadSchema();
+        final JSONObject invalid = new JSONObject().put("property1", "abc").put("property2", "not-an-integer");
+
+        validator.validateObject(new JSONObject().put("property1", "abc").put("property2", 123), schema);
+
+        final ValidationException expected = assertThrows(ValidationException.class,
+            () -> new Validator().validateObject(invalid, loadSchema()));
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> validator.validateObject(invalid, schema)).isInstanceOf(ValidationException.class)
+                .hasMessage(expected.getMessage())
+                .satisfies(e -> assertThat(((ValidationException) e).getSchemaPointer()).isEqualTo(expected.getSchemaPointer()));
+        }
+    }
+
+    @Test
+    public void validateObject_recompilesForOtherSchema() {
+        final CachingValidator validator = new CachingValidator();
+        final JSONObject model = new JSONObject().put("property1", "abc").put("property2", 123);
+
+        validator.validateObject(model, loadSchema());
+
+        // a different document is compiled again, not validated against the first
+        final JSONObject stricter = loadSchema();
+        stricter.getJSONObject("properties").getJSONObject("property2").put("maximum", 100);
+        assertThrows(ValidationException.class, () -> validator.validateObject(model, stricter));
+    }
+
+    @Test
+    public void validateObject_invalidSchemaThrowsLikeValidator() {
+        final JSONObject model = new JSONObject().put("property1", "abc");
+        final JSONObject schema = new JSONObject().put("type", "not-a-type");
+
+        final SchemaException expected = assertThrows(SchemaException.class, () -> new Validator().validateObject(model, schema));
+        assertThatThrownBy(() -> new CachingValidator().validateObject(model, schema)).isInstanceOf(SchemaException.class)
+            .hasMessage(expected.getMessage());
+    }
+}
@@ -0,0 +1,104 @@
+/*
+* Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License").
+* You may not use this file except in compliance with the License.
+* A copy of the License is located at
+*
+*  http://aws.amazon.com/apache2.0
+*
+* or in the "license" file accompanying this file. This file is distributed
+* on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied. See the License for the specific language governing
+* permissions and limitations under the License.
+*/
+package software.amazon.cloudformation.resource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.junit.jupiter.api.Test;
+import software.amazon.cloudformation.exceptions.TerminalException;
+
+public class ResourceTypeSchemaCacheTest {
+
+    private static JSONObject loadSchema() {
+        return new JSONObject(new JSONTokener(ResourceTypeSchemaCacheTest.class
+            .getResourceAsStream("/software/amazon/cloudformation/wrapper-override.json")));
+    }
+
+    @Test
+    public void getResourceTypeSchema_loadsOnce() {
+        final AtomicInteger loads = new AtomicInteger();
+        final ResourceTypeSchemaCache cache = new ResourceTypeSchemaCache(() -> {
+            loads.incrementAndGet();
+            return loadSchema();
+        });
+
+        final ResourceTypeSchema first = cache.getResourceTypeSchema();
+        final ResourceTypeSchema second = cache.getResourceTypeSchema();
+        final JSONObject schema = cache.getSchemaJson();
+
+        assertThat(second).isSameAs(first);
+        assertThat(first.getTypeName()).isEqualTo("Test::Resource::Type");
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(cache.getMisses()).isEqualTo(1);
+        assertThat(cache.getHits()).isEqualTo(2);
+
+        // compiling must not modify the shared schema document
+        assertThat(schema.has("$schema")).isFalse();
+    }
+
+    @Test
+    public void getWriteOnlyPropertyStripper_compilesOnce() {
+        final ResourceTypeSchemaCache cache = new ResourceTypeSchemaCache(ResourceTypeSchemaCacheTest::loadSchema);
+
+        final WriteOnlyPropertyStripper stripper = cache.getWriteOnlyPropertyStripper();
+        assertThat(cache.getWriteOnlyPropertyStripper()).isSameAs(stripper);
+        // the test schema declares no writeOnlyProperties
+        assertThat(stripper.isEmpty()).isTrue();
+        // the schema compiled along with the stripper is not counted as a miss of its
+        // own
+        assertThat(cache.getMisses()).isEqualTo(1);
+        assertThat(cache.getHits()).isEqualTo(1);
+        cache.getResourceTypeSchema();
+        assertThat(cache.getHits()).isEqualTo(2);
+    }
+
+    @Test
+    public void drainCounts_sinceLastDrain() {
+        final ResourceTypeSchemaCache cache = new ResourceTypeSchemaCache(ResourceTypeSchemaCacheTest::loadSchema);
+
+        cache.getSchemaJson();
+        cache.getSchemaJson();
+        final ResourceTypeSchemaCache.Counts first = cache.drainCounts();
+        assertThat(first.getMisses()).isEqualTo(1);
+        assertThat(first.getHits()).isEqualTo(1);
+
+        cache.getSchemaJson();
+        final ResourceTypeSchemaCache.Counts second = cache.drainCounts();
+        assertThat(second.getMisses()).isEqualTo(0);
+        assertThat(second.getHits()).isEqualTo(1);
+        assertThat(cache.getHits()).isEqualTo(2);
+    }
+
+    @Test
+    public void getSchemaJson_countsHitsAndMisses() {
+        final ResourceTypeSchemaCache cache = new ResourceTypeSchemaCache(ResourceTypeSchemaCacheTest::loadSchema);
+
+        assertThat(cache.getSchemaJson()).isSameAs(cache.getSchemaJson());
+        assertThat(cache.getMisses()).isEqualTo(1);
+        assertThat(cache.getHits()).isEqualTo(1);
+    }
+
+    @Test
+    public void getResourceTypeSchema_noSchema() {
+        final ResourceTypeSchemaCache cache = new ResourceTypeSchemaCache(() -> null);
+
+        assertThat(cache.getSchemaJson()).isNull();
+        assertThatThrownBy(cache::getResourceTypeSchema).isInstanceOf(TerminalException.class)
+            .hasMessageContaining("no schema was provided");
+    }
+}
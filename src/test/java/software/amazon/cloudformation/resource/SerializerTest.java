@@ -15,14 +15,20 @@
 package software.amazon.cloudformation.resource;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.AssertionsForClassTypes.entry;
+import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import org.apache.commons.io.IOUtils;
 import org.assertj.core.util.Maps;
@@ -175,4 +181,76 @@ public class SerializerTest {
         assertThat(requestData.getResourceProperties().getProperty1()).isEqualTo("abc");
         assertThat(requestData.getResourceProperties().getProperty2()).isEqualTo(123);
     }
+
+    @Test
+    public void testReadTree_PlainPayload() throws IOException {
+        final Serializer s = new Serializer();
+
+        final String in = loadRequestJson("create.request.json");
+
+        final JsonNode tree = s.readTree(new ByteArrayInputStream(in.getBytes(StandardCharsets.UTF_8)));
+        assertThat(tree.path("requestData").path("resourceProperties").path("property1").asText()).isEqualTo("abc");
+
+        final HandlerRequest<TestModel, TestContext, TestConfigurationModel> r = s.deserialize(tree, typeReference);
+        assertThat(r).isEqualTo(s.deserialize(in, typeReference));
+    }
+
+    @Test
+    public void testReadTree_CompressedPayload() throws IOException {
+        final Serializer s = new Serializer();
+
+        final String in = loadRequestJson("create.request.json");
+        final String compressed = s.compress(in);
+
+        final JsonNode tree = s.readTree(new ByteArrayInputStream(compressed.getBytes(StandardCharsets.UTF_8)));
+        assertThat(tree.has(Serializer.COMPRESSED)).isFalse();
+
+        final HandlerRequest<TestModel, TestContext, TestConfigurationModel> r = s.deserialize(tree, typeReference);
+        assertThat(r).isEqualTo(s.deserialize(in, typeReference));
+    }
+
+    @Test
+    public void testReadTree_CompressedFieldAnywhere() throws IOException {
+        final Serializer s = new Serializer();
+
+        final String in = loadRequestJson("create.request.json");
+        final String compressed = "{\"awsAccountId\": \"123456789012\", " + s.compress(in).substring(1);
+
+        final JsonNode tree = s.readTree(new ByteArrayInputStream(compressed.getBytes(StandardCharsets.UTF_8)));
+        assertThat(tree).isEqualTo(s.readTree(new ByteArrayInputStream(in.getBytes(StandardCharsets.UTF_8))));
+
+        // a compression method alone does not make a payload compressed
+        final String methodOnly = "{\"__COMPRESSION_METHOD__\": \"gzip_base64\", \"awsAccountId\": \"123456789012\"}";
+        assertThat(
+            s.readTree(new ByteArrayInputStream(methodOnly.getBytes(StandardCharsets.UTF_8))).path("awsAccountId").asText())
+                .isEqualTo("123456789012");
+    }
+
+    @Test
+    public void testReadTree_NotAnObject() {
+        final Serializer s = new Serializer();
+
+        assertThatThrownBy(() -> s.readTree(new ByteArrayInputStream(new byte[0]))).isInstanceOf(JsonParseException.class)
+            .hasMessageStartingWith("Expected start of object for request payload got null");
+        assertThatThrownBy(() -> s.readTree(new ByteArrayInputStream("[1, 2]".getBytes(StandardCharsets.UTF_8))))
+            .isInstanceOf(JsonParseException.class)
+            .hasMessageStartingWith("Expected start of object for request payload got START_ARRAY");
+    }
+
+    @Test
+    public void testDeserializeStrict_Tree() throws IOException {
+        final Serializer s = new Serializer();
+
+        final JsonNode tree = s
+            .readTree(new ByteArrayInputStream(loadRequestJson("create.request.with-extraneous-model-fields.json")
+                .getBytes(StandardCharsets.UTF_8)));
+        final JsonNode model = tree.path("requestData").path("resourceProperties");
+
+        assertThatThrownBy(() -> s.deserializeStrict(model, new TypeReference<TestModel>() {
+        })).isInstanceOf(UnrecognizedPropertyException.class).hasMessageContaining("fieldCausesValidationError");
+
+        final TestModel expected = TestModel.builder().property1("abc").property2(123).build();
+        assertThat(s.deserializeStrict(s.toTree(expected), new TypeReference<TestModel>() {
+        })).isEqualTo(expected);
+    }
 }
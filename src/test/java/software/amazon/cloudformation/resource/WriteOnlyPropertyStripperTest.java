@@ -0,0 +1,76 @@
+/*
+* Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License").
+* You may not use this file except in compliance with the License.
+* A copy of the License is located at
+*
+*  http://aws.amazon.com/apache2.0
+*
+* or in the "license" file accompanying this file. This file is distributed
+* on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied. See the License for the specific language governing
+* permissions and limitations under the License.
+*/
+package software.amazon.cloudformation.resource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+public class WriteOnlyPropertyStripperTest {
+
+    private static final String SCHEMA = "{\"typeName\": \"Test::Resource::Type\", \"description\": \"Description\", "
+        + "\"properties\": {\"Id\": {\"type\": \"string\"}, \"Password\": {\"type\": \"string\"}, "
+        + "\"Nested\": {\"type\": \"object\", \"properties\": {\"Secret\": {\"type\": \"string\"}, "
+        + "\"Visible\": {\"type\": \"string\"}}}}, "
+        + "\"writeOnlyProperties\": [\"/properties/Password\", \"/properties/Nested/Secret\", "
+        + "\"/properties/Missing/Secret\"], \"primaryIdentifier\": [\"/properties/Id\"], \"additionalProperties\": false}";
+
+    private static final String MODEL = "{\"Id\": \"abc\", \"Password\": \"pwd\", \"Nested\": {\"Secret\": \"s\", "
+        + "\"Visible\": \"v\"}}";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void strip_matchesResourceTypeSchema() throws IOException {
+        final ResourceTypeSchema schema = ResourceTypeSchema.load(new JSONObject(SCHEMA));
+        final WriteOnlyPropertyStripper stripper = WriteOnlyPropertyStripper.compile(schema);
+        assertThat(stripper.isEmpty()).isFalse();
+
+        final JsonNode model = mapper.readTree(MODEL);
+        stripper.strip(model);
+
+        final JSONObject expected = new JSONObject(MODEL);
+        schema.removeWriteOnlyProperties(expected);
+
+        assertThat(model).isEqualTo(mapper.readTree(expected.toString()));
+        assertThat(model.toString()).isEqualTo("{\"Id\":\"abc\",\"Nested\":{\"Visible\":\"v\"}}");
+    }
+
+    @Test
+    public void strip_ignoresUnresolvedParents() throws IOException {
+        final WriteOnlyPropertyStripper stripper = WriteOnlyPropertyStripper.compile(Arrays.asList("/properties/Id/Secret",
+            "/properties/List/0/Secret", "/properties/List/1/Secret", "/properties/Slash~1Name"));
+
+        final JsonNode model = mapper
+            .readTree("{\"Id\": \"abc\", \"List\": [{\"Secret\": \"s\", \"Other\": 1}], \"Slash/Name\": \"x\"}");
+        stripper.strip(model);
+
+        assertThat(model.toString()).isEqualTo("{\"Id\":\"abc\",\"List\":[{\"Other\":1}]}");
+    }
+
+    @Test
+    public void compile_noWriteOnlyProperties() {
+        assertThat(WriteOnlyPropertyStripper.compile(Collections.emptyList()).isEmpty()).isTrue();
+        assertThat(WriteOnlyPropertyStripper.compile((java.util.List<String>) null).isEmpty()).isTrue();
+
+        // no-op on absent models
+        WriteOnlyPropertyStripper.compile(Collections.singletonList("/properties/Id")).strip(null);
+    }
+}